@@ -0,0 +1,82 @@
+package org.osm2world.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.test.BenchmarkData;
+import org.osm2world.core.world.creation.WorldCreator;
+import org.osm2world.core.world.creation.WorldModule;
+
+/**
+ * measures each of the default {@link WorldModule}s on its own for a synthetic city.
+ * Modules which the measured module depends on are applied before the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class WorldModuleBenchmark {
+
+	@Param({"RoadModule", "RailwayModule", "AerowayModule", "BuildingModule", "ParkingModule", "TreeModule",
+			"StreetFurnitureModule", "TrafficSignModule", "BicycleParkingModule", "WaterModule", "PoolModule",
+			"GolfModule", "SportsModule", "CliffModule", "BarrierModule", "PowerModule", "MastModule",
+			"BridgeModule", "TunnelModule", "SurfaceAreaModule", "InvisibleModule", "IndoorModule"})
+	public String moduleName;
+
+	@Param({"20"})
+	public int blocksPerSide;
+
+	private final Configuration config = new BaseConfiguration();
+
+	private WorldModule module;
+	private MapData mapData;
+
+	@Setup(Level.Invocation)
+	public void setup() {
+
+		List<WorldModule> modules = ConversionFacade.createDefaultModuleList();
+
+		module = modules.stream()
+				.filter(m -> m.getClass().getSimpleName().equals(moduleName))
+				.findAny().orElseThrow(() -> new IllegalArgumentException("unknown module: " + moduleName));
+
+		mapData = BenchmarkData.createCityMapData(blocksPerSide, 42);
+
+		List<WorldModule> dependencies = new ArrayList<>();
+		for (WorldModule m : modules) {
+			if (module.getDependencies().contains(m.getClass())) {
+				dependencies.add(m);
+			}
+		}
+
+		if (!dependencies.isEmpty()) {
+			new WorldCreator(config, dependencies).addRepresentationsTo(mapData);
+		}
+
+	}
+
+	@Benchmark
+	public MapData applyModule() {
+		new WorldCreator(config, module).addRepresentationsTo(mapData);
+		return mapData;
+	}
+
+}
@@ -0,0 +1,51 @@
+package org.osm2world.core.map_data.creation;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.osm.data.OSMData;
+import org.osm2world.core.test.BenchmarkData;
+
+import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
+
+/**
+ * measures {@link OSMToMapDataConverter#createMapData(OSMData)} for a synthetic city
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MapDataCreationBenchmark {
+
+	@Param({"10", "30"})
+	public int blocksPerSide;
+
+	private OSMData osmData;
+
+	@Setup
+	public void setup() {
+		osmData = BenchmarkData.createCityOSMData(blocksPerSide, 42);
+	}
+
+	@Benchmark
+	public MapData createMapData() throws IOException, EntityNotFoundException {
+		return new OSMToMapDataConverter(BenchmarkData.createProjection(), new BaseConfiguration())
+				.createMapData(osmData);
+	}
+
+}
@@ -0,0 +1,53 @@
+package org.osm2world.core.math.algorithms;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osm2world.core.math.LineSegmentXZ;
+import org.osm2world.core.math.algorithms.LineSegmentIntersectionFinder.Intersection;
+import org.osm2world.core.test.BenchmarkData;
+
+/**
+ * compares {@link LineSegmentIntersectionFinder} with {@link SimpleLineSegmentIntersectionFinder}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LineSegmentIntersectionBenchmark {
+
+	@Param({"100", "1000"})
+	public int segmentCount;
+
+	private List<LineSegmentXZ> segments;
+
+	@Setup
+	public void setup() {
+		segments = BenchmarkData.createSegments(new Random(42), segmentCount, 1000, 100);
+	}
+
+	@Benchmark
+	public List<Intersection<LineSegmentXZ>> sweepLine() {
+		return LineSegmentIntersectionFinder.findAllIntersections(segments);
+	}
+
+	@Benchmark
+	public List<Intersection<LineSegmentXZ>> simple() {
+		return SimpleLineSegmentIntersectionFinder.findAllIntersections(segments);
+	}
+
+}
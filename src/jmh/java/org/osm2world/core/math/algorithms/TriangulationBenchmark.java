@@ -0,0 +1,67 @@
+package org.osm2world.core.math.algorithms;
+
+import static java.util.Collections.emptyList;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osm2world.core.math.SimplePolygonXZ;
+import org.osm2world.core.math.TriangleXZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.test.BenchmarkData;
+import org.osm2world.core.util.exception.TriangulationException;
+
+/**
+ * compares the triangulation implementations for polygons with holes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TriangulationBenchmark {
+
+	@Param({"16", "256"})
+	public int vertexCount;
+
+	@Param({"0", "8"})
+	public int holeCount;
+
+	private SimplePolygonXZ polygon;
+	private List<SimplePolygonXZ> holes;
+
+	@Setup
+	public void setup() {
+		polygon = BenchmarkData.createPolygon(new Random(42), VectorXZ.NULL_VECTOR, 100, vertexCount);
+		holes = BenchmarkData.createHoles(VectorXZ.NULL_VECTOR, 100, holeCount);
+	}
+
+	@Benchmark
+	public List<TriangleXZ> earcut4j() {
+		return Earcut4JTriangulationUtil.triangulate(polygon, holes);
+	}
+
+	@Benchmark
+	public List<TriangleXZ> poly2tri() throws TriangulationException {
+		return Poly2TriTriangulationUtil.triangulate(polygon, holes, emptyList(), emptyList());
+	}
+
+	@Benchmark
+	public List<TriangleXZ> jts() {
+		return JTSTriangulationUtil.triangulate(polygon, holes);
+	}
+
+}
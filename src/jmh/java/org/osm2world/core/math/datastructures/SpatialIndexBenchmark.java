@@ -0,0 +1,83 @@
+package org.osm2world.core.math.datastructures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.MapElement;
+import org.osm2world.core.math.AxisAlignedRectangleXZ;
+import org.osm2world.core.test.BenchmarkData;
+
+/**
+ * compares {@link IndexGrid} and {@link MapQuadtree} by inserting and probing the elements of a synthetic city
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SpatialIndexBenchmark {
+
+	@Param({"10", "30"})
+	public int blocksPerSide;
+
+	@Param({"IndexGrid", "MapQuadtree"})
+	public String indexType;
+
+	private AxisAlignedRectangleXZ bounds;
+	private List<MapElement> elements;
+	private SpatialIndex<MapElement> filledIndex;
+
+	@Setup
+	public void setup() {
+
+		MapData mapData = BenchmarkData.createCityMapData(blocksPerSide, 42);
+
+		bounds = mapData.getDataBoundary().pad(10);
+		elements = new ArrayList<>();
+		mapData.getMapElements().forEach(elements::add);
+
+		filledIndex = createIndex();
+		elements.forEach(filledIndex::insert);
+
+	}
+
+	private SpatialIndex<MapElement> createIndex() {
+		if ("IndexGrid".equals(indexType)) {
+			return new IndexGrid<>(bounds, 50.0, 50.0);
+		} else {
+			return new MapQuadtree(bounds);
+		}
+	}
+
+	@Benchmark
+	public SpatialIndex<MapElement> insert() {
+		SpatialIndex<MapElement> index = createIndex();
+		elements.forEach(index::insert);
+		return index;
+	}
+
+	@Benchmark
+	public void probe(Blackhole blackhole) {
+		for (MapElement element : elements) {
+			for (MapElement nearbyElement : filledIndex.probe(element)) {
+				blackhole.consume(nearbyElement);
+			}
+		}
+	}
+
+}
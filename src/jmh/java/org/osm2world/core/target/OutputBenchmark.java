@@ -0,0 +1,80 @@
+package org.osm2world.core.target;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.target.frontend_pbf.FrontendPbfTarget;
+import org.osm2world.core.target.gltf.GltfTarget;
+import org.osm2world.core.target.gltf.GltfTarget.GltfFlavor;
+import org.osm2world.core.test.BenchmarkData;
+
+/**
+ * measures the glTF and PBF writers for the world objects of a synthetic city
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class OutputBenchmark {
+
+	@Param({"20"})
+	public int blocksPerSide;
+
+	private MapData mapData;
+	private MeshCache meshCache;
+	private File outputFile;
+
+	@Setup
+	public void setup() throws IOException {
+		mapData = BenchmarkData.createCityWithRepresentations(blocksPerSide, 42);
+		meshCache = MeshCache.build(mapData, false);
+		outputFile = Files.createTempFile("o2w-benchmark-", ".tmp").toFile();
+	}
+
+	@TearDown
+	public void tearDown() {
+		outputFile.delete();
+	}
+
+	@Benchmark
+	public void gltf() {
+		writeGltf(GltfFlavor.GLTF);
+	}
+
+	@Benchmark
+	public void glb() {
+		writeGltf(GltfFlavor.GLB);
+	}
+
+	@Benchmark
+	public void frontendPbf() throws IOException {
+		try (OutputStream output = Files.newOutputStream(outputFile.toPath())) {
+			FrontendPbfTarget.writePbfStream(output, mapData, meshCache, null, BenchmarkData.createProjection());
+		}
+	}
+
+	private void writeGltf(GltfFlavor flavor) {
+		GltfTarget target = new GltfTarget(outputFile, flavor, null);
+		meshCache.renderTo(target, true);
+		target.finish();
+	}
+
+}
@@ -0,0 +1,88 @@
+package org.osm2world.core.target.common;
+
+import static java.util.Collections.singletonList;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.math.AxisAlignedRectangleXZ;
+import org.osm2world.core.target.TargetUtil;
+import org.osm2world.core.target.common.MeshStore.MeshProcessingStep;
+import org.osm2world.core.target.common.MeshTarget.ClipToBounds;
+import org.osm2world.core.target.common.MeshTarget.EmulateTextureLayers;
+import org.osm2world.core.target.common.MeshTarget.FilterLod;
+import org.osm2world.core.target.common.MeshTarget.MergeMeshes;
+import org.osm2world.core.target.common.MeshTarget.MergeMeshes.MergeOption;
+import org.osm2world.core.target.common.MeshTarget.MoveColorsToVertices;
+import org.osm2world.core.target.common.MeshTarget.ReplaceTexturesWithAtlas;
+import org.osm2world.core.target.common.mesh.LevelOfDetail;
+import org.osm2world.core.test.BenchmarkData;
+
+/**
+ * measures the individual {@link MeshProcessingStep}s of {@link MeshTarget} for the meshes of a synthetic city
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MeshProcessingBenchmark {
+
+	@Param({"FilterLod", "MoveColorsToVertices", "EmulateTextureLayers", "ReplaceTexturesWithAtlas",
+			"MergeMeshes", "MergeMeshesAcrossElements", "ClipToBounds"})
+	public String step;
+
+	@Param({"20"})
+	public int blocksPerSide;
+
+	private MeshStore meshStore;
+	private MeshProcessingStep processingStep;
+
+	@Setup
+	public void setup() {
+
+		MapData mapData = BenchmarkData.createCityWithRepresentations(blocksPerSide, 42);
+
+		MeshTarget target = new MeshTarget();
+		TargetUtil.renderWorldObjects(target, mapData, true);
+		meshStore = target.meshStore;
+
+		AxisAlignedRectangleXZ bounds = mapData.getDataBoundary();
+
+		switch (step) {
+		case "FilterLod": processingStep = new FilterLod(LevelOfDetail.LOD2); break;
+		case "MoveColorsToVertices": processingStep = new MoveColorsToVertices(); break;
+		case "EmulateTextureLayers": processingStep = new EmulateTextureLayers(); break;
+		case "ReplaceTexturesWithAtlas": processingStep = new ReplaceTexturesWithAtlas(); break;
+		case "MergeMeshes": processingStep = new MergeMeshes(EnumSet.noneOf(MergeOption.class)); break;
+		case "MergeMeshesAcrossElements":
+			processingStep = new MergeMeshes(EnumSet.of(MergeOption.MERGE_ELEMENTS));
+			break;
+		case "ClipToBounds":
+			processingStep = new ClipToBounds(
+					new AxisAlignedRectangleXZ(bounds.center(), bounds.sizeX() / 2, bounds.sizeZ() / 2));
+			break;
+		default: throw new IllegalArgumentException("unknown step: " + step);
+		}
+
+	}
+
+	@Benchmark
+	public MeshStore process() {
+		return meshStore.process(singletonList(processingStep));
+	}
+
+}
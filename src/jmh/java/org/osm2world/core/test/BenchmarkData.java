@@ -0,0 +1,247 @@
+package org.osm2world.core.test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.osm2world.core.ConversionFacade;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.creation.MapProjection;
+import org.osm2world.core.map_data.creation.MetricMapProjection;
+import org.osm2world.core.map_data.creation.OSMToMapDataConverter;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.math.LineSegmentXZ;
+import org.osm2world.core.math.SimplePolygonXZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.osm.data.OSMData;
+
+import com.slimjars.dist.gnu.trove.list.array.TLongArrayList;
+
+import de.topobyte.osm4j.core.model.iface.OsmTag;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
+import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
+
+/**
+ * creates deterministic synthetic data for benchmarks.
+ * The same parameters always produce the same data.
+ */
+public final class BenchmarkData {
+
+	/** the origin of the projection used for synthetic OSM data */
+	public static final LatLon ORIGIN = new LatLon(0, 0);
+
+	/** the distance between adjacent roads in a synthetic city, in meters */
+	private static final double BLOCK_SIZE = 100;
+
+	private static final double METERS_PER_DEGREE = 111_320;
+
+	/** prevents instantiation */
+	private BenchmarkData() {}
+
+	public static MapProjection createProjection() {
+		return new MetricMapProjection(ORIGIN);
+	}
+
+	/**
+	 * creates a star-shaped simple polygon with randomly varying distances between the center and its vertices.
+	 */
+	public static SimplePolygonXZ createPolygon(Random random, VectorXZ center, double radius, int vertexCount) {
+
+		List<VectorXZ> vertices = new ArrayList<>(vertexCount + 1);
+
+		for (int i = 0; i < vertexCount; i++) {
+			double angle = 2 * Math.PI * i / vertexCount;
+			double r = radius * (0.5 + 0.5 * random.nextDouble());
+			vertices.add(center.add(new VectorXZ(r * Math.sin(angle), r * Math.cos(angle))));
+		}
+
+		vertices.add(vertices.get(0));
+
+		return new SimplePolygonXZ(vertices).makeCounterclockwise();
+
+	}
+
+	/**
+	 * creates square holes for a polygon created with {@link #createPolygon(Random, VectorXZ, double, int)}.
+	 * The holes are placed on a ring around the center, where they do not touch the outer polygon.
+	 */
+	public static List<SimplePolygonXZ> createHoles(VectorXZ center, double radius, int holeCount) {
+
+		List<SimplePolygonXZ> holes = new ArrayList<>(holeCount);
+
+		double holeSize = Math.min(0.1 * radius, 0.25 * Math.PI * radius / Math.max(holeCount, 1));
+
+		for (int i = 0; i < holeCount; i++) {
+			double angle = 2 * Math.PI * i / holeCount;
+			VectorXZ c = center.add(new VectorXZ(0.3 * radius * Math.sin(angle), 0.3 * radius * Math.cos(angle)));
+			holes.add(new SimplePolygonXZ(asList(
+					c.add(-holeSize, -holeSize),
+					c.add(-holeSize, +holeSize),
+					c.add(+holeSize, +holeSize),
+					c.add(+holeSize, -holeSize),
+					c.add(-holeSize, -holeSize))).makeClockwise());
+		}
+
+		return holes;
+
+	}
+
+	/**
+	 * creates random line segments within a square area
+	 */
+	public static List<LineSegmentXZ> createSegments(Random random, int count, double areaSize, double maxLength) {
+
+		List<LineSegmentXZ> segments = new ArrayList<>(count);
+
+		while (segments.size() < count) {
+			VectorXZ p1 = new VectorXZ(random.nextDouble() * areaSize, random.nextDouble() * areaSize);
+			VectorXZ p2 = p1.add(new VectorXZ(
+					(random.nextDouble() - 0.5) * maxLength,
+					(random.nextDouble() - 0.5) * maxLength));
+			if (!p1.equals(p2)) {
+				segments.add(new LineSegmentXZ(p1, p2));
+			}
+		}
+
+		return segments;
+
+	}
+
+	/**
+	 * creates the OSM data for a synthetic city.
+	 * It consists of a grid of roads with one block between each pair of adjacent roads.
+	 * Most blocks contain a building, a tree and a bench, some are parks instead.
+	 *
+	 * @param blocksPerSide  number of blocks in each direction
+	 */
+	public static OSMData createCityOSMData(int blocksPerSide, long seed) {
+
+		Random random = new Random(seed);
+
+		List<Node> nodes = new ArrayList<>();
+		List<Way> ways = new ArrayList<>();
+
+		long[] nextId = {1};
+
+		/* create the road grid */
+
+		long[][] roadNodeIds = new long[blocksPerSide + 1][blocksPerSide + 1];
+
+		for (int x = 0; x <= blocksPerSide; x++) {
+			for (int z = 0; z <= blocksPerSide; z++) {
+				Node node = createNode(nextId[0]++, x * BLOCK_SIZE, z * BLOCK_SIZE);
+				nodes.add(node);
+				roadNodeIds[x][z] = node.getId();
+			}
+		}
+
+		for (int i = 0; i <= blocksPerSide; i++) {
+
+			TLongArrayList alongX = new TLongArrayList();
+			TLongArrayList alongZ = new TLongArrayList();
+
+			for (int j = 0; j <= blocksPerSide; j++) {
+				alongX.add(roadNodeIds[j][i]);
+				alongZ.add(roadNodeIds[i][j]);
+			}
+
+			String highway = (i % 4 == 0) ? "secondary" : "residential";
+
+			ways.add(createWay(nextId[0]++, alongX, new Tag("highway", highway), new Tag("lanes", "2")));
+			ways.add(createWay(nextId[0]++, alongZ, new Tag("highway", highway), new Tag("sidewalk", "both")));
+
+		}
+
+		/* fill the blocks */
+
+		String[] roofShapes = {"flat", "gabled", "hipped", "pyramidal", "skillion"};
+
+		for (int x = 0; x < blocksPerSide; x++) {
+			for (int z = 0; z < blocksPerSide; z++) {
+
+				double minX = x * BLOCK_SIZE + 15;
+				double minZ = z * BLOCK_SIZE + 15;
+				double maxX = (x + 1) * BLOCK_SIZE - 15 - 20 * random.nextDouble();
+				double maxZ = (z + 1) * BLOCK_SIZE - 15 - 20 * random.nextDouble();
+
+				TLongArrayList outline = new TLongArrayList();
+				for (double[] p : new double[][] {{minX, minZ}, {maxX, minZ}, {maxX, maxZ}, {minX, maxZ}}) {
+					Node node = createNode(nextId[0]++, p[0], p[1]);
+					nodes.add(node);
+					outline.add(node.getId());
+				}
+				outline.add(outline.get(0));
+
+				if (random.nextInt(6) == 0) {
+
+					ways.add(createWay(nextId[0]++, outline, new Tag("leisure", "park")));
+
+				} else {
+
+					ways.add(createWay(nextId[0]++, outline,
+							new Tag("building", "yes"),
+							new Tag("building:levels", Integer.toString(1 + random.nextInt(8))),
+							new Tag("roof:shape", roofShapes[random.nextInt(roofShapes.length)])));
+
+				}
+
+				Node tree = createNode(nextId[0]++, minX - 5, minZ - 5);
+				tree.setTags(asList(new Tag("natural", "tree")));
+				nodes.add(tree);
+
+				Node bench = createNode(nextId[0]++, maxX + 5, minZ - 5);
+				bench.setTags(asList(new Tag("amenity", "bench")));
+				nodes.add(bench);
+
+			}
+		}
+
+		return new OSMData(emptyList(), nodes, ways, emptyList());
+
+	}
+
+	/**
+	 * creates the {@link MapData} for a synthetic city, see {@link #createCityOSMData(int, long)}.
+	 * The data does not contain any representations yet.
+	 */
+	public static MapData createCityMapData(int blocksPerSide, long seed) {
+		try {
+			return new OSMToMapDataConverter(createProjection(), new BaseConfiguration())
+					.createMapData(createCityOSMData(blocksPerSide, seed));
+		} catch (IOException | EntityNotFoundException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * creates the {@link MapData} for a synthetic city, see {@link #createCityOSMData(int, long)},
+	 * and runs the default world modules on it.
+	 */
+	public static MapData createCityWithRepresentations(int blocksPerSide, long seed) {
+		try {
+			MapData mapData = createCityMapData(blocksPerSide, seed);
+			new ConversionFacade().createRepresentations(createProjection(), mapData, null, null, null);
+			return mapData;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static Node createNode(long id, double x, double z) {
+		return new Node(id, x / METERS_PER_DEGREE, z / METERS_PER_DEGREE);
+	}
+
+	private static Way createWay(long id, TLongArrayList nodeIds, OsmTag... tags) {
+		Way way = new Way(id, nodeIds);
+		way.setTags(asList(tags));
+		return way;
+	}
+
+}
@@ -14,7 +14,7 @@ import com.lexicalscope.jewel.cli.Option;
 
 public interface CLIArguments {
 
-	public static final String OUTPUT_PATTERN = "(.*)\\.(?:obj|gltf|pov|o2w.pbf|png|ppm|gd)";
+	public static final String OUTPUT_PATTERN = "(.*)\\.(?:obj|gltf|glb|pov|o2w.pbf|png|ppm|gd)(?:\\.mbtiles)?";
 
 	/* input and output files */
 
@@ -26,6 +26,13 @@ public interface CLIArguments {
 	List<File> getOutput();
 	boolean isOutput();
 
+	@Option(description="zoom levels of a tile pyramid cut from the converted region; "
+			+ "output file names must contain {z}, {x} and {y} unless they are .mbtiles files "
+			+ "(only for gltf, glb and o2w.pbf output)",
+			longName="output_tile_zoom")
+	List<Integer> getOutputTileZoom();
+	boolean isOutputTileZoom();
+
 	@Option(description="properties file with configuration parameters")
 	File getConfig();
 	boolean isConfig();
@@ -109,11 +116,20 @@ public interface CLIArguments {
 	File getPerformanceTable();
 	boolean isPerformanceTable();
 
+	@Option(description="writes execution times and other metrics to a JSON file")
+	File getPerformanceJson();
+	boolean isPerformanceJson();
+
 	/* other parameters */
 
 	@Option(description="start the graphical user interface")
 	boolean getGui();
 
+	@Option(description="run a local tile server on this port, which converts tiles from the input file on demand",
+			longName="server_port")
+	int getServerPort();
+	boolean isServerPort();
+
 	@Option(helpRequest=true, description="show this help", shortName="?")
 	boolean getHelp();
 
@@ -130,4 +146,12 @@ public interface CLIArguments {
 	File getParameterFileDir();
 	boolean isParameterFileDir();
 
+	@Option(description="memory in MB reserved for each job in parameter file directory mode,"
+			+ " limits the number of jobs running at the same time", defaultValue="1024")
+	int getJobMemory();
+
+	@Option(description="appends a JSON line with the result and metrics of each job in parameter file directory mode")
+	File getJobReport();
+	boolean isJobReport();
+
 }
@@ -89,7 +89,10 @@ public class CLIArgumentsGroup {
 
 			&& (args1.isConfig()
 				? args2.isConfig() && args1.getConfig().equals(args2.getConfig())
-				: !args2.isConfig());
+				: !args2.isConfig())
+
+			// tile pyramids read additional input around the region, see Output
+			&& args1.isOutputTileZoom() == args2.isOutputTileZoom();
 
 	}
 
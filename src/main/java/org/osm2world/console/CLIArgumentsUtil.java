@@ -13,8 +13,8 @@ import java.util.regex.Pattern;
 
 public final class CLIArgumentsUtil {
 
-	public static enum ProgramMode {GUI, CONVERT, HELP, VERSION, PARAMFILE, PARAMFILEDIR}
-	public static enum OutputMode {OBJ, GLTF, POV, WEB_PBF, PNG, PPM, GD}
+	public static enum ProgramMode {GUI, CONVERT, HELP, VERSION, PARAMFILE, PARAMFILEDIR, SERVER}
+	public static enum OutputMode {OBJ, GLTF, GLB, POV, WEB_PBF, PNG, PPM, GD}
 	public static enum InputMode {FILE, OVERPASS}
 
 	private CLIArgumentsUtil() { }
@@ -25,7 +25,13 @@ public final class CLIArgumentsUtil {
 
 	public static final String getErrorString(CLIArguments args) {
 
-		if (getProgramMode(args) == CONVERT) {
+		if (getProgramMode(args) == SERVER) {
+
+			if (!args.isInput()) {
+				return "an input file (.mbtiles, .osm or .pbf) is required for the tile server";
+			}
+
+		} else if (getProgramMode(args) == CONVERT) {
 
 			switch (args.getInputMode()) {
 
@@ -70,6 +76,27 @@ public final class CLIArgumentsUtil {
 				}
 			}
 
+			for (File outputFile : args.getOutput()) {
+				if (isMbtilesOutput(outputFile) && !args.isOutputTileZoom() && !args.isTile()) {
+					return "either --tile or --output_tile_zoom is required for .mbtiles output files";
+				}
+			}
+
+			if (args.isOutputTileZoom() || args.getOutput().stream().anyMatch(f -> isMbtilesOutput(f))) {
+				for (File outputFile : args.getOutput()) {
+					OutputMode outputMode = getOutputMode(outputFile);
+					if (outputMode != OutputMode.GLTF && outputMode != OutputMode.GLB
+							&& outputMode != OutputMode.WEB_PBF) {
+						return "tiles can only be written as gltf, glb or o2w.pbf files";
+					}
+					String path = outputFile.getPath();
+					if (args.isOutputTileZoom() && !isMbtilesOutput(outputFile)
+							&& (!path.contains("{z}") || !path.contains("{x}") || !path.contains("{y}"))) {
+						return "output file names for tile pyramids must contain {z}, {x} and {y}";
+					}
+				}
+			}
+
 			if ((args.isPviewPos() && !args.isPviewLookat())
 					|| (args.isPviewLookat() && !args.isPviewPos())) {
 				return "camera position and look-at for perspective view "
@@ -103,14 +130,24 @@ public final class CLIArgumentsUtil {
 					: args.getHelp() ? HELP
 						: args.getVersion() ? VERSION
 							: args.getGui() ? GUI
-								: CONVERT;
+								: args.isServerPort() ? SERVER
+									: CONVERT;
 	}
 
+	/**
+	 * returns the output mode for a file name.
+	 * For MBTiles files (see {@link #isMbtilesOutput(File)}), this is the format of the individual tiles.
+	 */
 	public static final OutputMode getOutputMode(File outputFile) {
-		if (outputFile.getName().toLowerCase().endsWith(".obj")) {
+		if (isMbtilesOutput(outputFile)) {
+			String name = outputFile.getName();
+			return getOutputMode(new File(name.substring(0, name.length() - ".mbtiles".length())));
+		} else if (outputFile.getName().toLowerCase().endsWith(".obj")) {
 			return OutputMode.OBJ;
 		} else if (outputFile.getName().toLowerCase().endsWith(".gltf")) {
 			return OutputMode.GLTF;
+		} else if (outputFile.getName().toLowerCase().endsWith(".glb")) {
+			return OutputMode.GLB;
 		} else if (outputFile.getName().toLowerCase().endsWith(".pov")) {
 			return OutputMode.POV;
 		} else if (outputFile.getName().toLowerCase().endsWith(".o2w.pbf")) {
@@ -126,6 +163,14 @@ public final class CLIArgumentsUtil {
 		}
 	}
 
+	/**
+	 * returns true if tiles should be written into a single MBTiles file instead of loose files.
+	 * This is the case for file names such as "tiles.glb.mbtiles".
+	 */
+	public static final boolean isMbtilesOutput(File outputFile) {
+		return outputFile.getName().toLowerCase().endsWith(".mbtiles");
+	}
+
 	public static final List<String[]> getUnparsedParameterGroups(
 			File parameterFile) throws IOException {
 
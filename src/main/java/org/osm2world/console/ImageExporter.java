@@ -18,6 +18,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 
+import javax.annotation.Nullable;
 import javax.media.opengl.GL;
 import javax.media.opengl.GLAutoDrawable;
 import javax.media.opengl.GLCapabilities;
@@ -29,8 +30,10 @@ import javax.media.opengl.GLProfile;
 import org.apache.commons.configuration.Configuration;
 import org.osm2world.console.CLIArgumentsUtil.OutputMode;
 import org.osm2world.core.ConversionFacade.Results;
+import org.osm2world.core.target.MeshCache;
 import org.osm2world.core.target.TargetUtil;
 import org.osm2world.core.target.common.lighting.GlobalLightingParameters;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
 import org.osm2world.core.target.common.rendering.Camera;
 import org.osm2world.core.target.common.rendering.Projection;
 import org.osm2world.core.target.jogl.AbstractJOGLTarget;
@@ -60,6 +63,7 @@ public class ImageExporter {
 	private static final int DEFAULT_CANVAS_LIMIT = 1024;
 
 	private final Results results;
+	private final @Nullable MeshCache meshCache;
 	private final Configuration config;
 
 	private File backgroundImage;
@@ -90,8 +94,20 @@ public class ImageExporter {
 	 */
 	public ImageExporter(Configuration config, Results results,
 			CLIArgumentsGroup expectedGroup) {
+		this(config, results, null, expectedGroup);
+	}
+
+	/**
+	 * variant of {@link #ImageExporter(Configuration, Results, CLIArgumentsGroup)}
+	 * which renders previously built meshes
+	 *
+	 * @param meshCache  meshes for the world objects in the results; can be null
+	 */
+	public ImageExporter(Configuration config, Results results, @Nullable MeshCache meshCache,
+			CLIArgumentsGroup expectedGroup) {
 
 		this.results = results;
+		this.meshCache = meshCache;
 		this.config = config;
 
 		/* parse background color/image and other configuration options */
@@ -307,7 +323,7 @@ public class ImageExporter {
         imageWriter.close();
 	}
 
-	private static JOGLTarget createJOGLTarget(GL gl, Results results,
+	private static JOGLTarget createJOGLTarget(GL gl, Results results, @Nullable MeshCache meshCache,
 			Configuration config) {
 
 		JOGLTarget target;
@@ -340,9 +356,12 @@ public class ImageExporter {
 		boolean underground = config.getBoolean("renderUnderground", true);
 
 		target.setXZBoundary(results.getMapData().getBoundary());
-		TargetUtil.renderWorldObjects(target, results.getMapData(), underground);
 
-		target.finish();
+		// JOGL can call this from a different thread, so the conversion's materials need to be activated
+		try (MaterialConfiguration.Scope scope = results.getMaterialConfiguration().activate()) {
+			TargetUtil.renderWorldObjects(target, results.getMapData(), meshCache, underground);
+			target.finish();
+		}
 
 		return target;
 
@@ -595,7 +614,7 @@ public class ImageExporter {
 
 			/* render map data into buffer if it needs to be rendered multiple times */
 			if (!unbufferedRendering ) {
-				bufferTarget = createJOGLTarget(drawable.getGL(), results, config);
+				bufferTarget = createJOGLTarget(drawable.getGL(), results, meshCache, config);
 			}
 		}
 
@@ -642,21 +661,25 @@ public class ImageExporter {
 			/* render to pBuffer */
 
 			JOGLTarget target = (bufferTarget == null)?
-					createJOGLTarget(drawable.getGL(), results, config) : bufferTarget;
+					createJOGLTarget(drawable.getGL(), results, meshCache, config) : bufferTarget;
+
+			try (MaterialConfiguration.Scope scope = results.getMaterialConfiguration().activate()) {
+
+				if (backgroundImage != null) {
+					target.drawBackgoundImage(backgroundImage,
+							xStart, yStart, xSize, ySize,
+							backgroundTextureManager);
+				}
 
-					if (backgroundImage != null) {
-						target.drawBackgoundImage(backgroundImage,
-								xStart, yStart, xSize, ySize,
-								backgroundTextureManager);
-					}
+				target.renderPart(camera, projection,
+						xStart / (double)(x-1), xEnd / (double)(x-1),
+						yStart / (double)(y-1), yEnd / (double)(y-1));
 
-					target.renderPart(camera, projection,
-							xStart / (double)(x-1), xEnd / (double)(x-1),
-							yStart / (double)(y-1), yEnd / (double)(y-1));
+			}
 
-					if (target != bufferTarget) {
-						target.freeResources();
-					}
+			if (target != bufferTarget) {
+				target.freeResources();
+			}
 		}
 
 		@Override
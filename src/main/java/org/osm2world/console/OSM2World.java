@@ -64,7 +64,9 @@ public class OSM2World {
 		/* check for parameter file directory mode */
 
 		if (args.isParameterFileDir()) {
-			ParamFileDirMode.run(args.getParameterFileDir());
+			ParamFileDirMode.run(args.getParameterFileDir(), args.getJobMemory(),
+					args.isJobReport() ? args.getJobReport() : null);
+			return;
 		}
 
 		/* parse lines from parameter file (if one exists) */
@@ -73,35 +75,70 @@ public class OSM2World {
 
 		if (args.isParameterFile()) {
 
-			argumentsList = new ArrayList<CLIArguments>();
-
 			try {
+				argumentsList = parseParameterFile(args.getParameterFile());
+			} catch (IOException e) {
+				System.err.println(e.getMessage());
+				System.exit(1);
+			}
 
-				List<String[]> unparsedArgsLines = CLIArgumentsUtil
-					.getUnparsedParameterGroups(args.getParameterFile());
+		}
 
-				for (String[] unparsedArgsLine : unparsedArgsLines) {
+		List<CLIArgumentsGroup> argumentsGroups = createArgumentsGroups(argumentsList);
 
-					try {
-						argumentsList.add(parseArguments(unparsedArgsLine));
-					} catch (Exception e) {
-						System.err.println("Could not parse parameters from file:");
-						System.err.println(Arrays.toString(unparsedArgsLine));
-						System.err.println("Ignoring it. Reason:");
-						System.err.println(e.getMessage());
-					}
+		/* execute conversions */
 
+		if (argumentsGroups.isEmpty()) {
+			System.err.println("warning: empty parameter file, doing nothing");
+		}
+
+		for (CLIArgumentsGroup argumentsGroup : argumentsGroups) {
+
+			if (argumentsList.size() > 1) {
+				System.out.print("executing conversion for these parameter lines: ");
+				for (CLIArguments p : argumentsGroup.getCLIArgumentsList()) {
+					System.out.print(argumentsList.indexOf(p) + " ");
 				}
+				System.out.print("\n");
+			}
 
-			} catch (IOException e) {
+			executeArgumentsGroup(argumentsGroup);
+
+		}
+
+	}
+
+	/**
+	 * parses the lines of a parameter file. Lines which cannot be parsed are reported and skipped.
+	 */
+	static List<CLIArguments> parseParameterFile(File parameterFile) throws IOException {
+
+		List<CLIArguments> argumentsList = new ArrayList<CLIArguments>();
+
+		List<String[]> unparsedArgsLines = CLIArgumentsUtil.getUnparsedParameterGroups(parameterFile);
+
+		for (String[] unparsedArgsLine : unparsedArgsLines) {
+
+			try {
+				argumentsList.add(parseArguments(unparsedArgsLine));
+			} catch (Exception e) {
+				System.err.println("Could not parse parameters from file:");
+				System.err.println(Arrays.toString(unparsedArgsLine));
+				System.err.println("Ignoring it. Reason:");
 				System.err.println(e.getMessage());
-				System.exit(1);
 			}
 
 		}
 
-		/* collect parameter groups into compatible groups
-		 * (groups of parameter groups that use the same input and config files) */
+		return argumentsList;
+
+	}
+
+	/**
+	 * collects parameter groups into compatible groups
+	 * (groups of parameter groups that use the same input and config files)
+	 */
+	static List<CLIArgumentsGroup> createArgumentsGroups(List<CLIArguments> argumentsList) {
 
 		List<CLIArgumentsGroup> argumentsGroups = new ArrayList<CLIArgumentsGroup>();
 
@@ -125,25 +162,7 @@ public class OSM2World {
 
 		}
 
-		/* execute conversions */
-
-		if (argumentsGroups.isEmpty()) {
-			System.err.println("warning: empty parameter file, doing nothing");
-		}
-
-		for (CLIArgumentsGroup argumentsGroup : argumentsGroups) {
-
-			if (argumentsList.size() > 1) {
-				System.out.print("executing conversion for these parameter lines: ");
-				for (CLIArguments p : argumentsGroup.getCLIArgumentsList()) {
-					System.out.print(argumentsList.indexOf(p) + " ");
-				}
-				System.out.print("\n");
-			}
-
-			executeArgumentsGroup(argumentsGroup);
-
-		}
+		return argumentsGroups;
 
 	}
 
@@ -213,6 +232,16 @@ public class OSM2World {
 			}
 			break;
 
+		case SERVER:
+			try {
+				new TileServer(representativeArgs.getInput(), config).start(representativeArgs.getServerPort());
+				System.out.println("serving tiles at http://localhost:" + representativeArgs.getServerPort()
+						+ "/{z}/{x}/{y}.glb (or .gltf, .o2w.pbf)");
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			break;
+
 		case PARAMFILE:
 		case PARAMFILEDIR:
 			throw new Error("Cannot recursively execute parameter files. Program mode was: " + programMode);
@@ -4,21 +4,36 @@ import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.osm2world.core.math.AxisAlignedRectangleXZ.bbox;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
 
 import org.apache.commons.configuration.Configuration;
 import org.osm2world.console.CLIArgumentsUtil.OutputMode;
 import org.osm2world.core.ConversionFacade;
+import org.osm2world.core.ConversionMetrics;
 import org.osm2world.core.ConversionFacade.Phase;
 import org.osm2world.core.ConversionFacade.ProgressListener;
 import org.osm2world.core.ConversionFacade.Results;
 import org.osm2world.core.map_data.creation.LatLonBounds;
 import org.osm2world.core.map_data.creation.MapProjection;
+import org.osm2world.core.map_elevation.creation.ElevationGrid.Interpolation;
+import org.osm2world.core.map_elevation.creation.GriddedInterpolator;
 import org.osm2world.core.map_elevation.creation.LeastSquaresInterpolator;
 import org.osm2world.core.map_elevation.creation.NaturalNeighborInterpolator;
 import org.osm2world.core.map_elevation.creation.NoneEleConstraintEnforcer;
@@ -30,15 +45,25 @@ import org.osm2world.core.osm.creation.MbtilesReader;
 import org.osm2world.core.osm.creation.OSMDataReader;
 import org.osm2world.core.osm.creation.OSMFileReader;
 import org.osm2world.core.osm.creation.OverpassReader;
+import org.osm2world.core.osm.creation.PbfFileReader;
+import org.osm2world.core.osm.ruleset.HardcodedRuleset;
+import org.osm2world.core.target.ConversionResultCache;
+import org.osm2world.core.target.MbtilesWriter;
+import org.osm2world.core.target.MeshCache;
 import org.osm2world.core.target.TargetUtil;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
 import org.osm2world.core.target.common.rendering.Camera;
 import org.osm2world.core.target.common.rendering.OrthoTilesUtil;
 import org.osm2world.core.target.common.rendering.OrthoTilesUtil.CardinalDirection;
 import org.osm2world.core.target.common.rendering.Projection;
+import org.osm2world.core.target.common.rendering.TileNumber;
 import org.osm2world.core.target.frontend_pbf.FrontendPbfTarget;
 import org.osm2world.core.target.gltf.GltfTarget;
+import org.osm2world.core.target.gltf.GltfTarget.GltfFlavor;
 import org.osm2world.core.target.obj.ObjWriter;
 import org.osm2world.core.target.povray.POVRayWriter;
+import org.osm2world.core.target.statistics.StatisticsTarget;
+import org.osm2world.core.target.statistics.StatisticsTarget.Stat;
 
 public final class Output {
 
@@ -47,17 +72,56 @@ public final class Output {
 	public static void output(Configuration config,
 			CLIArgumentsGroup argumentsGroup)
 		throws IOException {
+		output(config, argumentsGroup, null);
+	}
+
+	/**
+	 * variant of {@link #output(Configuration, CLIArgumentsGroup)} which can reuse materials from earlier runs
+	 *
+	 * @param materialConfiguration  materials created from config, or null to create new ones
+	 * @return  the metrics recorded during the conversion and output
+	 */
+	public static ConversionMetrics output(Configuration config,
+			CLIArgumentsGroup argumentsGroup, @Nullable MaterialConfiguration materialConfiguration)
+		throws IOException {
 
 		long start = System.currentTimeMillis();
 
 		OSMDataReader dataReader = null;
 
+		/*
+		 * tile pyramids are cut from a single conversion of the entire region.
+		 * Data around the region is read as well so that features crossing the region's edge are complete.
+		 */
+		boolean tilePyramid = argumentsGroup.getRepresentative().isOutputTileZoom();
+		double inputHalo = tilePyramid ? config.getDouble("outputTileHalo", 50) : 0;
+
+		/* identifies the input for the result cache, remains null if the input is not suitable for caching */
+		String inputId = null;
+
 		switch (argumentsGroup.getRepresentative().getInputMode()) {
 
 		case FILE:
 			File inputFile = argumentsGroup.getRepresentative().getInput();
+			if (config.containsKey("conversionCacheDir") && supportsResultCache(argumentsGroup)) {
+				CLIArguments representative = argumentsGroup.getRepresentative();
+				inputId = ConversionResultCache.hashFile(inputFile)
+						+ " " + (representative.isTile() ? representative.getTile() : "")
+						+ " " + (representative.isInputBoundingBox() ? representative.getInputBoundingBox() : "");
+			}
 			if (inputFile.getName().endsWith(".mbtiles")) {
 				dataReader = new MbtilesReader(inputFile, argumentsGroup.getRepresentative().getTile());
+			} else if (inputFile.getName().endsWith(".pbf") && config.getBoolean("streamingPbfReader", false)) {
+				LatLonBounds bounds = null;
+				if (argumentsGroup.getRepresentative().isTile()) {
+					bounds = argumentsGroup.getRepresentative().getTile().bounds();
+				} else if (argumentsGroup.getRepresentative().isInputBoundingBox()) {
+					bounds = LatLonBounds.ofPoints(argumentsGroup.getRepresentative().getInputBoundingBox());
+				}
+				if (bounds != null && inputHalo > 0) {
+					bounds = bounds.pad(inputHalo);
+				}
+				dataReader = new PbfFileReader(inputFile, bounds, new HardcodedRuleset());
 			} else {
 				dataReader = new OSMFileReader(inputFile);
 			}
@@ -66,9 +130,15 @@ public final class Output {
 		case OVERPASS:
 			if (argumentsGroup.getRepresentative().isInputBoundingBox()) {
 				LatLonBounds bounds = LatLonBounds.ofPoints(argumentsGroup.getRepresentative().getInputBoundingBox());
+				if (inputHalo > 0) {
+					bounds = bounds.pad(inputHalo);
+				}
 				dataReader = new OverpassReader(argumentsGroup.getRepresentative().getOverpassURL(), bounds);
 			} else if (argumentsGroup.getRepresentative().isTile()) {
 				LatLonBounds bounds = argumentsGroup.getRepresentative().getTile().bounds();
+				if (inputHalo > 0) {
+					bounds = bounds.pad(inputHalo);
+				}
 				dataReader = new OverpassReader(argumentsGroup.getRepresentative().getOverpassURL(), bounds);
 			} else {
 				assert argumentsGroup.getRepresentative().isInputQuery(); // can be assumed due to input validation
@@ -80,162 +150,239 @@ public final class Output {
 		}
 
 
-		ConversionFacade cf = new ConversionFacade();
+		ConversionFacade cf = createConversionFacade(config);
 		PerformanceListener perfListener =
 			new PerformanceListener(argumentsGroup.getRepresentative());
 		cf.addProgressListener(perfListener);
+		cf.setMaterialConfiguration(materialConfiguration);
 
-		String interpolatorType = config.getString("terrainInterpolator");
-		if ("ZeroInterpolator".equals(interpolatorType)) {
-			cf.setTerrainEleInterpolatorFactory(ZeroInterpolator::new);
-		} else if ("LeastSquaresInterpolator".equals(interpolatorType)) {
-			cf.setTerrainEleInterpolatorFactory(LeastSquaresInterpolator::new);
-		} else if ("NaturalNeighborInterpolator".equals(interpolatorType)) {
-			cf.setTerrainEleInterpolatorFactory(NaturalNeighborInterpolator::new);
-		}
+		Results results;
 
-		String enforcerType = config.getString("eleConstraintEnforcer");
-		if ("NoneEleConstraintEnforcer".equals(enforcerType)) {
-			cf.setEleConstraintEnforcerFactory(NoneEleConstraintEnforcer::new);
-		} else if ("SimpleEleConstraintEnforcer".equals(enforcerType)) {
-			cf.setEleConstraintEnforcerFactory(SimpleEleConstraintEnforcer::new);
+		if (inputId != null) {
+			ConversionResultCache resultCache = new ConversionResultCache(new File(config.getString("conversionCacheDir")));
+			results = cf.createRepresentations(dataReader, inputId, resultCache, null, config, null);
+		} else {
+			results = cf.createRepresentations(dataReader.getData(), null, config, null);
 		}
 
-		Results results = cf.createRepresentations(dataReader.getData(), null, config, null);
+		try (MaterialConfiguration.Scope scope = results.getMaterialConfiguration().activate()) {
 
-		ImageExporter exporter = null;
+			/* build the meshes only once if they are needed for multiple outputs */
 
-		for (CLIArguments args : argumentsGroup.getCLIArgumentsList()) {
+			int outputCount = 0;
+			for (CLIArguments args : argumentsGroup.getCLIArgumentsList()) {
+				outputCount += args.getOutput().size();
+			}
 
-			/* set camera and projection */
+			if (argumentsGroup.getRepresentative().isPerformanceJson()) {
+				outputCount += 1;
+			}
 
-			Camera camera = null;
-			Projection projection = null;
+			boolean parallelOutputs = config.getBoolean("parallelOutputs", false);
 
-			if (args.isPviewPos()) {
+			MeshCache meshCache = results.getMeshCache();
 
-				/* perspective projection */
+			if (meshCache == null && (outputCount > 1 || tilePyramid)) {
+				try (ConversionMetrics.Timer timer = cf.getMetrics().startTimer("buildMeshes")) {
+					meshCache = MeshCache.build(results.getMapData(), parallelOutputs);
+				}
+			}
 
-				MapProjection proj = results.getMapProjection();
+			ExecutorService executor = parallelOutputs && outputCount > 1
+					? Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())
+					: null;
+			List<Future<?>> pendingOutputs = new ArrayList<>();
 
-				LatLonEle pos = args.getPviewPos();
-				LatLonEle lookAt = args.getPviewLookat();
+			ImageExporter exporter = null;
+			SoftwareImageExporter softwareExporter = null;
 
-				camera = new Camera();
-				VectorXYZ posV = proj.toXZ(pos.lat, pos.lon).xyz(pos.ele);
-				VectorXYZ laV =	proj.toXZ(lookAt.lat, lookAt.lon).xyz(lookAt.ele);
-				camera.setCamera(posV.x, posV.y, posV.z, laV.x, laV.y, laV.z);
+			/* open MBTiles files which tiles will be written into */
 
-				projection = new Projection(false,
-						args.isPviewAspect() ? args.getPviewAspect() :
-							(double)args.getResolution().getAspectRatio(),
-							args.getPviewFovy(),
-						0,
-						1, 50000);
+			Map<File, MbtilesWriter> mbtilesWriters = new HashMap<>();
 
-			} else {
+			try {
 
-				/* orthographic projection */
+				for (CLIArguments args : argumentsGroup.getCLIArgumentsList()) {
+					for (File outputFile : args.getOutput()) {
+						if (CLIArgumentsUtil.isMbtilesOutput(outputFile) && !mbtilesWriters.containsKey(outputFile)) {
+							outputFile.getAbsoluteFile().getParentFile().mkdirs();
+							OutputMode tileMode = CLIArgumentsUtil.getOutputMode(outputFile);
+							mbtilesWriters.put(outputFile, MbtilesWriter.open(outputFile, tileFormat(tileMode),
+									config.getBoolean("mbtilesGzip", false)));
+						}
+					}
+				}
 
-				double angle = args.getOviewAngle();
-				CardinalDirection from = args.getOviewFrom();
+				for (CLIArguments args : argumentsGroup.getCLIArgumentsList()) {
 
-				AxisAlignedRectangleXZ bounds;
+					/* set camera and projection */
 
-				if (args.isOviewBoundingBox()) {
-					bounds = bbox(args.getOviewBoundingBox().stream()
-							.map(results.getMapProjection()::toXZ)
-							.collect(toList()));
-				} else if (args.isOviewTiles()) {
-					bounds = OrthoTilesUtil.boundsForTiles(results.getMapProjection(), args.getOviewTiles());
-				} else if (args.isTile()) {
-					bounds = OrthoTilesUtil.boundsForTiles(results.getMapProjection(), singletonList(args.getTile()));
-				} else {
-					bounds = results.getMapData().getBoundary();
-				}
+					Camera camera = null;
+					Projection projection = null;
 
-				camera = OrthoTilesUtil.cameraForBounds(bounds, angle, from);
-				projection = OrthoTilesUtil.projectionForBounds(bounds, angle, from);
+					if (args.isPviewPos()) {
 
-			}
+						/* perspective projection */
 
-			/* perform the actual output */
+						MapProjection proj = results.getMapProjection();
 
-			for (File outputFile : args.getOutput()) {
+						LatLonEle pos = args.getPviewPos();
+						LatLonEle lookAt = args.getPviewLookat();
 
-				outputFile.getAbsoluteFile().getParentFile().mkdirs();
+						camera = new Camera();
+						VectorXYZ posV = proj.toXZ(pos.lat, pos.lon).xyz(pos.ele);
+						VectorXYZ laV =	proj.toXZ(lookAt.lat, lookAt.lon).xyz(lookAt.ele);
+						camera.setCamera(posV.x, posV.y, posV.z, laV.x, laV.y, laV.z);
 
-				OutputMode outputMode = CLIArgumentsUtil.getOutputMode(outputFile);
+						projection = new Projection(false,
+								args.isPviewAspect() ? args.getPviewAspect() :
+									(double)args.getResolution().getAspectRatio(),
+									args.getPviewFovy(),
+								0,
+								1, 50000);
 
-				switch (outputMode) {
+					} else {
 
-				case OBJ:
-					Integer primitiveThresholdOBJ =
-						config.getInteger("primitiveThresholdOBJ", null);
-					if (primitiveThresholdOBJ == null) {
-						boolean underground = config.getBoolean("renderUnderground", true);
+						/* orthographic projection */
 
-						ObjWriter.writeObjFile(outputFile,
-								results.getMapData(), results.getMapProjection(),
-								camera, projection, underground);
-					} else {
-						ObjWriter.writeObjFiles(outputFile,
-								results.getMapData(), results.getMapProjection(),
-								camera, projection, primitiveThresholdOBJ);
-					}
-					break;
+						double angle = args.getOviewAngle();
+						CardinalDirection from = args.getOviewFrom();
+
+						AxisAlignedRectangleXZ bounds;
+
+						if (args.isOviewBoundingBox()) {
+							bounds = bbox(args.getOviewBoundingBox().stream()
+									.map(results.getMapProjection()::toXZ)
+									.collect(toList()));
+						} else if (args.isOviewTiles()) {
+							bounds = OrthoTilesUtil.boundsForTiles(results.getMapProjection(), args.getOviewTiles());
+						} else if (args.isTile()) {
+							bounds = OrthoTilesUtil.boundsForTiles(results.getMapProjection(), singletonList(args.getTile()));
+						} else {
+							bounds = results.getMapData().getBoundary();
+						}
+
+						camera = OrthoTilesUtil.cameraForBounds(bounds, angle, from);
+						projection = OrthoTilesUtil.projectionForBounds(bounds, angle, from);
 
-				case GLTF:
-					AxisAlignedRectangleXZ bounds = null;
-					if (args.isTile()) {
-						bounds = OrthoTilesUtil.boundsForTiles(results.getMapProjection(), singletonList(args.getTile()));
-					} else {
-						bounds = results.getMapData().getBoundary();
-					}
-					GltfTarget gltfTarget = new GltfTarget(outputFile, bounds);
-					boolean underground = config.getBoolean("renderUnderground", true);
-					TargetUtil.renderWorldObjects(gltfTarget, results.getMapData(), underground);
-					gltfTarget.finish();
-					break;
-
-				case POV:
-					POVRayWriter.writePOVInstructionFile(outputFile,
-							results.getMapData(), camera, projection);
-					break;
-
-				case WEB_PBF:
-					AxisAlignedRectangleXZ bbox = null;
-					if (args.isTile()) {
-						bbox = OrthoTilesUtil.boundsForTiles(results.getMapProjection(), singletonList(args.getTile()));
 					}
-					FrontendPbfTarget.writePbfFile(
-							outputFile, results.getMapData(), bbox, results.getMapProjection());
-					break;
-
-				case PNG:
-				case PPM:
-				case GD:
-					if (camera == null || projection == null) {
-						System.err.println("camera or projection missing");
+
+					/* perform the actual output */
+
+					final Camera outputCamera = camera;
+					final Projection outputProjection = projection;
+
+					for (File outputFile : args.getOutput()) {
+
+						OutputMode outputMode = CLIArgumentsUtil.getOutputMode(outputFile);
+
+						if (args.isOutputTileZoom()) {
+							try (ConversionMetrics.Timer timer = cf.getMetrics().startTimer("output.tiles." + outputMode)) {
+								writeTilePyramid(outputFile, outputMode, args, config, results, meshCache,
+										mbtilesWriters.get(outputFile));
+							}
+							continue;
+						}
+
+						outputFile.getAbsoluteFile().getParentFile().mkdirs();
+
+						switch (outputMode) {
+
+						case PNG:
+						case PPM:
+						case GD:
+							try (ConversionMetrics.Timer timer = cf.getMetrics().startTimer("output." + outputMode)) {
+								if (camera == null || projection == null) {
+									System.err.println("camera or projection missing");
+								}
+								if (config.getBoolean("softwareRendering", false)) {
+									if (softwareExporter == null) {
+										softwareExporter = new SoftwareImageExporter(config, results, meshCache);
+									}
+									softwareExporter.writeImageFile(outputFile, outputMode,
+											args.getResolution().width, args.getResolution().height,
+											camera, projection);
+								} else {
+									if (exporter == null) {
+										exporter = new ImageExporter(
+												config, results, meshCache, argumentsGroup);
+									}
+									exporter.writeImageFile(outputFile, outputMode,
+											args.getResolution().width, args.getResolution().height,
+											camera, projection);
+								}
+							}
+							break;
+
+						default:
+							if (executor != null) {
+								final MeshCache outputMeshCache = meshCache;
+								pendingOutputs.add(executor.submit(() -> {
+									try (MaterialConfiguration.Scope outputScope =
+											results.getMaterialConfiguration().activate();
+											ConversionMetrics.Timer timer =
+											cf.getMetrics().startTimer("output." + outputMode)) {
+										writeOutputFile(outputFile, outputMode, args, outputCamera, outputProjection,
+												config, results, outputMeshCache, mbtilesWriters.get(outputFile));
+									}
+									return null;
+								}));
+							} else {
+								try (ConversionMetrics.Timer timer = cf.getMetrics().startTimer("output." + outputMode)) {
+									writeOutputFile(outputFile, outputMode, args, camera, projection,
+											config, results, meshCache, mbtilesWriters.get(outputFile));
+								}
+							}
+							break;
+
+						}
+
 					}
-					if (exporter == null) {
-						exporter = new ImageExporter(
-								config, results, argumentsGroup);
+
+				}
+
+				if (executor != null) {
+					try {
+						for (Future<?> pendingOutput : pendingOutputs) {
+							pendingOutput.get();
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException(e);
+					} catch (ExecutionException e) {
+						if (e.getCause() instanceof IOException) {
+							throw (IOException) e.getCause();
+						} else {
+							throw new RuntimeException(e.getCause());
+						}
+					} finally {
+						executor.shutdownNow();
 					}
-					exporter.writeImageFile(outputFile, outputMode,
-							args.getResolution().width, args.getResolution().height,
-							camera, projection);
-					break;
+				}
 
+			} finally {
+				for (MbtilesWriter mbtilesWriter : mbtilesWriters.values()) {
+					mbtilesWriter.close();
 				}
+			}
 
+			if (exporter != null) {
+				exporter.freeResources();
+				exporter = null;
 			}
 
-		}
+			if (softwareExporter != null) {
+				softwareExporter.freeResources();
+				softwareExporter = null;
+			}
+
+			if (argumentsGroup.getRepresentative().isPerformanceJson()) {
+				StatisticsTarget statisticsTarget = new StatisticsTarget();
+				TargetUtil.renderWorldObjects(statisticsTarget, results.getMapData(), meshCache,
+						config.getBoolean("renderUnderground", true));
+				cf.getMetrics().count("triangles", statisticsTarget.getGlobalCount(Stat.TOTAL_TRIANGLE_COUNT));
+			}
 
-		if (exporter != null) {
-			exporter.freeResources();
-			exporter = null;
 		}
 
 		if (argumentsGroup.getRepresentative().getPerformancePrint()) {
@@ -244,6 +391,8 @@ public final class Output {
 		}
 
 		if (argumentsGroup.getRepresentative().isPerformanceTable()) {
+			Long terrainEnd = perfListener.getPhaseEnd(Phase.TERRAIN);
+			long outputStart = terrainEnd != null ? terrainEnd : start;
 			try (PrintWriter w = new PrintWriter(new FileWriter(
 					argumentsGroup.getRepresentative().getPerformanceTable(), true), true)) {
 				w.printf("|%6d |%6d |%6d |%6d |%6d |%6d |\n",
@@ -251,11 +400,284 @@ public final class Output {
 					(perfListener.getPhaseDuration(Phase.REPRESENTATION) + 500) / 1000,
 					(perfListener.getPhaseDuration(Phase.ELEVATION) + 500) / 1000,
 					(perfListener.getPhaseDuration(Phase.TERRAIN) + 500) / 1000,
-					(System.currentTimeMillis() - perfListener.getPhaseEnd(Phase.TERRAIN) + 500) / 1000,
+					(System.currentTimeMillis() - outputStart + 500) / 1000,
 					(System.currentTimeMillis() - start + 500) / 1000);
 			}
 		}
 
+		if (argumentsGroup.getRepresentative().isPerformanceJson()) {
+			try (PrintWriter w = new PrintWriter(new FileWriter(
+					argumentsGroup.getRepresentative().getPerformanceJson()))) {
+				w.println(cf.getMetrics().toJson());
+			}
+		}
+
+		return cf.getMetrics();
+
+	}
+
+	/**
+	 * creates a {@link ConversionFacade} which uses the terrain interpolator and
+	 * elevation constraint enforcer selected in the configuration
+	 */
+	static ConversionFacade createConversionFacade(Configuration config) {
+
+		ConversionFacade cf = new ConversionFacade();
+
+		String interpolatorType = config.getString("terrainInterpolator");
+		if ("ZeroInterpolator".equals(interpolatorType)) {
+			cf.setTerrainEleInterpolatorFactory(ZeroInterpolator::new);
+		} else if ("LeastSquaresInterpolator".equals(interpolatorType)) {
+			cf.setTerrainEleInterpolatorFactory(LeastSquaresInterpolator::new);
+		} else if ("NaturalNeighborInterpolator".equals(interpolatorType)) {
+			cf.setTerrainEleInterpolatorFactory(NaturalNeighborInterpolator::new);
+		} else if ("GriddedInterpolator".equals(interpolatorType)) {
+			Interpolation interpolation = "bilinear".equals(config.getString("griddedInterpolation"))
+					? Interpolation.BILINEAR : Interpolation.BICUBIC;
+			cf.setTerrainEleInterpolatorFactory(() -> new GriddedInterpolator(interpolation));
+		}
+
+		String enforcerType = config.getString("eleConstraintEnforcer");
+		if ("NoneEleConstraintEnforcer".equals(enforcerType)) {
+			cf.setEleConstraintEnforcerFactory(NoneEleConstraintEnforcer::new);
+		} else if ("SimpleEleConstraintEnforcer".equals(enforcerType)) {
+			cf.setEleConstraintEnforcerFactory(SimpleEleConstraintEnforcer::new);
+		}
+
+		return cf;
+
+	}
+
+	/**
+	 * writes an output file in one of the formats which do not require an {@link ImageExporter}.
+	 * Can be called for multiple files at the same time.
+	 *
+	 * @param meshCache      meshes for the world objects in the results; can be null
+	 * @param mbtilesWriter  writer for the MBTiles file if outputFile is one, null otherwise
+	 */
+	private static void writeOutputFile(File outputFile, OutputMode outputMode, CLIArguments args,
+			Camera camera, Projection projection, Configuration config, Results results,
+			@Nullable MeshCache meshCache, @Nullable MbtilesWriter mbtilesWriter) throws IOException {
+
+		boolean underground = config.getBoolean("renderUnderground", true);
+
+		if (mbtilesWriter != null) {
+			// the tile is required for MBTiles output, see CLIArgumentsUtil
+			AxisAlignedRectangleXZ tileBounds =
+					OrthoTilesUtil.boundsForTiles(results.getMapProjection(), singletonList(args.getTile()));
+			ByteArrayOutputStream tileData = new ByteArrayOutputStream();
+			writeTile(tileData, outputMode, tileBounds, results, meshCache, config);
+			mbtilesWriter.writeTile(args.getTile(), tileData.toByteArray());
+			return;
+		}
+
+		switch (outputMode) {
+
+		case OBJ:
+			Integer primitiveThresholdOBJ =
+				config.getInteger("primitiveThresholdOBJ", null);
+			if (primitiveThresholdOBJ == null) {
+				ObjWriter.writeObjFile(outputFile,
+						results.getMapData(), meshCache, results.getMapProjection(),
+						camera, projection, underground);
+			} else {
+				ObjWriter.writeObjFiles(outputFile,
+						results.getMapData(), meshCache, results.getMapProjection(),
+						camera, projection, primitiveThresholdOBJ);
+			}
+			break;
+
+		case GLTF:
+		case GLB:
+			AxisAlignedRectangleXZ bounds = null;
+			if (args.isTile()) {
+				bounds = OrthoTilesUtil.boundsForTiles(results.getMapProjection(), singletonList(args.getTile()));
+			} else {
+				bounds = results.getMapData().getBoundary();
+			}
+			GltfFlavor gltfFlavor = (outputMode == OutputMode.GLB) ? GltfFlavor.GLB : GltfFlavor.GLTF;
+			GltfTarget gltfTarget = new GltfTarget(outputFile, gltfFlavor, bounds);
+			gltfTarget.setConfiguration(config);
+			TargetUtil.renderWorldObjects(gltfTarget, results.getMapData(), meshCache, underground);
+			gltfTarget.finish();
+			break;
+
+		case POV:
+			POVRayWriter.writePOVInstructionFile(outputFile,
+					results.getMapData(), meshCache, camera, projection);
+			break;
+
+		case WEB_PBF:
+			AxisAlignedRectangleXZ bbox = null;
+			if (args.isTile()) {
+				bbox = OrthoTilesUtil.boundsForTiles(results.getMapProjection(), singletonList(args.getTile()));
+			}
+			FrontendPbfTarget.writePbfFile(
+					outputFile, results.getMapData(), meshCache, bbox, results.getMapProjection());
+			break;
+
+		default:
+			throw new IllegalArgumentException("unsupported output mode: " + outputMode);
+
+		}
+
+	}
+
+	/**
+	 * cuts the results into tiles for each of the zoom levels in the arguments and writes one file per tile.
+	 * Each tile only receives the meshes near it, and tiles are written in parallel.
+	 *
+	 * @param outputFile     file name pattern containing {z}, {x} and {y}, or an MBTiles file
+	 * @param meshCache      meshes for the world objects in the results
+	 * @param mbtilesWriter  writer for the MBTiles file if outputFile is one, null otherwise
+	 */
+	private static void writeTilePyramid(File outputFile, OutputMode outputMode, CLIArguments args,
+			Configuration config, Results results, MeshCache meshCache,
+			@Nullable MbtilesWriter mbtilesWriter) throws IOException {
+
+		MapProjection mapProjection = results.getMapProjection();
+
+		/* determine the region covered by the pyramid */
+
+		LatLonBounds region;
+
+		if (args.isTile()) {
+			region = args.getTile().bounds();
+		} else if (args.isInputBoundingBox()) {
+			region = LatLonBounds.ofPoints(args.getInputBoundingBox());
+		} else {
+			region = LatLonBounds.ofPoints(results.getMapData().getBoundary().vertices().stream()
+					.map(mapProjection::toLatLon)
+					.collect(toList()));
+		}
+
+		List<TileNumber> tiles = new ArrayList<>();
+		for (int zoom : args.getOutputTileZoom()) {
+			tiles.addAll(TileNumber.tilesForBounds(zoom, region));
+		}
+
+		/* write the tiles */
+
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+		try {
+
+			List<Future<?>> pendingTiles = new ArrayList<>(tiles.size());
+
+			for (TileNumber tile : tiles) {
+				pendingTiles.add(executor.submit(() -> {
+
+					AxisAlignedRectangleXZ tileBounds = OrthoTilesUtil.boundsForTiles(mapProjection, singletonList(tile));
+					MeshCache tileMeshCache = meshCache.filter(tileBounds);
+
+					try (MaterialConfiguration.Scope scope = results.getMaterialConfiguration().activate()) {
+
+						if (mbtilesWriter != null) {
+
+							ByteArrayOutputStream tileData = new ByteArrayOutputStream();
+							writeTile(tileData, outputMode, tileBounds, results, tileMeshCache, config);
+							mbtilesWriter.writeTile(tile, tileData.toByteArray());
+
+						} else {
+
+							File tileFile = new File(outputFile.getPath()
+									.replace("{z}", Integer.toString(tile.zoom))
+									.replace("{x}", Integer.toString(tile.x))
+									.replace("{y}", Integer.toString(tile.y)));
+							tileFile.getAbsoluteFile().getParentFile().mkdirs();
+
+							try (OutputStream tileStream = new BufferedOutputStream(new FileOutputStream(tileFile))) {
+								writeTile(tileStream, outputMode, tileBounds, results, tileMeshCache, config);
+							}
+
+						}
+
+					}
+
+					return null;
+
+				}));
+			}
+
+			for (Future<?> pendingTile : pendingTiles) {
+				pendingTile.get();
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else {
+				throw new RuntimeException(e.getCause());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+	}
+
+	/**
+	 * checks whether all outputs of a group can be written from a cached conversion result.
+	 * POV-Ray output needs declarations from the original world objects, which are not stored in the cache.
+	 */
+	private static boolean supportsResultCache(CLIArgumentsGroup argumentsGroup) {
+		for (CLIArguments args : argumentsGroup.getCLIArgumentsList()) {
+			for (File outputFile : args.getOutput()) {
+				if (CLIArgumentsUtil.getOutputMode(outputFile) == OutputMode.POV) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * writes a single tile in one of the tile formats (gltf, glb or o2w.pbf) to a stream
+	 *
+	 * @param meshCache  meshes for the world objects in the results; can be null
+	 */
+	static void writeTile(OutputStream outputStream, OutputMode outputMode,
+			AxisAlignedRectangleXZ tileBounds, Results results, @Nullable MeshCache meshCache,
+			Configuration config) throws IOException {
+
+		switch (outputMode) {
+
+		case GLTF:
+		case GLB:
+			GltfFlavor gltfFlavor = (outputMode == OutputMode.GLB) ? GltfFlavor.GLB : GltfFlavor.GLTF;
+			GltfTarget gltfTarget = new GltfTarget(outputStream, gltfFlavor, tileBounds);
+			gltfTarget.setConfiguration(config);
+			gltfTarget.setClipToBounds(true);
+			TargetUtil.renderWorldObjects(gltfTarget, results.getMapData(), meshCache,
+					config.getBoolean("renderUnderground", true));
+			gltfTarget.finish();
+			break;
+
+		case WEB_PBF:
+			FrontendPbfTarget.writePbfStream(outputStream, results.getMapData(), meshCache,
+					tileBounds, results.getMapProjection());
+			break;
+
+		default:
+			throw new IllegalArgumentException("unsupported tile output mode: " + outputMode);
+
+		}
+
+	}
+
+	/**
+	 * returns the file extension of tiles written in an output mode,
+	 * which is also the value of the MBTiles "format" metadata
+	 */
+	static String tileFormat(OutputMode outputMode) {
+		switch (outputMode) {
+		case GLTF: return "gltf";
+		case GLB: return "glb";
+		case WEB_PBF: return "o2w.pbf";
+		default: throw new IllegalArgumentException("unsupported tile output mode: " + outputMode);
+		}
 	}
 
 	private static class PerformanceListener implements ProgressListener {
@@ -279,8 +701,11 @@ public final class Output {
 			return phaseEnds.get(phase);
 		}
 
-		public Long getPhaseDuration(Phase phase) {
-			return getPhaseEnd(phase) - getPhaseStart(phase);
+		/** returns the duration of a phase, 0 if it has not been both started and finished */
+		public long getPhaseDuration(Phase phase) {
+			Long start = getPhaseStart(phase);
+			Long end = getPhaseEnd(phase);
+			return (start == null || end == null) ? 0 : end - start;
 		}
 
 		@Override
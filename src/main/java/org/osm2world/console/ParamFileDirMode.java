@@ -1,87 +1,177 @@
 package org.osm2world.console;
 
-import static java.util.Arrays.sort;
+import static java.nio.file.StandardWatchEventKinds.*;
+import static java.util.Collections.singletonList;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationException;
+import org.osm2world.console.CLIArgumentsUtil.ProgramMode;
+import org.osm2world.core.ConversionMetrics;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
+import org.osm2world.core.target.common.material.Materials;
+
+import com.google.gson.Gson;
 
 /**
  * implementation of the mode triggered by {@link CLIArguments#isParameterFileDir()}.
  * OSM2World will read, process and delete parameter files from a directory.
- * Each of these files contains a set of command line parameters which define a conversion run.
+ * Each of these files contains a set of command line parameters which define a conversion run (a "job").
+ *
+ * Files are processed in the order of their names, so a prefix such as "0_" can be used for urgent jobs.
+ * Files are only taken from the directory when a job can be started, so urgent files added later
+ * are processed before less urgent files which have been waiting longer.
+ * The directory is watched for new files. The mode ends once the directory is empty and all jobs have finished.
+ *
+ * Jobs run in the same process and share state which is expensive to create,
+ * such as configurations and materials (including textures) as well as the SRTM tile cache.
  */
 public class ParamFileDirMode {
 
-	/** maximum number of enqueued parameter files. Making it larger means waiting longer for new, high-prio files. */
-	private static final int MAX_QUEUE_LENGTH = 2;
+	/** an event handled by the scheduler loop in {@link #run(File, int, File)} */
+	private static final class Event {
+
+		/** name of a new file in the directory, null for other events */
+		final @Nullable String fileName;
+
+		/** whether the list of files needs to be read again because file system events have been lost */
+		final boolean rescan;
+
+		private Event(@Nullable String fileName, boolean rescan) {
+			this.fileName = fileName;
+			this.rescan = rescan;
+		}
+
+		static final Event JOB_FINISHED = new Event(null, false);
+		static final Event RESCAN = new Event(null, true);
+
+	}
+
+	/**
+	 * configuration and materials loaded from a config file, reused by all jobs with that config file.
+	 *
+	 * Jobs running at the same time share these objects, so they must only be read by the jobs.
+	 * The material configuration is not modified after its creation, and the textures it references
+	 * synchronize access to their cached images, so a texture loaded by one job is reused by all later
+	 * and concurrent jobs.
+	 */
+	private static final class WarmConfig {
+
+		final long lastModified;
+		final Configuration config;
+		final MaterialConfiguration materialConfiguration;
+
+		WarmConfig(long lastModified, Configuration config, MaterialConfiguration materialConfiguration) {
+			this.lastModified = lastModified;
+			this.config = config;
+			this.materialConfiguration = materialConfiguration;
+		}
+
+	}
+
+	private static final Map<File, WarmConfig> warmConfigs = new HashMap<>();
 
-	public static void run(File paramFileDir) {
+	/**
+	 * @param jobMemoryMegabytes  memory reserved for each job, limits the number of jobs running at the same time
+	 * @param reportFile          file which a JSON line is appended to for each finished job; can be null
+	 */
+	public static void run(File paramFileDir, int jobMemoryMegabytes, @Nullable File reportFile) {
 
 		if (!paramFileDir.isDirectory()) {
 			System.err.println("parameterFileDir must be a directory!");
 			return;
 		}
 
-		int numCores = Runtime.getRuntime().availableProcessors();
-		ExecutorService executor = Executors.newFixedThreadPool(numCores);
-		AtomicInteger queueLength = new AtomicInteger();
+		int maxJobs = maxConcurrentJobs(jobMemoryMegabytes);
+		System.out.println("running up to " + maxJobs + " jobs at the same time");
 
-		boolean containsFiles = false;
+		ExecutorService executor = Executors.newFixedThreadPool(maxJobs);
+		BlockingQueue<Event> events = new LinkedBlockingQueue<>();
 
-		do {
+		try (WatchService watchService = paramFileDir.toPath().getFileSystem().newWatchService()) {
 
-			File[] files = paramFileDir.listFiles();
-			sort(files);
+			paramFileDir.toPath().register(watchService, ENTRY_CREATE);
 
-			containsFiles = files.length > 0;
+			Thread watchThread = new Thread(() -> forwardWatchEvents(watchService, events), "ParamFileDirMode-watch");
+			watchThread.setDaemon(true);
+			watchThread.start();
 
-			if (containsFiles) {
+			/* schedule jobs whenever a file is added or a job has finished */
 
-				while (queueLength.get() - numCores > MAX_QUEUE_LENGTH) {
-					try {
-						Thread.sleep(500);
-					} catch (InterruptedException e) {}
-				}
+			TreeSet<String> pendingFiles = new TreeSet<>();
+			Map<String, Long> discoveryTimes = new HashMap<>();
+			int runningJobs = 0;
 
-				try {
+			addPendingFiles(listFileNames(paramFileDir), pendingFiles, discoveryTimes);
 
-					// create an temporary file (only to get unique names, it's immediately overwritten)
-					Path tempFilePath = File.createTempFile("osm2world-", "-" + files[0].getName()).toPath();
+			while (true) {
 
-					// move the parameter file to the temporary location
-					Files.move(files[0].toPath(), tempFilePath, StandardCopyOption.REPLACE_EXISTING);
+				while (runningJobs < maxJobs && !pendingFiles.isEmpty()) {
 
-					queueLength.incrementAndGet();
+					String fileName = pendingFiles.pollFirst();
+					long queuedTime = discoveryTimes.remove(fileName);
 
-					executor.submit(() -> {
+					File paramFile = new File(paramFileDir, fileName);
+					Path claimedFile = claim(paramFile);
 
-						System.out.println(tempFilePath);
-						OSM2World.main(new String[] {"--parameterFile", tempFilePath.toString()});
+					if (claimedFile != null) {
+						runningJobs += 1;
+						executor.submit(() -> {
+							try {
+								runJob(paramFile.getName(), claimedFile, queuedTime, reportFile);
+							} finally {
+								events.add(Event.JOB_FINISHED);
+							}
+						});
+					}
 
-						try {
-							Files.delete(tempFilePath);
-						} catch (IOException e) {
-							System.err.println("Warning: Could not delete temporary file " + tempFilePath);
-						}
+				}
 
-						queueLength.decrementAndGet();
+				if (runningJobs == 0 && pendingFiles.isEmpty()) break;
 
-					});
+				Event event = events.take();
 
-				} catch (IOException e) {
-					System.err.println("IO issue encountered in parameter file directory mode, exiting.\n" + e);
+				if (event == Event.JOB_FINISHED) {
+					runningJobs -= 1;
+				} else if (event.rescan) {
+					addPendingFiles(listFileNames(paramFileDir), pendingFiles, discoveryTimes);
+				} else {
+					addPendingFiles(singletonList(event.fileName), pendingFiles, discoveryTimes);
 				}
 
 			}
 
-		} while (containsFiles);
+		} catch (IOException e) {
+			System.err.println("IO issue encountered in parameter file directory mode, exiting.\n" + e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 
 		executor.shutdown();
 
@@ -91,4 +181,201 @@ public class ParamFileDirMode {
 
 	}
 
+	/**
+	 * returns the number of jobs which fit into the maximum heap size, but at most one per core
+	 */
+	static int maxConcurrentJobs(int jobMemoryMegabytes) {
+		long maxMemory = Runtime.getRuntime().maxMemory();
+		long jobMemory = Math.max(1, jobMemoryMegabytes) * 1024L * 1024L;
+		long jobsInMemory = (maxMemory == Long.MAX_VALUE) ? Long.MAX_VALUE : maxMemory / jobMemory;
+		return (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), jobsInMemory));
+	}
+
+	/** runs on a separate thread, passes new files from the watch service to the scheduler */
+	private static void forwardWatchEvents(WatchService watchService, BlockingQueue<Event> events) {
+
+		try {
+
+			while (true) {
+
+				WatchKey key = watchService.take();
+
+				for (WatchEvent<?> watchEvent : key.pollEvents()) {
+					if (watchEvent.kind() == OVERFLOW) {
+						events.add(Event.RESCAN);
+					} else {
+						events.add(new Event(((Path) watchEvent.context()).getFileName().toString(), false));
+					}
+				}
+
+				if (!key.reset()) {
+					events.add(Event.RESCAN);
+					return;
+				}
+
+			}
+
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// the scheduler has finished
+		}
+
+	}
+
+	private static void addPendingFiles(List<String> fileNames,
+			TreeSet<String> pendingFiles, Map<String, Long> discoveryTimes) {
+		long now = System.currentTimeMillis();
+		for (String fileName : fileNames) {
+			pendingFiles.add(fileName);
+			discoveryTimes.putIfAbsent(fileName, now);
+		}
+	}
+
+	private static List<String> listFileNames(File dir) {
+		List<String> result = new ArrayList<>();
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				result.add(file.getName());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * moves a parameter file out of the directory so that it is processed only once
+	 *
+	 * @return  the new location of the file, or null if the file no longer exists
+	 */
+	private static @Nullable Path claim(File paramFile) throws IOException {
+
+		// create an temporary file (only to get unique names, it's immediately overwritten)
+		Path tempFilePath = File.createTempFile("osm2world-", "-" + paramFile.getName()).toPath();
+
+		try {
+			Files.move(paramFile.toPath(), tempFilePath, StandardCopyOption.REPLACE_EXISTING);
+			return tempFilePath;
+		} catch (NoSuchFileException e) {
+			// already processed, e.g. because it was reported both by the initial listing and a watch event
+			Files.deleteIfExists(tempFilePath);
+			return null;
+		}
+
+	}
+
+	/**
+	 * executes the conversions defined in a parameter file, then deletes the file and reports the result
+	 */
+	private static void runJob(String jobName, Path paramFile, long queuedTime, @Nullable File reportFile) {
+
+		long startTime = System.currentTimeMillis();
+
+		List<ConversionMetrics> metrics = new ArrayList<>();
+		String error = null;
+
+		try {
+
+			List<CLIArguments> argumentsList = OSM2World.parseParameterFile(paramFile.toFile());
+
+			for (CLIArgumentsGroup argumentsGroup : OSM2World.createArgumentsGroups(argumentsList)) {
+
+				ProgramMode programMode = CLIArgumentsUtil.getProgramMode(argumentsGroup.getRepresentative());
+				if (programMode != ProgramMode.CONVERT) {
+					throw new IllegalArgumentException("unsupported program mode in parameter file: " + programMode);
+				}
+
+				WarmConfig warmConfig = getWarmConfig(argumentsGroup.getRepresentative());
+				metrics.add(Output.output(warmConfig.config, argumentsGroup, warmConfig.materialConfiguration));
+
+			}
+
+		} catch (Exception e) {
+			error = e.toString();
+			e.printStackTrace();
+		}
+
+		try {
+			Files.delete(paramFile);
+		} catch (IOException e) {
+			System.err.println("Warning: Could not delete temporary file " + paramFile);
+		}
+
+		long endTime = System.currentTimeMillis();
+
+		/* report the result */
+
+		System.out.println("job " + jobName + (error == null ? " finished" : " failed")
+				+ " after " + (endTime - startTime) + " ms (waited " + (startTime - queuedTime) + " ms)");
+
+		if (reportFile != null) {
+
+			Map<String, Object> report = new LinkedHashMap<>();
+			report.put("job", jobName);
+			report.put("success", error == null);
+			if (error != null) {
+				report.put("error", error);
+			}
+			report.put("waitMillis", startTime - queuedTime);
+			report.put("runMillis", endTime - startTime);
+
+			List<Map<String, Object>> conversions = new ArrayList<>();
+			for (ConversionMetrics m : metrics) {
+				Map<String, Object> conversion = new LinkedHashMap<>();
+				conversion.put("timers", m.getTimesMillis());
+				conversion.put("counters", m.getCounts());
+				conversion.put("maxima", m.getMaxima());
+				conversions.add(conversion);
+			}
+			report.put("conversions", conversions);
+
+			String line = new Gson().toJson(report);
+
+			synchronized (ParamFileDirMode.class) {
+				try (PrintWriter w = new PrintWriter(new FileWriter(reportFile, true))) {
+					w.println(line);
+				} catch (IOException e) {
+					System.err.println("Warning: Could not write job report to " + reportFile);
+				}
+			}
+
+		}
+
+	}
+
+	/**
+	 * returns the configuration and materials for a job.
+	 * These are loaded only once for each config file, unless the file is modified.
+	 */
+	private static WarmConfig getWarmConfig(CLIArguments args) {
+
+		File configFile = args.isConfig() ? args.getConfig().getAbsoluteFile() : null;
+		long lastModified = configFile != null ? configFile.lastModified() : 0;
+
+		synchronized (warmConfigs) {
+
+			WarmConfig warmConfig = warmConfigs.get(configFile);
+
+			if (warmConfig == null || warmConfig.lastModified != lastModified) {
+
+				Configuration config = new BaseConfiguration();
+
+				if (configFile != null) {
+					try {
+						config = OSM2World.loadConfigFile(configFile);
+					} catch (ConfigurationException e) {
+						System.err.println("could not read config, ignoring it: ");
+						System.err.println(e);
+					}
+				}
+
+				warmConfig = new WarmConfig(lastModified, config, Materials.createConfiguration(config));
+				warmConfigs.put(configFile, warmConfig);
+
+			}
+
+			return warmConfig;
+
+		}
+
+	}
+
 }
@@ -0,0 +1,183 @@
+package org.osm2world.console;
+
+import static org.osm2world.core.util.ConfigUtil.*;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+import javax.imageio.ImageIO;
+
+import org.apache.commons.configuration.Configuration;
+import org.osm2world.console.CLIArgumentsUtil.OutputMode;
+import org.osm2world.console.ImageExporter.GDWriter;
+import org.osm2world.console.ImageExporter.ImageWriter;
+import org.osm2world.console.ImageExporter.PNGWriter;
+import org.osm2world.console.ImageExporter.PPMWriter;
+import org.osm2world.core.ConversionFacade.Results;
+import org.osm2world.core.target.MeshCache;
+import org.osm2world.core.target.TargetUtil;
+import org.osm2world.core.target.common.lighting.GlobalLightingParameters;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
+import org.osm2world.core.target.common.rendering.Camera;
+import org.osm2world.core.target.common.rendering.Projection;
+import org.osm2world.core.target.software.SoftwareRasterizerTarget;
+
+/**
+ * alternative to {@link ImageExporter} which renders images on the CPU using a {@link SoftwareRasterizerTarget}.
+ * It does not require OpenGL, and can therefore be used on machines without a GPU.
+ *
+ * Images are rendered in horizontal strips which are written to the file one after the other,
+ * so only one strip needs to be kept in memory at a time.
+ */
+public class SoftwareImageExporter {
+
+	/** maximum number of image rows which are rendered at once */
+	private static final int DEFAULT_CANVAS_LIMIT = 1024;
+
+	private final Results results;
+	private final @Nullable MeshCache meshCache;
+	private final Configuration config;
+
+	private final Color clearColor;
+	private final @Nullable BufferedImage backgroundImage;
+	private final boolean exportAlpha;
+	private final int canvasLimit;
+
+	/** target containing the scene, created when the first image is requested */
+	private SoftwareRasterizerTarget target = null;
+
+	/**
+	 * @param meshCache  meshes for the world objects in the results; can be null
+	 */
+	public SoftwareImageExporter(Configuration config, Results results, @Nullable MeshCache meshCache) {
+
+		this.results = results;
+		this.meshCache = meshCache;
+		this.config = config;
+
+		/* parse background color/image and other configuration options */
+
+		Color confClearColor = null;
+
+		if (config.containsKey(BG_COLOR_KEY)) {
+			confClearColor = parseColor(config.getString(BG_COLOR_KEY));
+			if (confClearColor == null) {
+				System.err.println("incorrect color value: " + config.getString(BG_COLOR_KEY));
+			}
+		}
+
+		clearColor = confClearColor != null ? confClearColor : new Color(0, 0, 0, 0);
+
+		BufferedImage confBackgroundImage = null;
+
+		if (config.containsKey(BG_IMAGE_KEY)) {
+			File file = new File(config.getString(BG_IMAGE_KEY));
+			try {
+				confBackgroundImage = ImageIO.read(file);
+			} catch (IOException e) {
+				System.err.println("background image file cannot be read: " + file);
+			}
+		}
+
+		backgroundImage = confBackgroundImage;
+
+		exportAlpha = config.getBoolean("exportAlpha", false);
+		canvasLimit = config.getInt(CANVAS_LIMIT_KEY, DEFAULT_CANVAS_LIMIT);
+
+	}
+
+	/**
+	 * renders this exporter's content to a file
+	 *
+	 * @param outputMode  one of the image output modes
+	 * @param x           horizontal resolution
+	 * @param y           vertical resolution
+	 */
+	public void writeImageFile(File outputFile, OutputMode outputMode, int x, int y,
+			Camera camera, Projection projection) throws IOException {
+
+		if (target == null) {
+			target = createTarget();
+		}
+
+		ImageWriter imageWriter;
+
+		switch (outputMode) {
+		case PNG: imageWriter = new PNGWriter(outputFile, x, y, exportAlpha); break;
+		case PPM: imageWriter = new PPMWriter(outputFile, x, y); break;
+		case GD: imageWriter = new GDWriter(outputFile, x, y); break;
+
+		default: throw new IllegalArgumentException(
+				"output mode not supported " + outputMode);
+		}
+
+		/* render the image in strips of rows, from top to bottom */
+
+		int stripHeight = Math.max(1, Math.min(canvasLimit, y));
+
+		BufferedImage image = new BufferedImage(x, stripHeight,
+				exportAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+		try {
+
+			for (int yStart = 0; yStart < y; yStart += stripHeight) {
+
+				int yEnd = Math.min(y, yStart + stripHeight);
+
+				fillBackground(pixels, x, yStart, yEnd);
+
+				target.renderRows(camera, projection, x, y, yStart, yEnd, pixels);
+
+				imageWriter.append(image, yEnd - yStart);
+
+			}
+
+		} finally {
+			imageWriter.close();
+		}
+
+	}
+
+	/**
+	 * releases the scene. It will be rebuilt if further images are requested.
+	 */
+	public void freeResources() {
+		target = null;
+	}
+
+	private SoftwareRasterizerTarget createTarget() {
+
+		SoftwareRasterizerTarget target = new SoftwareRasterizerTarget(GlobalLightingParameters.DEFAULT);
+		target.setConfiguration(config);
+
+		boolean underground = config.getBoolean("renderUnderground", true);
+
+		try (MaterialConfiguration.Scope scope = results.getMaterialConfiguration().activate()) {
+			TargetUtil.renderWorldObjects(target, results.getMapData(), meshCache, underground);
+			target.finish();
+		}
+
+		return target;
+
+	}
+
+	/** fills rows of the image with the background color, or with the repeated background image */
+	private void fillBackground(int[] pixels, int width, int yStart, int yEnd) {
+
+		int clearArgb = clearColor.getRGB();
+
+		for (int y = yStart; y < yEnd; y++) {
+			for (int x = 0; x < width; x++) {
+				pixels[(y - yStart) * width + x] = (backgroundImage == null) ? clearArgb
+						: backgroundImage.getRGB(x % backgroundImage.getWidth(), y % backgroundImage.getHeight());
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,633 @@
+package org.osm2world.console;
+
+import static java.util.Collections.singletonList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.configuration.Configuration;
+import org.osm2world.console.CLIArgumentsUtil.OutputMode;
+import org.osm2world.core.ConversionFacade;
+import org.osm2world.core.ConversionFacade.Results;
+import org.osm2world.core.IncrementalConversion;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.creation.LatLonBounds;
+import org.osm2world.core.map_data.creation.MetricMapProjection;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.math.AxisAlignedRectangleXZ;
+import org.osm2world.core.osm.creation.MbtilesReader;
+import org.osm2world.core.osm.creation.OSMChangeReader;
+import org.osm2world.core.osm.creation.OSMFileReader;
+import org.osm2world.core.osm.creation.PbfFileReader;
+import org.osm2world.core.osm.data.OSMChange;
+import org.osm2world.core.osm.data.OSMData;
+import org.osm2world.core.target.MeshCache;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
+import org.osm2world.core.target.common.material.Materials;
+import org.osm2world.core.target.common.rendering.OrthoTilesUtil;
+import org.osm2world.core.target.common.rendering.TileNumber;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
+
+/**
+ * a local HTTP server which converts tiles on demand.
+ * Tiles are requested as <code>/{z}/{x}/{y}.glb</code>, <code>.gltf</code> or <code>.o2w.pbf</code>.
+ *
+ * Input is read from an MBTiles file with one .osm.pbf tile per region, or from a local .osm/.pbf extract.
+ * OSM data is converted in regions, which are the tiles at zoom level {@value #DEFAULT_REGION_ZOOM}
+ * (or the serverRegionZoom setting). All tiles within a region share that region's conversion,
+ * so tiles can only be requested at the region zoom level or higher.
+ *
+ * Converted regions and encoded tiles are kept in caches with a least-recently-used policy.
+ * The size of both caches is limited in megabytes (serverRegionCacheMegabytes and serverTileCacheMegabytes).
+ * For regions, the memory use is estimated based on their number of map elements and triangles.
+ * Concurrent requests for the same tile or region only cause a single conversion.
+ *
+ * For extract input, osmChange diffs can be applied with {@link #applyChange(OSMChange)}
+ * or by posting them to <code>/changes</code>. Cached regions are then updated with an {@link IncrementalConversion},
+ * and only the cached tiles near the change are discarded and written again on their next request.
+ */
+public class TileServer {
+
+	public static final int DEFAULT_REGION_ZOOM = 13;
+
+	/* rough estimates of the memory used by a converted region, see ConvertedRegion#estimatedBytes */
+
+	/** memory for a triangle's vertices, normals and texture coordinates */
+	static final long BYTES_PER_TRIANGLE = 400;
+
+	/** memory for a map element, including its OSM tags, world objects and elevation connectors */
+	static final long BYTES_PER_MAP_ELEMENT = 2000;
+
+	private static final Pattern TILE_PATH_PATTERN = Pattern.compile("^/(\\d+)/(\\d+)/(\\d+)\\.(glb|gltf|o2w\\.pbf)$");
+
+	private final File input;
+	private final Configuration config;
+
+	private final int regionZoom;
+	private final double regionHalo;
+
+	/** materials shared by all conversions, so that textures are only loaded once */
+	private final MaterialConfiguration materialConfiguration;
+
+	/** the content of a local extract, loaded when it is first needed. Not used for MBTiles input. */
+	private @Nullable OSMData extractData = null;
+
+	private final LruCache<TileNumber, ConvertedRegion> regionCache;
+	private final LruCache<String, byte[]> tileCache;
+
+	/** prevents tiles from being written while a change is being applied */
+	private final ReadWriteLock changeLock = new ReentrantReadWriteLock();
+
+	private @Nullable HttpServer httpServer = null;
+	private @Nullable ExecutorService executor = null;
+
+	/** the conversion results for a region */
+	private static final class ConvertedRegion {
+
+		final Results results;
+		final MeshCache meshCache;
+
+		/** retained state for applying changes, only available for extract input */
+		final @Nullable IncrementalConversion conversion;
+
+		/** approximate memory used by this region, calculated once so that the cache weight remains stable */
+		final long estimatedBytes;
+
+		ConvertedRegion(Results results, MeshCache meshCache) {
+			this.results = results;
+			this.meshCache = meshCache;
+			this.conversion = null;
+			this.estimatedBytes = estimateBytes(results, meshCache);
+		}
+
+		ConvertedRegion(IncrementalConversion conversion) {
+			this.results = conversion.getResults();
+			this.meshCache = results.getMeshCache();
+			this.conversion = conversion;
+			this.estimatedBytes = estimateBytes(results, meshCache);
+		}
+
+	}
+
+	/**
+	 * @param input  an .mbtiles file, or an .osm or .pbf file
+	 */
+	public TileServer(File input, Configuration config) {
+
+		this.input = input;
+		this.config = config;
+
+		regionZoom = config.getInt("serverRegionZoom", DEFAULT_REGION_ZOOM);
+		regionHalo = config.getDouble("outputTileHalo", 50);
+
+		materialConfiguration = Materials.createConfiguration(config);
+
+		regionCache = new LruCache<>(config.getLong("serverRegionCacheMegabytes", 1024) * 1024 * 1024,
+				r -> r.estimatedBytes);
+		tileCache = new LruCache<>(config.getLong("serverTileCacheMegabytes", 256) * 1024 * 1024, t -> t.length);
+
+	}
+
+	/** estimates the memory used by the results of converting a region, in bytes */
+	static long estimateBytes(Results results, MeshCache meshCache) {
+		MapData mapData = results.getMapData();
+		long mapElementCount = mapData.getMapNodes().size() + mapData.getMapWaySegments().size()
+				+ mapData.getMapAreas().size();
+		return mapElementCount * BYTES_PER_MAP_ELEMENT + meshCache.getTriangleCount() * BYTES_PER_TRIANGLE;
+	}
+
+	/** starts listening for requests on a port of the loopback interface */
+	public void start(int port) throws IOException {
+
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+		httpServer.createContext("/", this::handleRequest);
+		httpServer.setExecutor(executor);
+		httpServer.start();
+
+	}
+
+	/** returns the port the server is listening on, useful if it was started with port 0 */
+	public int getPort() {
+		return httpServer.getAddress().getPort();
+	}
+
+	public void stop() {
+		if (httpServer != null) {
+			httpServer.stop(0);
+			executor.shutdownNow();
+			httpServer = null;
+		}
+	}
+
+	private void handleRequest(HttpExchange exchange) throws IOException {
+
+		try {
+
+			if ("/changes".equals(exchange.getRequestURI().getPath()) && "POST".equals(exchange.getRequestMethod())) {
+				handleChange(exchange);
+				return;
+			}
+
+			Matcher matcher = TILE_PATH_PATTERN.matcher(exchange.getRequestURI().getPath());
+
+			if (!"GET".equals(exchange.getRequestMethod()) || !matcher.matches()) {
+				sendError(exchange, 404, "expected a request for /{z}/{x}/{y}.glb, .gltf or .o2w.pbf");
+				return;
+			}
+
+			TileNumber tile;
+			try {
+				tile = new TileNumber(Integer.parseInt(matcher.group(1)),
+						Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+			} catch (IllegalArgumentException e) {
+				sendError(exchange, 404, "invalid tile: " + e.getMessage());
+				return;
+			}
+
+			if (tile.zoom < regionZoom) {
+				sendError(exchange, 400, "tiles are only available at zoom level " + regionZoom + " or higher");
+				return;
+			}
+
+			OutputMode outputMode = CLIArgumentsUtil.getOutputMode(new File("tile." + matcher.group(4)));
+
+			boolean cached = tileCache.contains(exchange.getRequestURI().getPath());
+			byte[] tileData = getTile(tile, outputMode);
+
+			exchange.getResponseHeaders().set("Content-Type", contentType(outputMode));
+			exchange.getResponseHeaders().set("X-Cache", cached ? "HIT" : "MISS");
+			exchange.sendResponseHeaders(200, tileData.length);
+
+			try (OutputStream body = exchange.getResponseBody()) {
+				body.write(tileData);
+			}
+
+		} catch (Exception e) {
+			e.printStackTrace();
+			sendError(exchange, 500, e.toString());
+		} finally {
+			exchange.close();
+		}
+
+	}
+
+	private void handleChange(HttpExchange exchange) throws IOException {
+
+		if (isMbtilesInput()) {
+			sendError(exchange, 400, "changes can only be applied to .osm or .pbf input");
+			return;
+		}
+
+		int discardedTiles = applyChange(OSMChangeReader.readChange(exchange.getRequestBody()));
+
+		byte[] body = ("discarded " + discardedTiles + " tiles").getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(200, body.length);
+
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(body);
+		}
+
+	}
+
+	/**
+	 * applies a change to the input data.
+	 * Cached regions are updated incrementally, and cached tiles which might be affected by the change are discarded.
+	 * Only supported for extract input.
+	 *
+	 * @return  the number of discarded tiles
+	 */
+	public int applyChange(OSMChange change) throws IOException {
+
+		if (isMbtilesInput()) {
+			throw new IllegalStateException("changes can only be applied to .osm or .pbf input");
+		}
+
+		changeLock.writeLock().lock();
+
+		try {
+
+			OSMData data = getExtractData();
+
+			/* apply the change to the extract, noting the positions touched by it */
+
+			List<LatLon> changedPositions = changedPositions(change, data);
+			change.applyTo(data);
+			changedPositions.addAll(changedPositions(change, data));
+
+			/* update the cached regions */
+
+			List<LatLonBounds> dirtyRegions = new ArrayList<>();
+			Set<TileNumber> updatedRegions = new HashSet<>();
+
+			for (Map.Entry<TileNumber, ConvertedRegion> entry : regionCache.entries().entrySet()) {
+
+				IncrementalConversion conversion = entry.getValue().conversion;
+				LatLonBounds regionBounds = entry.getKey().bounds().pad(regionHalo);
+
+				try {
+					dirtyRegions.addAll(conversion.applyChange(
+							change.restrictTo(conversion.getOSMData(), regionBounds, data)));
+				} catch (EntityNotFoundException e) {
+					throw new IOException(e);
+				}
+
+				regionCache.replace(entry.getKey(), new ConvertedRegion(conversion));
+				updatedRegions.add(entry.getKey());
+
+			}
+
+			/* discard the affected tiles. Tiles whose region is no longer cached
+			 * are discarded if the change is close enough to have been part of the region's conversion. */
+
+			return tileCache.removeIf(key -> {
+				Matcher matcher = TILE_PATH_PATTERN.matcher(key);
+				matcher.matches();
+				TileNumber tile = new TileNumber(Integer.parseInt(matcher.group(1)),
+						Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+				if (updatedRegions.contains(regionForTile(tile))) {
+					return dirtyRegions.stream().anyMatch(r -> intersects(r, tile.bounds()));
+				} else {
+					LatLonBounds bounds = tile.bounds().pad(regionHalo);
+					return changedPositions.stream().anyMatch(p -> bounds.contains(p.lat, p.lon));
+				}
+			});
+
+		} finally {
+			changeLock.writeLock().unlock();
+		}
+
+	}
+
+	/** returns the encoded tile, converting it or its region if necessary */
+	byte[] getTile(TileNumber tile, OutputMode outputMode) throws IOException {
+
+		changeLock.readLock().lock();
+
+		try {
+			return getTileData(tile, outputMode);
+		} finally {
+			changeLock.readLock().unlock();
+		}
+
+	}
+
+	private byte[] getTileData(TileNumber tile, OutputMode outputMode) throws IOException {
+
+		String key = "/" + tile.zoom + "/" + tile.x + "/" + tile.y + "." + Output.tileFormat(outputMode);
+
+		return tileCache.get(key, () -> {
+
+			ConvertedRegion region = regionCache.get(regionForTile(tile), () -> convertRegion(regionForTile(tile)));
+
+			AxisAlignedRectangleXZ tileBounds = OrthoTilesUtil.boundsForTiles(
+					region.results.getMapProjection(), singletonList(tile));
+
+			ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+			try (MaterialConfiguration.Scope scope = materialConfiguration.activate()) {
+				Output.writeTile(result, outputMode, tileBounds, region.results,
+						region.meshCache.filter(tileBounds), config);
+			}
+
+			return result.toByteArray();
+
+		});
+
+	}
+
+	/** returns the tile at the region zoom level which contains a tile */
+	TileNumber regionForTile(TileNumber tile) {
+		int zoomDifference = tile.zoom - regionZoom;
+		return new TileNumber(regionZoom, tile.x >> zoomDifference, tile.y >> zoomDifference);
+	}
+
+	private ConvertedRegion convertRegion(TileNumber region) throws IOException {
+
+		ConversionFacade cf = Output.createConversionFacade(config);
+		cf.setMaterialConfiguration(materialConfiguration);
+
+		if (!isMbtilesInput()) {
+			OSMData osmData = getExtractData().subset(region.bounds().pad(regionHalo));
+			try {
+				return new ConvertedRegion(new IncrementalConversion(osmData,
+						new MetricMapProjection(osmData.getCenter()), config, cf));
+			} catch (EntityNotFoundException e) {
+				throw new IOException(e);
+			}
+		}
+
+		OSMData osmData = new MbtilesReader(input, region).getData();
+
+		Results results = cf.createRepresentations(osmData, null, config, null);
+
+		MeshCache meshCache = results.getMeshCache();
+
+		if (meshCache == null) {
+			try (MaterialConfiguration.Scope scope = materialConfiguration.activate()) {
+				meshCache = MeshCache.build(results.getMapData(), false);
+			}
+		}
+
+		return new ConvertedRegion(results, meshCache);
+
+	}
+
+	private boolean isMbtilesInput() {
+		return input.getName().endsWith(".mbtiles");
+	}
+
+	private synchronized OSMData getExtractData() throws IOException {
+		if (extractData == null) {
+			extractData = input.getName().endsWith(".pbf")
+					? new PbfFileReader(input).getData()
+					: new OSMFileReader(input).getData();
+		}
+		return extractData;
+	}
+
+	/**
+	 * returns the positions of the nodes touched by a change in a dataset: changed nodes,
+	 * the nodes of changed ways and the direct node and way members of changed relations
+	 */
+	private static List<LatLon> changedPositions(OSMChange change, OSMData data) {
+
+		Set<Long> nodeIds = new HashSet<>(change.getChangedIds(EntityType.Node));
+		Set<Long> wayIds = new HashSet<>(change.getChangedIds(EntityType.Way));
+
+		for (long id : change.getChangedIds(EntityType.Relation)) {
+			OsmRelation relation = data.getData().getRelations().get(id);
+			if (relation != null) {
+				for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+					switch (relation.getMember(i).getType()) {
+					case Node: nodeIds.add(relation.getMember(i).getId()); break;
+					case Way: wayIds.add(relation.getMember(i).getId()); break;
+					default: break;
+					}
+				}
+			}
+		}
+
+		for (long id : wayIds) {
+			OsmWay way = data.getData().getWays().get(id);
+			if (way != null) {
+				for (int i = 0; i < way.getNumberOfNodes(); i++) {
+					nodeIds.add(way.getNodeId(i));
+				}
+			}
+		}
+
+		List<LatLon> result = new ArrayList<>();
+
+		for (long id : nodeIds) {
+			OsmNode node = data.getData().getNodes().get(id);
+			if (node != null) {
+				result.add(new LatLon(node.getLatitude(), node.getLongitude()));
+			}
+		}
+
+		return result;
+
+	}
+
+	private static boolean intersects(LatLonBounds b1, LatLonBounds b2) {
+		return b1.minlat <= b2.maxlat && b1.maxlat >= b2.minlat
+				&& b1.minlon <= b2.maxlon && b1.maxlon >= b2.minlon;
+	}
+
+	private static void sendError(HttpExchange exchange, int statusCode, String message) throws IOException {
+		byte[] body = message.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(statusCode, body.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(body);
+		}
+	}
+
+	private static String contentType(OutputMode outputMode) {
+		switch (outputMode) {
+		case GLTF: return "model/gltf+json";
+		case GLB: return "model/gltf-binary";
+		default: return "application/x-protobuf";
+		}
+	}
+
+	/**
+	 * keeps recently used values. When the total weight of the values exceeds the budget,
+	 * the least recently used values are evicted.
+	 * If a value is requested while it is already being loaded, the request waits for that load to finish.
+	 *
+	 * All methods can be called from multiple threads at once.
+	 */
+	static final class LruCache<K, V> {
+
+		interface Loader<V> {
+			V load() throws IOException;
+		}
+
+		/** the cached values in order of their last use, least recently used first */
+		private final LinkedHashMap<K, V> values = new LinkedHashMap<>(16, 0.75f, true);
+
+		/** loads which are currently in progress */
+		private final Map<K, CompletableFuture<V>> pendingLoads = new HashMap<>();
+
+		private final long maxWeight;
+		private final ToLongFunction<V> weightFunction;
+		private long currentWeight = 0;
+
+		LruCache(long maxWeight, ToLongFunction<V> weightFunction) {
+			this.maxWeight = maxWeight;
+			this.weightFunction = weightFunction;
+		}
+
+		synchronized boolean contains(K key) {
+			return values.containsKey(key);
+		}
+
+		/** returns a copy of the cached values, without affecting their order of use */
+		synchronized Map<K, V> entries() {
+			return new LinkedHashMap<>(values);
+		}
+
+		/** replaces the value for a key if it is cached */
+		synchronized void replace(K key, V value) {
+			V oldValue = values.replace(key, value);
+			if (oldValue != null) {
+				currentWeight += weightFunction.applyAsLong(value) - weightFunction.applyAsLong(oldValue);
+				evictIfNecessary();
+			}
+		}
+
+		/**
+		 * removes all cached values whose keys match a predicate
+		 *
+		 * @return  the number of removed values
+		 */
+		synchronized int removeIf(Predicate<K> predicate) {
+			int count = 0;
+			Iterator<Map.Entry<K, V>> iterator = values.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<K, V> entry = iterator.next();
+				if (predicate.test(entry.getKey())) {
+					iterator.remove();
+					currentWeight -= weightFunction.applyAsLong(entry.getValue());
+					count += 1;
+				}
+			}
+			return count;
+		}
+
+		/** returns the value for a key, loading it if it is neither cached nor already being loaded */
+		V get(K key, Loader<V> loader) throws IOException {
+
+			CompletableFuture<V> future;
+			boolean loadHere = false;
+
+			synchronized (this) {
+
+				V value = values.get(key);
+				if (value != null) return value;
+
+				future = pendingLoads.get(key);
+
+				if (future == null) {
+					future = new CompletableFuture<>();
+					pendingLoads.put(key, future);
+					loadHere = true;
+				}
+
+			}
+
+			if (loadHere) {
+
+				try {
+
+					V value = loader.load();
+
+					synchronized (this) {
+						pendingLoads.remove(key);
+						values.put(key, value);
+						currentWeight += weightFunction.applyAsLong(value);
+						evictIfNecessary();
+					}
+
+					future.complete(value);
+
+				} catch (IOException | RuntimeException e) {
+
+					synchronized (this) {
+						pendingLoads.remove(key);
+					}
+
+					future.completeExceptionally(e);
+					throw e;
+
+				}
+
+			}
+
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw new IOException(e.getCause());
+				} else {
+					throw new RuntimeException(e.getCause());
+				}
+			}
+
+		}
+
+		private void evictIfNecessary() {
+
+			Iterator<V> iterator = values.values().iterator();
+
+			// the most recently used value is kept even if it exceeds the budget on its own
+			while (currentWeight > maxWeight && values.size() > 1) {
+				V evictedValue = iterator.next();
+				iterator.remove();
+				currentWeight -= weightFunction.applyAsLong(evictedValue);
+			}
+
+		}
+
+	}
+
+}
@@ -4,21 +4,28 @@ import static java.lang.Math.abs;
 import static java.util.Arrays.asList;
 import static java.util.Collections.*;
 import static java.util.Comparator.comparingDouble;
+import static java.util.stream.Collectors.toList;
 import static org.osm2world.core.math.AxisAlignedRectangleXZ.bbox;
+import static org.osm2world.core.util.FaultTolerantIterationUtil.DEFAULT_EXCEPTION_HANDLER;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
+import javax.annotation.Nullable;
+
 import org.apache.commons.configuration.BaseConfiguration;
 import org.apache.commons.configuration.Configuration;
-import org.apache.commons.lang.time.StopWatch;
 import org.osm2world.core.map_data.creation.LatLon;
 import org.osm2world.core.map_data.creation.MapProjection;
 import org.osm2world.core.map_data.creation.MetricMapProjection;
@@ -26,8 +33,12 @@ import org.osm2world.core.map_data.creation.OSMToMapDataConverter;
 import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.map_elevation.creation.EleConstraintEnforcer;
 import org.osm2world.core.map_elevation.creation.EleConstraintValidator;
+import org.osm2world.core.map_elevation.creation.ElevationGrid;
+import org.osm2world.core.map_elevation.creation.GriddedInterpolator;
+import org.osm2world.core.map_elevation.creation.GriddedTerrainElevationData;
 import org.osm2world.core.map_elevation.creation.NoneEleConstraintEnforcer;
 import org.osm2world.core.map_elevation.creation.SRTMData;
+import org.osm2world.core.map_elevation.creation.SRTMTileCache;
 import org.osm2world.core.map_elevation.creation.TerrainElevationData;
 import org.osm2world.core.map_elevation.creation.TerrainInterpolator;
 import org.osm2world.core.map_elevation.creation.ZeroInterpolator;
@@ -39,8 +50,11 @@ import org.osm2world.core.math.datastructures.SpatialIndex;
 import org.osm2world.core.osm.creation.OSMDataReader;
 import org.osm2world.core.osm.creation.OSMFileReader;
 import org.osm2world.core.osm.data.OSMData;
+import org.osm2world.core.target.ConversionResultCache;
+import org.osm2world.core.target.MeshCache;
 import org.osm2world.core.target.Target;
 import org.osm2world.core.target.TargetUtil;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
 import org.osm2world.core.target.common.material.Materials;
 import org.osm2world.core.util.FaultTolerantIterationUtil;
 import org.osm2world.core.util.functions.Factory;
@@ -90,11 +104,16 @@ public class ConversionFacade {
 		private final MapProjection mapProjection;
 		private final MapData mapData;
 		private final TerrainElevationData eleData;
+		private final MaterialConfiguration materialConfiguration;
+		private final @Nullable MeshCache meshCache;
 
-		private Results(MapProjection mapProjection, MapData mapData, TerrainElevationData eleData) {
+		Results(MapProjection mapProjection, MapData mapData, TerrainElevationData eleData,
+				MaterialConfiguration materialConfiguration, @Nullable MeshCache meshCache) {
 			this.mapProjection = mapProjection;
 			this.mapData = mapData;
 			this.eleData = eleData;
+			this.materialConfiguration = materialConfiguration;
+			this.meshCache = meshCache;
 		}
 
 		public MapProjection getMapProjection() {
@@ -109,6 +128,23 @@ public class ConversionFacade {
 			return eleData;
 		}
 
+		/**
+		 * returns the material configuration used for this conversion.
+		 * It needs to be active while the results are sent to targets.
+		 */
+		public MaterialConfiguration getMaterialConfiguration() {
+			return materialConfiguration;
+		}
+
+		/**
+		 * returns the meshes of all world objects if they have already been built, null otherwise.
+		 * This is always available for results restored from a {@link ConversionResultCache},
+		 * because their {@link MapData} does not contain any elements.
+		 */
+		public @Nullable MeshCache getMeshCache() {
+			return meshCache;
+		}
+
 	}
 
 	/**
@@ -149,6 +185,10 @@ public class ConversionFacade {
 
 	private Factory<? extends EleConstraintEnforcer> eleConstraintEnforcerFactory = NoneEleConstraintEnforcer::new;
 
+	private @Nullable MaterialConfiguration materialConfiguration = null;
+
+	private final ConversionMetrics metrics = new ConversionMetrics();
+
 	/**
 	 * sets the factory that will make {@link MapProjection}
 	 * instances during subsequent calls to
@@ -178,6 +218,25 @@ public class ConversionFacade {
 		this.terrainEleInterpolatorFactory = enforcerFactory;
 	}
 
+	/**
+	 * sets the {@link MaterialConfiguration} used during subsequent calls to
+	 * {@link #createRepresentations(OSMData, List, Configuration, List)}.
+	 * It must have been created from the same configuration which is passed to those calls.
+	 * This makes it possible to reuse materials, including loaded textures, for several conversions.
+	 * If this is not set, a new material configuration is created for each conversion.
+	 */
+	public void setMaterialConfiguration(@Nullable MaterialConfiguration materialConfiguration) {
+		this.materialConfiguration = materialConfiguration;
+	}
+
+
+	/**
+	 * returns the metrics recorded during conversions with this facade.
+	 * Values accumulate if the facade is used for multiple conversions.
+	 */
+	public ConversionMetrics getMetrics() {
+		return metrics;
+	}
 
 	/**
 	 * performs all necessary steps to go from
@@ -260,12 +319,131 @@ public class ConversionFacade {
 			// TODO: what to do here?
 		}
 
+		if (mapData != null) {
+			metrics.count("mapElements.nodes", mapData.getMapNodes().size());
+			metrics.count("mapElements.waySegments", mapData.getMapWaySegments().size());
+			metrics.count("mapElements.areas", mapData.getMapAreas().size());
+		}
+
 		/* perform the rest of the conversion */
 
 		return createRepresentations(mapProjection, mapData, worldModules, config, targets);
 
 	}
 
+	/**
+	 * variant of {@link #createRepresentations(OSMData, List, Configuration, List)}
+	 * which reuses the results of earlier conversions with the same input, configuration and modules.
+	 * On a cache hit, the data is not read and the conversion is skipped entirely.
+	 * The results then contain the cached meshes ({@link Results#getMeshCache()})
+	 * and a {@link MapData} without any elements.
+	 * On a cache miss, the results of the conversion are added to the cache.
+	 *
+	 * @param dataReader    source of the input data; != null
+	 * @param inputId       identifies the input data,
+	 *                      see {@link ConversionResultCache#createKey(String, Configuration, List)}
+	 * @param resultCache   the cache to use; != null
+	 * @param worldModules  modules that will create the {@link WorldObject}s
+	 *                      in the result; null to use a default module list
+	 * @param config        set of parameters that controls various aspects
+	 *                      of the modules' behavior; null to use defaults
+	 * @param targets       receivers of the conversion results; can be null if
+	 *                      you want to handle the returned results yourself
+	 */
+	public Results createRepresentations(OSMDataReader dataReader, String inputId,
+			ConversionResultCache resultCache, List<? extends WorldModule> worldModules,
+			Configuration config, List<? extends Target> targets)
+			throws IOException, BoundingBoxSizeException {
+
+		if (config == null) {
+			config = new BaseConfiguration();
+		}
+
+		if (worldModules == null) {
+			worldModules = createDefaultModuleList();
+		}
+
+		boolean underground = config.getBoolean("renderUnderground", true);
+
+		String key = ConversionResultCache.createKey(inputId, config, worldModules);
+
+		/* try to restore the results from the cache */
+
+		MaterialConfiguration materialConfiguration = this.materialConfiguration != null
+				? this.materialConfiguration
+				: Materials.createConfiguration(config);
+
+		try (MaterialConfiguration.Scope scope = materialConfiguration.activate()) {
+
+			ConversionResultCache.Entry entry;
+
+			try (ConversionMetrics.Timer timer = metrics.startTimer("resultCache.read")) {
+				entry = resultCache.read(key);
+			}
+
+			if (entry != null) {
+
+				metrics.count("resultCache.hits", 1);
+
+				// announce all phases, so listeners see the same sequence as for a conversion
+				for (Phase phase : Phase.values()) {
+					updatePhase(phase);
+				}
+
+				if (targets != null) {
+					for (Target target : targets) {
+						try (ConversionMetrics.Timer timer = metrics.startTimer(
+								"target." + target.getClass().getSimpleName())) {
+							entry.meshCache.renderTo(target, underground);
+							target.finish();
+						}
+					}
+				}
+
+				endPhase();
+
+				MapData mapData = new MapData(emptyList(), emptyList(), emptyList(), emptyList(), entry.boundary);
+
+				return new Results(mapProjectionFactory.apply(entry.origin), mapData, null,
+						materialConfiguration, entry.meshCache);
+
+			}
+
+		}
+
+		/* perform the conversion and add the results to the cache */
+
+		metrics.count("resultCache.misses", 1);
+
+		OSMData osmData = dataReader.getData();
+
+		Results results = createRepresentations(osmData, worldModules, config, targets);
+
+		try (MaterialConfiguration.Scope scope = results.getMaterialConfiguration().activate()) {
+
+			MeshCache meshCache;
+
+			try (ConversionMetrics.Timer timer = metrics.startTimer("buildMeshes")) {
+				meshCache = MeshCache.build(results.getMapData(), config.getBoolean("parallelOutputs", false));
+			}
+
+			try (ConversionMetrics.Timer timer = metrics.startTimer("resultCache.write")) {
+				ConversionResultCache.Entry entry = new ConversionResultCache.Entry(osmData.getCenter(),
+						results.getMapData().getBoundary(), meshCache);
+				if (!resultCache.write(key, entry)) {
+					System.err.println("Conversion results could not be cached");
+				}
+			} catch (IOException e) {
+				System.err.println("Conversion results could not be cached: " + e);
+			}
+
+			return new Results(results.getMapProjection(), results.getMapData(), results.getEleData(),
+					results.getMaterialConfiguration(), meshCache);
+
+		}
+
+	}
+
 	/**
 	 * variant of {@link #createRepresentations(OSMData, List, Configuration, List)}
 	 * that takes {@link MapData} instead of {@link OSMData}
@@ -292,90 +470,162 @@ public class ConversionFacade {
 			worldModules = createDefaultModuleList();
 		}
 
-		Materials.configureMaterials(config);
-			//this will cause problems if multiple conversions are run
-			//at the same time, because global variables are being modified
+		MaterialConfiguration materialConfiguration = this.materialConfiguration != null
+				? this.materialConfiguration
+				: Materials.createConfiguration(config);
+		TerrainElevationData eleData = null;
 
-		WorldCreator moduleManager =
-			new WorldCreator(config, worldModules);
-		moduleManager.addRepresentationsTo(mapData);
+		try (MaterialConfiguration.Scope scope = materialConfiguration.activate()) {
 
-		/* determine elevations */
-		updatePhase(Phase.ELEVATION);
+			WorldCreator moduleManager =
+				new WorldCreator(config, worldModules);
+			moduleManager.addRepresentationsTo(mapData, metrics);
 
-		String srtmDir = config.getString("srtmDir", null);
-		TerrainElevationData eleData = null;
+			/* determine elevations */
+			updatePhase(Phase.ELEVATION);
 
-		if (srtmDir != null) {
-			eleData = new SRTMData(new File(srtmDir), mapProjection);
-		}
+			String srtmDir = config.getString("srtmDir", null);
 
-		/* create terrain and attach connectors */
-		updatePhase(Phase.TERRAIN);
+			if (srtmDir != null) {
+				if (config.containsKey("srtmCacheMegabytes")) {
+					SRTMTileCache.getSharedCache().requestMaxBytes(config.getLong("srtmCacheMegabytes") * 1024 * 1024);
+				}
+				eleData = new SRTMData(new File(srtmDir), mapProjection);
+			}
 
-		calculateElevations(mapData, eleData, config);
-		attachConnectors(mapData);
+			/* create terrain and attach connectors */
+			updatePhase(Phase.TERRAIN);
 
-		/* supply results to targets and caller */
-		updatePhase(Phase.FINISHED);
+			calculateElevations(mapProjection, mapData, eleData, config);
 
-		boolean underground = config.getBoolean("renderUnderground", true);
+			try (ConversionMetrics.Timer timer = metrics.startTimer("attachConnectors")) {
+				attachConnectors(mapData);
+			}
+
+			/* supply results to targets and caller */
+			updatePhase(Phase.FINISHED);
 
-		if (targets != null) {
-			for (Target target : targets) {
-				TargetUtil.renderWorldObjects(target, mapData, underground);
-				target.finish();
+			boolean underground = config.getBoolean("renderUnderground", true);
+
+			if (targets != null) {
+				for (Target target : targets) {
+					try (ConversionMetrics.Timer timer = metrics.startTimer(
+							"target." + target.getClass().getSimpleName())) {
+						TargetUtil.renderWorldObjects(target, mapData, underground);
+						target.finish();
+					}
+				}
 			}
+
 		}
 
-		return new Results(mapProjection, mapData, eleData);
+		endPhase();
+
+		return new Results(mapProjection, mapData, eleData, materialConfiguration, null);
 
 	}
 
 	private void attachConnectors(MapData mapData) {
 
-		/* collect the surfaces */
+		/* collect the surfaces, with a separate index for each surface type */
 
-		SpatialIndex<AttachmentSurface> attachmentSurfaceIndex =
-				new IndexGrid<>(mapData.getDataBoundary().pad(50), 100, 100);
+		Map<String, SpatialIndex<AttachmentSurface>> surfaceIndexByType = new HashMap<>();
+
+		// the order in which surfaces have been collected, used to break ties
+		Map<AttachmentSurface, Integer> surfaceOrder = new IdentityHashMap<>();
 
 		for (WorldObject object : mapData.getWorldObjects()) {
 			if (object.getParent() != null) continue;
-			object.getAttachmentSurfaces().forEach(attachmentSurfaceIndex::insert);
+			for (AttachmentSurface surface : object.getAttachmentSurfaces()) {
+				surfaceOrder.put(surface, surfaceOrder.size());
+				for (String type : new HashSet<>(surface.getTypes())) {
+					surfaceIndexByType.computeIfAbsent(type,
+							t -> new IndexGrid<>(mapData.getDataBoundary().pad(50), 100, 100)).insert(surface);
+				}
+			}
 		}
 
-		/* attach connectors to the surfaces */
+		/* collect the connectors */
 
-		for (WorldObject object : mapData.getWorldObjects()) {
+		List<AttachmentConnector> connectors = new ArrayList<>();
 
+		for (WorldObject object : mapData.getWorldObjects()) {
 			if (object.getParent() != null) continue;
+			object.getAttachmentConnectors().forEach(connectors::add);
+		}
 
-			for (AttachmentConnector connector : object.getAttachmentConnectors()) {
+		/* find a surface and position for each connector. This does not modify anything and runs in parallel. */
 
-				for (String surfaceType : connector.compatibleSurfaceTypes) {
+		List<Attachment> attachments = connectors.parallelStream().map(connector -> {
 
-					Iterable<AttachmentSurface> nearbySurfaces = attachmentSurfaceIndex.probe(
-							bbox(singleton(connector.originalPos)).pad(connector.maxDistanceXZ()));
+			for (String surfaceType : connector.compatibleSurfaceTypes) {
 
-					Optional<AttachmentSurface> closestSurface = Streams.stream(nearbySurfaces)
-							.filter(s -> s.getTypes().stream().anyMatch(t -> t.equals(surfaceType)))
-							.filter(s -> s.getFaces().stream().anyMatch(f -> connector.isAcceptableNormal.test(f.getNormal())))
-							.min(comparingDouble(s -> s.distanceTo(connector.originalPos)));
+				SpatialIndex<AttachmentSurface> index = surfaceIndexByType.get(surfaceType);
 
-					if (closestSurface.isPresent()) {
-						attachConnectorIfValid(connector, closestSurface.get());
-						break;
-					}
+				if (index == null) continue;
+
+				Iterable<AttachmentSurface> nearbySurfaces = index.probe(
+						bbox(singleton(connector.originalPos)).pad(connector.maxDistanceXZ()));
+
+				Optional<AttachmentSurface> closestSurface = Streams.stream(nearbySurfaces)
+						.filter(s -> s.hasFaceWithNormal(connector.isAcceptableNormal))
+						.min(comparingDouble((AttachmentSurface s) -> s.distanceTo(connector.originalPos))
+								.thenComparing(surfaceOrder::get));
+
+				if (closestSurface.isPresent()) {
+					return findAttachment(connector, closestSurface.get());
 				}
 
 			}
 
+			return null;
+
+		}).collect(toList());
+
+		/* attach the connectors in their original order to get deterministic results */
+
+		for (Attachment attachment : attachments) {
+			if (attachment != null) {
+				attachment.connector.attach(attachment.surface, attachment.pos, attachment.normal);
+			}
+		}
+
+	}
+
+	/** the result of the search for a connector's attachment position */
+	private static class Attachment {
+
+		final AttachmentConnector connector;
+		final AttachmentSurface surface;
+		final VectorXYZ pos;
+		final VectorXYZ normal;
+
+		Attachment(AttachmentConnector connector, AttachmentSurface surface, VectorXYZ pos, VectorXYZ normal) {
+			this.connector = connector;
+			this.surface = surface;
+			this.pos = pos;
+			this.normal = normal;
 		}
 
 	}
 
 	protected static void attachConnectorIfValid(AttachmentConnector connector, AttachmentSurface surface) {
 
+		Attachment attachment = findAttachment(connector, surface);
+
+		if (attachment != null) {
+			connector.attach(surface, attachment.pos, attachment.normal);
+		}
+
+	}
+
+	/**
+	 * determines where a connector would be attached to a surface, without actually attaching it
+	 *
+	 * @return  the attachment position, null if the connector cannot be attached to the surface
+	 */
+	private static @Nullable Attachment findAttachment(AttachmentConnector connector, AttachmentSurface surface) {
+
 		double ele = surface.getBaseEleAt(connector.originalPos.xz()) + connector.preferredHeight;
 		VectorXYZ posAtEle = connector.originalPos.y(ele);
 
@@ -391,32 +641,31 @@ public class ConversionFacade {
 				}
 			};
 
-			Optional<FaceXYZ> closestFace = surface.getFaces().stream()
-					.filter(matchesPreferredHeight)
-					.filter(f -> connector.isAcceptableNormal.test(f.getNormal()))
-					.min(comparingDouble(f -> connector.changeXZ ? f.distanceTo(posAtEle) : f.distanceToXZ(posAtEle)));
+			FaceXYZ closestFace = surface.getClosestFace(posAtEle, !connector.changeXZ,
+					f -> connector.isAcceptableNormal.test(f.getNormal()) && matchesPreferredHeight.test(f));
 
-			if (!closestFace.isPresent()) continue; // try again without enforcing the preferred height
+			if (closestFace == null) continue; // try again without enforcing the preferred height
 
 			VectorXYZ closestPoint = null;
 
-			if (!connector.changeXZ && closestFace.get().getNormal().y >= 0.001) {
+			if (!connector.changeXZ && closestFace.getNormal().y >= 0.001) {
 				// no XZ movement is desired, obtain the face point directly above/below the connector
-				VectorXYZ pointInFacePlane = posAtEle.y(closestFace.get().getYAt(posAtEle.xz()));
-				closestPoint = closestFace.get().closestPoint(pointInFacePlane);
+				VectorXYZ pointInFacePlane = posAtEle.y(closestFace.getYAt(posAtEle.xz()));
+				closestPoint = closestFace.closestPoint(pointInFacePlane);
 			} else {
-				closestPoint = closestFace.get().closestPoint(posAtEle);
+				closestPoint = closestFace.closestPoint(posAtEle);
 			}
 
 			if (closestPoint.xz().distanceTo(connector.originalPos.xz()) > connector.maxDistanceXZ() + 0.001) {
 				continue;
 			}
 
-			connector.attach(surface, closestPoint, closestFace.get().getNormal());
-			break; // attached, don't try again
+			return new Attachment(connector, surface, closestPoint, closestFace.getNormal());
 
 		}
 
+		return null;
+
 	}
 
 	/**
@@ -424,7 +673,19 @@ public class ConversionFacade {
 	 * source) to calculate elevations for all {@link EleConnector}s of the
 	 * {@link WorldObject}s
 	 */
-	private void calculateElevations(MapData mapData,
+	/**
+	 * checks whether conversions with a configuration calculate elevations other than 0.
+	 * If they do, the elevation of each element depends on the data of the entire converted area,
+	 * e.g. because of the known sites used for interpolation and the elevation constraints between elements.
+	 */
+	boolean calculatesElevations(Configuration config) {
+		boolean interpolation = config.getString("srtmDir", null) != null
+				&& !(terrainEleInterpolatorFactory.get() instanceof ZeroInterpolator);
+		boolean constraints = !(eleConstraintEnforcerFactory.get() instanceof NoneEleConstraintEnforcer);
+		return interpolation || constraints;
+	}
+
+	private void calculateElevations(MapProjection mapProjection, MapData mapData,
 			TerrainElevationData eleData, Configuration config) {
 
 		final TerrainInterpolator interpolator =
@@ -434,49 +695,104 @@ public class ConversionFacade {
 
 		/* provide known elevations from eleData to the interpolator */
 
-		StopWatch stopWatch = new StopWatch();
-		stopWatch.start();
+		if (interpolator instanceof GriddedInterpolator
+				&& eleData instanceof GriddedTerrainElevationData) {
 
-		if (!(interpolator instanceof ZeroInterpolator)) {
+			/* gridded data can be sampled directly, without creating sites */
 
-			Collection<VectorXYZ> sites = emptyList();
+			try (ConversionMetrics.Timer timer = metrics.startTimer("elevation.getGrid")) {
+				ElevationGrid grid = ((GriddedTerrainElevationData) eleData).getGrid(mapData);
+				metrics.count("elevation.gridSamples", (long)grid.getColumns() * grid.getRows());
+				((GriddedInterpolator) interpolator).setGrid(grid, mapProjection);
+			} catch (IOException e) {
+				e.printStackTrace();
+				((GriddedInterpolator) interpolator).setGrid(
+						new ElevationGrid(0, 0, 1, 1, 1, new float[] {Float.NaN}), mapProjection);
+			}
 
-			try {
+		} else if (!(interpolator instanceof ZeroInterpolator)) {
 
-				sites = eleData.getSites(mapData);
+			if (interpolator instanceof GriddedInterpolator) {
+				System.err.println("warning: GriddedInterpolator requires gridded elevation data such as SRTM,"
+						+ " using LeastSquaresInterpolator instead");
+			}
 
-				System.out.println("time getSites: " + stopWatch);
-				stopWatch.reset();
-				stopWatch.start();
+			Collection<VectorXYZ> sites = emptyList();
 
+			try (ConversionMetrics.Timer timer = metrics.startTimer("elevation.getSites")) {
+				sites = eleData.getSites(mapData);
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
 
-			interpolator.setKnownSites(sites);
+			metrics.count("elevation.sites", sites.size());
 
-			System.out.println("time setKnownSites: " + stopWatch);
-			stopWatch.reset();
-			stopWatch.start();
+			try (ConversionMetrics.Timer timer = metrics.startTimer("elevation.setKnownSites")) {
+				interpolator.setKnownSites(sites);
+			}
 
 		}
 
 		/* interpolate connectors' elevations */
 
-		final List<EleConnector> connectors = new ArrayList<EleConnector>();
+		List<EleConnector> connectors = new ArrayList<EleConnector>();
+
+		try (ConversionMetrics.Timer timer = metrics.startTimer("elevation.interpolation")) {
+
+			// gather the positions of all connectors
+
+			FaultTolerantIterationUtil.forEach(mapData.getWorldObjects(), (WorldObject worldObject) -> {
+				for (EleConnector conn : worldObject.getEleConnectors()) {
+					connectors.add(conn);
+				}
+			});
+
+			double[] xs = new double[connectors.size()];
+			double[] zs = new double[connectors.size()];
+
+			for (int i = 0; i < connectors.size(); i++) {
+				xs[i] = connectors.get(i).pos.x;
+				zs[i] = connectors.get(i).pos.z;
+			}
+
+			// evaluate them as a single batch, which interpolators may process in parallel
+
+			double[] eles = null;
+
+			try {
+				eles = interpolator.interpolateEle(xs, zs);
+			} catch (Exception | AssertionError e) {
+				DEFAULT_EXCEPTION_HANDLER.accept(e, interpolator);
+			}
+
+			// write the results back to the connectors
+
+			if (eles != null) {
+
+				for (int i = 0; i < connectors.size(); i++) {
+					EleConnector conn = connectors.get(i);
+					conn.setPosXYZ(conn.pos.xyz(eles[i]));
+				}
+
+			} else {
+
+				// fall back to interpolating each connector separately, skipping those which fail
 
-		FaultTolerantIterationUtil.forEach(mapData.getWorldObjects(), (WorldObject worldObject) -> {
+				List<EleConnector> interpolatedConnectors = new ArrayList<EleConnector>(connectors.size());
+
+				FaultTolerantIterationUtil.forEach(connectors, (EleConnector conn) -> {
+					conn.setPosXYZ(interpolator.interpolateEle(conn.pos));
+					interpolatedConnectors.add(conn);
+				});
+
+				connectors.clear();
+				connectors.addAll(interpolatedConnectors);
 
-			for (EleConnector conn : worldObject.getEleConnectors()) {
-				conn.setPosXYZ(interpolator.interpolateEle(conn.pos));
-				connectors.add(conn);
 			}
 
-		});
+		}
 
-		System.out.println("time terrain interpolation: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+		metrics.count("elevation.connectors", connectors.size());
 
 		/* enforce constraints defined by WorldObjects */
 
@@ -487,24 +803,22 @@ public class ConversionFacade {
 						eleConstraintEnforcerFactory.get())
 				: eleConstraintEnforcerFactory.get();
 
-		enforcer.addConnectors(connectors);
+		try (ConversionMetrics.Timer timer = metrics.startTimer("elevation.addConstraints")) {
 
-		if (!(enforcer instanceof NoneEleConstraintEnforcer)) {
+			enforcer.addConnectors(connectors);
 
-			FaultTolerantIterationUtil.forEach(mapData.getWorldObjects(),
-					(WorldObject o) -> o.defineEleConstraints(enforcer));
+			if (!(enforcer instanceof NoneEleConstraintEnforcer)) {
 
-		}
+				FaultTolerantIterationUtil.forEach(mapData.getWorldObjects(),
+						(WorldObject o) -> o.defineEleConstraints(enforcer));
 
-		System.out.println("time add constraints: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+			}
 
-		enforcer.enforceConstraints();
+		}
 
-		System.out.println("time enforce constraints: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+		try (ConversionMetrics.Timer timer = metrics.startTimer("elevation.enforceConstraints")) {
+			enforcer.enforceConstraints();
+		}
 
 	}
 
@@ -532,14 +846,47 @@ public class ConversionFacade {
 
 	private List<ProgressListener> listeners = new ArrayList<ProgressListener>();
 
+	private Phase currentPhase = null;
+	private long currentPhaseStart;
+	private long currentPhaseIgnoredExceptions;
+
 	public void addProgressListener(ProgressListener listener) {
 		listeners.add(listener);
 	}
 
 	private void updatePhase(Phase newPhase) {
+
+		if (currentPhase == null) {
+			ConversionMetrics.resetPeakHeapUsage();
+		}
+
+		endPhase();
+
+		currentPhase = newPhase;
+		currentPhaseStart = System.nanoTime();
+		currentPhaseIgnoredExceptions = FaultTolerantIterationUtil.getIgnoredExceptionCount();
+
 		for (ProgressListener listener : listeners) {
 			listener.updatePhase(newPhase);
 		}
+
+	}
+
+	/**
+	 * records the duration, peak heap usage and ignored exceptions of the current phase, if any.
+	 * The ignored exceptions are counted globally and can include exceptions from parallel conversions.
+	 */
+	private void endPhase() {
+
+		if (currentPhase != null) {
+			metrics.recordTime("phase." + currentPhase, System.nanoTime() - currentPhaseStart);
+			metrics.recordMax("peakHeap." + currentPhase, ConversionMetrics.resetPeakHeapUsage());
+			metrics.count("ignoredExceptions." + currentPhase,
+					FaultTolerantIterationUtil.getIgnoredExceptionCount() - currentPhaseIgnoredExceptions);
+		}
+
+		currentPhase = null;
+
 	}
 
 //	private void updatePhaseProgress(float phaseProgress) {
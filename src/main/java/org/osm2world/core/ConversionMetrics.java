@@ -0,0 +1,181 @@
+package org.osm2world.core;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * collects timers, counters and maximum values during conversion runs.
+ * Metrics are identified by names such as "phase.TERRAIN" or "worldObjects.RoadModule".
+ * Values for the same name accumulate, e.g. when several conversions share one instance.
+ *
+ * All methods can be called from multiple threads at once.
+ */
+public class ConversionMetrics {
+
+	/**
+	 * implemented by classes that want to be informed about metrics as they are recorded.
+	 * Notifications can arrive from any thread that is involved in the conversion.
+	 */
+	public static interface MetricsListener {
+
+		/** announces that a timed section has completed */
+		public default void timerRecorded(String name, long durationNanos) {}
+
+		/** announces that a counter has been increased */
+		public default void counterIncreased(String name, long delta) {}
+
+		/** announces a value for a metric that keeps track of the maximum */
+		public default void maximumRecorded(String name, long value) {}
+
+	}
+
+	/**
+	 * a running timer. Closing it adds the elapsed time to the timer's metric.
+	 * Intended for try-with-resources blocks.
+	 */
+	public final class Timer implements AutoCloseable {
+
+		private final String name;
+		private final long start = System.nanoTime();
+
+		private Timer(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void close() {
+			recordTime(name, System.nanoTime() - start);
+		}
+
+	}
+
+	private final Map<String, AtomicLong> timers = new ConcurrentHashMap<>();
+	private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+	private final Map<String, AtomicLong> maxima = new ConcurrentHashMap<>();
+
+	private final List<MetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+	public void addListener(MetricsListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(MetricsListener listener) {
+		listeners.remove(listener);
+	}
+
+	/** starts a timer which will add to the named metric when it is closed */
+	public Timer startTimer(String name) {
+		return new Timer(name);
+	}
+
+	public void recordTime(String name, long durationNanos) {
+		timers.computeIfAbsent(name, k -> new AtomicLong()).addAndGet(durationNanos);
+		for (MetricsListener listener : listeners) {
+			listener.timerRecorded(name, durationNanos);
+		}
+	}
+
+	public void count(String name, long delta) {
+		counters.computeIfAbsent(name, k -> new AtomicLong()).addAndGet(delta);
+		for (MetricsListener listener : listeners) {
+			listener.counterIncreased(name, delta);
+		}
+	}
+
+	public void recordMax(String name, long value) {
+		maxima.computeIfAbsent(name, k -> new AtomicLong(Long.MIN_VALUE)).accumulateAndGet(value, Math::max);
+		for (MetricsListener listener : listeners) {
+			listener.maximumRecorded(name, value);
+		}
+	}
+
+	/** returns the total time recorded for a timer, in milliseconds. 0 for unknown timers. */
+	public long getTimeMillis(String name) {
+		AtomicLong nanos = timers.get(name);
+		return nanos == null ? 0 : NANOSECONDS.toMillis(nanos.get());
+	}
+
+	/** returns the value of a counter. 0 for unknown counters. */
+	public long getCount(String name) {
+		AtomicLong count = counters.get(name);
+		return count == null ? 0 : count.get();
+	}
+
+	/** returns the maximum recorded for a metric, or null if no value has been recorded */
+	public Long getMax(String name) {
+		AtomicLong max = maxima.get(name);
+		return max == null ? null : max.get();
+	}
+
+	/** returns all timers, with times in milliseconds, sorted by name */
+	public SortedMap<String, Long> getTimesMillis() {
+		SortedMap<String, Long> result = new TreeMap<>();
+		timers.forEach((name, nanos) -> result.put(name, NANOSECONDS.toMillis(nanos.get())));
+		return result;
+	}
+
+	/** returns all counters, sorted by name */
+	public SortedMap<String, Long> getCounts() {
+		return snapshot(counters);
+	}
+
+	/** returns all maxima, sorted by name */
+	public SortedMap<String, Long> getMaxima() {
+		return snapshot(maxima);
+	}
+
+	/**
+	 * returns all metrics as a JSON object with the members "timers" (in milliseconds),
+	 * "counters" and "maxima"
+	 */
+	public String toJson() {
+
+		Map<String, Object> json = new LinkedHashMap<>();
+		json.put("timers", getTimesMillis());
+		json.put("counters", getCounts());
+		json.put("maxima", getMaxima());
+
+		return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+
+	}
+
+	private static SortedMap<String, Long> snapshot(Map<String, AtomicLong> values) {
+		SortedMap<String, Long> result = new TreeMap<>();
+		values.forEach((name, value) -> result.put(name, value.get()));
+		return result;
+	}
+
+	/**
+	 * returns the peak heap usage since the previous call of this method (or since JVM start),
+	 * then starts a new measurement period. The result is the sum of the peaks of all heap memory pools,
+	 * and therefore an upper bound for the actual peak. This measurement is global for the entire JVM.
+	 */
+	static long resetPeakHeapUsage() {
+
+		long peak = 0;
+
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				peak += pool.getPeakUsage().getUsed();
+				pool.resetPeakUsage();
+			}
+		}
+
+		return peak;
+
+	}
+
+}
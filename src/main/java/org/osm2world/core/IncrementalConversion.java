@@ -0,0 +1,520 @@
+package org.osm2world.core;
+
+import static java.util.Collections.newSetFromMap;
+import static java.util.Collections.singletonList;
+import static org.osm2world.core.map_data.creation.AffectedElementCalculator.entityKey;
+import static org.osm2world.core.map_data.creation.EmptyTerrainBuilder.isEmptyTerrain;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.osm2world.core.ConversionFacade.Results;
+import org.osm2world.core.map_data.creation.AffectedElementCalculator;
+import org.osm2world.core.map_data.creation.EmptyTerrainBuilder;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.creation.LatLonBounds;
+import org.osm2world.core.map_data.creation.MapProjection;
+import org.osm2world.core.map_data.creation.OSMToMapDataConverter;
+import org.osm2world.core.map_data.data.MapArea;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.MapElement;
+import org.osm2world.core.map_data.data.MapNode;
+import org.osm2world.core.map_data.data.MapRelation;
+import org.osm2world.core.map_data.data.MapWay;
+import org.osm2world.core.map_data.data.MapWaySegment;
+import org.osm2world.core.map_elevation.creation.TerrainElevationData;
+import org.osm2world.core.math.AxisAlignedRectangleXZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.osm.data.OSMChange;
+import org.osm2world.core.osm.data.OSMData;
+import org.osm2world.core.target.MeshCache;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
+import org.osm2world.core.target.common.rendering.TileNumber;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmRelationMember;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.model.util.OsmModelUtil;
+import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
+
+/**
+ * keeps the conversion results for an area in memory and keeps them up to date with osmChange diffs.
+ *
+ * After a change, only the data near the change is converted again.
+ * The affected elements are found with an {@link AffectedElementCalculator}. The OSM data for the region
+ * around them is then converted, including the calculation of overlaps and elevation and the modules.
+ * The new versions of the affected elements replace the old ones in the retained results,
+ * while the representations and meshes of all other elements are kept.
+ * The regions which have changed are returned, so only the tiles within them need to be written again.
+ *
+ * Changes to data with coastlines cause a conversion of the entire area,
+ * because the areas for the sea are calculated from all coastlines at once.
+ * The same is true if elevations are calculated, because the interpolation and the constraints between elements
+ * are based on all of the data, so converting a part of it would produce different elevations.
+ */
+public class IncrementalConversion {
+
+	/**
+	 * distance by which the regions around affected elements are extended.
+	 * This accounts for representations which extend beyond the element's outline, such as the width of roads.
+	 */
+	private static final double DIRTY_REGION_MARGIN = 20;
+
+	private final OSMData osmData;
+	private final MapProjection mapProjection;
+	private final Configuration config;
+	private final ConversionFacade conversionFacade;
+
+	/** the ids of the relations each node and way is a member of, see {@link AffectedElementCalculator#entityKey} */
+	private final Map<String, Set<Long>> relationsByMember = new HashMap<>();
+
+	private boolean hasCoastlines;
+
+	/* the current conversion results */
+
+	private AxisAlignedRectangleXZ boundary;
+	private Set<MapNode> nodes;
+	private Set<MapWay> ways;
+	private Set<MapArea> areas;
+	private Map<Long, MapRelation> relations;
+	private AffectedElementCalculator elements;
+	private @Nullable TerrainElevationData eleData;
+	private MaterialConfiguration materialConfiguration;
+	private MeshCache meshCache;
+
+	/**
+	 * converts the data for the entire area
+	 *
+	 * @param osmData           the data for the entire area; will be modified when changes are applied
+	 * @param config            configuration for the conversion; null to use defaults
+	 * @param conversionFacade  facade used for all conversions, e.g. with the desired terrain interpolator.
+	 *                          It will keep using the material configuration of the first conversion.
+	 */
+	public IncrementalConversion(OSMData osmData, MapProjection mapProjection, @Nullable Configuration config,
+			ConversionFacade conversionFacade) throws IOException, EntityNotFoundException {
+
+		this.osmData = osmData;
+		this.mapProjection = mapProjection;
+		this.config = config != null ? config : new BaseConfiguration();
+		this.conversionFacade = conversionFacade;
+
+		for (OsmRelation relation : osmData.getRelations()) {
+			addMemberships(relation);
+		}
+
+		hasCoastlines = osmData.getWays().stream().anyMatch(IncrementalConversion::isCoastline);
+
+		convertAll();
+
+		conversionFacade.setMaterialConfiguration(materialConfiguration);
+
+	}
+
+	public OSMData getOSMData() {
+		return osmData;
+	}
+
+	/** returns the current {@link MapData}, including representations */
+	public synchronized MapData getMapData() {
+		return new MapData(new ArrayList<>(nodes), new ArrayList<>(ways), new ArrayList<>(areas),
+				new ArrayList<>(relations.values()), boundary);
+	}
+
+	/** returns the current results, including the meshes of all objects */
+	public synchronized Results getResults() {
+		return new Results(mapProjection, getMapData(), eleData, materialConfiguration, meshCache);
+	}
+
+	/**
+	 * applies a change to the retained data and converts the data near the change again.
+	 *
+	 * @return  the regions containing all elements which have been replaced, before or after the change.
+	 *          Empty if nothing needs to be written again.
+	 */
+	public synchronized List<LatLonBounds> applyChange(OSMChange change) throws IOException, EntityNotFoundException {
+
+		if (change.isEmpty()) return new ArrayList<>();
+
+		Set<Long> nodeIds = change.getChangedIds(EntityType.Node);
+		Set<Long> wayIds = change.getChangedIds(EntityType.Way);
+		Set<Long> relationIds = change.getChangedIds(EntityType.Relation);
+
+		Set<Long> changedRelationIds = new HashSet<>(relationIds);
+
+		/* find the relations affected by the change, using the old and new versions of the relations */
+
+		relationIds.addAll(relationsWithMembers(nodeIds, wayIds));
+		addMultipolygonMembers(relationIds, wayIds);
+
+		/* apply the change */
+
+		for (long id : changedRelationIds) {
+			if (osmData.getData().getRelations().containsKey(id)) {
+				removeMemberships(osmData.getData().getRelations().get(id));
+			}
+		}
+
+		change.applyTo(osmData);
+
+		for (OsmRelation relation : change.getRelations()) {
+			addMemberships(relation);
+		}
+
+		if (change.getWays().stream().anyMatch(IncrementalConversion::isCoastline)) {
+			hasCoastlines = true;
+		}
+
+		/* convert everything if elements depend on the entire data */
+
+		if (hasCoastlines || conversionFacade.calculatesElevations(config)) {
+			AxisAlignedRectangleXZ oldBoundary = getMapData().getDataBoundary();
+			convertAll();
+			return new ArrayList<>(singletonList(toLatLonBounds(
+					AxisAlignedRectangleXZ.union(oldBoundary, getMapData().getDataBoundary()))));
+		}
+
+		relationIds.addAll(relationsWithMembers(nodeIds, wayIds));
+		addMultipolygonMembers(relationIds, wayIds);
+
+		/* find the affected elements. The retained elements still represent the state before the change,
+		 * so the elements near the new versions of changed entities are looked up separately. */
+
+		Set<MapElement> affectedElements = elements.calculateAffectedElements(nodeIds, wayIds, relationIds);
+
+		List<AxisAlignedRectangleXZ> changedBoxes = new ArrayList<>();
+
+		for (OsmNode node : change.getNodes()) {
+			changedBoxes.add(AxisAlignedRectangleXZ.bbox(singletonList(
+					mapProjection.toXZ(node.getLatitude(), node.getLongitude()))));
+		}
+
+		for (OsmWay way : change.getWays()) {
+			AxisAlignedRectangleXZ box = boundingBox(way);
+			if (box != null) {
+				changedBoxes.add(box);
+			}
+		}
+
+		for (AxisAlignedRectangleXZ box : changedBoxes) {
+			affectedElements.addAll(elements.getElementsIntersecting(box));
+		}
+
+		/* determine the affected entities and the region around them */
+
+		Set<String> affectedEntities = new HashSet<>();
+		nodeIds.forEach(id -> affectedEntities.add("n" + id));
+		wayIds.forEach(id -> affectedEntities.add("w" + id));
+		relationIds.forEach(id -> affectedEntities.add("r" + id));
+
+		List<MapArea> affectedTerrain = new ArrayList<>();
+		AxisAlignedRectangleXZ region = null;
+
+		for (MapElement element : affectedElements) {
+			if (element instanceof MapArea && isEmptyTerrain((MapArea) element)) {
+				affectedTerrain.add((MapArea) element);
+			} else {
+				affectedEntities.add(entityKey(element.getElementWithId()));
+				region = union(region, element.boundingBox());
+			}
+		}
+
+		for (AxisAlignedRectangleXZ box : changedBoxes) {
+			region = union(region, box);
+		}
+
+		if (region == null) return new ArrayList<>();
+
+		// terrain areas are converted in full, so the region needs to cover them completely
+		for (MapElement element : elements.getElementsIntersecting(region)) {
+			if (element instanceof MapArea && isEmptyTerrain((MapArea) element)
+					&& !affectedTerrain.contains(element)) {
+				affectedTerrain.add((MapArea) element);
+			}
+		}
+
+		for (MapArea area : affectedTerrain) {
+			region = union(region, area.boundingBox());
+		}
+
+		/* collect the data for the region: everything within it, the ways connected to it, and the changes */
+
+		Set<Long> localNodeIds = new HashSet<>(nodeIds);
+		Set<Long> localWayIds = new HashSet<>(wayIds);
+		Set<Long> localRelationIds = new HashSet<>(relationIds);
+
+		for (MapElement element : elements.getElementsIntersecting(region)) {
+
+			if (element instanceof MapArea && isEmptyTerrain((MapArea) element)) continue;
+
+			MapRelation.Element entity = element.getElementWithId();
+
+			if (entity instanceof MapNode) {
+				localNodeIds.add(entity.getId());
+			} else if (entity instanceof MapArea && ((MapArea) entity).isBasedOnRelation()) {
+				localRelationIds.add(entity.getId());
+			} else {
+				localWayIds.add(entity.getId());
+			}
+
+			for (MapNode node : AffectedElementCalculator.nodesOf(element)) {
+				for (MapWaySegment segment : node.getConnectedWaySegments()) {
+					localWayIds.add(segment.getWay().getId());
+				}
+			}
+
+		}
+
+		for (long id : nodeIds) {
+			for (MapElement node : elements.getElements("n" + id)) {
+				for (MapWaySegment segment : ((MapNode) node).getConnectedWaySegments()) {
+					localWayIds.add(segment.getWay().getId());
+				}
+			}
+		}
+
+		localRelationIds.addAll(relationsWithMembers(localNodeIds, localWayIds));
+
+		OSMData localData = osmData.subset(localNodeIds, localWayIds, localRelationIds);
+
+		/* convert the region */
+
+		List<MapArea> terrainCopies = EmptyTerrainBuilder.copyAreasForEmptyTerrain(affectedTerrain);
+
+		MapData localMapData = new OSMToMapDataConverter(mapProjection, config)
+				.createMapData(localData, terrainCopies);
+
+		Results localResults = conversionFacade.createRepresentations(mapProjection, localMapData, null, config, null);
+
+		/* replace the affected elements with their new versions */
+
+		List<MapElement> removedElements = new ArrayList<>(affectedTerrain);
+
+		for (String entity : affectedEntities) {
+			removedElements.addAll(elements.getElements(entity));
+		}
+
+		Set<MapNode> terrainNodes = terrainNodes(terrainCopies);
+
+		List<MapElement> addedElements = new ArrayList<>();
+
+		for (MapElement element : localMapData.getMapElements()) {
+			if ((element instanceof MapArea && isEmptyTerrain((MapArea) element))
+					|| (!terrainNodes.contains(element)
+							&& affectedEntities.contains(entityKey(element.getElementWithId())))) {
+				addedElements.add(element);
+			}
+		}
+
+		removedElements.forEach(this::remove);
+		addedElements.forEach(this::add);
+
+		for (long id : relationIds) {
+			MapRelation relation = relations.remove(id);
+			if (relation != null) {
+				elements.remove(relation);
+			}
+		}
+
+		for (MapRelation relation : localMapData.getMapRelations()) {
+			if (relationIds.contains(relation.getId()) || relation.getMemberships().stream().anyMatch(
+					m -> affectedEntities.contains(entityKey(m.getElement())))) {
+				MapRelation oldRelation = relations.put(relation.getId(), relation);
+				if (oldRelation != null) {
+					elements.remove(oldRelation);
+				}
+				elements.add(relation);
+			}
+		}
+
+		try (MaterialConfiguration.Scope scope = localResults.getMaterialConfiguration().activate()) {
+			meshCache = meshCache.replaceElements(removedElements, addedElements);
+		}
+
+		/* return the regions which have changed */
+
+		List<LatLonBounds> result = new ArrayList<>();
+
+		for (MapElement element : removedElements) {
+			result.add(toLatLonBounds(element.boundingBox()));
+		}
+
+		for (MapElement element : addedElements) {
+			result.add(toLatLonBounds(element.boundingBox()));
+		}
+
+		return result;
+
+	}
+
+	/** returns all tiles at a zoom level which overlap at least one of the regions */
+	public static Set<TileNumber> tilesForRegions(int zoom, Collection<LatLonBounds> regions) {
+		Set<TileNumber> result = new LinkedHashSet<>();
+		for (LatLonBounds region : regions) {
+			result.addAll(TileNumber.tilesForBounds(zoom, region));
+		}
+		return result;
+	}
+
+	/** converts the entire data, replacing all previous results */
+	private void convertAll() throws IOException, EntityNotFoundException {
+
+		MapData mapData = new OSMToMapDataConverter(mapProjection, config).createMapData(osmData);
+
+		Results results = conversionFacade.createRepresentations(mapProjection, mapData, null, config, null);
+
+		boundary = mapData.getBoundary();
+		eleData = results.getEleData();
+		materialConfiguration = results.getMaterialConfiguration();
+
+		nodes = new LinkedHashSet<>();
+		ways = new LinkedHashSet<>();
+		areas = new LinkedHashSet<>();
+		relations = new LinkedHashMap<>();
+		elements = new AffectedElementCalculator(mapData.getDataBoundary().pad(10));
+
+		Set<MapNode> terrainNodes = terrainNodes(mapData.getMapAreas());
+
+		for (MapElement element : mapData.getMapElements()) {
+			if (!terrainNodes.contains(element)) {
+				add(element);
+			}
+		}
+
+		for (MapRelation relation : mapData.getMapRelations()) {
+			relations.put(relation.getId(), relation);
+			elements.add(relation);
+		}
+
+		try (MaterialConfiguration.Scope scope = materialConfiguration.activate()) {
+			meshCache = MeshCache.build(mapData, false);
+		}
+
+	}
+
+	private void add(MapElement element) {
+		elements.add(element);
+		if (element instanceof MapNode) {
+			nodes.add((MapNode) element);
+		} else if (element instanceof MapWaySegment) {
+			ways.add(((MapWaySegment) element).getWay());
+		} else if (element instanceof MapArea) {
+			areas.add((MapArea) element);
+		}
+	}
+
+	private void remove(MapElement element) {
+		elements.remove(element);
+		if (element instanceof MapNode) {
+			nodes.remove(element);
+		} else if (element instanceof MapWaySegment) {
+			ways.remove(((MapWaySegment) element).getWay());
+		} else if (element instanceof MapArea) {
+			areas.remove(element);
+		}
+	}
+
+	private void addMemberships(OsmRelation relation) {
+		for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+			relationsByMember.computeIfAbsent(memberKey(relation.getMember(i)), k -> new HashSet<>())
+					.add(relation.getId());
+		}
+	}
+
+	private void removeMemberships(OsmRelation relation) {
+		for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+			Set<Long> relationIds = relationsByMember.get(memberKey(relation.getMember(i)));
+			if (relationIds != null) {
+				relationIds.remove(relation.getId());
+			}
+		}
+	}
+
+	/** returns the ids of all relations which have at least one of the nodes or ways as a member */
+	private Set<Long> relationsWithMembers(Set<Long> nodeIds, Set<Long> wayIds) {
+		Set<Long> result = new HashSet<>();
+		nodeIds.forEach(id -> result.addAll(relationsByMember.getOrDefault("n" + id, new HashSet<>())));
+		wayIds.forEach(id -> result.addAll(relationsByMember.getOrDefault("w" + id, new HashSet<>())));
+		return result;
+	}
+
+	/**
+	 * adds the way members of multipolygon relations to a set of way ids.
+	 * The areas created for a multipolygon can be based on one of its ways instead of the relation itself.
+	 */
+	private void addMultipolygonMembers(Set<Long> relationIds, Set<Long> wayIds) {
+		for (long id : relationIds) {
+			OsmRelation relation = osmData.getData().getRelations().get(id);
+			if (relation != null && "multipolygon".equals(OsmModelUtil.getTagsAsMap(relation).get("type"))) {
+				for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+					if (relation.getMember(i).getType() == EntityType.Way) {
+						wayIds.add(relation.getMember(i).getId());
+					}
+				}
+			}
+		}
+	}
+
+	/** returns the bounding box of a way's nodes, or null if none of its nodes are known */
+	private @Nullable AxisAlignedRectangleXZ boundingBox(OsmWay way) {
+		List<VectorXZ> positions = new ArrayList<>(way.getNumberOfNodes());
+		for (int i = 0; i < way.getNumberOfNodes(); i++) {
+			OsmNode node = osmData.getData().getNodes().get(way.getNodeId(i));
+			if (node != null) {
+				positions.add(mapProjection.toXZ(node.getLatitude(), node.getLongitude()));
+			}
+		}
+		return positions.isEmpty() ? null : AxisAlignedRectangleXZ.bbox(positions);
+	}
+
+	private LatLonBounds toLatLonBounds(AxisAlignedRectangleXZ region) {
+		AxisAlignedRectangleXZ paddedRegion = region.pad(DIRTY_REGION_MARGIN);
+		List<LatLon> corners = new ArrayList<>(4);
+		for (VectorXZ v : paddedRegion.vertices()) {
+			corners.add(mapProjection.toLatLon(v));
+		}
+		return LatLonBounds.ofPoints(corners);
+	}
+
+	private static AxisAlignedRectangleXZ union(@Nullable AxisAlignedRectangleXZ box1, AxisAlignedRectangleXZ box2) {
+		return box1 == null ? box2 : AxisAlignedRectangleXZ.union(box1, box2);
+	}
+
+	/** returns the nodes of empty terrain areas, which are not based on OSM nodes */
+	private static Set<MapNode> terrainNodes(Collection<MapArea> areas) {
+		Set<MapNode> result = newSetFromMap(new IdentityHashMap<>());
+		for (MapArea area : areas) {
+			if (isEmptyTerrain(area)) {
+				result.addAll(area.getBoundaryNodes());
+			}
+		}
+		return result;
+	}
+
+	private static String memberKey(OsmRelationMember member) {
+		switch (member.getType()) {
+		case Node: return "n" + member.getId();
+		case Way: return "w" + member.getId();
+		default: return "r" + member.getId();
+		}
+	}
+
+	private static boolean isCoastline(OsmWay way) {
+		return "coastline".equals(OsmModelUtil.getTagsAsMap(way).get("natural"));
+	}
+
+}
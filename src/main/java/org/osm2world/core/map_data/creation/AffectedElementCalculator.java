@@ -0,0 +1,227 @@
+package org.osm2world.core.map_data.creation;
+
+import static java.util.Collections.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.osm2world.core.map_data.data.MapArea;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.MapElement;
+import org.osm2world.core.map_data.data.MapNode;
+import org.osm2world.core.map_data.data.MapRelation;
+import org.osm2world.core.map_data.data.MapRelation.Membership;
+import org.osm2world.core.map_data.data.MapWaySegment;
+import org.osm2world.core.math.AxisAlignedRectangleXZ;
+import org.osm2world.core.math.BoundedObject;
+import org.osm2world.core.math.datastructures.IndexGrid;
+
+/**
+ * determines which {@link MapElement}s are affected by changes to the underlying OSM data.
+ * This is used to limit the work after an update to the parts of the data which can actually have changed.
+ *
+ * The elements are kept in a spatial index and are looked up by the OSM entity they are based on,
+ * so a calculation only visits the elements near the change.
+ * Elements can be added and removed when parts of the data are replaced.
+ */
+public class AffectedElementCalculator {
+
+	private static final double CELL_SIZE = 100;
+
+	private AxisAlignedRectangleXZ indexBounds;
+	private IndexGrid<MapElement> index;
+
+	/** the elements for each OSM entity, see {@link #entityKey(MapRelation.Element)} */
+	private final Map<String, List<MapElement>> elementsByEntity = new HashMap<>();
+
+	private final Map<Long, MapRelation> relationsById = new HashMap<>();
+
+	/**
+	 * creates a calculator without any elements
+	 *
+	 * @param bounds  the region where elements are expected. The index is enlarged if elements outside it are added.
+	 */
+	public AffectedElementCalculator(AxisAlignedRectangleXZ bounds) {
+		indexBounds = bounds;
+		index = new IndexGrid<>(indexBounds, CELL_SIZE, CELL_SIZE);
+	}
+
+	/** creates a calculator for all elements and relations of a {@link MapData} */
+	public AffectedElementCalculator(MapData mapData) {
+		this(mapData.getDataBoundary().pad(10));
+		mapData.getMapElements().forEach(this::add);
+		mapData.getMapRelations().forEach(this::add);
+	}
+
+	public void add(MapElement element) {
+
+		if (!indexBounds.contains(element.boundingBox())) {
+			indexBounds = AxisAlignedRectangleXZ.union(indexBounds, element.boundingBox()).pad(CELL_SIZE);
+			index = new IndexGrid<>(indexBounds, CELL_SIZE, CELL_SIZE);
+			elementsByEntity.values().forEach(elements -> elements.forEach(index::insert));
+		}
+
+		index.insert(element);
+		elementsByEntity.computeIfAbsent(entityKey(element.getElementWithId()), k -> new ArrayList<>(1)).add(element);
+
+	}
+
+	public void remove(MapElement element) {
+
+		String key = entityKey(element.getElementWithId());
+		List<MapElement> elements = elementsByEntity.get(key);
+
+		if (elements != null && elements.remove(element)) {
+			index.remove(element);
+			if (elements.isEmpty()) {
+				elementsByEntity.remove(key);
+			}
+		}
+
+	}
+
+	public void add(MapRelation relation) {
+		relationsById.put(relation.getId(), relation);
+	}
+
+	public void remove(MapRelation relation) {
+		relationsById.remove(relation.getId(), relation);
+	}
+
+	/** returns the elements based on an OSM entity, identified by a key like "w42" */
+	public List<MapElement> getElements(String entityKey) {
+		return elementsByEntity.getOrDefault(entityKey, emptyList());
+	}
+
+	/**
+	 * returns the elements whose bounding boxes intersect a bounded object's bounding box.
+	 * Boxes which only touch are considered to intersect, so nodes and axis-parallel segments are found as well.
+	 */
+	public Set<MapElement> getElementsIntersecting(BoundedObject object) {
+		AxisAlignedRectangleXZ box = object.boundingBox();
+		Set<MapElement> result = new LinkedHashSet<>();
+		for (MapElement other : index.probe(object)) {
+			AxisAlignedRectangleXZ otherBox = other.boundingBox();
+			if (otherBox.minX <= box.maxX && otherBox.maxX >= box.minX
+					&& otherBox.minZ <= box.maxZ && otherBox.maxZ >= box.minZ) {
+				result.add(other);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * returns the elements which are affected by changes to OSM entities.
+	 * The same ids should be checked before and after the change has been applied to the elements,
+	 * because created elements only exist afterwards, and deleted elements only exist before.
+	 *
+	 * An element is affected if
+	 * <ul>
+	 * <li>it is based on a changed entity or has a changed node,</li>
+	 * <li>it is a member of a changed relation or of the same relation as another affected element,</li>
+	 * <li>it is a network neighbour of an affected element, i.e. a way segment sharing a node with it,
+	 * because junctions and connections between ways depend on all the ways meeting there,</li>
+	 * <li>or its bounding box intersects that of an affected element, because their overlaps might change.</li>
+	 * </ul>
+	 */
+	public Set<MapElement> calculateAffectedElements(
+			Set<Long> changedNodeIds, Set<Long> changedWayIds, Set<Long> changedRelationIds) {
+
+		Set<MapElement> directlyAffected = new LinkedHashSet<>();
+
+		/* find elements based on changed entities */
+
+		for (long id : changedNodeIds) {
+			for (MapElement element : getElements("n" + id)) {
+				MapNode node = (MapNode) element;
+				directlyAffected.add(node);
+				node.getConnectedWaySegments().forEach(s -> directlyAffected.addAll(resolve(s)));
+				node.getAdjacentAreas().forEach(a -> directlyAffected.addAll(resolve(a)));
+			}
+		}
+
+		for (long id : changedWayIds) {
+			directlyAffected.addAll(getElements("w" + id));
+		}
+
+		for (long id : changedRelationIds) {
+			directlyAffected.addAll(getElements("r" + id));
+		}
+
+		/* add other members of relations with changes */
+
+		Set<Long> affectedRelationIds = new HashSet<>(changedRelationIds);
+
+		for (MapElement element : directlyAffected) {
+			for (Membership membership : element.getElementWithId().getMemberships()) {
+				affectedRelationIds.add(membership.getRelation().getId());
+			}
+		}
+
+		for (long id : affectedRelationIds) {
+			MapRelation relation = relationsById.get(id);
+			if (relation != null) {
+				for (Membership membership : relation.getMemberships()) {
+					directlyAffected.addAll(getElements(entityKey(membership.getElement())));
+				}
+			}
+		}
+
+		/* add network neighbours */
+
+		Set<MapElement> result = new LinkedHashSet<>(directlyAffected);
+
+		for (MapElement element : directlyAffected) {
+			for (MapNode node : nodesOf(element)) {
+				result.addAll(resolve(node));
+				node.getConnectedWaySegments().forEach(s -> result.addAll(resolve(s)));
+			}
+		}
+
+		/* add elements whose bounding boxes intersect those of affected elements */
+
+		for (MapElement element : new ArrayList<>(result)) {
+			result.addAll(getElementsIntersecting(element));
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * returns the current version of an element which has been reached through connections between elements.
+	 * Connected elements might have been replaced after the connection was established,
+	 * in that case the current elements for the same OSM entity are returned instead.
+	 */
+	private List<MapElement> resolve(MapElement element) {
+		List<MapElement> currentElements = getElements(entityKey(element.getElementWithId()));
+		return currentElements.contains(element) ? singletonList(element) : currentElements;
+	}
+
+	/** returns a key identifying the OSM entity an element is based on, such as "n42" */
+	public static String entityKey(MapRelation.Element element) {
+		return element.toString();
+	}
+
+	/** returns the nodes of an element, including those of holes in areas */
+	public static Collection<MapNode> nodesOf(MapElement element) {
+		if (element instanceof MapNode) {
+			return singletonList((MapNode) element);
+		} else if (element instanceof MapWaySegment) {
+			return ((MapWaySegment) element).getStartEndNodes();
+		} else if (element instanceof MapArea) {
+			Set<MapNode> result = new HashSet<>();
+			((MapArea) element).getRings().forEach(result::addAll);
+			return result;
+		} else {
+			return emptyList();
+		}
+	}
+
+}
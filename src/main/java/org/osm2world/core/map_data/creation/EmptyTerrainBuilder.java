@@ -3,7 +3,9 @@ package org.osm2world.core.map_data.creation;
 import static java.lang.Math.min;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.osm2world.core.map_data.data.MapArea;
 import org.osm2world.core.map_data.data.MapNode;
@@ -81,6 +83,40 @@ public class EmptyTerrainBuilder {
 
 	}
 
+	/**
+	 * creates copies of areas for empty terrain, e.g. to convert the data near a change again.
+	 * Copies of connected areas are connected with each other like the original areas.
+	 *
+	 * @param areas  areas created by {@link #createAreasForEmptyTerrain(List, List, AxisAlignedRectangleXZ)}
+	 * @return  the copies, in the same order as the original areas
+	 */
+	public static List<MapArea> copyAreasForEmptyTerrain(List<MapArea> areas) {
+
+		Map<MapNode, MapNode> nodeCopies = new IdentityHashMap<>();
+
+		List<MapArea> result = new ArrayList<>(areas.size());
+
+		for (MapArea area : areas) {
+
+			List<MapNode> nodes = new ArrayList<>(area.getBoundaryNodes().size());
+
+			for (MapNode node : area.getBoundaryNodes()) {
+				nodes.add(nodeCopies.computeIfAbsent(node, n -> new MapNode(n.getId(), n.getTags(), n.getPos())));
+			}
+
+			result.add(new MapArea(area.getId(), false, EMPTY_SURFACE_TAGS, nodes));
+
+		}
+
+		return result;
+
+	}
+
+	/** checks whether an area has been created by this class */
+	public static boolean isEmptyTerrain(MapArea area) {
+		return area.getTags().contains("surface", EMPTY_SURFACE_VALUE);
+	}
+
 	private static MapArea createAreaForPatch(MapNode[][] nodeGrid,
 			int startX, int startZ) {
 
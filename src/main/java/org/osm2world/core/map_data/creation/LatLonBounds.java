@@ -1,6 +1,9 @@
 package org.osm2world.core.map_data.creation;
 
 import static java.lang.Double.*;
+import static java.lang.Math.abs;
+import static java.lang.Math.cos;
+import static java.lang.Math.toRadians;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -47,6 +50,32 @@ public class LatLonBounds {
 		return new LatLon(minlat + sizeLat() / 2, minlon + sizeLon() / 2);
 	}
 
+	public boolean contains(double lat, double lon) {
+		return minlat <= lat && lat <= maxlat && minlon <= lon && lon <= maxlon;
+	}
+
+	/**
+	 * returns bounds which are extended by (approximately) the given distance in each direction.
+	 * The result is limited to the valid range of latitudes and longitudes.
+	 *
+	 * @param meters  distance in meters, must not be negative
+	 */
+	public LatLonBounds pad(double meters) {
+
+		double metersPerDegreeLat = 111320;
+
+		double maxAbsLat = Math.min(89, Math.max(abs(minlat), abs(maxlat)));
+		double metersPerDegreeLon = metersPerDegreeLat * cos(toRadians(maxAbsLat));
+
+		double padLat = meters / metersPerDegreeLat;
+		double padLon = meters / metersPerDegreeLon;
+
+		return new LatLonBounds(
+				Math.max(-90, minlat - padLat), Math.max(-180, minlon - padLon),
+				Math.min(90, maxlat + padLat), Math.min(180, maxlon + padLon));
+
+	}
+
 	public static LatLonBounds ofPoints(Iterable<LatLon> points) {
 
 		double minLat = POSITIVE_INFINITY;
@@ -1,8 +1,12 @@
 package org.osm2world.core.map_data.creation;
 
 import static de.topobyte.osm4j.core.model.util.OsmModelUtil.*;
+import static java.lang.Math.max;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.newSetFromMap;
+import static java.util.Comparator.comparingInt;
+import static java.util.stream.Collectors.toList;
 import static org.osm2world.core.math.AxisAlignedRectangleXZ.bbox;
 import static org.osm2world.core.math.VectorXZ.distance;
 import static org.osm2world.core.util.FaultTolerantIterationUtil.forEach;
@@ -12,9 +16,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringJoiner;
+import java.util.stream.IntStream;
 
 import javax.annotation.Nullable;
 
@@ -28,20 +35,22 @@ import org.osm2world.core.map_data.data.MapRelation;
 import org.osm2world.core.map_data.data.MapRelation.Element;
 import org.osm2world.core.map_data.data.MapWay;
 import org.osm2world.core.map_data.data.MapWaySegment;
+import org.osm2world.core.map_data.data.TagDictionary;
 import org.osm2world.core.map_data.data.TagSet;
 import org.osm2world.core.map_data.data.overlaps.MapIntersectionWW;
+import org.osm2world.core.map_data.data.overlaps.MapOverlap;
 import org.osm2world.core.map_data.data.overlaps.MapOverlapAA;
 import org.osm2world.core.map_data.data.overlaps.MapOverlapNA;
 import org.osm2world.core.map_data.data.overlaps.MapOverlapType;
 import org.osm2world.core.map_data.data.overlaps.MapOverlapWA;
 import org.osm2world.core.math.AxisAlignedRectangleXZ;
+import org.osm2world.core.math.BoundedObject;
 import org.osm2world.core.math.GeometryUtil;
 import org.osm2world.core.math.InvalidGeometryException;
 import org.osm2world.core.math.LineSegmentXZ;
 import org.osm2world.core.math.PolygonWithHolesXZ;
 import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.math.datastructures.IndexGrid;
-import org.osm2world.core.math.datastructures.SpatialIndex;
 import org.osm2world.core.osm.data.OSMData;
 import org.osm2world.core.osm.ruleset.HardcodedRuleset;
 import org.osm2world.core.osm.ruleset.Ruleset;
@@ -75,13 +84,28 @@ public class OSMToMapDataConverter {
 	}
 
 	public MapData createMapData(OSMData osmData) throws IOException, EntityNotFoundException {
+		return createMapData(osmData, null);
+	}
+
+	/**
+	 * variant of {@link #createMapData(OSMData)} which is used to convert a part of the data again.
+	 * Existing areas for empty terrain can be provided, so that the result fits in with the rest of the data.
+	 *
+	 * @param emptyTerrainAreas  areas for empty terrain which are used instead of creating new ones,
+	 *                           see {@link EmptyTerrainBuilder#copyAreasForEmptyTerrain(List)}.
+	 *                           They must not be part of any other {@link MapData}.
+	 *                           If this is null, areas are created as usual.
+	 */
+	public MapData createMapData(OSMData osmData, @Nullable List<MapArea> emptyTerrainAreas)
+			throws IOException, EntityNotFoundException {
 
 		final List<MapNode> mapNodes = new ArrayList<>();
 		final List<MapWay> mapWays = new ArrayList<>();
 		final List<MapArea> mapAreas = new ArrayList<>();
 		final List<MapRelation> mapRelations = new ArrayList<>();
 
-		createMapElements(osmData, mapNodes, mapWays, mapAreas, mapRelations);
+		createMapElements(osmData, new TagDictionary(), emptyTerrainAreas,
+				mapNodes, mapWays, mapAreas, mapRelations);
 
 		MapData mapData = new MapData(mapNodes, mapWays, mapAreas, mapRelations,
 				calculateFileBoundary(osmData.getUnionOfExplicitBounds()));
@@ -96,11 +120,13 @@ public class OSMToMapDataConverter {
 	 * creates {@link MapElement}s
 	 * based on OSM data from an {@link OSMData} dataset.
 	 * and adds them to collections
+	 * @param tagDictionary  used to deduplicate the tags of all elements
+	 * @param emptyTerrainAreas  existing areas for empty terrain, null to create them
 	 * @param mapRelations
 	 * @throws EntityNotFoundException
 	 */
-	private void createMapElements(final OSMData osmData,
-			final List<MapNode> mapNodes, final List<MapWay> mapWays,
+	private void createMapElements(final OSMData osmData, TagDictionary tagDictionary,
+			@Nullable List<MapArea> emptyTerrainAreas, final List<MapNode> mapNodes, final List<MapWay> mapWays,
 			final List<MapArea> mapAreas, List<MapRelation> mapRelations) throws EntityNotFoundException {
 
 		/* create MapNode for each OSM node */
@@ -109,7 +135,7 @@ public class OSMToMapDataConverter {
 
 		for (OsmNode node : osmData.getNodes()) {
 			VectorXZ nodePos = mapProjection.toXZ(node.getLatitude(), node.getLongitude());
-			MapNode mapNode = new MapNode(node.getId(), tagsOfEntity(node), nodePos);
+			MapNode mapNode = new MapNode(node.getId(), tagsOfEntity(node, tagDictionary), nodePos);
 			mapNodes.add(mapNode);
 			nodeIdMap.put(node.getId(), mapNode);
 		}
@@ -158,7 +184,7 @@ public class OSMToMapDataConverter {
 
 		for (OsmWay way : osmData.getWays()) {
 			if (isClosed(way) && !areaMap.containsKey(way.getId())) {
-				TagSet tags = tagsOfEntity(way);
+				TagSet tags = tagsOfEntity(way, tagDictionary);
 				if (!tags.contains("area", "no")
 						&& tags.stream().anyMatch(ruleset::isAreaTag)) {
 
@@ -186,7 +212,20 @@ public class OSMToMapDataConverter {
 
 		AxisAlignedRectangleXZ terrainBoundary = calculateFileBoundary(osmData.getUnionOfExplicitBounds());
 
-		if (terrainBoundary != null
+		if (emptyTerrainAreas != null) {
+
+			Set<MapNode> terrainNodes = newSetFromMap(new IdentityHashMap<>());
+
+			for (MapArea area : emptyTerrainAreas) {
+				for (MapNode node : area.getBoundaryNodes()) {
+					if (terrainNodes.add(node)) {
+						mapNodes.add(node);
+					}
+				}
+				mapAreas.add(area);
+			}
+
+		} else if (terrainBoundary != null
 				&& config.getBoolean("createTerrain", true)) {
 
 			EmptyTerrainBuilder.createAreasForEmptyTerrain(
@@ -222,7 +261,7 @@ public class OSMToMapDataConverter {
 					}
 				}
 
-				MapWay way = new MapWay(osmWay.getId(), tagsOfEntity(osmWay), nodes);
+				MapWay way = new MapWay(osmWay.getId(), tagsOfEntity(osmWay, tagDictionary), nodes);
 				mapWays.add(way);
 
 			}
@@ -249,7 +288,7 @@ public class OSMToMapDataConverter {
 			boolean hasTags = osmRelation.getNumberOfTags() != 0;
 			if (hasTags && !relationIdMap.containsKey(osmRelation.getId())) {
 
-				MapRelation relation = new MapRelation(osmRelation.getId(), tagsOfEntity(osmRelation));
+				MapRelation relation = new MapRelation(osmRelation.getId(), tagsOfEntity(osmRelation, tagDictionary));
 
 				List<OsmRelationMember> incompleteMembers = null;
 
@@ -307,13 +346,26 @@ public class OSMToMapDataConverter {
 	}
 
 	static TagSet tagsOfEntity(OsmEntity entity) {
+		return tagsOfEntity(entity, null);
+	}
+
+	/**
+	 * returns the tags of an OSM entity
+	 *
+	 * @param tagDictionary  dictionary used to deduplicate the tags, can be null
+	 */
+	static TagSet tagsOfEntity(OsmEntity entity, @Nullable TagDictionary tagDictionary) {
 
 		if (entity.getNumberOfTags() == 0) return TagSet.of();
 
 		org.osm2world.core.map_data.data.Tag[] tags =
 				new org.osm2world.core.map_data.data.Tag[entity.getNumberOfTags()];
 		for (int i = 0; i < entity.getNumberOfTags(); i++) {
-			tags[i] = new org.osm2world.core.map_data.data.Tag(entity.getTag(i).getKey(), entity.getTag(i).getValue());
+			String key = entity.getTag(i).getKey();
+			String value = entity.getTag(i).getValue();
+			tags[i] = tagDictionary != null
+					? tagDictionary.getTag(key, value)
+					: new org.osm2world.core.map_data.data.Tag(key, value);
 		}
 		return TagSet.of(tags);
 
@@ -321,80 +373,189 @@ public class OSMToMapDataConverter {
 
 	/**
 	 * calculates intersections and adds the information to the
-	 * {@link MapElement}s
+	 * {@link MapElement}s.
+	 *
+	 * All elements are inserted into an {@link IndexGrid} first. The grid's cells are then processed in parallel.
+	 * Each candidate pair is only tested in one cell (the first cell covered by both elements' bounding boxes),
+	 * so no pair is tested twice. The resulting overlaps are added to the elements in the order of the elements
+	 * in {@link MapData#getMapElements()}, so the result does not depend on the number of threads.
 	 */
 	private static void calculateIntersectionsInMapData(MapData mapData) {
 
 		AxisAlignedRectangleXZ bounds = mapData.getDataBoundary().pad(10);
-		SpatialIndex<MapElement> index = new IndexGrid<>(bounds, bounds.sizeX() / 1000, bounds.sizeZ() / 1000);
+		IndexGrid<IndexedElement> index = new IndexGrid<>(bounds, bounds.sizeX() / 1000, bounds.sizeZ() / 1000);
+
+		/* insert all elements into the index */
+
+		int elementIndex = 0;
+
+		for (MapElement element : mapData.getMapElements()) {
+			index.insert(new IndexedElement(element, elementIndex ++, index));
+		}
+
+		/* test candidate pairs from each cell */
+
+		Collection<IndexedElement>[][] cells = index.getCellArray();
+
+		List<IndexedOverlap> overlaps = IntStream.range(0, cells.length).parallel()
+				.mapToObj(cellX -> findOverlapsInColumn(cells, cellX))
+				.flatMap(List::stream)
+				.sorted(comparingInt((IndexedOverlap o) -> o.laterIndex).thenComparingInt(o -> o.earlierIndex))
+				.collect(toList());
 
-		for (MapElement e1 : mapData.getMapElements()) {
+		/* add the overlaps to the elements */
 
-			/* collect all nearby elements */
+		for (IndexedOverlap indexedOverlap : overlaps) {
+			addOverlap(indexedOverlap.overlap);
+		}
+
+	}
+
+	/**
+	 * finds the overlaps between the elements in one column of an {@link IndexGrid}'s cell array.
+	 * Only considers those pairs of elements for which the cell is the first one covered by both elements.
+	 */
+	private static List<IndexedOverlap> findOverlapsInColumn(Collection<IndexedElement>[][] cells, int cellX) {
 
-			Iterable<MapElement> nearbyElements = index.insertAndProbe(e1);
+		List<IndexedOverlap> result = new ArrayList<>();
 
-			for (MapElement e2 : nearbyElements) {
+		for (int cellZ = 0; cellZ < cells[cellX].length; cellZ++) {
 
-				if (e1 == e2) { continue; }
+			if (cells[cellX][cellZ] == null) continue;
+
+			// elements are in the order of insertion
+			IndexedElement[] cellElements = cells[cellX][cellZ].toArray(new IndexedElement[0]);
+
+			for (int i = 1; i < cellElements.length; i++) {
+				for (int j = 0; j < i; j++) {
+
+					IndexedElement e1 = cellElements[i];
+					IndexedElement e2 = cellElements[j];
+
+					if (max(e1.minCellX, e2.minCellX) != cellX
+							|| max(e1.minCellZ, e2.minCellZ) != cellZ) {
+						continue; // this pair is tested in a different cell
+					}
 
-				addOverlapBetween(e1, e2);
+					MapOverlap<?, ?> overlap = findOverlapBetween(e1.element, e2.element);
 
+					if (overlap != null) {
+						result.add(new IndexedOverlap(overlap, e1.index, e2.index));
+					}
+
+				}
 			}
 
 		}
 
+		return result;
+
 	}
 
 	/**
-	 * adds the overlap between two {@link MapElement}s
-	 * to both, if it exists. It calls the appropriate
-	 * subtype-specific addOverlapBetween method
+	 * adds an overlap to those of the participating elements which keep track of their overlaps
 	 */
-	private static void addOverlapBetween(MapElement e1, MapElement e2) {
+	private static void addOverlap(MapOverlap<?, ?> overlap) {
+		for (MapElement e : asList(overlap.e1, overlap.e2)) {
+			if (e instanceof MapWaySegment) {
+				((MapWaySegment) e).addOverlap(overlap);
+			} else if (e instanceof MapArea) {
+				((MapArea) e).addOverlap(overlap);
+			}
+		}
+	}
+
+	/** a {@link MapElement} together with its position in {@link MapData#getMapElements()} */
+	private static final class IndexedElement implements BoundedObject {
+
+		final MapElement element;
+		final int index;
+
+		final AxisAlignedRectangleXZ boundingBox;
+		final int minCellX, minCellZ;
+
+		IndexedElement(MapElement element, int index, IndexGrid<?> grid) {
+			this.element = element;
+			this.index = index;
+			this.boundingBox = element.boundingBox();
+			this.minCellX = grid.cellXForCoord(boundingBox.minX);
+			this.minCellZ = grid.cellZForCoord(boundingBox.minZ);
+		}
+
+		@Override
+		public AxisAlignedRectangleXZ boundingBox() {
+			return boundingBox;
+		}
+
+	}
+
+	/** an overlap together with the positions of the participating elements in {@link MapData#getMapElements()} */
+	private static final class IndexedOverlap {
+
+		final MapOverlap<?, ?> overlap;
+		final int laterIndex;
+		final int earlierIndex;
+
+		IndexedOverlap(MapOverlap<?, ?> overlap, int laterIndex, int earlierIndex) {
+			this.overlap = overlap;
+			this.laterIndex = laterIndex;
+			this.earlierIndex = earlierIndex;
+		}
+
+	}
+
+	/**
+	 * returns the overlap between two {@link MapElement}s
+	 * if it exists. It calls the appropriate
+	 * subtype-specific findOverlapBetween method
+	 *
+	 * @return  the overlap, null if there is none
+	 */
+	private static @Nullable MapOverlap<?, ?> findOverlapBetween(MapElement e1, MapElement e2) {
 
 		if (e1 instanceof MapWaySegment
 				&& e2 instanceof MapWaySegment) {
 
-			addOverlapBetween((MapWaySegment) e1, (MapWaySegment) e2);
+			return findOverlapBetween((MapWaySegment) e1, (MapWaySegment) e2);
 
 		} else if (e1 instanceof MapWaySegment
 				&& e2 instanceof MapArea) {
 
-			addOverlapBetween((MapWaySegment) e1, (MapArea) e2);
+			return findOverlapBetween((MapWaySegment) e1, (MapArea) e2);
 
 		} else if (e1 instanceof MapArea
 				&& e2 instanceof MapWaySegment) {
 
-			addOverlapBetween((MapWaySegment) e2, (MapArea) e1);
+			return findOverlapBetween((MapWaySegment) e2, (MapArea) e1);
 
 		} else if (e1 instanceof MapArea
 				&& e2 instanceof MapArea) {
 
-			addOverlapBetween((MapArea) e1, (MapArea) e2);
+			return findOverlapBetween((MapArea) e1, (MapArea) e2);
 
 		} else if (e1 instanceof MapNode
 				&& e2 instanceof MapArea) {
 
-			addOverlapBetween((MapNode) e1, (MapArea) e2);
+			return findOverlapBetween((MapNode) e1, (MapArea) e2);
 
 		} else if (e1 instanceof MapArea
 				&& e2 instanceof MapNode) {
 
-			addOverlapBetween((MapNode) e2, (MapArea) e1);
+			return findOverlapBetween((MapNode) e2, (MapArea) e1);
 
 		}
 
+		return null;
+
 	}
 
 	/**
-	 * adds the overlap between two {@link MapWaySegment}s
-	 * to both, if it exists
+	 * returns the overlap between two {@link MapWaySegment}s, if it exists
 	 */
-	private static void addOverlapBetween(
+	private static @Nullable MapIntersectionWW findOverlapBetween(
 			MapWaySegment line1, MapWaySegment line2) {
 
-		if (line1.isConnectedTo(line2)) { return; }
+		if (line1.isConnectedTo(line2)) { return null; }
 
 		VectorXZ intersection = GeometryUtil.getLineSegmentIntersection(
 				line1.getStartNode().getPos(),
@@ -403,24 +564,18 @@ public class OSMToMapDataConverter {
 				line2.getEndNode().getPos());
 
 		if (intersection != null) {
-
-			/* add the intersection */
-
-			MapIntersectionWW newIntersection =
-				new MapIntersectionWW(line1, line2, intersection);
-
-			line1.addOverlap(newIntersection);
-			line2.addOverlap(newIntersection);
-
+			return new MapIntersectionWW(line1, line2, intersection);
+		} else {
+			return null;
 		}
 
 	}
 
 	/**
-	 * adds the overlap between a {@link MapWaySegment}
-	 * and a {@link MapArea} to both, if it exists
+	 * returns the overlap between a {@link MapWaySegment}
+	 * and a {@link MapArea}, if it exists
 	 */
-	private static void addOverlapBetween(
+	private static @Nullable MapOverlapWA findOverlapBetween(
 			MapWaySegment line, MapArea area) {
 
 		final LineSegmentXZ segmentXZ = line.getLineSegment();
@@ -430,15 +585,9 @@ public class OSMToMapDataConverter {
 		for (MapAreaSegment areaSegment : area.getAreaSegments()) {
 			if (areaSegment.sharesBothNodes(line)) {
 
-				MapOverlapWA newOverlap =
-					new MapOverlapWA(line, area, MapOverlapType.SHARE_SEGMENT,
-							Collections.<VectorXZ>emptyList(),
-							Collections.<MapAreaSegment>emptyList());
-
-				line.addOverlap(newOverlap);
-				area.addOverlap(newOverlap);
-
-				return;
+				return new MapOverlapWA(line, area, MapOverlapType.SHARE_SEGMENT,
+						Collections.<VectorXZ>emptyList(),
+						Collections.<MapAreaSegment>emptyList());
 
 			}
 		}
@@ -485,7 +634,7 @@ public class OSMToMapDataConverter {
 
 		}
 
-		/* add an overlap if detected */
+		/* return an overlap if detected */
 
 		if (contains || intersects) {
 
@@ -514,21 +663,18 @@ public class OSMToMapDataConverter {
 
 			}
 
-			/* add the overlap */
-
-			MapOverlapWA newOverlap = new MapOverlapWA(line, area,
-						intersects ? MapOverlapType.INTERSECT : MapOverlapType.CONTAIN,
-						intersectionPositions, intersectingSegments);
-
-			line.addOverlap(newOverlap);
-			area.addOverlap(newOverlap);
+			return new MapOverlapWA(line, area,
+					intersects ? MapOverlapType.INTERSECT : MapOverlapType.CONTAIN,
+					intersectionPositions, intersectingSegments);
 
+		} else {
+			return null;
 		}
 
 	}
 
-	/** adds the overlap between two {@link MapArea}s to both, if it exists */
-	private static void addOverlapBetween(MapArea area1, MapArea area2) {
+	/** returns the overlap between two {@link MapArea}s, if it exists */
+	private static @Nullable MapOverlapAA findOverlapBetween(MapArea area1, MapArea area2) {
 
 		/* check whether the areas have a shared segment */
 
@@ -539,12 +685,7 @@ public class OSMToMapDataConverter {
 			for (MapAreaSegment area2Segment : area2Segments) {
 				if (area1Segment.sharesBothNodes(area2Segment)) {
 
-					MapOverlapAA newOverlap =
-						new MapOverlapAA(area1, area2, MapOverlapType.SHARE_SEGMENT);
-					area1.addOverlap(newOverlap);
-					area2.addOverlap(newOverlap);
-
-					return;
+					return new MapOverlapAA(area1, area2, MapOverlapType.SHARE_SEGMENT);
 
 				}
 			}
@@ -602,40 +743,27 @@ public class OSMToMapDataConverter {
 
 		}
 
-		/* add an overlap if detected */
-
-		if (contains1 || contains2 || intersects) {
-
-			/* add the overlap */
-
-			MapOverlapAA newOverlap = null;
-
-			if (contains1) {
-				newOverlap = new MapOverlapAA(area2, area1, MapOverlapType.CONTAIN);
-			} else if (contains2) {
-				newOverlap = new MapOverlapAA(area1, area2, MapOverlapType.CONTAIN);
-			} else {
-				newOverlap = new MapOverlapAA(area1, area2, MapOverlapType.INTERSECT);
-			}
-
-			area1.addOverlap(newOverlap);
-			area2.addOverlap(newOverlap);
+		/* return an overlap if detected */
 
+		if (contains1) {
+			return new MapOverlapAA(area2, area1, MapOverlapType.CONTAIN);
+		} else if (contains2) {
+			return new MapOverlapAA(area1, area2, MapOverlapType.CONTAIN);
+		} else if (intersects) {
+			return new MapOverlapAA(area1, area2, MapOverlapType.INTERSECT);
+		} else {
+			return null;
 		}
 
 	}
 
-	private static void addOverlapBetween(MapNode node, MapArea area) {
+	/** returns the overlap between a {@link MapNode} and a {@link MapArea}, if it exists */
+	private static @Nullable MapOverlapNA findOverlapBetween(MapNode node, MapArea area) {
 
 		if (area.getPolygon().contains(node.getPos())) {
-
-			/* add the overlap */
-
-			MapOverlapNA newOverlap =
-					new MapOverlapNA(node, area, MapOverlapType.CONTAIN);
-
-			area.addOverlap(newOverlap);
-
+			return new MapOverlapNA(node, area, MapOverlapType.CONTAIN);
+		} else {
+			return null;
 		}
 
 	}
@@ -1,8 +1,11 @@
 package org.osm2world.core.map_data.data;
 
-import static java.util.Comparator.comparingDouble;
+import static java.lang.Math.max;
+import static java.util.Arrays.asList;
+import static java.util.Collections.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -25,15 +28,31 @@ public class MapNode extends MapRelation.Element implements MapElement {
 	private final TagSet tags;
 	private final VectorXZ pos;
 
-	private List<NodeWorldObject> representations = new ArrayList<NodeWorldObject>(1);
+	/** the representations. Replaced with a new list when adding a representation. */
+	private volatile List<NodeWorldObject> representations = emptyList();
 
-	private List<MapWaySegment> connectedWaySegments = new ArrayList<MapWaySegment>();
-	private List<MapSegment> connectedSegments = new ArrayList<MapSegment>();
+	/*
+	 * All connected segments are stored in a single array, sorted as described for getConnectedSegments.
+	 * This avoids several lists per node, which matters because there are many nodes (e.g. for empty terrain).
+	 * The lists returned by the getters are created when they are first needed.
+	 */
+
+	private static final MapSegment[] NO_SEGMENTS = {};
+	private static final byte[] NO_SEGMENT_TYPES = {};
+
+	private static final byte INBOUND_LINE = 0;
+	private static final byte OUTBOUND_LINE = 1;
+	private static final byte AREA_SEGMENT = 2;
 
-	private List<MapWaySegment> inboundLines = new ArrayList<MapWaySegment>(); //TODO: maybe use list and sort by angle?
-	private List<MapWaySegment> outboundLines = new ArrayList<MapWaySegment>();
+	private MapSegment[] segments = NO_SEGMENTS;
+	private byte[] segmentTypes = NO_SEGMENT_TYPES;
+	private int segmentCount = 0;
 
-	private Collection<MapArea> adjacentAreas = new ArrayList<MapArea>();
+	private List<MapSegment> connectedSegments = null;
+	private List<MapWaySegment> connectedWaySegments = null;
+	private List<MapWaySegment> inboundLines = null;
+	private List<MapWaySegment> outboundLines = null;
+	private Collection<MapArea> adjacentAreas = null;
 
 	public MapNode(long id, TagSet tags, VectorXZ pos) {
 		this.id = id;
@@ -56,31 +75,28 @@ public class MapNode extends MapRelation.Element implements MapElement {
 	}
 
 	public Collection<MapArea> getAdjacentAreas() {
-		return adjacentAreas;
+		Collection<MapArea> result = adjacentAreas;
+		if (result == null) {
+			List<MapArea> areas = new ArrayList<>();
+			for (int i = 0; i < segmentCount; i++) {
+				if (segmentTypes[i] == AREA_SEGMENT) {
+					MapArea area = ((MapAreaSegment) segments[i]).getArea();
+					if (!areas.contains(area)) {
+						areas.add(area);
+					}
+				}
+			}
+			adjacentAreas = result = unmodifiableList(areas);
+		}
+		return result;
 	}
 
 	public void addInboundLine(MapWaySegment inboundLine) {
-
-		connectedWaySegments.add(inboundLine);
-		connectedSegments.add(inboundLine);
-		inboundLines.add(inboundLine);
-
-		sortLinesByAngle(connectedWaySegments);
-		sortLinesByAngle(connectedSegments);
-		sortLinesByAngle(inboundLines);
-
+		addSegment(inboundLine, INBOUND_LINE);
 	}
 
 	public void addOutboundLine(MapWaySegment outboundLine) {
-
-		connectedWaySegments.add(outboundLine);
-		connectedSegments.add(outboundLine);
-		outboundLines.add(outboundLine);
-
-		sortLinesByAngle(connectedWaySegments);
-		sortLinesByAngle(connectedSegments);
-		sortLinesByAngle(outboundLines);
-
+		addSegment(outboundLine, OUTBOUND_LINE);
 	}
 
 	/**
@@ -88,7 +104,11 @@ public class MapNode extends MapRelation.Element implements MapElement {
 	 * Sorting is as for {@link #getConnectedWaySegments()}.
 	 */
 	public List<MapWaySegment> getInboundLines() {
-		return inboundLines;
+		List<MapWaySegment> result = inboundLines;
+		if (result == null) {
+			inboundLines = result = waySegments(true, false);
+		}
+		return result;
 	}
 
 	/**
@@ -96,7 +116,11 @@ public class MapNode extends MapRelation.Element implements MapElement {
 	 * Sorting is as for {@link #getConnectedWaySegments()}.
 	 */
 	public List<MapWaySegment> getOutboundLines() {
-		return outboundLines;
+		List<MapWaySegment> result = outboundLines;
+		if (result == null) {
+			outboundLines = result = waySegments(false, true);
+		}
+		return result;
 	}
 
 	public void addAdjacentArea(MapArea adjacentArea, MapAreaSegment adjacentAreaSegment) {
@@ -104,25 +128,21 @@ public class MapNode extends MapRelation.Element implements MapElement {
 		assert adjacentAreaSegment.getArea() == adjacentArea;
 		assert adjacentAreaSegment.getStartNode() == this || adjacentAreaSegment.getEndNode() == this;
 
-		if (!adjacentAreas.contains(adjacentArea)) {
-			adjacentAreas.add(adjacentArea);
-		}
-
-		connectedSegments.add(adjacentAreaSegment);
+		addSegment(adjacentAreaSegment, AREA_SEGMENT);
 
 	}
 
 	//TODO: with all that "needs to be called before x" etc. stuff (also in MapArea), switch to BUILDER?
 	/** needs to be called after adding and completing all adjacent areas */
 	public void calculateAdjacentAreaSegments() {
-		sortLinesByAngle(connectedSegments);
+		// segments are already sorted when they are added
 	}
 
 	public Collection<MapWay> getConnectedWays() {
 
 		List<MapWay> result = new ArrayList<>();
 
-		for (MapWaySegment segment : connectedWaySegments) {
+		for (MapWaySegment segment : getConnectedWaySegments()) {
 			if (!result.contains(segment.getWay())) {
 				result.add(segment.getWay());
 			}
@@ -140,7 +160,11 @@ public class MapNode extends MapRelation.Element implements MapElement {
 	 * and the positive x direction.
 	 */
 	public List<MapWaySegment> getConnectedWaySegments() {
-		return connectedWaySegments;
+		List<MapWaySegment> result = connectedWaySegments;
+		if (result == null) {
+			connectedWaySegments = result = waySegments(true, true);
+		}
+		return result;
 	}
 
 	/**
@@ -148,25 +172,68 @@ public class MapNode extends MapRelation.Element implements MapElement {
 	 * Sorted like {@link #getConnectedWaySegments()}.
 	 */
 	public List<MapSegment> getConnectedSegments() {
-		return connectedSegments;
+		List<MapSegment> result = connectedSegments;
+		if (result == null) {
+			connectedSegments = result = unmodifiableList(asList(Arrays.copyOf(segments, segmentCount)));
+		}
+		return result;
+	}
+
+	private List<MapWaySegment> waySegments(boolean inbound, boolean outbound) {
+		List<MapWaySegment> result = new ArrayList<>();
+		for (int i = 0; i < segmentCount; i++) {
+			if ((inbound && segmentTypes[i] == INBOUND_LINE) || (outbound && segmentTypes[i] == OUTBOUND_LINE)) {
+				result.add((MapWaySegment) segments[i]);
+			}
+		}
+		return result.isEmpty() ? emptyList() : unmodifiableList(result);
 	}
 
 	/**
-	 * creates the ordering described for {@link #getConnectedSegments()}
+	 * inserts a segment while maintaining the ordering described for {@link #getConnectedSegments()}.
+	 * Segments with the same angle remain in the order in which they were added.
 	 */
-	private void sortLinesByAngle(List<? extends MapSegment> lines) {
+	private void addSegment(MapSegment segment, byte type) {
 
-		lines.sort(comparingDouble((MapSegment l) -> {
+		if (segmentCount == segments.length) {
+			int capacity = max(2, segmentCount * 2);
+			segments = Arrays.copyOf(segments, capacity);
+			segmentTypes = Arrays.copyOf(segmentTypes, capacity);
+		}
 
-			VectorXZ d = l.getDirection();
+		double angle = angle(segment, type);
 
-			if (inboundLines.contains(l)) {
-				d = d.invert();
-			}
+		int index = segmentCount;
+		while (index > 0 && angle(segments[index - 1], segmentTypes[index - 1]) > angle) {
+			segments[index] = segments[index - 1];
+			segmentTypes[index] = segmentTypes[index - 1];
+			index--;
+		}
 
-			return d.angle();
+		segments[index] = segment;
+		segmentTypes[index] = type;
+		segmentCount++;
+
+		connectedSegments = null;
+		connectedWaySegments = null;
+		inboundLines = null;
+		outboundLines = null;
+		adjacentAreas = null;
+
+	}
+
+	/**
+	 * returns the angle which is used for sorting the connected segments
+	 */
+	private static double angle(MapSegment segment, byte type) {
+
+		VectorXZ d = segment.getDirection();
+
+		if (type == INBOUND_LINE) {
+			d = d.invert();
+		}
 
-		}));
+		return d.angle();
 
 	}
 
@@ -185,10 +252,14 @@ public class MapNode extends MapRelation.Element implements MapElement {
 	}
 
 	/**
-	 * adds a visual representation for this node
+	 * adds a visual representation for this node.
+	 * Can safely be called from multiple threads at once.
 	 */
-	public void addRepresentation(NodeWorldObject representation) {
-		this.representations.add(representation);
+	public synchronized void addRepresentation(NodeWorldObject representation) {
+		List<NodeWorldObject> newRepresentations = new ArrayList<>(representations.size() + 1);
+		newRepresentations.addAll(representations);
+		newRepresentations.add(representation);
+		this.representations = unmodifiableList(newRepresentations);
 	}
 
 	@Override
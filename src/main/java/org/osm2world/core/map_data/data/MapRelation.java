@@ -87,6 +87,10 @@ public class MapRelation {
 
 	private final List<Membership> memberships = new ArrayList<MapRelation.Membership>();
 
+	public long getId() {
+		return id;
+	}
+
 	public List<Membership> getMemberships() {
 		return memberships;
 	}
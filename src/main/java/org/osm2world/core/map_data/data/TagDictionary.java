@@ -0,0 +1,114 @@
+package org.osm2world.core.map_data.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+/**
+ * deduplicates {@link Tag}s and assigns integer ids to keys.
+ *
+ * Key ids are global and never change, which allows {@link TagSet} to look up keys by id.
+ * They are kept for the lifetime of the application, so their number is limited to {@link #MAX_KEY_IDS}.
+ * This keeps long-running processes, such as the tile server, from growing the dictionary indefinitely.
+ * Keys seen after the limit has been reached do not get an id, and TagSet looks them up by name instead.
+ *
+ * The deduplication of tags, on the other hand, happens within a dictionary instance.
+ * A new instance should be used for each conversion, so values from earlier conversions can be garbage collected.
+ * Instances are not thread-safe.
+ */
+public final class TagDictionary {
+
+	private static final class Key {
+
+		final String key;
+		final int id;
+
+		Key(String key, int id) {
+			this.key = key;
+			this.id = id;
+		}
+
+	}
+
+	/** the maximum number of keys with an id, far more than the number of commonly used keys */
+	static final int MAX_KEY_IDS = 1 << 16;
+
+	/** the limit which is actually used, can be lowered by tests */
+	static volatile int maxKeyIds = MAX_KEY_IDS;
+
+	private static final ConcurrentMap<String, Key> keys = new ConcurrentHashMap<>();
+	private static final AtomicInteger nextKeyId = new AtomicInteger();
+
+	/** deduplicated tags, grouped by key */
+	private final Map<String, Map<String, Tag>> tags = new HashMap<>();
+
+	/**
+	 * returns the id for a key, assigning a new id if the key has not been seen before.
+	 * Keys which have been seen before will have the same id as before.
+	 *
+	 * @return  the key's id, or -1 if the key does not have one and {@link #MAX_KEY_IDS} has been reached
+	 */
+	static int getOrCreateKeyId(String key) {
+		Key k = getOrCreateKey(key);
+		return k == null ? -1 : k.id;
+	}
+
+	/**
+	 * returns the id for a key, or -1 if the key has not been seen before.
+	 * Unlike {@link #getOrCreateKeyId(String)}, this never modifies the dictionary.
+	 */
+	static int getKeyId(String key) {
+		Key k = keys.get(key);
+		return k == null ? -1 : k.id;
+	}
+
+	/**
+	 * returns a tag with the given key and value.
+	 * Repeated calls with equal keys and values return the same {@link Tag} instance,
+	 * and all tags with equal keys share the same key {@link String} instance (if the key has an id).
+	 */
+	public Tag getTag(String key, String value) {
+
+		Map<String, Tag> tagsWithKey = tags.get(key);
+
+		if (tagsWithKey == null) {
+			tagsWithKey = new HashMap<>();
+			tags.put(internKey(key), tagsWithKey);
+		}
+
+		Tag tag = tagsWithKey.get(value);
+
+		if (tag == null) {
+			tag = new Tag(internKey(key), value);
+			tagsWithKey.put(value, tag);
+		}
+
+		return tag;
+
+	}
+
+	/** returns the shared instance of a key, or the key itself if it does not have an id */
+	private static String internKey(String key) {
+		Key k = getOrCreateKey(key);
+		return k == null ? key : k.key;
+	}
+
+	/** returns the key, or null if it does not exist yet and no more keys can be added */
+	private static @Nullable Key getOrCreateKey(String key) {
+		if (keys.size() >= maxKeyIds) {
+			return keys.get(key);
+		} else {
+			return keys.computeIfAbsent(key, k -> new Key(k, nextKeyId.getAndIncrement()));
+		}
+	}
+
+	/** returns the number of distinct tags in this dictionary */
+	public int size() {
+		return tags.values().stream().mapToInt(Map::size).sum();
+	}
+
+}
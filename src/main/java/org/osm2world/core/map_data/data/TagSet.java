@@ -17,6 +17,7 @@ import com.google.common.collect.Iterators;
  * TagSets are immutable, so modifying the tags means creation of a new set.
  * Keys are unique, which is required since OSM API 0.6.
  * The order of the tags does not matter. (Tags are provided in alphabetical order for iteration.)
+ * Lookups by key use the key ids from {@link TagDictionary}.
  */
 public final class TagSet implements Iterable<Tag> {
 
@@ -25,6 +26,15 @@ public final class TagSet implements Iterable<Tag> {
 	/** the backing array. Will not be modified after construction. Sorted alphabetically (for equality behavior). */
 	private final Tag[] tags;
 
+	/**
+	 * ids of the tags' keys (see {@link TagDictionary}) in ascending order, for fast lookups by key.
+	 * Tags with keys that do not have an id are not included.
+	 */
+	private final int[] keyIds;
+
+	/** the tags in the order of {@link #keyIds} */
+	private final Tag[] tagsByKeyId;
+
 	private TagSet(Tag[] tags) {
 
 		this.tags = tags;
@@ -37,6 +47,33 @@ public final class TagSet implements Iterable<Tag> {
 			}
 		}
 
+		/* sort by key id, using an insertion sort because most tag sets are small */
+
+		int[] keyIds = new int[tags.length];
+		Tag[] tagsByKeyId = new Tag[tags.length];
+		int count = 0;
+
+		for (int i = 0; i < tags.length; i++) {
+			int keyId = TagDictionary.getOrCreateKeyId(tags[i].key);
+			if (keyId < 0) continue;
+			int j = count++;
+			while (j > 0 && keyIds[j - 1] > keyId) {
+				keyIds[j] = keyIds[j - 1];
+				tagsByKeyId[j] = tagsByKeyId[j - 1];
+				j--;
+			}
+			keyIds[j] = keyId;
+			tagsByKeyId[j] = tags[i];
+		}
+
+		if (count < tags.length) {
+			keyIds = Arrays.copyOf(keyIds, count);
+			tagsByKeyId = Arrays.copyOf(tagsByKeyId, count);
+		}
+
+		this.keyIds = keyIds;
+		this.tagsByKeyId = tagsByKeyId;
+
 	}
 
 	public static final TagSet of() {
@@ -102,12 +139,43 @@ public final class TagSet implements Iterable<Tag> {
 	 */
 	public String getValue(String key) {
 		assert key != null;
-		for (Tag tag : tags) {
-			if (tag.key.equals(key)) {
-				return tag.value;
+		Tag tag = getTag(key);
+		return tag == null ? null : tag.value;
+	}
+
+	/** returns the tag with the given key, or null if there is none */
+	private @Nullable Tag getTag(String key) {
+
+		if (tags.length == 0) return null;
+
+		int keyId = TagDictionary.getKeyId(key);
+
+		if (keyId >= 0) {
+			int index = Arrays.binarySearch(keyIds, keyId);
+			if (index >= 0) return tagsByKeyId[index];
+		}
+
+		if (keyIds.length == tags.length) return null;
+
+		/* some keys do not have an id, search them by name (tags are sorted alphabetically by key) */
+
+		int low = 0;
+		int high = tags.length - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int comparison = tags[mid].key.compareTo(key);
+			if (comparison < 0) {
+				low = mid + 1;
+			} else if (comparison > 0) {
+				high = mid - 1;
+			} else {
+				return tags[mid];
 			}
 		}
+
 		return null;
+
 	}
 
 	/**
@@ -116,12 +184,7 @@ public final class TagSet implements Iterable<Tag> {
 	 */
 	public boolean contains(Tag tag) {
 		assert tag != null;
-		for (Tag t : tags) {
-			if (t.equals(tag)) {
-				return true;
-			}
-		}
-		return false;
+		return contains(tag.key, tag.value);
 	}
 
 	/**
@@ -130,7 +193,8 @@ public final class TagSet implements Iterable<Tag> {
 	 * @param value  value of the tag to check for; != null
 	 */
 	public boolean contains(String key, String value) {
-		return contains(new Tag(key, value));
+		Tag tag = getTag(key);
+		return tag != null && tag.value.equals(value);
 	}
 
 	/**
@@ -138,12 +202,7 @@ public final class TagSet implements Iterable<Tag> {
 	 * @param key  key to check for; != null
 	 */
 	public boolean containsKey(String key) {
-		for (Tag tag : tags) {
-			if (tag.key.equals(key)) {
-				return true;
-			}
-		}
-		return false;
+		return getTag(key) != null;
 	}
 
 	/**
@@ -221,7 +280,7 @@ public final class TagSet implements Iterable<Tag> {
 
 	@Override
 	public int hashCode() {
-		return tags.hashCode();
+		return Arrays.hashCode(tags);
 	}
 
 	@Override
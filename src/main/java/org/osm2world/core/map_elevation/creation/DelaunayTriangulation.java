@@ -3,17 +3,21 @@ package org.osm2world.core.map_elevation.creation;
 import static java.lang.Math.*;
 import static org.osm2world.core.math.GeometryUtil.isRightOf;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Random;
 import java.util.Set;
 import java.util.Stack;
 
+import javax.annotation.Nullable;
+
 import org.osm2world.core.math.AxisAlignedRectangleXZ;
 import org.osm2world.core.math.BoundedObject;
 import org.osm2world.core.math.TriangleXYZ;
@@ -33,7 +37,8 @@ import com.google.common.collect.Multimap;
  * 2d Delaunay triangulation class.
  * Built to be used as a Voronoi Diagram dual for natural neighbor
  * interpolation of the y elevation values carried by each point.
- * The triangulation is constructed by incremental insertion.
+ * The triangulation is constructed by incremental insertion,
+ * either one point at a time or in bulk using {@link #insertAll(Collection)}.
  */
 public class DelaunayTriangulation {
 
@@ -521,28 +526,61 @@ public class DelaunayTriangulation {
 
 	public Stack<Flip> insert(VectorXYZ point) { //TODO: should use <T extends Has(Immutable)Position>
 
-		DelaunayTriangle triangleEnclosingPoint = getEnlosingTriangle(point.xz());
+		Stack<Flip> flipStack = new Stack<Flip>();
+
+		insert(point, handleTriangle, flipStack);
+
+		return flipStack;
+
+	}
+
+	/**
+	 * inserts many points at once. This is considerably faster than calling {@link #insert(VectorXYZ)}
+	 * for each point, and produces an equivalent triangulation.
+	 *
+	 * The points are inserted in a biased randomized insertion order (BRIO) with each round sorted
+	 * along a Hilbert curve. This way, consecutive points are usually close to each other,
+	 * and the search for each point's enclosing triangle can start at the previously inserted point.
+	 */
+	public void insertAll(Collection<VectorXYZ> points) {
+
+		DelaunayTriangle startTriangle = handleTriangle;
 
-		if (triangleEnclosingPoint == null) {
-			System.out.println("null");
-			//TODO check for null
+		for (VectorXYZ point : sortForInsertion(points, new Random(points.size()))) {
+			startTriangle = insert(point, startTriangle, null);
 		}
 
-		/* split the enclosing triangle */
+	}
 
-		Stack<Flip> flipStack = new Stack<Flip>();
+	/**
+	 * inserts a point, then restores the Delaunay property using edge flips
+	 *
+	 * @param startTriangle  triangle where the search for the point's enclosing triangle starts
+	 * @param flipStack  receives the performed flips so they can be undone later, can be null
+	 * @return  a triangle incident to the inserted point
+	 */
+	private DelaunayTriangle insert(VectorXYZ point, DelaunayTriangle startTriangle,
+			@Nullable Stack<Flip> flipStack) {
+
+		DelaunayTriangle triangleEnclosingPoint = getEnlosingTriangle(point.xz(), startTriangle);
+
+		/* split the enclosing triangle */
 
 		Flip13 initialFlip = new Flip13(triangleEnclosingPoint, point);
 		initialFlip.perform();
-		flipStack.push(initialFlip);
+		if (flipStack != null) {
+			flipStack.push(initialFlip);
+		}
+
+		DelaunayTriangle lastCreatedTriangle = initialFlip.createdTriangles[0];
 
-		Queue<DelaunayTriangle> uncheckedTriangles = new LinkedList<DelaunayTriangle>();
+		Queue<DelaunayTriangle> uncheckedTriangles = new ArrayDeque<DelaunayTriangle>();
 
 		uncheckedTriangles.offer(initialFlip.createdTriangles[0]);
 		uncheckedTriangles.offer(initialFlip.createdTriangles[1]);
 		uncheckedTriangles.offer(initialFlip.createdTriangles[2]);
 
-		/*  */
+		/* flip edges until all triangles fulfill the Delaunay condition */
 
 		while (!uncheckedTriangles.isEmpty()) {
 
@@ -554,16 +592,116 @@ public class DelaunayTriangulation {
 
 				Flip22 flip = new Flip22(triangle);
 				flip.perform();
-				flipStack.push(flip);
+				if (flipStack != null) {
+					flipStack.push(flip);
+				}
 
 				uncheckedTriangles.offer(flip.createdTriangles[0]);
 				uncheckedTriangles.offer(flip.createdTriangles[1]);
 
+				lastCreatedTriangle = flip.createdTriangles[0];
+
 			}
 
 		}
 
-		return flipStack;
+		// no flip has been performed after creating this triangle, so it is still part of the triangulation
+		return lastCreatedTriangle;
+
+	}
+
+	/**
+	 * returns the points in the order in which {@link #insertAll(Collection)} inserts them.
+	 * The points are shuffled, then split into rounds which double in size.
+	 * Within each round, the points are sorted along a Hilbert curve.
+	 */
+	static List<VectorXYZ> sortForInsertion(Collection<VectorXYZ> points, Random random) {
+
+		List<VectorXYZ> result = new ArrayList<VectorXYZ>(points);
+
+		if (result.size() < 2) return result;
+
+		Collections.shuffle(result, random);
+
+		AxisAlignedRectangleXZ bounds = AxisAlignedRectangleXZ.bbox(result);
+
+		int roundEnd = result.size();
+
+		while (roundEnd > 0) {
+			int roundStart = roundEnd > MIN_BRIO_ROUND_SIZE ? roundEnd / 2 : 0;
+			sortAlongHilbertCurve(result.subList(roundStart, roundEnd), bounds);
+			roundEnd = roundStart;
+		}
+
+		return result;
+
+	}
+
+	/** the number of points in the first round of a biased randomized insertion order */
+	private static final int MIN_BRIO_ROUND_SIZE = 64;
+
+	/** the number of cells along each axis of the grid used to calculate Hilbert curve indices */
+	private static final int HILBERT_GRID_SIZE = 1 << 15;
+
+	private static void sortAlongHilbertCurve(List<VectorXYZ> points, AxisAlignedRectangleXZ bounds) {
+
+		long[] keys = new long[points.size()];
+
+		double scaleX = (HILBERT_GRID_SIZE - 1) / max(bounds.sizeX(), 1e-9);
+		double scaleZ = (HILBERT_GRID_SIZE - 1) / max(bounds.sizeZ(), 1e-9);
+
+		for (int i = 0; i < keys.length; i++) {
+			VectorXYZ p = points.get(i);
+			int x = (int)((p.x - bounds.minX) * scaleX);
+			int z = (int)((p.z - bounds.minZ) * scaleZ);
+			// the lower bits of the key hold the point's index within the list
+			keys[i] = (hilbertIndex(x, z) << 32) | i;
+		}
+
+		Arrays.sort(keys);
+
+		VectorXYZ[] sortedPoints = new VectorXYZ[keys.length];
+
+		for (int i = 0; i < keys.length; i++) {
+			sortedPoints[i] = points.get((int)keys[i]);
+		}
+
+		for (int i = 0; i < sortedPoints.length; i++) {
+			points.set(i, sortedPoints[i]);
+		}
+
+	}
+
+	/**
+	 * returns the distance along a Hilbert curve through a {@link #HILBERT_GRID_SIZE}² grid
+	 * to the cell with the given coordinates
+	 */
+	private static long hilbertIndex(int x, int y) {
+
+		long d = 0;
+
+		for (int s = HILBERT_GRID_SIZE / 2; s > 0; s /= 2) {
+
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+
+			d += (long)s * s * ((3 * rx) ^ ry);
+
+			/* rotate the quadrant */
+
+			if (ry == 0) {
+				if (rx == 1) {
+					x = s - 1 - x;
+					y = s - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+
+		}
+
+		return d;
 
 	}
 
@@ -784,10 +922,21 @@ public class DelaunayTriangulation {
 
 		if (neighborTriangle != null && neighborTriangle != handleTriangle) {
 
-			double a1 = triangle.angleAt(2);
-			double a2 = neighborTriangle.angleOppositeOf(triangle);
+			/* check whether the neighbor's opposite point is within the triangle's circumcircle */
+
+			VectorXYZ opposite = neighborTriangle.getPoint(
+					(neighborTriangle.indexOfNeighbor(triangle) + 2) % 3);
+
+			double ax = triangle.p0.x - opposite.x, az = triangle.p0.z - opposite.z;
+			double bx = triangle.p1.x - opposite.x, bz = triangle.p1.z - opposite.z;
+			double cx = triangle.p2.x - opposite.x, cz = triangle.p2.z - opposite.z;
 
-			return a1 + a2 <= PI;
+			double det = (ax * ax + az * az) * (bx * cz - cx * bz)
+					- (bx * bx + bz * bz) * (ax * cz - cx * az)
+					+ (cx * cx + cz * cz) * (ax * bz - bx * az);
+
+			// the determinant is positive for points within the circumcircle of a counterclockwise triangle
+			return det <= 0;
 
 		} else {
 
@@ -803,11 +952,19 @@ public class DelaunayTriangulation {
 	 * @param point  must lie within the triangulation; != null
 	 */
 	public DelaunayTriangle getEnlosingTriangle(VectorXZ point) {
+		return getEnlosingTriangle(point, handleTriangle);
+	}
+
+	/**
+	 * variant of {@link #getEnlosingTriangle(VectorXZ)} which starts searching at a given triangle.
+	 * Searching is faster if the start triangle is close to the point.
+	 */
+	private DelaunayTriangle getEnlosingTriangle(VectorXZ point, DelaunayTriangle startTriangle) {
 
 		/* use a 'visibility walk' through the triangulation,
-		 * starting at the handleTriangle */
+		 * starting at the start triangle */
 
-		DelaunayTriangle currentTriangle = handleTriangle;
+		DelaunayTriangle currentTriangle = startTriangle;
 
 		boolean triangleContainsPoint = false;
 
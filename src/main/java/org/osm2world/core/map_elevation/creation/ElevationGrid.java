@@ -0,0 +1,196 @@
+package org.osm2world.core.map_elevation.creation;
+
+import static java.lang.Double.isNaN;
+import static java.lang.Math.*;
+
+/**
+ * a regular grid of elevation samples in lat/lon space, such as a section of an SRTM raster.
+ * Sample (0, 0) is located at the south-west corner of the grid,
+ * columns go east and rows go north, with a constant distance (in degrees) between adjacent samples.
+ *
+ * Instances are immutable and can be used by multiple threads at the same time.
+ */
+public class ElevationGrid {
+
+	/** ways to calculate elevations between samples */
+	public static enum Interpolation {
+		/** linear interpolation between the 4 closest samples */
+		BILINEAR,
+		/** cubic (Catmull-Rom) interpolation using the 16 closest samples */
+		BICUBIC
+	}
+
+	private final double minLon;
+	private final double minLat;
+	private final double cellSize;
+
+	private final int columns;
+	private final int rows;
+
+	/** elevations in row-major order, NaN for missing data */
+	private final float[] values;
+
+	/**
+	 * @param minLon  longitude of sample (0, 0)
+	 * @param minLat  latitude of sample (0, 0)
+	 * @param cellSize  distance between adjacent samples in degrees
+	 * @param values  columns * rows elevations in row-major order, starting with the southernmost row.
+	 *                NaN indicates missing data. The array must not be modified afterwards.
+	 */
+	public ElevationGrid(double minLon, double minLat, double cellSize, int columns, int rows, float[] values) {
+
+		if (columns < 1 || rows < 1 || values.length != columns * rows) {
+			throw new IllegalArgumentException("invalid grid size " + columns + "x" + rows
+					+ " for " + values.length + " values");
+		}
+
+		this.minLon = minLon;
+		this.minLat = minLat;
+		this.cellSize = cellSize;
+		this.columns = columns;
+		this.rows = rows;
+		this.values = values;
+
+	}
+
+	public double getMinLon() {
+		return minLon;
+	}
+
+	public double getMinLat() {
+		return minLat;
+	}
+
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * returns the elevation of a sample, NaN if there is no data for it.
+	 * Indices outside the grid are clamped to the nearest sample at the grid's border.
+	 */
+	public float getValue(int column, int row) {
+		column = min(max(column, 0), columns - 1);
+		row = min(max(row, 0), rows - 1);
+		return values[row * columns + column];
+	}
+
+	/**
+	 * interpolates the elevation at a location.
+	 * Locations outside the grid get the elevation of the closest point at the grid's border.
+	 *
+	 * @return  the elevation, NaN if there are no samples with data near the location
+	 */
+	public double getEle(double lat, double lon, Interpolation interpolation) {
+
+		double gx = min(max((lon - minLon) / cellSize, 0), columns - 1);
+		double gy = min(max((lat - minLat) / cellSize, 0), rows - 1);
+
+		int column = min((int)gx, max(columns - 2, 0));
+		int row = min((int)gy, max(rows - 2, 0));
+
+		double tx = gx - column;
+		double ty = gy - row;
+
+		if (interpolation == Interpolation.BICUBIC) {
+			double result = interpolateBicubic(column, row, tx, ty);
+			if (!isNaN(result)) {
+				return result;
+			}
+		}
+
+		// also used as a fallback if bicubic interpolation encounters missing samples
+		return interpolateBilinear(column, row, tx, ty);
+
+	}
+
+	/**
+	 * bilinear interpolation which ignores missing samples
+	 * and distributes their weight among the remaining ones
+	 */
+	private double interpolateBilinear(int column, int row, double tx, double ty) {
+
+		double weightedSum = 0;
+		double weightSum = 0;
+
+		for (int dy = 0; dy <= 1; dy++) {
+			for (int dx = 0; dx <= 1; dx++) {
+
+				float value = getValue(column + dx, row + dy);
+
+				if (!isNaN(value)) {
+					double weight = (dx == 0 ? 1 - tx : tx) * (dy == 0 ? 1 - ty : ty);
+					weightedSum += weight * value;
+					weightSum += weight;
+				}
+
+			}
+		}
+
+		if (weightSum > 0) {
+			return weightedSum / weightSum;
+		} else {
+			// the location is exactly on an edge between samples and the 2 closest ones are missing
+			for (int dy = 0; dy <= 1; dy++) {
+				for (int dx = 0; dx <= 1; dx++) {
+					float value = getValue(column + dx, row + dy);
+					if (!isNaN(value)) return value;
+				}
+			}
+			return Double.NaN;
+		}
+
+	}
+
+	/**
+	 * bicubic interpolation, returns NaN if any of the 16 samples is missing.
+	 * Samples beyond the grid's border are extrapolated linearly.
+	 */
+	private double interpolateBicubic(int column, int row, double tx, double ty) {
+
+		double[] rowResults = new double[4];
+
+		for (int dy = -1; dy <= 2; dy++) {
+			rowResults[dy + 1] = catmullRom(
+					getValue(column - 1, row + dy),
+					getValue(column, row + dy),
+					getValue(column + 1, row + dy),
+					getValue(column + 2, row + dy),
+					column - 1 < 0, column + 2 >= columns, tx);
+		}
+
+		return catmullRom(rowResults[0], rowResults[1], rowResults[2], rowResults[3],
+				row - 1 < 0, row + 2 >= rows, ty);
+
+	}
+
+	/**
+	 * interpolates between p1 and p2 using a Catmull-Rom spline
+	 *
+	 * @param extrapolateP0  whether p0 is outside the grid and should be extrapolated from p1 and p2
+	 * @param extrapolateP3  whether p3 is outside the grid and should be extrapolated from p1 and p2
+	 */
+	private static double catmullRom(double p0, double p1, double p2, double p3,
+			boolean extrapolateP0, boolean extrapolateP3, double t) {
+		if (extrapolateP0) p0 = 2 * p1 - p2;
+		if (extrapolateP3) p3 = 2 * p2 - p1;
+		return catmullRom(p0, p1, p2, p3, t);
+	}
+
+	/** interpolates between p1 and p2 using a Catmull-Rom spline */
+	private static double catmullRom(double p0, double p1, double p2, double p3, double t) {
+		return 0.5 * (2 * p1
+				+ (-p0 + p2) * t
+				+ (2 * p0 - 5 * p1 + 4 * p2 - p3) * t * t
+				+ (-p0 + 3 * p1 - 3 * p2 + p3) * t * t * t);
+	}
+
+}
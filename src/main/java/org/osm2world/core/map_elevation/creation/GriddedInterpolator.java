@@ -0,0 +1,100 @@
+package org.osm2world.core.map_elevation.creation;
+
+import static java.lang.Double.isNaN;
+
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+import org.osm2world.core.map_data.creation.MapProjection;
+import org.osm2world.core.map_elevation.creation.ElevationGrid.Interpolation;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.math.VectorXZ;
+
+/**
+ * samples an {@link ElevationGrid} directly instead of triangulating a set of sites.
+ * Each position is converted back to lat/lon, then interpolated between the surrounding grid samples.
+ * This only needs constant time for each query and no preprocessing.
+ *
+ * Intended for {@link GriddedTerrainElevationData}, such as {@link SRTMData}.
+ * Other elevation data is interpolated with a {@link LeastSquaresInterpolator} instead.
+ * Positions without nearby data get an elevation of 0.
+ * Batches of positions are interpolated in parallel.
+ */
+public class GriddedInterpolator implements TerrainInterpolator {
+
+	private final Interpolation interpolation;
+
+	private ElevationGrid grid;
+	private MapProjection projection;
+
+	/** replaces the grid if only sites are available, see {@link #setKnownSites(Collection)} */
+	private TerrainInterpolator siteInterpolator = null;
+
+	public GriddedInterpolator(Interpolation interpolation) {
+		this.interpolation = interpolation;
+	}
+
+	/** creates an interpolator using {@link Interpolation#BICUBIC} */
+	public GriddedInterpolator() {
+		this(Interpolation.BICUBIC);
+	}
+
+	/**
+	 * sets the grid to sample. Must be called before any elevations are interpolated.
+	 *
+	 * @param projection  the projection used to convert positions to lat/lon
+	 */
+	public void setGrid(ElevationGrid grid, MapProjection projection) {
+		this.grid = grid;
+		this.projection = projection;
+		this.siteInterpolator = null;
+	}
+
+	/**
+	 * fallback for elevation data which is not gridded, uses a {@link LeastSquaresInterpolator} for the sites.
+	 * Use {@link #setGrid(ElevationGrid, MapProjection)} where possible, it is much faster.
+	 */
+	@Override
+	public void setKnownSites(Collection<VectorXYZ> sites) {
+		siteInterpolator = new LeastSquaresInterpolator();
+		siteInterpolator.setKnownSites(sites);
+	}
+
+	@Override
+	public VectorXYZ interpolateEle(VectorXZ pos) {
+		if (siteInterpolator != null) {
+			return siteInterpolator.interpolateEle(pos);
+		}
+		return pos.xyz(getEle(pos));
+	}
+
+	@Override
+	public double[] interpolateEle(double[] xs, double[] zs) {
+
+		if (xs.length != zs.length) {
+			throw new IllegalArgumentException("different number of x and z coordinates");
+		}
+
+		if (siteInterpolator != null) {
+			return siteInterpolator.interpolateEle(xs, zs);
+		}
+
+		double[] result = new double[xs.length];
+
+		IntStream.range(0, xs.length).parallel().forEach(i -> {
+			result[i] = getEle(new VectorXZ(xs[i], zs[i]));
+		});
+
+		return result;
+
+	}
+
+	private double getEle(VectorXZ pos) {
+
+		double ele = grid.getEle(projection.toLat(pos), projection.toLon(pos), interpolation);
+
+		return isNaN(ele) ? 0 : ele;
+
+	}
+
+}
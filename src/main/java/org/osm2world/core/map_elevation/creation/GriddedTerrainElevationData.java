@@ -0,0 +1,20 @@
+package org.osm2world.core.map_elevation.creation;
+
+import java.io.IOException;
+
+import org.osm2world.core.map_data.data.MapData;
+
+/**
+ * terrain elevation data which is available as a regular grid in lat/lon space.
+ * Such data can be used by a {@link GriddedInterpolator}
+ * without converting each sample to a site first.
+ */
+public interface GriddedTerrainElevationData extends TerrainElevationData {
+
+	ElevationGrid getGrid(double minLon, double minLat,
+			double maxLon, double maxLat) throws IOException;
+
+	/** variant of {@link #getGrid(double, double, double, double)} which covers a {@link MapData} instance */
+	ElevationGrid getGrid(MapData mapData) throws IOException;
+
+}
@@ -1,144 +1,166 @@
 package org.osm2world.core.map_elevation.creation;
 
 import static java.lang.Math.*;
-import static org.osm2world.core.math.AxisAlignedRectangleXZ.bbox;
+import static java.util.Arrays.copyOfRange;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.stream.IntStream;
 
-import org.apache.commons.lang.time.StopWatch;
-import org.apache.commons.math3.linear.Array2DRowRealMatrix;
-import org.apache.commons.math3.linear.ArrayRealVector;
-import org.apache.commons.math3.linear.QRDecomposition;
 import org.apache.commons.math3.linear.RealMatrix;
-import org.apache.commons.math3.linear.RealVector;
 import org.osm2world.core.math.AxisAlignedRectangleXZ;
 import org.osm2world.core.math.BoundedObject;
 import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
-import org.osm2world.core.math.datastructures.IndexGrid;
+import org.osm2world.core.math.datastructures.PointKDTree;
 
 /**
  * uses least squares method to approximate a polynomial at each site,
  * and calculates elevations based on the polynomials at the nearest sites.
+ *
+ * The polynomials are approximated in parallel. Once the known sites have been set,
+ * elevations can be interpolated by multiple threads at the same time.
  */
 public class LeastSquaresInterpolator implements TerrainInterpolator {
 
-	private static final double CELL_SIZE = 50; //should only affect performance
 	private static final int SITES_FOR_APPROX = 9;
 	private static final int SITES_FOR_INTERPOL = 29;
 
-	private Collection<SiteWithPolynomial> sites;
-	private IndexGrid<SiteWithPolynomial> siteGrid; //TODO: rename IntersectionGrid to something more generic
+	/** buffers for the calculations, reused for all sites and positions processed by a thread */
+	private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
 
-	@Override
-	public void setKnownSites(Collection<VectorXYZ> siteVectors) {
+	private List<VectorXYZ> siteVectors;
 
-		StopWatch stopWatch = new StopWatch();
-		stopWatch.start();
+	/** indices (within {@link #siteVectors}) of the sites for which a polynomial could be approximated */
+	private int[] polynomialSites;
 
-		sites = new ArrayList<SiteWithPolynomial>(siteVectors.size());
+	/** coefficients of the polynomials, {@link DefaultPolynomial#NUM_COEFFS} for each of the polynomialSites */
+	private double[] coeffs;
 
-		siteGrid = new IndexGrid<SiteWithPolynomial>(
-				bbox(siteVectors).pad(CELL_SIZE/2),
-				CELL_SIZE, CELL_SIZE);
+	/** tree containing the polynomialSites, using the same indices as that array */
+	private PointKDTree polynomialSiteTree;
 
-		for (VectorXYZ siteVector : siteVectors) {
-			SiteWithPolynomial s = new SiteWithPolynomial(siteVector);
-			sites.add(s);
-			siteGrid.insert(s);
-		}
+	private Collection<SiteWithPolynomial> sites = null;
 
-		System.out.println("  time grid: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+	@Override
+	public void setKnownSites(Collection<VectorXYZ> siteVectors) {
 
-		/* approximate a polynomial at each site */
+		this.siteVectors = new ArrayList<VectorXYZ>(siteVectors);
+		this.sites = null;
 
-		Map<SiteWithPolynomial, List<SiteWithPolynomial>> nearestSiteMap
-			= new HashMap<SiteWithPolynomial, List<SiteWithPolynomial>>();
+		int siteCount = this.siteVectors.size();
 
-		for (SiteWithPolynomial site : sites) {
+		double[] xs = new double[siteCount];
+		double[] zs = new double[siteCount];
 
-			List<SiteWithPolynomial> nearestSites =
-					findNearestSites(site.pos.xz(), SITES_FOR_APPROX, false);
+		for (int i = 0; i < siteCount; i++) {
+			xs[i] = this.siteVectors.get(i).x;
+			zs[i] = this.siteVectors.get(i).z;
+		}
 
-			nearestSiteMap.put(site, nearestSites);
+		PointKDTree siteTree = new PointKDTree(xs, zs);
 
-		}
+		/* approximate a polynomial at each site */
+
+		double[] allCoeffs = new double[siteCount * DefaultPolynomial.NUM_COEFFS];
+		boolean[] hasPolynomial = new boolean[siteCount];
 
-		System.out.println("  time nearest sites: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+		IntStream.range(0, siteCount).parallel().forEach(site -> {
 
-		calculatePolynomials:
-		for (SiteWithPolynomial site : sites) {
+			Workspace w = WORKSPACE.get();
 
-			List<SiteWithPolynomial> nearestSites =
-					nearestSiteMap.get(site);
+			int count = siteTree.findNearest(xs[site], zs[site], SITES_FOR_APPROX,
+					w.nearestSites, w.distancesSquared);
 
-			RealVector vector = new ArrayRealVector(SITES_FOR_APPROX);
-			RealMatrix matrix = new Array2DRowRealMatrix(
-					SITES_FOR_APPROX, DefaultPolynomial.NUM_COEFFS);
+			if (count < SITES_FOR_APPROX) return;
 
 			for (int row = 0; row < SITES_FOR_APPROX; row++) {
-				SiteWithPolynomial nearSite = nearestSites.get(row);
-				DefaultPolynomial.populateMatrix(matrix, row, nearSite.pos.x, nearSite.pos.z);
-				vector.setEntry(row, nearSite.pos.y);
+				VectorXYZ nearSite = this.siteVectors.get(w.nearestSites[row]);
+				DefaultPolynomial.populateRow(w.matrix[row], nearSite.x, nearSite.z);
+				w.vector[row] = nearSite.y;
 			}
 
-			QRDecomposition qr = new QRDecomposition(matrix);
-			RealVector solution = qr.getSolver().solve(vector);
+			int offset = site * DefaultPolynomial.NUM_COEFFS;
 
-			double[] coeffs = solution.toArray();
-
-			for (double coeff : coeffs) {
-				if (coeff > 10e3) {
-					continue calculatePolynomials;
+			if (solveLeastSquares(w.matrix, w.vector, w.diagonal, allCoeffs, offset)) {
+				hasPolynomial[site] = true;
+				for (int i = 0; i < DefaultPolynomial.NUM_COEFFS; i++) {
+					if (allCoeffs[offset + i] > 10e3) {
+						hasPolynomial[site] = false;
+					}
 				}
 			}
 
-			site.setPolynomial(new DefaultPolynomial(coeffs));
+		});
 
+		/* keep the sites with polynomials for the interpolation */
+
+		polynomialSites = IntStream.range(0, siteCount).filter(i -> hasPolynomial[i]).toArray();
+
+		coeffs = new double[polynomialSites.length * DefaultPolynomial.NUM_COEFFS];
+		double[] polynomialXs = new double[polynomialSites.length];
+		double[] polynomialZs = new double[polynomialSites.length];
+
+		for (int i = 0; i < polynomialSites.length; i++) {
+			int site = polynomialSites[i];
+			System.arraycopy(allCoeffs, site * DefaultPolynomial.NUM_COEFFS,
+					coeffs, i * DefaultPolynomial.NUM_COEFFS, DefaultPolynomial.NUM_COEFFS);
+			polynomialXs[i] = xs[site];
+			polynomialZs[i] = zs[site];
 		}
 
-		System.out.println("  time polyonmials: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+		polynomialSiteTree = new PointKDTree(polynomialXs, polynomialZs);
 
 	}
 
 	@Override
 	public VectorXYZ interpolateEle(VectorXZ pos) {
+		return pos.xyz(interpolateEle(pos.x, pos.z));
+	}
 
-		List<SiteWithPolynomial> nearestSites =
-				findNearestSites(pos, SITES_FOR_INTERPOL, true);
+	@Override
+	public double[] interpolateEle(double[] xs, double[] zs) {
+
+		if (xs.length != zs.length) {
+			throw new IllegalArgumentException("different number of x and z coordinates");
+		}
+
+		double[] result = new double[xs.length];
+
+		IntStream.range(0, xs.length).parallel().forEach(i -> {
+			result[i] = interpolateEle(xs[i], zs[i]);
+		});
+
+		return result;
+
+	}
+
+	private double interpolateEle(double x, double z) {
+
+		Workspace w = WORKSPACE.get();
+
+		int count = polynomialSiteTree.findNearest(x, z, SITES_FOR_INTERPOL,
+				w.nearestSites, w.distancesSquared);
 
 		double eleSum = 0;
 		double weightSum = 0;
 
-		for (SiteWithPolynomial site : nearestSites) {
+		for (int i = 0; i < count; i++) {
 
-			double distance = site.pos.distanceToXZ(pos);
+			double distance = sqrt(w.distancesSquared[i]);
 
 			double weight = max(1 - distance / 120, 0);
 
 			weightSum += weight;
 
-			eleSum += weight * site.getPolynomial().evaluateAt(pos.x, pos.z);
+			eleSum += weight * DefaultPolynomial.evaluateAt(coeffs,
+					w.nearestSites[i] * DefaultPolynomial.NUM_COEFFS, x, z);
 
 		}
 
-		double ele = eleSum / weightSum;
-
-		return pos.xyz(ele);
+		return eleSum / weightSum;
 
 	}
 
@@ -147,79 +169,123 @@ public class LeastSquaresInterpolator implements TerrainInterpolator {
 	 * This is usually only interesting for debugging or similar tasks.
 	 */
 	public Collection<SiteWithPolynomial> getSitesWithPolynomials() {
-		return sites;
-	}
 
-	private List<SiteWithPolynomial> findNearestSites(
-			final VectorXZ pos, int numberSites, boolean requirePolynomial) {
+		if (sites == null && siteVectors != null) {
 
-		PriorityQueue<SiteWithPolynomial> result =
-				new PriorityQueue<SiteWithPolynomial>(numberSites,
-						new Comparator<SiteWithPolynomial>() {
-					@Override
-					public int compare(SiteWithPolynomial s1, SiteWithPolynomial s2) {
-						return - Double.compare(s1.pos.distanceToXZ(pos),
-								s2.pos.distanceToXZ(pos));
-					}
-				});
+			List<SiteWithPolynomial> result = new ArrayList<SiteWithPolynomial>(siteVectors.size());
+
+			int nextPolynomialSite = 0;
 
-		Collection<SiteWithPolynomial>[][] cellArray = siteGrid.getCellArray();
-		int cellX = siteGrid.cellXForCoord(pos.x);
-		int cellZ = siteGrid.cellZForCoord(pos.z);
+			for (int site = 0; site < siteVectors.size(); site++) {
 
-		int cellRange = 0;
+				SiteWithPolynomial s = new SiteWithPolynomial(siteVectors.get(site));
 
-		do {
+				if (nextPolynomialSite < polynomialSites.length && polynomialSites[nextPolynomialSite] == site) {
+					int offset = nextPolynomialSite * DefaultPolynomial.NUM_COEFFS;
+					s.setPolynomial(new DefaultPolynomial(
+							copyOfRange(coeffs, offset, offset + DefaultPolynomial.NUM_COEFFS)));
+					nextPolynomialSite++;
+				}
 
-			for (int i = max(cellX-cellRange, 0); i < min(cellX+cellRange+1, cellArray.length); i++) {
-				for (int j = max(cellZ-cellRange, 0); j < min(cellZ+cellRange+1, cellArray[i].length); j++) {
+				result.add(s);
 
-					//needs to be on the outer ring of cells (others have been checked before)
-					if (i == cellX-cellRange || i == cellX+cellRange
-							|| j == cellZ-cellRange || j == cellZ+cellRange) {
+			}
 
-						Collection<SiteWithPolynomial> sitesInCell = cellArray[i][j];
+			sites = result;
 
-						if (sitesInCell != null) {
-							for (SiteWithPolynomial site : sitesInCell) {
+		}
 
-								if (requirePolynomial && site.polynomial == null) continue;
+		return sites;
 
-								if (result.size() < numberSites) {
+	}
 
-									result.add(site);
+	/**
+	 * solves an overdetermined linear system in the least squares sense using a Householder QR decomposition.
+	 * Modifies the matrix and vector.
+	 *
+	 * @param matrix  the system's matrix, must have at least as many rows as columns
+	 * @param diagonal  buffer for the diagonal of R, needs one entry for each column
+	 * @param result  array receiving the solution
+	 * @param offset  position of the solution within the result array
+	 * @return  false if the matrix does not have full rank
+	 */
+	static boolean solveLeastSquares(double[][] matrix, double[] vector, double[] diagonal,
+			double[] result, int offset) {
 
-								} else if (site.pos.distanceToXZ(pos) <
-										result.peek().pos.distanceToXZ(pos)) {
+		int rows = matrix.length;
+		int columns = matrix[0].length;
 
-									result.remove();
-									result.add(site);
+		for (int k = 0; k < columns; k++) {
 
-								}
-							}
-						}
+			/* calculate the Householder reflection for column k */
 
-					}
+			double normSquared = 0;
+			for (int i = k; i < rows; i++) {
+				normSquared += matrix[i][k] * matrix[i][k];
+			}
+
+			double norm = sqrt(normSquared);
+
+			if (norm == 0) return false;
+
+			double alpha = matrix[k][k] > 0 ? -norm : norm;
+			matrix[k][k] -= alpha;
 
+			double vNormSquared = 0;
+			for (int i = k; i < rows; i++) {
+				vNormSquared += matrix[i][k] * matrix[i][k];
+			}
+
+			/* apply it to the remaining columns and the vector */
+
+			for (int j = k + 1; j < columns; j++) {
+				double dot = 0;
+				for (int i = k; i < rows; i++) {
+					dot += matrix[i][k] * matrix[i][j];
+				}
+				double factor = 2 * dot / vNormSquared;
+				for (int i = k; i < rows; i++) {
+					matrix[i][j] -= factor * matrix[i][k];
 				}
 			}
 
-			cellRange ++;
+			double dot = 0;
+			for (int i = k; i < rows; i++) {
+				dot += matrix[i][k] * vector[i];
+			}
+			double factor = 2 * dot / vNormSquared;
+			for (int i = k; i < rows; i++) {
+				vector[i] -= factor * matrix[i][k];
+			}
+
+			diagonal[k] = alpha;
+
+		}
+
+		/* back substitution with the upper triangular matrix R */
 
-		} while (result.size() < numberSites
-				|| cellRange * CELL_SIZE < result.peek().pos.distanceToXZ(pos));
+		for (int k = columns - 1; k >= 0; k--) {
 
-		//TODO error handling (not enough sites)
+			double value = vector[k];
+
+			for (int j = k + 1; j < columns; j++) {
+				value -= matrix[k][j] * result[offset + j];
+			}
 
-		/* get the result as a list with ascending distance */
+			result[offset + k] = value / diagonal[k];
 
-		List<SiteWithPolynomial> resultList =
-				new ArrayList<SiteWithPolynomial>(result);
+		}
 
-		Collections.reverse(resultList);
+		return true;
 
-		return resultList;
+	}
 
+	private static final class Workspace {
+		final int[] nearestSites = new int[max(SITES_FOR_APPROX, SITES_FOR_INTERPOL)];
+		final double[] distancesSquared = new double[max(SITES_FOR_APPROX, SITES_FOR_INTERPOL)];
+		final double[][] matrix = new double[SITES_FOR_APPROX][DefaultPolynomial.NUM_COEFFS];
+		final double[] vector = new double[SITES_FOR_APPROX];
+		final double[] diagonal = new double[DefaultPolynomial.NUM_COEFFS];
 	}
 
 	public static interface Polynomial {
@@ -241,23 +307,37 @@ public class LeastSquaresInterpolator implements TerrainInterpolator {
 
 		@Override
 		public double evaluateAt(double x, double z) {
-			return coeffs[0]
-					+ coeffs[1] * x
-					+ coeffs[2] * z
-					+ coeffs[3] * x*x
-					+ coeffs[4] * x*z
-					+ coeffs[5] * z*z;
+			return evaluateAt(coeffs, 0, x, z);
+		}
+
+		/** evaluates a polynomial with coefficients stored in an array at the given offset */
+		static double evaluateAt(double[] coeffs, int offset, double x, double z) {
+			return coeffs[offset]
+					+ coeffs[offset + 1] * x
+					+ coeffs[offset + 2] * z
+					+ coeffs[offset + 3] * x*x
+					+ coeffs[offset + 4] * x*z
+					+ coeffs[offset + 5] * z*z;
 		}
 
 		public static void populateMatrix(RealMatrix matrix, int row,
 				double x, double z) {
 
-			matrix.setEntry(row, 0, 1);
-			matrix.setEntry(row, 1, x);
-			matrix.setEntry(row, 2, z);
-			matrix.setEntry(row, 3, x*x);
-			matrix.setEntry(row, 4, x*z);
-			matrix.setEntry(row, 5, z*z);
+			double[] values = new double[NUM_COEFFS];
+			populateRow(values, x, z);
+			matrix.setRow(row, values);
+
+		}
+
+		/** fills a row of a matrix for approximating a polynomial */
+		static void populateRow(double[] row, double x, double z) {
+
+			row[0] = 1;
+			row[1] = x;
+			row[2] = z;
+			row[3] = x*x;
+			row[4] = x*z;
+			row[5] = z*z;
 
 		}
 
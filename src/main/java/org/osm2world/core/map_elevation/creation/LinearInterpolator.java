@@ -26,9 +26,7 @@ public class LinearInterpolator implements TerrainInterpolator {
 
 		triangulation = new DelaunayTriangulation(boundingBox);
 
-		for (VectorXYZ site : sites) {
-			triangulation.insert(site);
-		}
+		triangulation.insertAll(sites);
 
 	}
 
@@ -7,6 +7,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.osm2world.core.map_data.creation.MapProjection;
 import org.osm2world.core.map_data.data.MapData;
@@ -15,18 +17,29 @@ import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
 
 /**
- * SRTM data for a part of the planet
+ * SRTM data for a part of the planet.
+ * Supports both 3-arcsecond and 1-arcsecond tiles.
  */
-public class SRTMData implements TerrainElevationData {
+public class SRTMData implements GriddedTerrainElevationData {
 
 	private final File tileDirectory;
 	private final MapProjection projection;
-	private final SRTMTile[][] tiles;
+	private final SRTMTileCache tileCache;
 
-	public SRTMData(File tileDirectory, MapProjection projection) {
+	/**
+	 * @param tileCache  the cache used for loading tiles
+	 */
+	public SRTMData(File tileDirectory, MapProjection projection, SRTMTileCache tileCache) {
 		this.tileDirectory = tileDirectory;
 		this.projection = projection;
-		this.tiles = new SRTMTile[360][180];
+		this.tileCache = tileCache;
+	}
+
+	/**
+	 * creates an instance which uses the {@link SRTMTileCache#getSharedCache()}
+	 */
+	public SRTMData(File tileDirectory, MapProjection projection) {
+		this(tileDirectory, projection, SRTMTileCache.getSharedCache());
 	}
 
 	@Override
@@ -43,10 +56,14 @@ public class SRTMData implements TerrainElevationData {
 		for (int lon = minLonInt; lon < maxLonInt; lon++) {
 			for (int lat = minLatInt; lat < maxLatInt; lat++) {
 
-				loadTileIfNecessary(lon, lat);
+				SRTMTile tile = tileCache.getTile(tileDirectory, lon, lat);
 
-				addTileSites(result, lon, lat,
-						minLon, minLat, maxLon, maxLat);
+				if (tile == null) {
+					System.err.println("warning: missing SRTM tile " + SRTMTileCache.getTileFileName(lon, lat));
+				} else {
+					addTileSites(result, tile, lon, lat,
+							minLon, minLat, maxLon, maxLat);
+				}
 
 			}
 		}
@@ -64,6 +81,88 @@ public class SRTMData implements TerrainElevationData {
 	 */
 	@Override
 	public Collection<VectorXYZ> getSites(MapData mapData) throws IOException {
+		double[] bounds = calculateBounds(mapData);
+		return getSites(bounds[0], bounds[1], bounds[2], bounds[3]);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The grid has the resolution of the finest tile in the area, coarser tiles are resampled.
+	 * Samples are located at the positions of the SRTM pixels, i.e. at whole multiples of the cell size.
+	 */
+	@Override
+	public ElevationGrid getGrid(double minLon, double minLat,
+			double maxLon, double maxLat) throws IOException {
+
+		/* load the tiles and determine the resolution */
+
+		Map<Long, SRTMTile> tiles = new HashMap<>();
+
+		int cellsPerDegree = SRTMTile.PIXELS_3_ARCSECONDS - 1;
+
+		for (int lon = (int)floor(minLon); lon < (int)ceil(maxLon); lon++) {
+			for (int lat = (int)floor(minLat); lat < (int)ceil(maxLat); lat++) {
+
+				SRTMTile tile = tileCache.getTile(tileDirectory, lon, lat);
+
+				if (tile == null) {
+					System.err.println("warning: missing SRTM tile " + SRTMTileCache.getTileFileName(lon, lat));
+				} else {
+					tiles.put(tileKey(lon, lat), tile);
+					cellsPerDegree = max(cellsPerDegree, tile.pixels - 1);
+				}
+
+			}
+		}
+
+		/* fill the grid */
+
+		int minColumn = (int)floor(minLon * cellsPerDegree);
+		int minRow = (int)floor(minLat * cellsPerDegree);
+		int columns = (int)ceil(maxLon * cellsPerDegree) - minColumn + 1;
+		int rows = (int)ceil(maxLat * cellsPerDegree) - minRow + 1;
+
+		float[] values = new float[columns * rows];
+
+		for (int row = 0; row < rows; row++) {
+
+			int globalRow = minRow + row;
+			int tileLat = floorDiv(globalRow, cellsPerDegree);
+			int y = globalRow - tileLat * cellsPerDegree;
+
+			for (int column = 0; column < columns; column++) {
+
+				int globalColumn = minColumn + column;
+				int tileLon = floorDiv(globalColumn, cellsPerDegree);
+				int x = globalColumn - tileLon * cellsPerDegree;
+
+				SRTMTile tile = tiles.get(tileKey(tileLon, tileLat));
+
+				values[row * columns + column] = (tile == null) ? Float.NaN
+						: getTileValue(tile, x, y, cellsPerDegree);
+
+			}
+
+		}
+
+		return new ElevationGrid(minColumn / (double)cellsPerDegree, minRow / (double)cellsPerDegree,
+				1.0 / cellsPerDegree, columns, rows, values);
+
+	}
+
+	@Override
+	public ElevationGrid getGrid(MapData mapData) throws IOException {
+		double[] bounds = calculateBounds(mapData);
+		return getGrid(bounds[0], bounds[1], bounds[2], bounds[3]);
+	}
+
+	/**
+	 * calculates minimum and maximum lat/lon from the bounds of a {@link MapData} instance
+	 *
+	 * @return  array containing minLon, minLat, maxLon, maxLat
+	 */
+	private double[] calculateBounds(MapData mapData) {
 
 		double minLon = Double.POSITIVE_INFINITY;
 		double minLat = Double.POSITIVE_INFINITY;
@@ -96,72 +195,78 @@ public class SRTMData implements TerrainElevationData {
 		maxLon += 0.005; maxLat += 0.005;
 		*/
 
-		/* retrieve the sites for the query */
-
-		return getSites(minLon, minLat, maxLon, maxLat);
+		return new double[] {minLon, minLat, maxLon, maxLat};
 
 	}
 
-	private void loadTileIfNecessary(int lon, int lat) throws IOException {
+	/**
+	 * returns a tile's elevation at a grid position within the tile, NaN for missing data.
+	 * Uses bilinear interpolation if the grid is finer than the tile.
+	 *
+	 * @param x  column of the grid position, counted from the tile's west edge
+	 * @param y  row of the grid position, counted from the tile's south edge
+	 * @param cellsPerDegree  grid resolution
+	 */
+	private static float getTileValue(SRTMTile tile, int x, int y, int cellsPerDegree) {
 
-		if (getTile(lon, lat) == null) {
+		double px = x * (tile.pixels - 1) / (double)cellsPerDegree;
+		double py = y * (tile.pixels - 1) / (double)cellsPerDegree;
 
-			String fileName = tileDirectory.getPath() + File.separator;
+		int ix = min((int)px, tile.pixels - 2);
+		int iy = min((int)py, tile.pixels - 2);
 
-			if (lat >= 0) {
-				fileName += String.format("N%02d", lat);
-			} else {
-				fileName += String.format("S%02d", -lat);
-			}
+		double tx = px - ix;
+		double ty = py - iy;
 
-			if (lon >= 0) {
-				fileName += String.format("E%03d", lon);
-			} else {
-				fileName += String.format("W%03d", -lon);
-			}
+		if (tx == 0 && ty == 0) {
+			short value = tile.getData(ix, iy);
+			return value == SRTMTile.BLANK_VALUE ? Float.NaN : value;
+		}
 
-			fileName += ".hgt";
+		short v00 = tile.getData(ix, iy);
+		short v10 = tile.getData(ix + 1, iy);
+		short v01 = tile.getData(ix, iy + 1);
+		short v11 = tile.getData(ix + 1, iy + 1);
 
-			File file = new File(fileName);
+		if (v00 == SRTMTile.BLANK_VALUE || v10 == SRTMTile.BLANK_VALUE
+				|| v01 == SRTMTile.BLANK_VALUE || v11 == SRTMTile.BLANK_VALUE) {
+			return Float.NaN;
+		}
 
-			if (file.exists()) {
-				setTile(lon, lat, new SRTMTile(file));
-			} else {
-				System.err.println("warning: missing SRTM tile " + file.getName());
-			}
+		return (float)((1 - ty) * ((1 - tx) * v00 + tx * v10) + ty * ((1 - tx) * v01 + tx * v11));
 
-		}
+	}
 
+	private static long tileKey(int lon, int lat) {
+		return ((long)lon << 32) | (lat & 0xFFFFFFFFL);
 	}
 
-	private void addTileSites(Collection<VectorXYZ> result,
+	private void addTileSites(Collection<VectorXYZ> result, SRTMTile tile,
 			int tileLon, int tileLat,
 			double minLon, double minLat, double maxLon, double maxLat) {
 
-		SRTMTile tile = getTile(tileLon, tileLat);
-
-		if (tile == null) return;
+		int pixels = tile.pixels;
 
 		/* add a site for each SRTM pixel (except last line and column,
 		 * which is duplicated in adjacent tiles) */
 
 		int minX = max(0,
-				(int)ceil(SRTMTile.PIXELS * (minLon - tileLon)));
-		int maxX = min(SRTMTile.PIXELS - 1,
-				(int)floor(SRTMTile.PIXELS * (maxLon - tileLon)));
+				(int)ceil(pixels * (minLon - tileLon)));
+		int maxX = min(pixels - 1,
+				(int)floor(pixels * (maxLon - tileLon)));
 
 		int minY = max(0,
-				(int)ceil(SRTMTile.PIXELS * (minLat - tileLat)));
-		int maxY = min(SRTMTile.PIXELS - 1,
-				(int)floor(SRTMTile.PIXELS * (maxLat - tileLat)));
+				(int)ceil(pixels * (minLat - tileLat)));
+		int maxY = min(pixels - 1,
+				(int)floor(pixels * (maxLat - tileLat)));
 
 		for (int x = minX; x < maxX; x++) {
 			for (int y = minY; y < maxY; y++) {
 
 				short value = tile.getData(x, y);
 
-				double lat = tileLat + 1.0 / SRTMTile.PIXELS * (y + 0.5);
-				double lon = tileLon + 1.0 / SRTMTile.PIXELS * (x + 0.5);
+				double lat = tileLat + 1.0 / pixels * (y + 0.5);
+				double lon = tileLon + 1.0 / pixels * (x + 0.5);
 
 				VectorXZ pos = projection.toXZ(lat, lon);
 
@@ -175,12 +280,4 @@ public class SRTMData implements TerrainElevationData {
 
 	}
 
-	private SRTMTile getTile(int tileLon, int tileLat) {
-		return tiles[tileLon+180][tileLat+90];
-	}
-
-	private void setTile(int tileLon, int tileLat, SRTMTile tile) {
-		tiles[tileLon+180][tileLat+90] = tile;
-	}
-
 }
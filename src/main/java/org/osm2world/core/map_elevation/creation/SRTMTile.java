@@ -1,61 +1,71 @@
 package org.osm2world.core.map_elevation.creation;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.Buffer;
-import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.ShortBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
 
 /**
  * a single SRTM data tile.
  *
  * Multiple such tiles are used by {@link SRTMData} to build coverage
  * for larger regions.
+ *
+ * The file is memory-mapped read-only rather than copied to the heap,
+ * and instances can be used by multiple threads at the same time.
  */
 class SRTMTile {
 
 	/** value indicating a lack of data */
 	public static final short BLANK_VALUE = -32768;
 
-	/** length of each dimension of an SRTM tile in pixels */
-	static final int PIXELS = 1201;
+	/** length of each dimension of a 3-arcsecond SRTM tile in pixels */
+	static final int PIXELS_3_ARCSECONDS = 1201;
+
+	/** length of each dimension of a 1-arcsecond SRTM tile in pixels */
+	static final int PIXELS_1_ARCSECOND = 3601;
 
 	public final File file;
+
+	/** length of each dimension of this tile in pixels */
+	public final int pixels;
+
 	private final ShortBuffer data;
 
 	public SRTMTile(File file) throws IOException {
 
 		this.file = file;
 
-		data = loadDataFromFile(file);
-
-	}
-
-	private static ShortBuffer loadDataFromFile(File file) throws IOException {
-
-		try (
-			FileInputStream fis = new FileInputStream(file);
-			FileChannel fc = fis.getChannel();
-		) {
+		try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
 
-			ByteBuffer bb = ByteBuffer.allocateDirect((int) fc.size());
-			while (bb.remaining() > 0) fc.read(bb);
+			long size = fc.size();
 
-			((Buffer)bb).flip();
+			if (size == 2L * PIXELS_3_ARCSECONDS * PIXELS_3_ARCSECONDS) {
+				pixels = PIXELS_3_ARCSECONDS;
+			} else if (size == 2L * PIXELS_1_ARCSECOND * PIXELS_1_ARCSECOND) {
+				pixels = PIXELS_1_ARCSECOND;
+			} else {
+				throw new IOException("unsupported size of SRTM tile " + file + ": " + size + " bytes");
+			}
 
-			// choose the right endianness
-			return bb.order(ByteOrder.BIG_ENDIAN).asShortBuffer();
+			// the mapping remains valid after the channel has been closed
+			data = fc.map(MapMode.READ_ONLY, 0, size).order(ByteOrder.BIG_ENDIAN).asShortBuffer();
 
 		}
 
 	}
 
+	/** returns the size of the tile's data in bytes */
+	public long getByteSize() {
+		return 2L * pixels * pixels;
+	}
+
 	public final short getData(int x, int y) {
-		assert 0 <= x && x < PIXELS && 0 <= y && y < PIXELS;
-		return data.get((1200 - y) * 1201 + x);
+		assert 0 <= x && x < pixels && 0 <= y && y < pixels;
+		return data.get((pixels - 1 - y) * pixels + x);
 	}
 
 	@Override
@@ -0,0 +1,142 @@
+package org.osm2world.core.map_elevation.creation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * keeps recently used {@link SRTMTile}s so they can be reused by later conversions.
+ * When the total size of the cached tiles exceeds the budget, the least recently used tiles are evicted.
+ * Evicted tiles remain usable by anyone still holding a reference to them.
+ *
+ * All methods can be called from multiple threads at once.
+ */
+public class SRTMTileCache {
+
+	/** default budget of the shared cache: 1 GiB, roughly 40 1-arcsecond tiles or 370 3-arcsecond tiles */
+	public static final long DEFAULT_MAX_BYTES = 1L << 30;
+
+	private static final SRTMTileCache sharedCache = new SRTMTileCache(DEFAULT_MAX_BYTES);
+
+	/** the cached tiles in order of their last use, least recently used first */
+	private final LinkedHashMap<File, SRTMTile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long maxBytes;
+	private long currentBytes = 0;
+
+	/** whether {@link #requestMaxBytes(long)} has been called */
+	private boolean maxBytesRequested = false;
+
+	/**
+	 * @param maxBytes  budget for the total size of the tiles' data
+	 */
+	public SRTMTileCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/** returns the cache which is used by default, shared by all conversions in this process */
+	public static SRTMTileCache getSharedCache() {
+		return sharedCache;
+	}
+
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/** changes the budget, evicting tiles if necessary */
+	public synchronized void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		evictIfNecessary();
+	}
+
+	/**
+	 * requests a budget on behalf of a conversion.
+	 * Because conversions running at the same time share the cache, the largest budget requested so far is used.
+	 * The initial budget only applies until the first request.
+	 */
+	public synchronized void requestMaxBytes(long maxBytes) {
+		if (!maxBytesRequested || maxBytes > this.maxBytes) {
+			maxBytesRequested = true;
+			setMaxBytes(maxBytes);
+		}
+	}
+
+	/** returns the total size of the tiles currently in the cache */
+	public synchronized long getCurrentBytes() {
+		return currentBytes;
+	}
+
+	/**
+	 * returns the tile covering a 1°x1° cell, loading it if necessary.
+	 *
+	 * @param tileDirectory  directory containing .hgt files named like "N50E008.hgt"
+	 * @param lon  longitude of the cell's south-west corner
+	 * @param lat  latitude of the cell's south-west corner
+	 * @return  the tile; null if there is no file for the cell
+	 */
+	@Nullable SRTMTile getTile(File tileDirectory, int lon, int lat) throws IOException {
+
+		File file = new File(tileDirectory, getTileFileName(lon, lat)).getAbsoluteFile();
+
+		synchronized (this) {
+
+			SRTMTile tile = tiles.get(file);
+
+			if (tile == null && file.exists()) {
+				tile = new SRTMTile(file);
+				tiles.put(file, tile);
+				currentBytes += tile.getByteSize();
+				evictIfNecessary();
+			}
+
+			return tile;
+
+		}
+
+	}
+
+	/** removes all tiles from the cache */
+	public synchronized void clear() {
+		tiles.clear();
+		currentBytes = 0;
+	}
+
+	private void evictIfNecessary() {
+
+		Iterator<Map.Entry<File, SRTMTile>> iterator = tiles.entrySet().iterator();
+
+		// the most recently used tile is kept even if it exceeds the budget on its own
+		while (currentBytes > maxBytes && tiles.size() > 1) {
+			SRTMTile evictedTile = iterator.next().getValue();
+			iterator.remove();
+			currentBytes -= evictedTile.getByteSize();
+		}
+
+	}
+
+	/** returns the file name of the tile covering a 1°x1° cell, such as "N50E008.hgt" */
+	static String getTileFileName(int lon, int lat) {
+
+		String fileName = "";
+
+		if (lat >= 0) {
+			fileName += String.format("N%02d", lat);
+		} else {
+			fileName += String.format("S%02d", -lat);
+		}
+
+		if (lon >= 0) {
+			fileName += String.format("E%03d", lon);
+		} else {
+			fileName += String.format("W%03d", -lon);
+		}
+
+		return fileName + ".hgt";
+
+	}
+
+}
@@ -14,4 +14,29 @@ public interface TerrainInterpolator {
 
 	VectorXYZ interpolateEle(VectorXZ pos);
 
+	/**
+	 * interpolates the elevations of many positions at once.
+	 * Implementations can override this if they are able to process batches more efficiently,
+	 * e.g. by processing the positions in parallel if their interpolation is thread-safe.
+	 *
+	 * @param xs  the positions' x coordinates
+	 * @param zs  the positions' z coordinates, same length as xs
+	 * @return  the elevation for each position
+	 */
+	default double[] interpolateEle(double[] xs, double[] zs) {
+
+		if (xs.length != zs.length) {
+			throw new IllegalArgumentException("different number of x and z coordinates");
+		}
+
+		double[] result = new double[xs.length];
+
+		for (int i = 0; i < xs.length; i++) {
+			result[i] = interpolateEle(new VectorXZ(xs[i], zs[i])).y;
+		}
+
+		return result;
+
+	}
+
 }
@@ -20,4 +20,9 @@ public class ZeroInterpolator implements TerrainInterpolator {
 		return pos.xyz(0);
 	}
 
+	@Override
+	public double[] interpolateEle(double[] xs, double[] zs) {
+		return new double[xs.length];
+	}
+
 }
@@ -0,0 +1,224 @@
+package org.osm2world.core.math.algorithms;
+
+import static java.lang.Math.pow;
+
+import java.util.Arrays;
+
+/**
+ * reorders indexed triangle meshes so that GPUs can render them more efficiently.
+ * Works with the index lists of triangle meshes, where each group of 3 indices forms a triangle.
+ */
+public final class VertexCacheOptimizationUtil {
+
+	/** the size of the simulated vertex cache */
+	private static final int CACHE_SIZE = 32;
+
+	private static final double CACHE_DECAY_POWER = 1.5;
+	private static final double LAST_TRIANGLE_SCORE = 0.75;
+	private static final double VALENCE_BOOST_SCALE = 2.0;
+	private static final double VALENCE_BOOST_POWER = 0.5;
+
+	/** prevents instantiation */
+	private VertexCacheOptimizationUtil() {}
+
+	/**
+	 * reorders triangles to improve the hit rate of the post-transform vertex cache.
+	 * Uses Tom Forsyth's "Linear-Speed Vertex Cache Optimisation" algorithm,
+	 * which greedily picks the next triangle based on the scores of its vertices.
+	 * The result contains the same triangles (with the same winding) in a different order.
+	 *
+	 * @param indices  triangle indices, length must be a multiple of 3
+	 * @param vertexCount  number of vertices, all indices must be smaller than this
+	 */
+	public static int[] optimizeTriangleOrder(int[] indices, int vertexCount) {
+
+		if (indices.length % 3 != 0) {
+			throw new IllegalArgumentException("number of indices is not a multiple of 3: " + indices.length);
+		}
+
+		int triangleCount = indices.length / 3;
+
+		/* build lists of adjacent triangles for each vertex */
+
+		int[] adjacencyOffsets = new int[vertexCount + 1];
+		for (int index : indices) {
+			adjacencyOffsets[index + 1]++;
+		}
+		for (int v = 0; v < vertexCount; v++) {
+			adjacencyOffsets[v + 1] += adjacencyOffsets[v];
+		}
+
+		int[] remainingValence = new int[vertexCount];
+		int[] adjacentTriangles = new int[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			int v = indices[i];
+			adjacentTriangles[adjacencyOffsets[v] + remainingValence[v]++] = i / 3;
+		}
+
+		/* calculate initial scores */
+
+		int[] cachePosition = new int[vertexCount];
+		Arrays.fill(cachePosition, -1);
+
+		double[] vertexScore = new double[vertexCount];
+		for (int v = 0; v < vertexCount; v++) {
+			vertexScore[v] = vertexScore(-1, remainingValence[v]);
+		}
+
+		double[] triangleScore = new double[triangleCount];
+		for (int t = 0; t < triangleCount; t++) {
+			triangleScore[t] = vertexScore[indices[3 * t]] + vertexScore[indices[3 * t + 1]]
+					+ vertexScore[indices[3 * t + 2]];
+		}
+
+		/* emit triangles */
+
+		boolean[] emitted = new boolean[triangleCount];
+		int[] result = new int[indices.length];
+
+		int[] cache = new int[CACHE_SIZE + 3];
+		int cacheCount = 0;
+		int[] newCache = new int[CACHE_SIZE + 3];
+
+		int bestTriangle = triangleCount > 0 ? 0 : -1;
+		int nextUnemitted = 0;
+
+		for (int out = 0; out < triangleCount; out++) {
+
+			if (bestTriangle < 0) {
+				// no candidate next to the cached vertices, continue with the next unused triangle in input order
+				while (emitted[nextUnemitted]) nextUnemitted++;
+				bestTriangle = nextUnemitted;
+			}
+
+			emitted[bestTriangle] = true;
+			System.arraycopy(indices, 3 * bestTriangle, result, 3 * out, 3);
+
+			/* remove the triangle from the adjacency lists of its vertices */
+
+			for (int k = 0; k < 3; k++) {
+				int v = indices[3 * bestTriangle + k];
+				int start = adjacencyOffsets[v];
+				int end = start + remainingValence[v] - 1;
+				for (int i = start; i <= end; i++) {
+					if (adjacentTriangles[i] == bestTriangle) {
+						adjacentTriangles[i] = adjacentTriangles[end];
+						break;
+					}
+				}
+				remainingValence[v]--;
+			}
+
+			/* move the triangle's vertices to the front of the cache */
+
+			int newCacheCount = 0;
+			for (int k = 0; k < 3; k++) {
+				int v = indices[3 * bestTriangle + k];
+				if (newCacheCount == 0 || newCache[0] != v && (newCacheCount < 2 || newCache[1] != v)) {
+					newCache[newCacheCount++] = v;
+				}
+			}
+			for (int i = 0; i < cacheCount; i++) {
+				int v = cache[i];
+				if (v != newCache[0] && (newCacheCount < 2 || v != newCache[1])
+						&& (newCacheCount < 3 || v != newCache[2])) {
+					newCache[newCacheCount++] = v;
+				}
+			}
+
+			int[] tmp = cache;
+			cache = newCache;
+			newCache = tmp;
+			cacheCount = newCacheCount;
+
+			/* update the scores of all vertices that have been in the cache, and of their triangles */
+
+			for (int i = 0; i < cacheCount; i++) {
+				int v = cache[i];
+				cachePosition[v] = i < CACHE_SIZE ? i : -1;
+				vertexScore[v] = vertexScore(cachePosition[v], remainingValence[v]);
+			}
+
+			bestTriangle = -1;
+			double bestScore = Double.NEGATIVE_INFINITY;
+
+			for (int i = 0; i < cacheCount; i++) {
+				int v = cache[i];
+				for (int a = adjacencyOffsets[v]; a < adjacencyOffsets[v] + remainingValence[v]; a++) {
+					int t = adjacentTriangles[a];
+					triangleScore[t] = vertexScore[indices[3 * t]] + vertexScore[indices[3 * t + 1]]
+							+ vertexScore[indices[3 * t + 2]];
+					if (triangleScore[t] > bestScore) {
+						bestScore = triangleScore[t];
+						bestTriangle = t;
+					}
+				}
+			}
+
+			cacheCount = Math.min(cacheCount, CACHE_SIZE);
+
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * calculates a new order for vertices so that they are stored in the order in which they are first used.
+	 * This improves memory access patterns when the GPU fetches vertex data.
+	 * Vertices which are not used by any triangle are placed at the end.
+	 *
+	 * @return  the new index for each vertex, i.e. an array with length vertexCount
+	 */
+	public static int[] optimizeVertexOrder(int[] indices, int vertexCount) {
+
+		int[] newIndex = new int[vertexCount];
+		Arrays.fill(newIndex, -1);
+
+		int nextIndex = 0;
+
+		for (int index : indices) {
+			if (newIndex[index] < 0) {
+				newIndex[index] = nextIndex++;
+			}
+		}
+
+		for (int v = 0; v < vertexCount; v++) {
+			if (newIndex[v] < 0) {
+				newIndex[v] = nextIndex++;
+			}
+		}
+
+		return newIndex;
+
+	}
+
+	/**
+	 * calculates the score of a vertex.
+	 * Vertices are preferred if they are in the cache or have few remaining triangles.
+	 */
+	private static double vertexScore(int cachePosition, int remainingValence) {
+
+		if (remainingValence == 0) {
+			return -1;
+		}
+
+		double score = 0;
+
+		if (cachePosition >= 0) {
+			if (cachePosition < 3) {
+				// the vertices of the last triangle get a fixed score to avoid favoring the same triangle strip
+				score = LAST_TRIANGLE_SCORE;
+			} else {
+				double scaler = 1.0 / (CACHE_SIZE - 3);
+				score = pow(1.0 - (cachePosition - 3) * scaler, CACHE_DECAY_POWER);
+			}
+		}
+
+		score += VALENCE_BOOST_SCALE * pow(remainingValence, -VALENCE_BOOST_POWER);
+
+		return score;
+
+	}
+
+}
@@ -0,0 +1,236 @@
+package org.osm2world.core.math.datastructures;
+
+/**
+ * a 2D tree (two-dimensional k-d tree) of points in the XZ plane,
+ * used to find the nearest neighbors of a position.
+ *
+ * Unlike {@link Map2dTree}, the tree is stored in primitive arrays and does not create any objects
+ * for its nodes or points. It cannot be modified after it has been built,
+ * and queries can be performed by multiple threads at the same time.
+ *
+ * Points are identified by their index in the arrays passed to the constructor.
+ */
+public final class PointKDTree {
+
+	/** ranges with at most this many points are searched without further subdivision */
+	private static final int LEAF_SIZE = 8;
+
+	/* the points' coordinates and original indices, rearranged to form the tree.
+	 * The point in the middle of each range splits the rest of the range into two halves,
+	 * along the x axis at even depths and along the z axis at odd depths. */
+
+	private final double[] xs;
+	private final double[] zs;
+	private final int[] indices;
+
+	/**
+	 * builds a tree from point coordinates. The arrays are copied.
+	 *
+	 * @param xs  the points' x coordinates
+	 * @param zs  the points' z coordinates, same length as xs
+	 */
+	public PointKDTree(double[] xs, double[] zs) {
+
+		if (xs.length != zs.length) {
+			throw new IllegalArgumentException("different number of x and z coordinates");
+		}
+
+		this.xs = xs.clone();
+		this.zs = zs.clone();
+
+		indices = new int[xs.length];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = i;
+		}
+
+		build(0, xs.length, 0);
+
+	}
+
+	/** returns the number of points in this tree */
+	public int size() {
+		return indices.length;
+	}
+
+	/**
+	 * finds the points closest to a position.
+	 *
+	 * @param k  the maximum number of points to find
+	 * @param resultIndices  receives the indices of the closest points in order of ascending distance.
+	 *                       Needs a length of at least k.
+	 * @param resultDistancesSquared  receives the squared distances of the closest points
+	 *                                (in the same order), needs a length of at least k
+	 * @return  the number of points found, which is k unless the tree contains fewer than k points
+	 */
+	public int findNearest(double x, double z, int k, int[] resultIndices, double[] resultDistancesSquared) {
+
+		if (resultIndices.length < k || resultDistancesSquared.length < k) {
+			throw new IllegalArgumentException("result arrays are too short for " + k + " points");
+		}
+
+		if (k <= 0) return 0;
+
+		return search(0, indices.length, 0, x, z, k, resultIndices, resultDistancesSquared, 0);
+
+	}
+
+	/**
+	 * searches a range of the tree, adding closer points to the (sorted) result arrays
+	 *
+	 * @return  the new number of points in the result arrays
+	 */
+	private int search(int start, int end, int depth, double x, double z, int k,
+			int[] resultIndices, double[] resultDistancesSquared, int resultCount) {
+
+		if (end - start <= LEAF_SIZE) {
+
+			for (int i = start; i < end; i++) {
+				resultCount = offer(i, x, z, k, resultIndices, resultDistancesSquared, resultCount);
+			}
+
+			return resultCount;
+
+		}
+
+		int mid = (start + end) >>> 1;
+
+		resultCount = offer(mid, x, z, k, resultIndices, resultDistancesSquared, resultCount);
+
+		double difference = (depth % 2 == 0) ? x - xs[mid] : z - zs[mid];
+
+		/* search the half containing the position first */
+
+		if (difference < 0) {
+			resultCount = search(start, mid, depth + 1, x, z, k,
+					resultIndices, resultDistancesSquared, resultCount);
+		} else {
+			resultCount = search(mid + 1, end, depth + 1, x, z, k,
+					resultIndices, resultDistancesSquared, resultCount);
+		}
+
+		/* the other half only needs to be searched if it could contain closer points */
+
+		if (resultCount < k || difference * difference < resultDistancesSquared[resultCount - 1]) {
+			if (difference < 0) {
+				resultCount = search(mid + 1, end, depth + 1, x, z, k,
+						resultIndices, resultDistancesSquared, resultCount);
+			} else {
+				resultCount = search(start, mid, depth + 1, x, z, k,
+						resultIndices, resultDistancesSquared, resultCount);
+			}
+		}
+
+		return resultCount;
+
+	}
+
+	/**
+	 * inserts a point into the sorted result arrays if it is among the k closest so far
+	 *
+	 * @return  the new number of points in the result arrays
+	 */
+	private int offer(int i, double x, double z, int k,
+			int[] resultIndices, double[] resultDistancesSquared, int resultCount) {
+
+		double dx = xs[i] - x;
+		double dz = zs[i] - z;
+		double distanceSquared = dx * dx + dz * dz;
+
+		if (resultCount == k) {
+			if (distanceSquared >= resultDistancesSquared[k - 1]) {
+				return resultCount;
+			}
+			resultCount--;
+		}
+
+		int pos = resultCount;
+
+		while (pos > 0 && resultDistancesSquared[pos - 1] > distanceSquared) {
+			resultDistancesSquared[pos] = resultDistancesSquared[pos - 1];
+			resultIndices[pos] = resultIndices[pos - 1];
+			pos--;
+		}
+
+		resultDistancesSquared[pos] = distanceSquared;
+		resultIndices[pos] = indices[i];
+
+		return resultCount + 1;
+
+	}
+
+	/** arranges a range of points so that it forms a subtree */
+	private void build(int start, int end, int depth) {
+
+		if (end - start <= LEAF_SIZE) return;
+
+		int mid = (start + end) >>> 1;
+
+		select(start, end, mid, depth % 2 == 0 ? xs : zs);
+
+		build(start, mid, depth + 1);
+		build(mid + 1, end, depth + 1);
+
+	}
+
+	/**
+	 * rearranges a range of points so that the point at index n is the one which would be there
+	 * if the range were sorted by the given coordinate, with smaller values before and larger values after it
+	 */
+	private void select(int start, int end, int n, double[] coords) {
+
+		int left = start;
+		int right = end - 1;
+
+		while (right > left) {
+
+			/* partition around the median of three values */
+
+			int middle = (left + right) >>> 1;
+			if (coords[middle] < coords[left]) swap(middle, left);
+			if (coords[right] < coords[left]) swap(right, left);
+			if (coords[right] < coords[middle]) swap(right, middle);
+
+			double pivot = coords[middle];
+
+			int i = left;
+			int j = right;
+
+			while (i <= j) {
+				while (coords[i] < pivot) i++;
+				while (coords[j] > pivot) j--;
+				if (i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+
+			if (n <= j) {
+				right = j;
+			} else if (n >= i) {
+				left = i;
+			} else {
+				break;
+			}
+
+		}
+
+	}
+
+	private void swap(int i, int j) {
+
+		double tempX = xs[i];
+		xs[i] = xs[j];
+		xs[j] = tempX;
+
+		double tempZ = zs[i];
+		zs[i] = zs[j];
+		zs[j] = tempZ;
+
+		int tempIndex = indices[i];
+		indices[i] = indices[j];
+		indices[j] = tempIndex;
+
+	}
+
+}
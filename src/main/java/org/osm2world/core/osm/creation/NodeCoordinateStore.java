@@ -0,0 +1,142 @@
+package org.osm2world.core.osm.creation;
+
+import static java.lang.Math.max;
+
+import java.util.Arrays;
+
+/**
+ * compact storage of node coordinates, indexed by node id.
+ * Uses primitive arrays instead of an object per node,
+ * i.e. 16 bytes per node (id, latitude and longitude with a precision of 1e-7 degrees).
+ *
+ * Nodes are first added using {@link #put(long, double, double)}.
+ * Lookups are possible after calling {@link #finish()}.
+ * Nodes in .osm.pbf files are usually sorted by id, so there is no sorting effort in that case.
+ */
+final class NodeCoordinateStore {
+
+	private static final double SCALE = 1e7;
+
+	private long[] ids;
+	private int[] lats;
+	private int[] lons;
+
+	private int size = 0;
+
+	private boolean sorted = true;
+	private boolean finished = false;
+
+	public NodeCoordinateStore() {
+		this(1024);
+	}
+
+	public NodeCoordinateStore(int expectedSize) {
+		int capacity = max(16, expectedSize);
+		ids = new long[capacity];
+		lats = new int[capacity];
+		lons = new int[capacity];
+	}
+
+	public void put(long id, double lat, double lon) {
+
+		if (finished) {
+			throw new IllegalStateException("cannot add nodes after finish() has been called");
+		}
+
+		if (size == ids.length) {
+			int capacity = ids.length + (ids.length >> 1);
+			ids = Arrays.copyOf(ids, capacity);
+			lats = Arrays.copyOf(lats, capacity);
+			lons = Arrays.copyOf(lons, capacity);
+		}
+
+		if (size > 0 && id <= ids[size - 1]) {
+			sorted = false;
+		}
+
+		ids[size] = id;
+		lats[size] = (int) Math.round(lat * SCALE);
+		lons[size] = (int) Math.round(lon * SCALE);
+
+		size++;
+
+	}
+
+	/**
+	 * finishes adding nodes. Sorts the nodes if necessary and releases unused capacity.
+	 * If a node has been added more than once, the last coordinates are kept.
+	 */
+	public void finish() {
+
+		if (finished) return;
+
+		if (!sorted) {
+
+			/* sort an index array by id, keeping the original order for identical ids */
+
+			Integer[] order = new Integer[size];
+			for (int i = 0; i < size; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (i1, i2) -> Long.compare(ids[i1], ids[i2]));
+
+			long[] sortedIds = new long[size];
+			int[] sortedLats = new int[size];
+			int[] sortedLons = new int[size];
+
+			int newSize = 0;
+
+			for (int i = 0; i < size; i++) {
+				int index = order[i];
+				if (newSize > 0 && sortedIds[newSize - 1] == ids[index]) {
+					newSize--; // a later duplicate replaces the previous one
+				}
+				sortedIds[newSize] = ids[index];
+				sortedLats[newSize] = lats[index];
+				sortedLons[newSize] = lons[index];
+				newSize++;
+			}
+
+			ids = sortedIds;
+			lats = sortedLats;
+			lons = sortedLons;
+			size = newSize;
+
+		}
+
+		if (size < ids.length) {
+			ids = Arrays.copyOf(ids, size);
+			lats = Arrays.copyOf(lats, size);
+			lons = Arrays.copyOf(lons, size);
+		}
+
+		finished = true;
+
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/** returns the index of a node for use with {@link #getLat(int)} and {@link #getLon(int)}, -1 if not present */
+	public int indexOf(long id) {
+		if (!finished) {
+			throw new IllegalStateException("finish() must be called before looking up nodes");
+		}
+		int index = Arrays.binarySearch(ids, 0, size, id);
+		return index >= 0 ? index : -1;
+	}
+
+	public boolean contains(long id) {
+		return indexOf(id) >= 0;
+	}
+
+	public double getLat(int index) {
+		return lats[index] / SCALE;
+	}
+
+	public double getLon(int index) {
+		return lons[index] / SCALE;
+	}
+
+}
@@ -0,0 +1,163 @@
+package org.osm2world.core.osm.creation;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.osm2world.core.osm.data.OSMChange;
+
+import com.slimjars.dist.gnu.trove.list.array.TLongArrayList;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmEntity;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Relation;
+import de.topobyte.osm4j.core.model.impl.RelationMember;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
+
+/**
+ * reads an osmChange file (.osc), as used for minutely, hourly and daily OSM diffs.
+ * Files ending with .gz are decompressed.
+ */
+public class OSMChangeReader {
+
+	private final File file;
+
+	public OSMChangeReader(File file) {
+		this.file = file;
+	}
+
+	public OSMChange getChange() throws IOException {
+
+		try (InputStream fileStream = new BufferedInputStream(new FileInputStream(file))) {
+			InputStream in = file.getName().endsWith(".gz") ? new GZIPInputStream(fileStream) : fileStream;
+			return readChange(in);
+		}
+
+	}
+
+	/** reads an osmChange document from a stream, without closing the stream */
+	public static OSMChange readChange(InputStream in) throws IOException {
+
+		try {
+
+			XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+
+			OSMChange change = new OSMChange();
+
+			boolean deleting = false;
+
+			while (reader.hasNext()) {
+
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+
+				switch (reader.getLocalName()) {
+
+				case "create":
+				case "modify":
+					deleting = false;
+					break;
+
+				case "delete":
+					deleting = true;
+					break;
+
+				case "node":
+				case "way":
+				case "relation":
+					OsmEntity entity = readEntity(reader);
+					if (deleting) {
+						change.delete(entity.getType(), entity.getId());
+					} else {
+						change.put(entity);
+					}
+					break;
+
+				}
+
+			}
+
+			reader.close();
+
+			return change;
+
+		} catch (XMLStreamException | IllegalArgumentException e) {
+			throw new IOException("could not read osmChange data", e);
+		}
+
+	}
+
+	/**
+	 * reads a node, way or relation element, including its child elements.
+	 * Coordinates are optional because they are usually omitted for deleted nodes.
+	 */
+	private static OsmEntity readEntity(XMLStreamReader reader) throws XMLStreamException {
+
+		String elementName = reader.getLocalName();
+
+		long id = Long.parseLong(reader.getAttributeValue(null, "id"));
+		String lat = reader.getAttributeValue(null, "lat");
+		String lon = reader.getAttributeValue(null, "lon");
+
+		List<Tag> tags = new ArrayList<>();
+		TLongArrayList nodeIds = new TLongArrayList();
+		List<RelationMember> members = new ArrayList<>();
+
+		while (reader.hasNext()) {
+
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals(elementName)) {
+				break;
+			} else if (event == XMLStreamConstants.START_ELEMENT) {
+				switch (reader.getLocalName()) {
+				case "tag":
+					tags.add(new Tag(reader.getAttributeValue(null, "k"), reader.getAttributeValue(null, "v")));
+					break;
+				case "nd":
+					nodeIds.add(Long.parseLong(reader.getAttributeValue(null, "ref")));
+					break;
+				case "member":
+					members.add(new RelationMember(Long.parseLong(reader.getAttributeValue(null, "ref")),
+							entityType(reader.getAttributeValue(null, "type")),
+							reader.getAttributeValue(null, "role")));
+					break;
+				}
+			}
+
+		}
+
+		switch (elementName) {
+		case "node":
+			return new Node(id,
+					lon == null ? 0 : Double.parseDouble(lon),
+					lat == null ? 0 : Double.parseDouble(lat), tags);
+		case "way":
+			return new Way(id, nodeIds, tags);
+		default:
+			return new Relation(id, members, tags);
+		}
+
+	}
+
+	private static EntityType entityType(String type) {
+		switch (type) {
+		case "node": return EntityType.Node;
+		case "way": return EntityType.Way;
+		case "relation": return EntityType.Relation;
+		default: throw new IllegalArgumentException("unknown member type " + type);
+		}
+	}
+
+}
@@ -0,0 +1,542 @@
+package org.osm2world.core.osm.creation;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nullable;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.impl.Bounds;
+import de.topobyte.osm4j.core.model.impl.RelationMember;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * decodes the blocks of an .osm.pbf file.
+ * Works directly on the protobuf wire format instead of creating message objects,
+ * and only decodes the types of entities which are actually needed.
+ *
+ * The methods of this class are thread-safe, so separate blocks can be decoded in parallel.
+ */
+final class PbfBlockDecoder {
+
+	/** the maximum size of a block according to the .osm.pbf specification */
+	private static final int MAX_BLOCK_SIZE = 32 * 1024 * 1024;
+
+	private static final int MAX_BLOB_HEADER_SIZE = 64 * 1024;
+
+	/** features of the format which this decoder supports */
+	private static final List<String> SUPPORTED_FEATURES = asList("OsmSchema-V0.6", "DenseNodes");
+
+	private PbfBlockDecoder() {}
+
+	/** receives the entities decoded from a block */
+	interface EntityHandler {
+		default void node(long id, double lat, double lon, List<Tag> tags) {}
+		default void way(long id, long[] nodeIds, List<Tag> tags) {}
+		default void relation(long id, List<RelationMember> members, List<Tag> tags) {}
+	}
+
+	/** a blob of a .osm.pbf file, still compressed */
+	static final class Blob {
+
+		/** the type of the blob, "OSMHeader" or "OSMData" */
+		final String type;
+
+		/** the encoded Blob message */
+		final byte[] data;
+
+		Blob(String type, byte[] data) {
+			this.type = type;
+			this.data = data;
+		}
+
+	}
+
+	/**
+	 * reads the next blob from a stream
+	 *
+	 * @return  the blob, null if the end of the stream has been reached
+	 */
+	static @Nullable Blob readBlob(DataInputStream in) throws IOException {
+
+		int headerSize;
+
+		try {
+			headerSize = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+
+		if (headerSize < 0 || headerSize > MAX_BLOB_HEADER_SIZE) {
+			throw new IOException("invalid blob header size: " + headerSize);
+		}
+
+		byte[] header = new byte[headerSize];
+		in.readFully(header);
+
+		String type = null;
+		int dataSize = -1;
+
+		CodedInputStream input = CodedInputStream.newInstance(header);
+
+		for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+			case 1: type = input.readString(); break;
+			case 3: dataSize = input.readInt32(); break;
+			default: input.skipField(tag);
+			}
+		}
+
+		if (type == null || dataSize < 0 || dataSize > MAX_BLOCK_SIZE) {
+			throw new IOException("invalid blob header");
+		}
+
+		byte[] data = new byte[dataSize];
+		in.readFully(data);
+
+		return new Blob(type, data);
+
+	}
+
+	/** returns the uncompressed content of a blob */
+	static byte[] uncompress(Blob blob) throws IOException {
+
+		ByteString raw = null;
+		ByteString zlibData = null;
+		int rawSize = -1;
+
+		CodedInputStream input = CodedInputStream.newInstance(blob.data);
+
+		for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+			case 1: raw = input.readBytes(); break;
+			case 2: rawSize = input.readInt32(); break;
+			case 3: zlibData = input.readBytes(); break;
+			case 4: case 5: case 6: case 7:
+				throw new IOException("unsupported compression method in .osm.pbf blob");
+			default: input.skipField(tag);
+			}
+		}
+
+		if (raw != null) {
+			return raw.toByteArray();
+		} else if (zlibData != null && rawSize >= 0 && rawSize <= MAX_BLOCK_SIZE) {
+
+			Inflater inflater = new Inflater();
+
+			try {
+				inflater.setInput(zlibData.toByteArray());
+				byte[] result = new byte[rawSize];
+				int length = inflater.inflate(result);
+				if (length != rawSize || !inflater.finished()) {
+					throw new IOException("unexpected size of uncompressed .osm.pbf blob");
+				}
+				return result;
+			} catch (DataFormatException e) {
+				throw new IOException(e);
+			} finally {
+				inflater.end();
+			}
+
+		} else {
+			throw new IOException("invalid .osm.pbf blob");
+		}
+
+	}
+
+	/**
+	 * decodes a HeaderBlock and checks that all required features are supported
+	 *
+	 * @return  the bounding box of the file's data, null if the file doesn't contain one
+	 */
+	static @Nullable Bounds decodeHeaderBlock(byte[] block) throws IOException {
+
+		Bounds bounds = null;
+
+		CodedInputStream input = CodedInputStream.newInstance(block);
+
+		for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+			case 1:
+				int oldLimit = input.pushLimit(input.readRawVarint32());
+				long left = 0, right = 0, top = 0, bottom = 0;
+				for (int bboxTag = input.readTag(); bboxTag != 0; bboxTag = input.readTag()) {
+					switch (WireFormat.getTagFieldNumber(bboxTag)) {
+					case 1: left = input.readSInt64(); break;
+					case 2: right = input.readSInt64(); break;
+					case 3: top = input.readSInt64(); break;
+					case 4: bottom = input.readSInt64(); break;
+					default: input.skipField(bboxTag);
+					}
+				}
+				input.popLimit(oldLimit);
+				bounds = new Bounds(left * 1e-9, right * 1e-9, top * 1e-9, bottom * 1e-9);
+				break;
+			case 4:
+				String feature = input.readString();
+				if (!SUPPORTED_FEATURES.contains(feature)) {
+					throw new IOException("unsupported feature required by .osm.pbf file: " + feature);
+				}
+				break;
+			default:
+				input.skipField(tag);
+			}
+		}
+
+		return bounds;
+
+	}
+
+	/**
+	 * decodes a PrimitiveBlock and passes the entities to a handler
+	 *
+	 * @param decodeNodes      whether nodes should be decoded, otherwise they are skipped
+	 * @param decodeWays       whether ways should be decoded, otherwise they are skipped
+	 * @param decodeRelations  whether relations should be decoded, otherwise they are skipped
+	 * @param keepTag          decides which tags are passed to the handler based on key and value
+	 */
+	static void decodePrimitiveBlock(byte[] block, EntityHandler handler,
+			boolean decodeNodes, boolean decodeWays, boolean decodeRelations,
+			BiPredicate<String, String> keepTag) throws IOException {
+
+		/* the string table and coordinate parameters can appear after the groups, so they are read first */
+
+		List<ByteString> rawStrings = new ArrayList<>();
+		List<ByteString> groups = new ArrayList<>();
+		int granularity = 100;
+		long latOffset = 0;
+		long lonOffset = 0;
+
+		CodedInputStream input = CodedInputStream.newInstance(block);
+
+		for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+			case 1:
+				int oldLimit = input.pushLimit(input.readRawVarint32());
+				for (int stringTag = input.readTag(); stringTag != 0; stringTag = input.readTag()) {
+					if (WireFormat.getTagFieldNumber(stringTag) == 1) {
+						rawStrings.add(input.readBytes());
+					} else {
+						input.skipField(stringTag);
+					}
+				}
+				input.popLimit(oldLimit);
+				break;
+			case 2: groups.add(input.readBytes()); break;
+			case 17: granularity = input.readInt32(); break;
+			case 19: latOffset = input.readInt64(); break;
+			case 20: lonOffset = input.readInt64(); break;
+			default: input.skipField(tag);
+			}
+		}
+
+		Block b = new Block(rawStrings, granularity, latOffset, lonOffset, keepTag);
+
+		for (ByteString group : groups) {
+
+			CodedInputStream groupInput = group.newCodedInput();
+
+			for (int tag = groupInput.readTag(); tag != 0; tag = groupInput.readTag()) {
+				switch (WireFormat.getTagFieldNumber(tag)) {
+				case 1:
+					if (decodeNodes) {
+						b.decodeNode(groupInput.readBytes().newCodedInput(), handler);
+					} else {
+						groupInput.skipField(tag);
+					}
+					break;
+				case 2:
+					if (decodeNodes) {
+						b.decodeDenseNodes(groupInput.readBytes().newCodedInput(), handler);
+					} else {
+						groupInput.skipField(tag);
+					}
+					break;
+				case 3:
+					if (decodeWays) {
+						b.decodeWay(groupInput.readBytes().newCodedInput(), handler);
+					} else {
+						groupInput.skipField(tag);
+					}
+					break;
+				case 4:
+					if (decodeRelations) {
+						b.decodeRelation(groupInput.readBytes().newCodedInput(), handler);
+					} else {
+						groupInput.skipField(tag);
+					}
+					break;
+				default:
+					groupInput.skipField(tag);
+				}
+			}
+
+		}
+
+	}
+
+	/** the state of a PrimitiveBlock while it is being decoded */
+	private static final class Block {
+
+		private final List<ByteString> rawStrings;
+		private final String[] strings;
+
+		private final int granularity;
+		private final long latOffset;
+		private final long lonOffset;
+
+		private final BiPredicate<String, String> keepTag;
+
+		Block(List<ByteString> rawStrings, int granularity, long latOffset, long lonOffset,
+				BiPredicate<String, String> keepTag) {
+			this.rawStrings = rawStrings;
+			this.strings = new String[rawStrings.size()];
+			this.granularity = granularity;
+			this.latOffset = latOffset;
+			this.lonOffset = lonOffset;
+			this.keepTag = keepTag;
+		}
+
+		/** returns an entry of the string table. Strings are only decoded when they are needed. */
+		String getString(int index) throws IOException {
+			if (index < 0 || index >= strings.length) {
+				throw new IOException("invalid string table index in .osm.pbf block: " + index);
+			}
+			if (strings[index] == null) {
+				strings[index] = rawStrings.get(index).toStringUtf8();
+			}
+			return strings[index];
+		}
+
+		double lat(long value) {
+			return 1e-9 * (latOffset + (long) granularity * value);
+		}
+
+		double lon(long value) {
+			return 1e-9 * (lonOffset + (long) granularity * value);
+		}
+
+		List<Tag> tags(TIntArrayList keys, TIntArrayList values) throws IOException {
+
+			if (keys.size() != values.size()) {
+				throw new IOException("different number of keys and values in .osm.pbf block");
+			}
+
+			List<Tag> result = emptyList();
+
+			for (int i = 0; i < keys.size(); i++) {
+				String key = getString(keys.get(i));
+				String value = getString(values.get(i));
+				if (keepTag.test(key, value)) {
+					if (result.isEmpty()) {
+						result = new ArrayList<>(keys.size() - i);
+					}
+					result.add(new Tag(key, value));
+				}
+			}
+
+			return result;
+
+		}
+
+		void decodeNode(CodedInputStream input, EntityHandler handler) throws IOException {
+
+			long id = 0, lat = 0, lon = 0;
+			TIntArrayList keys = new TIntArrayList();
+			TIntArrayList values = new TIntArrayList();
+
+			for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+				switch (WireFormat.getTagFieldNumber(tag)) {
+				case 1: id = input.readSInt64(); break;
+				case 2: readUInt32s(input, tag, keys); break;
+				case 3: readUInt32s(input, tag, values); break;
+				case 8: lat = input.readSInt64(); break;
+				case 9: lon = input.readSInt64(); break;
+				default: input.skipField(tag);
+				}
+			}
+
+			handler.node(id, lat(lat), lon(lon), tags(keys, values));
+
+		}
+
+		void decodeDenseNodes(CodedInputStream input, EntityHandler handler) throws IOException {
+
+			TLongArrayList ids = new TLongArrayList();
+			TLongArrayList lats = new TLongArrayList();
+			TLongArrayList lons = new TLongArrayList();
+			TIntArrayList keysVals = new TIntArrayList();
+
+			for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+				switch (WireFormat.getTagFieldNumber(tag)) {
+				case 1: readSInt64s(input, tag, ids); break;
+				case 8: readSInt64s(input, tag, lats); break;
+				case 9: readSInt64s(input, tag, lons); break;
+				case 10: readUInt32s(input, tag, keysVals); break;
+				default: input.skipField(tag);
+				}
+			}
+
+			if (ids.size() != lats.size() || ids.size() != lons.size()) {
+				throw new IOException("inconsistent dense nodes in .osm.pbf block");
+			}
+
+			/* ids and coordinates are delta coded; keys and values are a list of pairs for each node, ended by 0 */
+
+			long id = 0, lat = 0, lon = 0;
+			int keysValsIndex = 0;
+
+			TIntArrayList keys = new TIntArrayList();
+			TIntArrayList values = new TIntArrayList();
+
+			for (int i = 0; i < ids.size(); i++) {
+
+				id += ids.get(i);
+				lat += lats.get(i);
+				lon += lons.get(i);
+
+				keys.resetQuick();
+				values.resetQuick();
+
+				if (!keysVals.isEmpty()) {
+					while (keysValsIndex < keysVals.size() && keysVals.get(keysValsIndex) != 0) {
+						if (keysValsIndex + 1 >= keysVals.size()) {
+							throw new IOException("incomplete tags of dense nodes in .osm.pbf block");
+						}
+						keys.add(keysVals.get(keysValsIndex));
+						values.add(keysVals.get(keysValsIndex + 1));
+						keysValsIndex += 2;
+					}
+					keysValsIndex++; // skip the 0
+				}
+
+				handler.node(id, lat(lat), lon(lon), keys.isEmpty() ? emptyList() : tags(keys, values));
+
+			}
+
+		}
+
+		void decodeWay(CodedInputStream input, EntityHandler handler) throws IOException {
+
+			long id = 0;
+			TIntArrayList keys = new TIntArrayList();
+			TIntArrayList values = new TIntArrayList();
+			TLongArrayList refs = new TLongArrayList();
+
+			for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+				switch (WireFormat.getTagFieldNumber(tag)) {
+				case 1: id = input.readInt64(); break;
+				case 2: readUInt32s(input, tag, keys); break;
+				case 3: readUInt32s(input, tag, values); break;
+				case 8: readSInt64s(input, tag, refs); break;
+				default: input.skipField(tag);
+				}
+			}
+
+			long[] nodeIds = refs.toArray();
+			for (int i = 1; i < nodeIds.length; i++) {
+				nodeIds[i] += nodeIds[i - 1];
+			}
+
+			handler.way(id, nodeIds, tags(keys, values));
+
+		}
+
+		void decodeRelation(CodedInputStream input, EntityHandler handler) throws IOException {
+
+			long id = 0;
+			TIntArrayList keys = new TIntArrayList();
+			TIntArrayList values = new TIntArrayList();
+			TIntArrayList roles = new TIntArrayList();
+			TLongArrayList memberIds = new TLongArrayList();
+			TIntArrayList types = new TIntArrayList();
+
+			for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+				switch (WireFormat.getTagFieldNumber(tag)) {
+				case 1: id = input.readInt64(); break;
+				case 2: readUInt32s(input, tag, keys); break;
+				case 3: readUInt32s(input, tag, values); break;
+				case 8: readUInt32s(input, tag, roles); break;
+				case 9: readSInt64s(input, tag, memberIds); break;
+				case 10: readUInt32s(input, tag, types); break;
+				default: input.skipField(tag);
+				}
+			}
+
+			if (roles.size() != memberIds.size() || types.size() != memberIds.size()) {
+				throw new IOException("inconsistent members of relation " + id + " in .osm.pbf block");
+			}
+
+			List<RelationMember> members = new ArrayList<>(memberIds.size());
+
+			long memberId = 0;
+
+			for (int i = 0; i < memberIds.size(); i++) {
+
+				memberId += memberIds.get(i);
+
+				EntityType type;
+				switch (types.get(i)) {
+				case 0: type = EntityType.Node; break;
+				case 1: type = EntityType.Way; break;
+				case 2: type = EntityType.Relation; break;
+				default: throw new IOException("invalid member type of relation " + id + " in .osm.pbf block");
+				}
+
+				members.add(new RelationMember(memberId, type, getString(roles.get(i))));
+
+			}
+
+			handler.relation(id, members, tags(keys, values));
+
+		}
+
+	}
+
+	/**
+	 * reads a repeated sint64 field, which can be packed or not packed
+	 */
+	private static void readSInt64s(CodedInputStream input, int tag, TLongArrayList result) throws IOException {
+		if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+			int oldLimit = input.pushLimit(input.readRawVarint32());
+			while (!input.isAtEnd()) {
+				result.add(input.readSInt64());
+			}
+			input.popLimit(oldLimit);
+		} else {
+			result.add(input.readSInt64());
+		}
+	}
+
+	/**
+	 * reads a repeated uint32, int32 or enum field, which can be packed or not packed.
+	 * (Negative int32 values are not valid in any of the fields where this is used.)
+	 */
+	private static void readUInt32s(CodedInputStream input, int tag, TIntArrayList result) throws IOException {
+		if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+			int oldLimit = input.pushLimit(input.readRawVarint32());
+			while (!input.isAtEnd()) {
+				result.add(input.readRawVarint32());
+			}
+			input.popLimit(oldLimit);
+		} else {
+			result.add(input.readRawVarint32());
+		}
+	}
+
+}
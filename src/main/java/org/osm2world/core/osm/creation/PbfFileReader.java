@@ -0,0 +1,376 @@
+package org.osm2world.core.osm.creation;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.osm2world.core.osm.creation.PbfBlockDecoder.*;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.osm2world.core.map_data.creation.LatLonBounds;
+import org.osm2world.core.osm.data.OSMData;
+import org.osm2world.core.osm.ruleset.HardcodedRuleset;
+import org.osm2world.core.osm.ruleset.Ruleset;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmBounds;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmRelationMember;
+import de.topobyte.osm4j.core.model.impl.Bounds;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Relation;
+import de.topobyte.osm4j.core.model.impl.RelationMember;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * {@link OSMDataReader} for .osm.pbf files which only keeps the data that is relevant for OSM2World.
+ * Unlike {@link OSMFileReader}, it does not load the entire file into memory.
+ *
+ * The file is read several times: First the relations, then the ways, and finally the nodes.
+ * Each pass only decodes one type of entity, and blocks are decoded in parallel.
+ * Entities are only kept if they are relevant according to a {@link Ruleset},
+ * or if they are needed by another entity which is kept (such as the nodes of a way).
+ * Nodes' coordinates are stored in a compact {@link NodeCoordinateStore} until the end of the process,
+ * so objects are only created for nodes which are actually part of the result.
+ *
+ * Optionally, the data can be limited to a bounding box.
+ * Ways and relations are kept (completely) if at least one of their nodes is within the bounding box.
+ */
+public class PbfFileReader implements OSMDataReader {
+
+	/** the number of blobs which are read from the file before they are decoded in parallel */
+	private static final int BLOBS_PER_BATCH = 8 * Runtime.getRuntime().availableProcessors();
+
+	private final File file;
+	private final @Nullable LatLonBounds bounds;
+	private final Ruleset ruleset;
+
+	public PbfFileReader(File file) throws FileNotFoundException {
+		this(file, null, new HardcodedRuleset());
+	}
+
+	/**
+	 * @param bounds   bounding box the data should be limited to, null to keep data from the entire file
+	 * @param ruleset  decides which tags and relations are relevant
+	 */
+	public PbfFileReader(File file, @Nullable LatLonBounds bounds, Ruleset ruleset) throws FileNotFoundException {
+		this.file = file;
+		this.bounds = bounds;
+		this.ruleset = ruleset;
+		if (!file.exists()) {
+			throw new FileNotFoundException(file.toString());
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	@Override
+	public OSMData getData() throws IOException {
+
+		BiPredicate<String, String> keepTag = (key, value) ->
+				!ruleset.isIrrelevantTag(new org.osm2world.core.map_data.data.Tag(key, value));
+
+		/* read the header */
+
+		Bounds fileBounds = readHeader();
+
+		/* read relations with a relevant type */
+
+		List<Relation> relations = new ArrayList<>();
+
+		processBlocks(false, false, true, keepTag, () -> new EntityCollector() {
+			@Override
+			public void relation(long id, List<RelationMember> members, List<Tag> tags) {
+				for (Tag tag : tags) {
+					if ("type".equals(tag.getKey()) && ruleset.isWhitelistedRelationType(tag.getValue())) {
+						blockRelations.add(new Relation(id, members, tags));
+						break;
+					}
+				}
+			}
+		}, c -> relations.addAll(c.blockRelations));
+
+		long[] relationWayIds = sortedMemberIds(relations, EntityType.Way);
+		long[] relationNodeIds = sortedMemberIds(relations, EntityType.Node);
+
+		/* read ways which have relevant tags or are members of one of the relations */
+
+		List<Way> ways = new ArrayList<>();
+
+		processBlocks(false, true, false, keepTag, () -> new EntityCollector() {
+			@Override
+			public void way(long id, long[] nodeIds, List<Tag> tags) {
+				if (!tags.isEmpty() || Arrays.binarySearch(relationWayIds, id) >= 0) {
+					blockWays.add(new Way(id,
+							new com.slimjars.dist.gnu.trove.list.array.TLongArrayList(nodeIds), tags));
+				}
+			}
+		}, c -> ways.addAll(c.blockWays));
+
+		TLongArrayList neededNodeIdList = new TLongArrayList(relationNodeIds);
+		for (Way way : ways) {
+			for (int i = 0; i < way.getNumberOfNodes(); i++) {
+				neededNodeIdList.add(way.getNodeId(i));
+			}
+		}
+		long[] neededNodeIds = sortedUnique(neededNodeIdList.toArray());
+
+		/* read coordinates of the needed nodes, and all nodes with relevant tags */
+
+		NodeCoordinateStore nodeStore = new NodeCoordinateStore(neededNodeIds.length);
+		TLongObjectMap<Node> taggedNodes = new TLongObjectHashMap<>();
+
+		processBlocks(true, false, false, keepTag, () -> new EntityCollector() {
+			@Override
+			public void node(long id, double lat, double lon, List<Tag> tags) {
+				boolean needed = Arrays.binarySearch(neededNodeIds, id) >= 0;
+				if (needed) {
+					blockNodeIds.add(id);
+					blockNodeLats.add(lat);
+					blockNodeLons.add(lon);
+				}
+				if (!tags.isEmpty() && (needed || isInBounds(lat, lon))) {
+					blockNodes.add(new Node(id, lon, lat, tags));
+				}
+			}
+		}, c -> {
+			for (int i = 0; i < c.blockNodeIds.size(); i++) {
+				nodeStore.put(c.blockNodeIds.get(i), c.blockNodeLats.get(i), c.blockNodeLons.get(i));
+			}
+			for (Node node : c.blockNodes) {
+				taggedNodes.put(node.getId(), node);
+			}
+		});
+
+		nodeStore.finish();
+
+		/* drop ways which reference nodes that are not in the file */
+
+		ways.removeIf(way -> {
+			for (int i = 0; i < way.getNumberOfNodes(); i++) {
+				if (!nodeStore.contains(way.getNodeId(i))) {
+					System.err.println("Way w" + way.getId() + " references missing node n" + way.getNodeId(i)
+							+ ", ignoring the way");
+					return true;
+				}
+			}
+			return false;
+		});
+
+		/* limit the data to the bounding box */
+
+		if (bounds != null) {
+
+			TLongSet waysInBounds = new TLongHashSet();
+
+			for (Way way : ways) {
+				for (int i = 0; i < way.getNumberOfNodes(); i++) {
+					if (isInBounds(nodeStore, way.getNodeId(i))) {
+						waysInBounds.add(way.getId());
+						break;
+					}
+				}
+			}
+
+			relations.removeIf(relation -> {
+				for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+					OsmRelationMember member = relation.getMember(i);
+					if ((member.getType() == EntityType.Way && waysInBounds.contains(member.getId()))
+							|| (member.getType() == EntityType.Node && isInBounds(nodeStore, member.getId()))) {
+						return false;
+					}
+				}
+				return true;
+			});
+
+			long[] keptRelationWayIds = sortedMemberIds(relations, EntityType.Way);
+
+			ways.removeIf(way -> !waysInBounds.contains(way.getId())
+					&& Arrays.binarySearch(keptRelationWayIds, way.getId()) < 0);
+
+		}
+
+		/* create the nodes which are referenced by the remaining ways and relations */
+
+		TLongArrayList referencedNodeIdList = new TLongArrayList(sortedMemberIds(relations, EntityType.Node));
+		for (Way way : ways) {
+			for (int i = 0; i < way.getNumberOfNodes(); i++) {
+				referencedNodeIdList.add(way.getNodeId(i));
+			}
+		}
+
+		List<OsmNode> nodes = new ArrayList<>();
+
+		for (long id : sortedUnique(referencedNodeIdList.toArray())) {
+			Node node = taggedNodes.remove(id);
+			if (node == null) {
+				int index = nodeStore.indexOf(id);
+				if (index < 0) continue; // missing node members of relations
+				node = new Node(id, nodeStore.getLon(index), nodeStore.getLat(index));
+			}
+			nodes.add(node);
+		}
+
+		for (Node node : taggedNodes.valueCollection()) {
+			if (isInBounds(node.getLatitude(), node.getLongitude())) {
+				nodes.add(node);
+			}
+		}
+
+		/* determine the bounds of the result */
+
+		List<OsmBounds> resultBounds;
+
+		if (bounds != null) {
+			resultBounds = new ArrayList<>();
+			resultBounds.add(new Bounds(bounds.minlon, bounds.maxlon, bounds.maxlat, bounds.minlat));
+		} else if (fileBounds != null) {
+			resultBounds = new ArrayList<>();
+			resultBounds.add(fileBounds);
+		} else {
+			resultBounds = emptyList();
+		}
+
+		return new OSMData(resultBounds, nodes, ways, relations);
+
+	}
+
+	private boolean isInBounds(double lat, double lon) {
+		return bounds == null
+				|| (lat >= bounds.minlat && lat <= bounds.maxlat && lon >= bounds.minlon && lon <= bounds.maxlon);
+	}
+
+	private boolean isInBounds(NodeCoordinateStore nodeStore, long nodeId) {
+		int index = nodeStore.indexOf(nodeId);
+		return index >= 0 && isInBounds(nodeStore.getLat(index), nodeStore.getLon(index));
+	}
+
+	/**
+	 * reads the header block at the start of the file
+	 *
+	 * @return  the bounding box from the header, can be null
+	 */
+	private @Nullable Bounds readHeader() throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			Blob blob = readBlob(in);
+			if (blob == null || !"OSMHeader".equals(blob.type)) {
+				throw new IOException("not a valid .osm.pbf file, header is missing: " + file);
+			}
+			return decodeHeaderBlock(uncompress(blob));
+		}
+	}
+
+	/**
+	 * reads all data blocks of the file and decodes them in parallel.
+	 * Each block is decoded with a new handler, the handlers are passed to the result consumer in the file's order.
+	 */
+	private <H extends EntityHandler> void processBlocks(
+			boolean decodeNodes, boolean decodeWays, boolean decodeRelations,
+			BiPredicate<String, String> keepTag,
+			Supplier<H> handlerFactory, Consumer<? super H> resultConsumer) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+
+			List<Blob> batch = new ArrayList<>(BLOBS_PER_BATCH);
+			Blob blob;
+
+			do {
+
+				blob = readBlob(in);
+
+				if (blob != null && "OSMData".equals(blob.type)) {
+					batch.add(blob);
+				}
+
+				if (batch.size() >= BLOBS_PER_BATCH || (blob == null && !batch.isEmpty())) {
+
+					List<H> results;
+
+					try {
+						results = batch.parallelStream().map(b -> {
+							try {
+								H handler = handlerFactory.get();
+								decodePrimitiveBlock(uncompress(b), handler,
+										decodeNodes, decodeWays, decodeRelations, keepTag);
+								return handler;
+							} catch (IOException e) {
+								throw new UncheckedIOException(e);
+							}
+						}).collect(toList());
+					} catch (UncheckedIOException e) {
+						throw e.getCause();
+					}
+
+					results.forEach(resultConsumer);
+					batch.clear();
+
+				}
+
+			} while (blob != null);
+
+		}
+
+	}
+
+	/** returns the sorted ids of all members with a certain type, without duplicates */
+	private static long[] sortedMemberIds(List<Relation> relations, EntityType type) {
+		TLongArrayList ids = new TLongArrayList();
+		for (Relation relation : relations) {
+			for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+				if (relation.getMember(i).getType() == type) {
+					ids.add(relation.getMember(i).getId());
+				}
+			}
+		}
+		return sortedUnique(ids.toArray());
+	}
+
+	private static long[] sortedUnique(long[] values) {
+		if (values.length == 0) return values;
+		Arrays.sort(values);
+		int size = 1;
+		for (int i = 1; i < values.length; i++) {
+			if (values[i] != values[size - 1]) {
+				values[size++] = values[i];
+			}
+		}
+		return Arrays.copyOf(values, size);
+	}
+
+	/** collects the entities of a single block. Subclasses decide which entities to keep. */
+	private static abstract class EntityCollector implements EntityHandler {
+
+		/** coordinates of nodes without tags */
+		final TLongArrayList blockNodeIds = new TLongArrayList();
+		final TDoubleArrayList blockNodeLats = new TDoubleArrayList();
+		final TDoubleArrayList blockNodeLons = new TDoubleArrayList();
+
+		final List<Node> blockNodes = new ArrayList<>();
+		final List<Way> blockWays = new ArrayList<>();
+		final List<Relation> blockRelations = new ArrayList<>();
+
+	}
+
+}
@@ -0,0 +1,229 @@
+package org.osm2world.core.osm.data;
+
+import static java.util.Collections.unmodifiableCollection;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.osm2world.core.map_data.creation.LatLonBounds;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmEntity;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmRelationMember;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+
+/**
+ * a set of changes to OSM data, such as the content of an osmChange file.
+ * Contains the new versions of created and modified entities and the ids of deleted entities.
+ * If the same entity is changed several times, only the last change is kept.
+ */
+public class OSMChange {
+
+	private final Map<Long, OsmNode> nodes = new LinkedHashMap<>();
+	private final Map<Long, OsmWay> ways = new LinkedHashMap<>();
+	private final Map<Long, OsmRelation> relations = new LinkedHashMap<>();
+
+	private final Set<Long> deletedNodeIds = new HashSet<>();
+	private final Set<Long> deletedWayIds = new HashSet<>();
+	private final Set<Long> deletedRelationIds = new HashSet<>();
+
+	/** adds a created or modified entity */
+	public void put(OsmEntity entity) {
+		switch (entity.getType()) {
+		case Node:
+			nodes.put(entity.getId(), (OsmNode) entity);
+			deletedNodeIds.remove(entity.getId());
+			break;
+		case Way:
+			ways.put(entity.getId(), (OsmWay) entity);
+			deletedWayIds.remove(entity.getId());
+			break;
+		case Relation:
+			relations.put(entity.getId(), (OsmRelation) entity);
+			deletedRelationIds.remove(entity.getId());
+			break;
+		}
+	}
+
+	/** adds the deletion of an entity */
+	public void delete(EntityType type, long id) {
+		switch (type) {
+		case Node:
+			nodes.remove(id);
+			deletedNodeIds.add(id);
+			break;
+		case Way:
+			ways.remove(id);
+			deletedWayIds.add(id);
+			break;
+		case Relation:
+			relations.remove(id);
+			deletedRelationIds.add(id);
+			break;
+		}
+	}
+
+	/** returns created or modified nodes */
+	public Collection<OsmNode> getNodes() {
+		return unmodifiableCollection(nodes.values());
+	}
+
+	/** returns created or modified ways */
+	public Collection<OsmWay> getWays() {
+		return unmodifiableCollection(ways.values());
+	}
+
+	/** returns created or modified relations */
+	public Collection<OsmRelation> getRelations() {
+		return unmodifiableCollection(relations.values());
+	}
+
+	/** returns the ids of all entities of a type which have been created, modified or deleted */
+	public Set<Long> getChangedIds(EntityType type) {
+		Set<Long> result = new HashSet<>();
+		switch (type) {
+		case Node:
+			result.addAll(nodes.keySet());
+			result.addAll(deletedNodeIds);
+			break;
+		case Way:
+			result.addAll(ways.keySet());
+			result.addAll(deletedWayIds);
+			break;
+		case Relation:
+			result.addAll(relations.keySet());
+			result.addAll(deletedRelationIds);
+			break;
+		}
+		return result;
+	}
+
+	public boolean isEmpty() {
+		return nodes.isEmpty() && ways.isEmpty() && relations.isEmpty()
+				&& deletedNodeIds.isEmpty() && deletedWayIds.isEmpty() && deletedRelationIds.isEmpty();
+	}
+
+	/**
+	 * applies this change to a dataset, modifying it.
+	 * Entities which are deleted, but not present in the dataset, are ignored.
+	 */
+	public void applyTo(OSMData data) {
+
+		for (long id : deletedRelationIds) {
+			data.getData().getRelations().remove(id);
+		}
+		for (long id : deletedWayIds) {
+			data.getData().getWays().remove(id);
+		}
+		for (long id : deletedNodeIds) {
+			data.getData().getNodes().remove(id);
+		}
+
+		for (OsmNode node : nodes.values()) {
+			data.getData().getNodes().put(node.getId(), node);
+		}
+		for (OsmWay way : ways.values()) {
+			data.getData().getWays().put(way.getId(), way);
+		}
+		for (OsmRelation relation : relations.values()) {
+			data.getData().getRelations().put(relation.getId(), relation);
+		}
+
+	}
+
+	/**
+	 * returns the part of this change which is relevant for a subset of the data,
+	 * such as one created with {@link OSMData#subset(LatLonBounds)}.
+	 * This includes changes to entities in the subset, new nodes within the bounds,
+	 * and ways and relations with nodes or members which are part of the subset or the result.
+	 * Missing nodes and members of the included ways and relations are added from the full data,
+	 * so the subset remains complete after the result has been applied to it.
+	 *
+	 * @param subset    the subset, before the change has been applied to it
+	 * @param fullData  the full data, after this change has been applied to it
+	 */
+	public OSMChange restrictTo(OSMData subset, LatLonBounds bounds, OSMData fullData) {
+
+		OSMChange result = new OSMChange();
+
+		for (long id : deletedNodeIds) {
+			if (subset.getData().getNodes().containsKey(id)) result.delete(EntityType.Node, id);
+		}
+		for (long id : deletedWayIds) {
+			if (subset.getData().getWays().containsKey(id)) result.delete(EntityType.Way, id);
+		}
+		for (long id : deletedRelationIds) {
+			if (subset.getData().getRelations().containsKey(id)) result.delete(EntityType.Relation, id);
+		}
+
+		for (OsmNode node : nodes.values()) {
+			if (subset.getData().getNodes().containsKey(node.getId())
+					|| bounds.contains(node.getLatitude(), node.getLongitude())) {
+				result.put(node);
+			}
+		}
+
+		for (OsmWay way : ways.values()) {
+			boolean relevant = subset.getData().getWays().containsKey(way.getId());
+			for (int i = 0; i < way.getNumberOfNodes() && !relevant; i++) {
+				relevant = result.containsNode(subset, way.getNodeId(i));
+			}
+			if (relevant) {
+				result.putWayWithNodes(way, subset, fullData);
+			}
+		}
+
+		for (OsmRelation relation : relations.values()) {
+			boolean relevant = subset.getData().getRelations().containsKey(relation.getId());
+			for (int i = 0; i < relation.getNumberOfMembers() && !relevant; i++) {
+				OsmRelationMember member = relation.getMember(i);
+				switch (member.getType()) {
+				case Node: relevant = result.containsNode(subset, member.getId()); break;
+				case Way: relevant = result.ways.containsKey(member.getId())
+						|| subset.getData().getWays().containsKey(member.getId()); break;
+				case Relation: relevant = result.relations.containsKey(member.getId())
+						|| subset.getData().getRelations().containsKey(member.getId()); break;
+				}
+			}
+			if (relevant) {
+				result.put(relation);
+				for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+					OsmRelationMember member = relation.getMember(i);
+					if (member.getType() == EntityType.Node && !result.containsNode(subset, member.getId())
+							&& fullData.getData().getNodes().containsKey(member.getId())) {
+						result.put(fullData.getData().getNodes().get(member.getId()));
+					} else if (member.getType() == EntityType.Way && !result.ways.containsKey(member.getId())
+							&& !subset.getData().getWays().containsKey(member.getId())
+							&& fullData.getData().getWays().containsKey(member.getId())) {
+						result.putWayWithNodes(fullData.getData().getWays().get(member.getId()), subset, fullData);
+					}
+				}
+			}
+		}
+
+		return result;
+
+	}
+
+	/** checks whether a node is part of a subset or has been added to this change */
+	private boolean containsNode(OSMData subset, long id) {
+		return nodes.containsKey(id) || subset.getData().getNodes().containsKey(id);
+	}
+
+	/** adds a way and those of its nodes which are neither part of the subset nor of this change */
+	private void putWayWithNodes(OsmWay way, OSMData subset, OSMData fullData) {
+		put(way);
+		for (int i = 0; i < way.getNumberOfNodes(); i++) {
+			long nodeId = way.getNodeId(i);
+			if (!containsNode(subset, nodeId) && fullData.getData().getNodes().containsKey(nodeId)) {
+				put(fullData.getData().getNodes().get(nodeId));
+			}
+		}
+	}
+
+}
@@ -4,7 +4,9 @@ import static java.util.Collections.*;
 import static java.util.stream.Collectors.toList;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 
@@ -12,10 +14,13 @@ import org.osm2world.core.map_data.creation.LatLon;
 import org.osm2world.core.map_data.creation.LatLonBounds;
 
 import de.topobyte.osm4j.core.dataset.InMemoryMapDataSet;
+import de.topobyte.osm4j.core.model.iface.EntityType;
 import de.topobyte.osm4j.core.model.iface.OsmBounds;
 import de.topobyte.osm4j.core.model.iface.OsmNode;
 import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmRelationMember;
 import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.model.impl.Bounds;
 import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
 import de.topobyte.osm4j.core.resolve.OsmEntityProvider;
 
@@ -121,4 +126,113 @@ public class OSMData implements OsmEntityProvider {
 		return getLatLonBounds().getCenter();
 	}
 
+	/**
+	 * returns the part of this dataset within some bounds.
+	 * This includes all nodes within the bounds, ways with at least one of these nodes
+	 * and relations with at least one of these nodes or ways as a member.
+	 * Ways and relations are kept complete, i.e. all nodes of included ways
+	 * and all node and way members of included relations are included as well.
+	 * The result has the bounds as its only explicit bounds.
+	 */
+	public OSMData subset(LatLonBounds bounds) {
+
+		Map<Long, OsmNode> nodes = new HashMap<>();
+		Map<Long, OsmWay> ways = new HashMap<>();
+		Map<Long, OsmRelation> relations = new HashMap<>();
+
+		for (OsmNode node : getNodes()) {
+			if (bounds.contains(node.getLatitude(), node.getLongitude())) {
+				nodes.put(node.getId(), node);
+			}
+		}
+
+		for (OsmWay way : getWays()) {
+			for (int i = 0; i < way.getNumberOfNodes(); i++) {
+				if (nodes.containsKey(way.getNodeId(i))) {
+					ways.put(way.getId(), way);
+					break;
+				}
+			}
+		}
+
+		for (OsmRelation relation : getRelations()) {
+			for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+				OsmRelationMember member = relation.getMember(i);
+				if (member.getType() == EntityType.Node && nodes.containsKey(member.getId())
+						|| member.getType() == EntityType.Way && ways.containsKey(member.getId())) {
+					relations.put(relation.getId(), relation);
+					break;
+				}
+			}
+		}
+
+		completeSubset(nodes, ways, relations);
+
+		OsmBounds osmBounds = new Bounds(bounds.minlon, bounds.maxlon, bounds.maxlat, bounds.minlat);
+
+		return new OSMData(singletonList(osmBounds), nodes.values(), ways.values(), relations.values());
+
+	}
+
+	/**
+	 * returns the part of this dataset consisting of some entities.
+	 * Ids of entities which are not part of this dataset are ignored.
+	 * Like {@link #subset(LatLonBounds)}, ways and relations are kept complete.
+	 * The result has the same explicit bounds as this dataset.
+	 */
+	public OSMData subset(Collection<Long> nodeIds, Collection<Long> wayIds, Collection<Long> relationIds) {
+
+		Map<Long, OsmNode> nodes = new HashMap<>();
+		Map<Long, OsmWay> ways = new HashMap<>();
+		Map<Long, OsmRelation> relations = new HashMap<>();
+
+		for (long id : nodeIds) {
+			if (data.getNodes().containsKey(id)) {
+				nodes.put(id, data.getNodes().get(id));
+			}
+		}
+
+		for (long id : wayIds) {
+			if (data.getWays().containsKey(id)) {
+				ways.put(id, data.getWays().get(id));
+			}
+		}
+
+		for (long id : relationIds) {
+			if (data.getRelations().containsKey(id)) {
+				relations.put(id, data.getRelations().get(id));
+			}
+		}
+
+		completeSubset(nodes, ways, relations);
+
+		return new OSMData(bounds, nodes.values(), ways.values(), relations.values());
+
+	}
+
+	/** adds the missing members of relations and the missing nodes of ways to a subset */
+	private void completeSubset(Map<Long, OsmNode> nodes, Map<Long, OsmWay> ways, Map<Long, OsmRelation> relations) {
+
+		for (OsmRelation relation : relations.values()) {
+			for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+				OsmRelationMember member = relation.getMember(i);
+				if (member.getType() == EntityType.Node && data.getNodes().containsKey(member.getId())) {
+					nodes.put(member.getId(), data.getNodes().get(member.getId()));
+				} else if (member.getType() == EntityType.Way && data.getWays().containsKey(member.getId())) {
+					ways.put(member.getId(), data.getWays().get(member.getId()));
+				}
+			}
+		}
+
+		for (OsmWay way : ways.values()) {
+			for (int i = 0; i < way.getNumberOfNodes(); i++) {
+				long nodeId = way.getNodeId(i);
+				if (!nodes.containsKey(nodeId) && data.getNodes().containsKey(nodeId)) {
+					nodes.put(nodeId, data.getNodes().get(nodeId));
+				}
+			}
+		}
+
+	}
+
 }
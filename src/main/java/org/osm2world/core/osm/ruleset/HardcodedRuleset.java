@@ -18,6 +18,9 @@ public class HardcodedRuleset implements Ruleset {
 	private static Collection<Tag> landTags = new HashSet<>();
 	private static Collection<Tag> seaTags = new HashSet<>();
 
+	private static Collection<String> irrelevantKeys = new HashSet<>();
+	private static Collection<String> irrelevantKeyPrefixes = new HashSet<>();
+
 	private static final Collection<String> relationTypeWhitelist;
 
 	static {
@@ -73,6 +76,18 @@ public class HardcodedRuleset implements Ruleset {
 		seaTags.add(new Tag("submarine", "yes"));
 		seaTags.add(new Tag("wetland", "tidalflat"));
 
+		irrelevantKeys.add("attribution");
+		irrelevantKeys.add("comment");
+		irrelevantKeys.add("created_by");
+		irrelevantKeys.add("fixme");
+		irrelevantKeys.add("FIXME");
+		irrelevantKeys.add("note");
+		irrelevantKeys.add("source");
+
+		irrelevantKeyPrefixes.add("note:");
+		irrelevantKeyPrefixes.add("source:");
+		irrelevantKeyPrefixes.add("tiger:");
+
 		relationTypeWhitelist = asList(
 				"multipolygon",
 				"destination_sign",
@@ -100,6 +115,13 @@ public class HardcodedRuleset implements Ruleset {
 		return seaTags.contains(new Tag(tag.getKey(), tag.getValue()));
 	}
 
+	@Override
+	public boolean isIrrelevantTag(Tag tag) {
+		if (irrelevantKeys.contains(tag.key)) return true;
+		int colonIndex = tag.key.indexOf(':');
+		return colonIndex > 0 && irrelevantKeyPrefixes.contains(tag.key.substring(0, colonIndex + 1));
+	}
+
 	@Override
 	public boolean isWhitelistedRelationType(String type) {
 		return relationTypeWhitelist.contains(type);
@@ -21,6 +21,12 @@ public interface Ruleset {
 	 */
 	public boolean isSeaTag(OsmTag tag);
 
+	/**
+	 * identifies tags which are never used by OSM2World, such as notes or information about the data's source.
+	 * Readers can drop these tags, and treat entities which only have such tags like untagged entities.
+	 */
+	public boolean isIrrelevantTag(Tag tag);
+
 	/** checks if this relation type is considered relevant for OSM2World */
 	public boolean isWhitelistedRelationType(String type);
 
@@ -0,0 +1,1018 @@
+package org.osm2world.core.target;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.*;
+import static org.osm2world.core.target.frontend_pbf.FrontendPbfTarget.MODEL_GEOMETRY_PARAMS;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.configuration.Configuration;
+import org.osm2world.core.GlobalValues;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.data.MapElement;
+import org.osm2world.core.map_data.data.MapRelation;
+import org.osm2world.core.map_data.data.Tag;
+import org.osm2world.core.map_data.data.TagSet;
+import org.osm2world.core.map_data.data.overlaps.MapOverlap;
+import org.osm2world.core.map_elevation.data.EleConnector;
+import org.osm2world.core.map_elevation.data.GroundState;
+import org.osm2world.core.math.AxisAlignedRectangleXZ;
+import org.osm2world.core.math.TriangleXYZ;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.target.MeshCache.CachedObject;
+import org.osm2world.core.target.common.MeshTarget;
+import org.osm2world.core.target.common.material.BlankTexture;
+import org.osm2world.core.target.common.material.ImageFileTexture;
+import org.osm2world.core.target.common.material.ImmutableMaterial;
+import org.osm2world.core.target.common.material.Material;
+import org.osm2world.core.target.common.material.Material.AmbientOcclusion;
+import org.osm2world.core.target.common.material.Material.Interpolation;
+import org.osm2world.core.target.common.material.Material.Shadow;
+import org.osm2world.core.target.common.material.Material.Transparency;
+import org.osm2world.core.target.common.material.Materials;
+import org.osm2world.core.target.common.material.TextTexture;
+import org.osm2world.core.target.common.material.TextureData;
+import org.osm2world.core.target.common.material.TextureData.Wrap;
+import org.osm2world.core.target.common.material.TextureLayer;
+import org.osm2world.core.target.common.mesh.LevelOfDetail;
+import org.osm2world.core.target.common.mesh.Mesh;
+import org.osm2world.core.target.common.mesh.TriangleGeometry;
+import org.osm2world.core.target.common.model.ExternalResourceModel;
+import org.osm2world.core.target.common.model.InstanceParameters;
+import org.osm2world.core.target.common.model.Model;
+import org.osm2world.core.target.common.model.ModelInstance;
+import org.osm2world.core.target.common.texcoord.GlobalXZTexCoordFunction;
+import org.osm2world.core.target.common.texcoord.NamedTexCoordFunction;
+import org.osm2world.core.target.frontend_pbf.FrontendPbfTarget;
+import org.osm2world.core.world.creation.WorldModule;
+import org.osm2world.core.world.data.LegacyWorldObject;
+import org.osm2world.core.world.data.WorldObject;
+import org.osm2world.core.world.modules.PowerModule.WindTurbine;
+
+/**
+ * a persistent cache for conversion results, with one file per entry in a directory.
+ *
+ * An entry contains the meshes of all world objects after elevation calculation,
+ * their materials and the information about each object that targets use.
+ * Entries are content-addressed: their names are derived from the input data, configuration and modules
+ * (see {@link #createKey(String, Configuration, List)}).
+ * External files which the configuration refers to, such as SRTM tiles, are only included by name.
+ * If the content of these files changes, the cache directory needs to be cleared.
+ *
+ * The objects restored from an entry stand in for the original {@link WorldObject}s.
+ * Model instances, including those drawn by {@link LegacyWorldObject}s, are stored as instances,
+ * so targets which support instancing receive the same instances as after a conversion.
+ * Because models cannot be stored in general, only the meshes for the instance parameters
+ * which are actually used (and for {@link FrontendPbfTarget#MODEL_GEOMETRY_PARAMS}) are available.
+ * Results which cannot be stored completely (e.g. because they use runtime textures other than text)
+ * are not cached at all.
+ * Entries which cannot be read are treated as missing and deleted.
+ */
+public class ConversionResultCache {
+
+	/** the contents of a cache entry */
+	public static final class Entry {
+
+		/** the origin of the map projection */
+		public final LatLon origin;
+
+		/** the value of {@link org.osm2world.core.map_data.data.MapData#getBoundary()} */
+		public final AxisAlignedRectangleXZ boundary;
+
+		public final MeshCache meshCache;
+
+		public Entry(LatLon origin, AxisAlignedRectangleXZ boundary, MeshCache meshCache) {
+			this.origin = origin;
+			this.boundary = boundary;
+			this.meshCache = meshCache;
+		}
+
+	}
+
+	/** thrown while writing an entry if it contains something which cannot be stored */
+	private static class UnsupportedContentException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		public UnsupportedContentException(String message) {
+			super(message);
+		}
+
+	}
+
+	private static final int MAGIC_NUMBER = 0x4F32574D; // "O2WM"
+	private static final int FORMAT_VERSION = 2;
+
+	private static final String FILE_SUFFIX = ".o2wcache";
+
+	/** models which targets recognize by their identity, and which are therefore restored as the original model */
+	private static final List<Model> SHARED_MODELS = singletonList(WindTurbine.ROTOR);
+
+	private final File directory;
+
+	public ConversionResultCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * returns a hash of a file's content, which can be used as the input id for {@link #createKey}
+	 */
+	public static String hashFile(File file) throws IOException {
+
+		MessageDigest digest = createDigest();
+
+		try (InputStream in = new FileInputStream(file)) {
+			byte[] buffer = new byte[64 * 1024];
+			int length;
+			while ((length = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, length);
+			}
+		}
+
+		return toHex(digest.digest());
+
+	}
+
+	/**
+	 * creates the key of a cache entry.
+	 *
+	 * @param inputId  identifies the input data, e.g. a hash of the input file's content
+	 *                 combined with all parameters which affect how it is read
+	 * @param config   the configuration for the conversion. All entries are included in the key.
+	 * @param modules  the modules used for the conversion
+	 */
+	public static String createKey(String inputId, Configuration config, List<? extends WorldModule> modules) {
+
+		MessageDigest digest = createDigest();
+
+		update(digest, Integer.toString(FORMAT_VERSION));
+		update(digest, GlobalValues.VERSION_STRING);
+		update(digest, inputId);
+
+		Map<String, String> sortedConfig = new TreeMap<>();
+		for (Iterator<String> it = config.getKeys(); it.hasNext(); ) {
+			String key = it.next();
+			sortedConfig.put(key, String.valueOf(config.getProperty(key)));
+		}
+
+		for (Map.Entry<String, String> e : sortedConfig.entrySet()) {
+			update(digest, e.getKey());
+			update(digest, e.getValue());
+		}
+
+		for (WorldModule module : modules) {
+			update(digest, module.getClass().getName());
+		}
+
+		return toHex(digest.digest());
+
+	}
+
+	/**
+	 * reads an entry from the cache.
+	 * The {@link org.osm2world.core.target.common.material.MaterialConfiguration} of the conversion must be active.
+	 *
+	 * If the entry cannot be read (e.g. because it is truncated or corrupt), it is deleted
+	 * so that the next conversion with the same key replaces it.
+	 *
+	 * @return  the entry, null if there is no valid entry for the key
+	 */
+	public @Nullable Entry read(String key) {
+
+		File file = new File(directory, key + FILE_SUFFIX);
+
+		if (!file.exists()) return null;
+
+		Entry entry = null;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new GZIPInputStream(new FileInputStream(file))))) {
+			entry = new EntryReader(in).read();
+		} catch (IOException | ClassNotFoundException | RuntimeException e) {
+			System.err.println("Ignoring invalid cache entry " + file + ": " + e);
+		}
+
+		if (entry == null) {
+			file.delete();
+		}
+
+		return entry;
+
+	}
+
+	/**
+	 * writes an entry to the cache, replacing any previous entry with the same key.
+	 * The {@link org.osm2world.core.target.common.material.MaterialConfiguration} of the conversion must be active.
+	 *
+	 * @return  true if the entry has been written,
+	 *          false if it could not be written because it contains content which cannot be stored
+	 */
+	public boolean write(String key, Entry entry) throws IOException {
+
+		directory.mkdirs();
+
+		File file = new File(directory, key + FILE_SUFFIX);
+		File tempFile = File.createTempFile(key, ".tmp", directory);
+
+		try {
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					new GZIPOutputStream(new FileOutputStream(tempFile))))) {
+				new EntryWriter(out).write(entry);
+			}
+
+			/* replace the file in one step, so concurrent readers never see an incomplete entry */
+
+			try {
+				Files.move(tempFile.toPath(), file.toPath(),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			return true;
+
+		} catch (UnsupportedContentException e) {
+			return false;
+		} finally {
+			tempFile.delete();
+		}
+
+	}
+
+	private static class EntryWriter {
+
+		private final DataOutputStream out;
+
+		private final Map<Material, Integer> materialIndices = new IdentityHashMap<>();
+		private final Map<MapElement, Integer> elementIndices = new IdentityHashMap<>();
+		private final Map<Model, Integer> modelIndices = new IdentityHashMap<>();
+
+		EntryWriter(DataOutputStream out) {
+			this.out = out;
+		}
+
+		void write(Entry entry) throws IOException, UnsupportedContentException {
+
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(FORMAT_VERSION);
+
+			out.writeDouble(entry.origin.lat);
+			out.writeDouble(entry.origin.lon);
+			writeRectangle(entry.boundary);
+
+			/* determine the meshes and model instances of each object */
+
+			List<CachedObject> objects = new ArrayList<>(entry.meshCache.objects.size());
+
+			for (CachedObject o : entry.meshCache.objects) {
+				if (o.meshes != null) {
+					objects.add(o);
+				} else {
+					// legacy objects have no cached meshes, so their draw calls are recorded
+					InstanceRecordingTarget target = new InstanceRecordingTarget();
+					((LegacyWorldObject) o.object).renderTo(target);
+					objects.add(new CachedObject(o.object, target.getMeshes(), target.instances));
+				}
+			}
+
+			/* write the models, with the meshes for all parameters they are used with */
+
+			Map<Model, Map<List<Object>, InstanceParameters>> modelParams = new IdentityHashMap<>();
+			List<Model> models = new ArrayList<>();
+
+			for (CachedObject o : objects) {
+				for (ModelInstance m : o.subModels) {
+					if (!modelParams.containsKey(m.model)) {
+						modelParams.put(m.model, new LinkedHashMap<>());
+						models.add(m.model);
+					}
+					modelParams.get(m.model).put(paramsKey(m.params), m.params);
+				}
+			}
+
+			out.writeInt(models.size());
+
+			for (Model model : models) {
+
+				modelIndices.put(model, modelIndices.size());
+
+				if (SHARED_MODELS.contains(model)) {
+					out.writeByte(0);
+					out.writeInt(SHARED_MODELS.indexOf(model));
+				} else if (model instanceof ExternalResourceModel) {
+					out.writeByte(1);
+					out.writeUTF(((ExternalResourceModel) model).getResourceIdentifier());
+				} else {
+
+					out.writeByte(2);
+
+					Map<List<Object>, InstanceParameters> paramsMap = modelParams.get(model);
+					paramsMap.put(paramsKey(MODEL_GEOMETRY_PARAMS), MODEL_GEOMETRY_PARAMS);
+
+					out.writeInt(paramsMap.size());
+
+					for (InstanceParameters params : paramsMap.values()) {
+						writeInstanceParameters(params);
+						writeMeshes(model.buildMeshes(params));
+					}
+
+				}
+
+			}
+
+			/* write the objects */
+
+			out.writeInt(objects.size());
+
+			for (CachedObject o : objects) {
+
+				out.writeUTF(o.object.getObjectClass().getName());
+				out.writeByte(o.object.getGroundState().ordinal());
+				writeElement(o.object.getPrimaryMapElement());
+
+				writeMeshes(o.meshes);
+
+				out.writeInt(o.subModels.size());
+
+				for (ModelInstance m : o.subModels) {
+					out.writeInt(modelIndices.get(m.model));
+					writeInstanceParameters(m.params);
+				}
+
+			}
+
+		}
+
+		private void writeMeshes(List<Mesh> meshes) throws IOException, UnsupportedContentException {
+			out.writeInt(meshes.size());
+			for (Mesh mesh : meshes) {
+				writeMesh(mesh);
+			}
+		}
+
+		private void writeInstanceParameters(InstanceParameters params) throws IOException {
+			writeVector(params.position);
+			out.writeDouble(params.direction);
+			writeNullableDouble(params.height);
+			writeNullableDouble(params.width);
+			writeNullableDouble(params.length);
+		}
+
+		private void writeElement(@Nullable MapElement element) throws IOException {
+
+			if (element == null) {
+				out.writeInt(-1);
+			} else if (elementIndices.containsKey(element)) {
+				out.writeInt(elementIndices.get(element));
+			} else {
+
+				int index = elementIndices.size();
+				elementIndices.put(element, index);
+				out.writeInt(index);
+
+				MapRelation.Element elementWithId = element.getElementWithId();
+				out.writeLong(elementWithId.getId());
+				out.writeUTF(elementWithId.toString());
+				writeTags(element.getTags());
+				writeRectangle(element.boundingBox());
+
+			}
+
+		}
+
+		private void writeTags(TagSet tags) throws IOException {
+			out.writeInt(tags.size());
+			for (Tag tag : tags) {
+				out.writeUTF(tag.key);
+				out.writeUTF(tag.value);
+			}
+		}
+
+		private void writeMesh(Mesh mesh) throws IOException, UnsupportedContentException {
+
+			writeMaterial(mesh.material);
+			out.writeByte(mesh.lodRangeMin.ordinal());
+			out.writeByte(mesh.lodRangeMax.ordinal());
+
+			TriangleGeometry geometry = mesh.geometry.asTriangles();
+
+			List<VectorXYZ> vertices = geometry.vertices();
+			List<VectorXYZ> normals = geometry.normalData.normals();
+
+			out.writeInt(geometry.triangles.size());
+
+			for (VectorXYZ v : vertices) {
+				writeVector(v);
+			}
+
+			for (VectorXYZ n : normals) {
+				writeVector(n);
+			}
+
+			out.writeInt(geometry.texCoords.size());
+
+			for (List<VectorXZ> layerTexCoords : geometry.texCoords) {
+				for (VectorXZ t : layerTexCoords) {
+					out.writeDouble(t.x);
+					out.writeDouble(t.z);
+				}
+			}
+
+			out.writeBoolean(geometry.colors != null);
+
+			if (geometry.colors != null) {
+				for (Color c : geometry.colors) {
+					writeColor(c);
+				}
+			}
+
+		}
+
+		private void writeMaterial(Material material) throws IOException, UnsupportedContentException {
+
+			if (materialIndices.containsKey(material)) {
+				out.writeInt(materialIndices.get(material));
+				return;
+			}
+
+			int index = materialIndices.size();
+			materialIndices.put(material, index);
+			out.writeInt(index);
+
+			String name = Materials.getUniqueName(material);
+			out.writeBoolean(name != null);
+
+			if (name != null) {
+				out.writeUTF(name);
+			} else {
+
+				out.writeByte(material.getInterpolation().ordinal());
+				writeColor(material.getColor());
+				out.writeBoolean(material.isDoubleSided());
+				out.writeByte(material.getTransparency().ordinal());
+				out.writeByte(material.getShadow().ordinal());
+				out.writeByte(material.getAmbientOcclusion().ordinal());
+
+				out.writeInt(material.getTextureLayers().size());
+
+				for (TextureLayer layer : material.getTextureLayers()) {
+					writeTexture(layer.baseColorTexture);
+					writeTexture(layer.normalTexture);
+					writeTexture(layer.ormTexture);
+					writeTexture(layer.displacementTexture);
+					out.writeBoolean(layer.colorable);
+				}
+
+			}
+
+		}
+
+		private void writeTexture(@Nullable TextureData texture) throws IOException, UnsupportedContentException {
+
+			if (texture == null) {
+				out.writeByte(0);
+				return;
+			} else if (texture instanceof ImageFileTexture) {
+				out.writeByte(1);
+			} else if (texture instanceof BlankTexture) {
+				out.writeByte(2);
+				return;
+			} else if (texture instanceof TextTexture) {
+				out.writeByte(3);
+			} else {
+				throw new UnsupportedContentException("unsupported texture type: " + texture.getClass());
+			}
+
+			out.writeDouble(texture.width);
+			out.writeDouble(texture.height);
+			writeNullableDouble(texture.widthPerEntity);
+			writeNullableDouble(texture.heightPerEntity);
+			out.writeByte(texture.wrap.ordinal());
+
+			// texture coordinates are already part of the meshes, but some targets check for global coordinates
+			out.writeBoolean(texture.coordFunction instanceof GlobalXZTexCoordFunction);
+
+			if (texture instanceof ImageFileTexture) {
+				out.writeUTF(((ImageFileTexture) texture).getFile().getPath());
+			} else {
+				TextTexture textTexture = (TextTexture) texture;
+				out.writeUTF(textTexture.text);
+				out.writeBoolean(textTexture.font != null);
+				if (textTexture.font != null) {
+					out.writeUTF(textTexture.font.getName());
+					out.writeInt(textTexture.font.getStyle());
+					out.writeInt(textTexture.font.getSize());
+				}
+				out.writeDouble(textTexture.topOffset);
+				out.writeDouble(textTexture.leftOffset);
+				writeColor(textTexture.textColor);
+				out.writeDouble(textTexture.relativeFontSize);
+			}
+
+		}
+
+		private void writeVector(VectorXYZ v) throws IOException {
+			out.writeDouble(v.x);
+			out.writeDouble(v.y);
+			out.writeDouble(v.z);
+		}
+
+		private void writeRectangle(AxisAlignedRectangleXZ r) throws IOException {
+			out.writeDouble(r.minX);
+			out.writeDouble(r.minZ);
+			out.writeDouble(r.maxX);
+			out.writeDouble(r.maxZ);
+		}
+
+		private void writeColor(@Nullable Color c) throws IOException {
+			out.writeBoolean(c != null);
+			if (c != null) {
+				out.writeInt(c.getRGB());
+			}
+		}
+
+		private void writeNullableDouble(@Nullable Double d) throws IOException {
+			out.writeBoolean(d != null);
+			if (d != null) {
+				out.writeDouble(d);
+			}
+		}
+
+	}
+
+	private static class EntryReader {
+
+		private final DataInputStream in;
+
+		private final List<Material> materials = new ArrayList<>();
+		private final List<CachedElement> elements = new ArrayList<>();
+		private final List<Model> models = new ArrayList<>();
+
+		EntryReader(DataInputStream in) {
+			this.in = in;
+		}
+
+		@Nullable Entry read() throws IOException, ClassNotFoundException {
+
+			if (in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+
+			LatLon origin = new LatLon(in.readDouble(), in.readDouble());
+			AxisAlignedRectangleXZ boundary = readRectangle();
+
+			int modelCount = in.readInt();
+
+			for (int i = 0; i < modelCount; i++) {
+				models.add(readModel());
+			}
+
+			int objectCount = in.readInt();
+			List<CachedObject> objects = new ArrayList<>(objectCount);
+
+			for (int i = 0; i < objectCount; i++) {
+
+				Class<? extends WorldObject> objectClass = Class.forName(in.readUTF()).asSubclass(WorldObject.class);
+				GroundState groundState = GroundState.values()[in.readByte()];
+				@Nullable CachedElement element = readElement();
+
+				List<Mesh> meshes = readMeshes();
+
+				int subModelCount = in.readInt();
+				List<ModelInstance> subModels = new ArrayList<>(subModelCount);
+				for (int m = 0; m < subModelCount; m++) {
+					subModels.add(new ModelInstance(models.get(in.readInt()), readInstanceParameters()));
+				}
+
+				CachedWorldObject object = new CachedWorldObject(objectClass, groundState, element,
+						meshes, unmodifiableList(subModels));
+
+				if (element != null) {
+					element.representations.add(object);
+				}
+
+				objects.add(new CachedObject(object, object.meshes, object.subModels));
+
+			}
+
+			return new Entry(origin, boundary, new MeshCache(objects));
+
+		}
+
+		private Model readModel() throws IOException {
+
+			byte type = in.readByte();
+
+			switch (type) {
+
+			case 0:
+				return SHARED_MODELS.get(in.readInt());
+
+			case 1:
+				return new ExternalResourceModel(in.readUTF());
+
+			case 2:
+				int variantCount = in.readInt();
+				Map<List<Object>, List<Mesh>> meshesByParams = new HashMap<>(variantCount);
+				for (int i = 0; i < variantCount; i++) {
+					meshesByParams.put(paramsKey(readInstanceParameters()), readMeshes());
+				}
+				return new CachedModel(meshesByParams);
+
+			default:
+				throw new IllegalArgumentException("unknown model type " + type);
+
+			}
+
+		}
+
+		private List<Mesh> readMeshes() throws IOException {
+			int meshCount = in.readInt();
+			List<Mesh> meshes = new ArrayList<>(meshCount);
+			for (int m = 0; m < meshCount; m++) {
+				meshes.add(readMesh());
+			}
+			return unmodifiableList(meshes);
+		}
+
+		private InstanceParameters readInstanceParameters() throws IOException {
+			return new InstanceParameters(readVector(), in.readDouble(),
+					readNullableDouble(), readNullableDouble(), readNullableDouble());
+		}
+
+		private @Nullable CachedElement readElement() throws IOException {
+
+			int index = in.readInt();
+
+			if (index < 0) {
+				return null;
+			} else if (index < elements.size()) {
+				return elements.get(index);
+			} else {
+
+				long id = in.readLong();
+				String name = in.readUTF();
+
+				int tagCount = in.readInt();
+				List<Tag> tags = new ArrayList<>(tagCount);
+				for (int i = 0; i < tagCount; i++) {
+					tags.add(new Tag(in.readUTF(), in.readUTF()));
+				}
+
+				CachedElement element = new CachedElement(id, name, TagSet.of(tags), readRectangle());
+				elements.add(element);
+				return element;
+
+			}
+
+		}
+
+		private Mesh readMesh() throws IOException {
+
+			Material material = readMaterial();
+			LevelOfDetail lodRangeMin = LevelOfDetail.values()[in.readByte()];
+			LevelOfDetail lodRangeMax = LevelOfDetail.values()[in.readByte()];
+
+			int vertexCount = in.readInt() * 3;
+
+			List<VectorXYZ> vertices = new ArrayList<>(vertexCount);
+			for (int i = 0; i < vertexCount; i++) {
+				vertices.add(readVector());
+			}
+
+			List<VectorXYZ> normals = new ArrayList<>(vertexCount);
+			for (int i = 0; i < vertexCount; i++) {
+				normals.add(readVector());
+			}
+
+			int layerCount = in.readInt();
+
+			List<List<VectorXZ>> texCoords = new ArrayList<>(layerCount);
+			for (int layer = 0; layer < layerCount; layer++) {
+				List<VectorXZ> layerTexCoords = new ArrayList<>(vertexCount);
+				for (int i = 0; i < vertexCount; i++) {
+					layerTexCoords.add(new VectorXZ(in.readDouble(), in.readDouble()));
+				}
+				texCoords.add(layerTexCoords);
+			}
+
+			List<Color> colors = null;
+
+			if (in.readBoolean()) {
+				colors = new ArrayList<>(vertexCount);
+				for (int i = 0; i < vertexCount; i++) {
+					colors.add(readColor());
+				}
+			}
+
+			List<TriangleXYZ> triangles = new ArrayList<>(vertexCount / 3);
+			for (int i = 0; i < vertexCount; i += 3) {
+				triangles.add(new TriangleXYZ(vertices.get(i), vertices.get(i + 1), vertices.get(i + 2)));
+			}
+
+			TriangleGeometry.Builder builder = new TriangleGeometry.Builder(layerCount, null, null);
+			builder.addTriangles(triangles, texCoords, colors, normals);
+
+			return new Mesh(builder.build(), material, lodRangeMin, lodRangeMax);
+
+		}
+
+		private Material readMaterial() throws IOException {
+
+			int index = in.readInt();
+
+			if (index < materials.size()) {
+				return materials.get(index);
+			}
+
+			Material material;
+
+			if (in.readBoolean()) {
+
+				String name = in.readUTF();
+				material = Materials.getMaterial(name);
+
+				if (material == null) {
+					throw new IllegalArgumentException("unknown material " + name);
+				}
+
+			} else {
+
+				Interpolation interpolation = Interpolation.values()[in.readByte()];
+				Color color = readColor();
+				boolean doubleSided = in.readBoolean();
+				Transparency transparency = Transparency.values()[in.readByte()];
+				Shadow shadow = Shadow.values()[in.readByte()];
+				AmbientOcclusion ambientOcclusion = AmbientOcclusion.values()[in.readByte()];
+
+				int layerCount = in.readInt();
+				List<TextureLayer> textureLayers = new ArrayList<>(layerCount);
+
+				for (int i = 0; i < layerCount; i++) {
+					textureLayers.add(new TextureLayer(readTexture(), readTexture(), readTexture(), readTexture(),
+							in.readBoolean()));
+				}
+
+				material = new ImmutableMaterial(interpolation, color, doubleSided,
+						transparency, shadow, ambientOcclusion, textureLayers);
+
+			}
+
+			materials.add(material);
+			return material;
+
+		}
+
+		private @Nullable TextureData readTexture() throws IOException {
+
+			byte type = in.readByte();
+
+			switch (type) {
+			case 0: return null;
+			case 2: return BlankTexture.INSTANCE;
+			}
+
+			double width = in.readDouble();
+			double height = in.readDouble();
+			Double widthPerEntity = readNullableDouble();
+			Double heightPerEntity = readNullableDouble();
+			Wrap wrap = Wrap.values()[in.readByte()];
+			NamedTexCoordFunction coordFunction = in.readBoolean() ? NamedTexCoordFunction.GLOBAL_X_Z : null;
+
+			if (type == 1) {
+				return ImageFileTexture.create(new File(in.readUTF()), width, height,
+						widthPerEntity, heightPerEntity, wrap, coordFunction);
+			} else {
+				String text = in.readUTF();
+				Font font = in.readBoolean() ? new Font(in.readUTF(), in.readInt(), in.readInt()) : null;
+				return new TextTexture(text, font, width, height, widthPerEntity, heightPerEntity,
+						in.readDouble(), in.readDouble(), readColor(), in.readDouble(), wrap, coordFunction);
+			}
+
+		}
+
+		private VectorXYZ readVector() throws IOException {
+			return new VectorXYZ(in.readDouble(), in.readDouble(), in.readDouble());
+		}
+
+		private AxisAlignedRectangleXZ readRectangle() throws IOException {
+			return new AxisAlignedRectangleXZ(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+		}
+
+		private @Nullable Color readColor() throws IOException {
+			return in.readBoolean() ? new Color(in.readInt(), true) : null;
+		}
+
+		private @Nullable Double readNullableDouble() throws IOException {
+			return in.readBoolean() ? in.readDouble() : null;
+		}
+
+	}
+
+	/** a {@link WorldObject} restored from the cache */
+	private static class CachedWorldObject implements WorldObject {
+
+		private final Class<? extends WorldObject> objectClass;
+		private final GroundState groundState;
+		private final @Nullable CachedElement primaryMapElement;
+		private final List<Mesh> meshes;
+		private final List<ModelInstance> subModels;
+
+		CachedWorldObject(Class<? extends WorldObject> objectClass, GroundState groundState,
+				@Nullable CachedElement primaryMapElement, List<Mesh> meshes, List<ModelInstance> subModels) {
+			this.objectClass = objectClass;
+			this.groundState = groundState;
+			this.primaryMapElement = primaryMapElement;
+			this.meshes = meshes;
+			this.subModels = subModels;
+		}
+
+		@Override
+		public List<Mesh> buildMeshes() {
+			return meshes;
+		}
+
+		@Override
+		public List<ModelInstance> getSubModels() {
+			return subModels;
+		}
+
+		@Override
+		public MapElement getPrimaryMapElement() {
+			return primaryMapElement;
+		}
+
+		@Override
+		public Class<? extends WorldObject> getObjectClass() {
+			return objectClass;
+		}
+
+		@Override
+		public GroundState getGroundState() {
+			return groundState;
+		}
+
+		@Override
+		public Iterable<EleConnector> getEleConnectors() {
+			return emptyList();
+		}
+
+	}
+
+	/**
+	 * a {@link Model} restored from the cache.
+	 * Only has meshes for the instance parameters which have been stored.
+	 */
+	private static class CachedModel implements Model {
+
+		private final Map<List<Object>, List<Mesh>> meshesByParams;
+
+		CachedModel(Map<List<Object>, List<Mesh>> meshesByParams) {
+			this.meshesByParams = meshesByParams;
+		}
+
+		@Override
+		public List<Mesh> buildMeshes(InstanceParameters params) {
+			List<Mesh> meshes = meshesByParams.get(paramsKey(params));
+			if (meshes == null) {
+				throw new IllegalArgumentException("no cached meshes for these instance parameters");
+			}
+			return meshes;
+		}
+
+	}
+
+	/** collects meshes like a {@link MeshTarget}, but records model instances instead of drawing them */
+	private static class InstanceRecordingTarget extends MeshTarget {
+
+		final List<ModelInstance> instances = new ArrayList<>();
+
+		@Override
+		public void drawModel(Model model, VectorXYZ position,
+				double direction, Double height, Double width, Double length) {
+			instances.add(new ModelInstance(model, new InstanceParameters(position, direction, height, width, length)));
+		}
+
+	}
+
+	/** a {@link MapElement} restored from the cache, with only the information that targets use */
+	private static class CachedElement extends MapRelation.Element implements MapElement {
+
+		private final long id;
+		private final String name;
+		private final TagSet tags;
+		private final AxisAlignedRectangleXZ boundingBox;
+
+		final List<WorldObject> representations = new ArrayList<>(1);
+
+		CachedElement(long id, String name, TagSet tags, AxisAlignedRectangleXZ boundingBox) {
+			this.id = id;
+			this.name = name;
+			this.tags = tags;
+			this.boundingBox = boundingBox;
+		}
+
+		@Override
+		public long getId() {
+			return id;
+		}
+
+		@Override
+		public TagSet getTags() {
+			return tags;
+		}
+
+		@Override
+		public AxisAlignedRectangleXZ boundingBox() {
+			return boundingBox;
+		}
+
+		@Override
+		public List<? extends WorldObject> getRepresentations() {
+			return representations;
+		}
+
+		@Override
+		public WorldObject getPrimaryRepresentation() {
+			return representations.isEmpty() ? null : representations.get(0);
+		}
+
+		@Override
+		public Collection<MapOverlap<? extends MapElement, ? extends MapElement>> getOverlaps() {
+			return emptyList();
+		}
+
+		@Override
+		public MapRelation.Element getElementWithId() {
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+	}
+
+	/** returns a value which is equal for equal instance parameters */
+	private static List<Object> paramsKey(InstanceParameters params) {
+		return asList(params.position, params.direction, params.height, params.width, params.length);
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new Error(e); // every Java implementation is required to support SHA-256
+		}
+	}
+
+	private static void update(MessageDigest digest, String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		digest.update((byte) (bytes.length >>> 24));
+		digest.update((byte) (bytes.length >>> 16));
+		digest.update((byte) (bytes.length >>> 8));
+		digest.update((byte) bytes.length);
+		digest.update(bytes);
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder result = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			result.append(String.format("%02x", b & 0xff));
+		}
+		return result.toString();
+	}
+
+}
@@ -0,0 +1,411 @@
+package org.osm2world.core.target;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nullable;
+
+import org.osm2world.core.map_data.creation.LatLonBounds;
+import org.osm2world.core.osm.creation.MbtilesReader;
+import org.osm2world.core.target.common.rendering.TileNumber;
+
+/**
+ * writes generated tiles (e.g. .glb or .o2w.pbf files) into a MBTiles sqlite database.
+ * This is the output counterpart of {@link MbtilesReader}.
+ *
+ * Tiles with identical content, such as empty tiles, are only stored once:
+ * The database uses the deduplicating layout of the MBTiles specification,
+ * with a <code>tiles</code> view joining a <code>map</code> table with an <code>images</code> table
+ * which is keyed by a hash of the tile content.
+ *
+ * Tiles can be added from multiple threads at the same time.
+ * A single writer thread inserts them into the database in batches, each of which is one transaction.
+ */
+public class MbtilesWriter implements AutoCloseable {
+
+	/** maximum number of tiles which are inserted in one transaction */
+	private static final int BATCH_SIZE = 500;
+
+	/** maximum number of tiles waiting for the writer thread before {@link #writeTile} blocks */
+	private static final int QUEUE_CAPACITY = 4 * BATCH_SIZE;
+
+	/**
+	 * map of open writers, so that conversions running at the same time can write to the same file.
+	 * Access through {@link #open(File, String, boolean)}!
+	 */
+	private static final Map<File, MbtilesWriter> writerMap = new HashMap<>();
+
+	/**
+	 * returns a writer for a file, which is created if it does not exist yet.
+	 * If the file is already open, the existing writer is returned.
+	 * Each call must be matched by a call to {@link #close()}.
+	 *
+	 * @param format  the format of the tiles, e.g. "glb", stored in the metadata
+	 * @param gzip    whether tile data is compressed before it is stored
+	 */
+	public static MbtilesWriter open(File file, String format, boolean gzip) throws IOException {
+
+		File key = file.getAbsoluteFile();
+
+		synchronized (writerMap) {
+
+			MbtilesWriter writer = writerMap.get(key);
+
+			if (writer == null) {
+				writer = new MbtilesWriter(key, format, gzip);
+				writerMap.put(key, writer);
+			} else if (!writer.format.equals(format) || writer.gzip != gzip) {
+				throw new IOException("MBTiles file is already open with a different format: " + file);
+			}
+
+			writer.referenceCount += 1;
+			return writer;
+
+		}
+
+	}
+
+	private static final class PendingTile {
+
+		final TileNumber tile;
+		final String tileId;
+
+		/** the data to be stored, null if another tile with the same id already provides it */
+		final @Nullable byte[] data;
+
+		PendingTile(TileNumber tile, String tileId, @Nullable byte[] data) {
+			this.tile = tile;
+			this.tileId = tileId;
+			this.data = data;
+		}
+
+	}
+
+	/** tells the writer thread to finish */
+	private static final PendingTile END = new PendingTile(null, null, null);
+
+	private final File file;
+	private final String format;
+	private final boolean gzip;
+
+	private final Connection connection;
+	private final PreparedStatement mapInsert;
+	private final PreparedStatement imageInsert;
+
+	private final BlockingQueue<PendingTile> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final Thread writerThread;
+
+	/** ids of all tile contents which are in the database or waiting to be inserted */
+	private final Set<String> knownTileIds = ConcurrentHashMap.newKeySet();
+
+	/** the first error encountered by the writer thread */
+	private volatile @Nullable Exception failure = null;
+
+	/** number of callers of {@link #open(File, String, boolean)} which have not closed the writer yet */
+	private int referenceCount = 0;
+
+	private MbtilesWriter(File file, String format, boolean gzip) throws IOException {
+
+		this.file = file;
+		this.format = format;
+		this.gzip = gzip;
+
+		try {
+
+			connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+
+			try (Statement s = connection.createStatement()) {
+
+				s.execute("PRAGMA synchronous = OFF");
+				s.execute("PRAGMA journal_mode = MEMORY");
+
+				s.execute("CREATE TABLE IF NOT EXISTS metadata (name TEXT, value TEXT)");
+				s.execute("CREATE UNIQUE INDEX IF NOT EXISTS metadata_name ON metadata (name)");
+				s.execute("CREATE TABLE IF NOT EXISTS map"
+						+ " (zoom_level INTEGER, tile_column INTEGER, tile_row INTEGER, tile_id TEXT)");
+				s.execute("CREATE UNIQUE INDEX IF NOT EXISTS map_index ON map (zoom_level, tile_column, tile_row)");
+				s.execute("CREATE TABLE IF NOT EXISTS images (tile_data BLOB, tile_id TEXT)");
+				s.execute("CREATE UNIQUE INDEX IF NOT EXISTS images_id ON images (tile_id)");
+				s.execute("CREATE VIEW IF NOT EXISTS tiles AS SELECT"
+						+ " map.zoom_level AS zoom_level, map.tile_column AS tile_column,"
+						+ " map.tile_row AS tile_row, images.tile_data AS tile_data"
+						+ " FROM map JOIN images ON images.tile_id = map.tile_id");
+
+				try (ResultSet r = s.executeQuery("SELECT tile_id FROM images")) {
+					while (r.next()) {
+						knownTileIds.add(r.getString(1));
+					}
+				}
+
+			}
+
+			connection.setAutoCommit(false);
+
+			mapInsert = connection.prepareStatement(
+					"INSERT OR REPLACE INTO map (zoom_level, tile_column, tile_row, tile_id) VALUES (?, ?, ?, ?)");
+			imageInsert = connection.prepareStatement(
+					"INSERT OR IGNORE INTO images (tile_data, tile_id) VALUES (?, ?)");
+
+		} catch (SQLException e) {
+			throw new IOException("cannot open MBTiles file " + file, e);
+		}
+
+		writerThread = new Thread(this::writeQueuedTiles, "MbtilesWriter(" + file.getName() + ")");
+		writerThread.setDaemon(true);
+		writerThread.start();
+
+	}
+
+	/**
+	 * adds a tile to the database, replacing any previous content of that tile.
+	 * The tile is inserted asynchronously. Can be called from multiple threads at the same time.
+	 *
+	 * @param data  the uncompressed tile content
+	 */
+	public void writeTile(TileNumber tile, byte[] data) throws IOException {
+
+		checkFailure();
+
+		String tileId = hash(data);
+
+		byte[] storedData = null;
+
+		if (knownTileIds.add(tileId)) {
+			storedData = gzip ? compress(data) : data;
+		}
+
+		try {
+			queue.put(new PendingTile(tile, tileId, storedData));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+
+	}
+
+	/**
+	 * releases this writer. When all users of the file have closed it,
+	 * the remaining tiles and the metadata are written and the database is closed.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		synchronized (writerMap) {
+			referenceCount -= 1;
+			if (referenceCount > 0) return;
+			writerMap.remove(file);
+		}
+
+		try {
+
+			queue.put(END);
+			writerThread.join();
+
+			checkFailure();
+
+			writeMetadata();
+			connection.commit();
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (SQLException e) {
+			throw new IOException("cannot write metadata to MBTiles file " + file, e);
+		} finally {
+			try {
+				mapInsert.close();
+				imageInsert.close();
+				connection.close();
+			} catch (SQLException e) {
+				throw new IOException(e);
+			}
+		}
+
+	}
+
+	private void checkFailure() throws IOException {
+		if (failure != null) {
+			throw new IOException("cannot write to MBTiles file " + file, failure);
+		}
+	}
+
+	/** loop of the writer thread, runs until {@link #END} is received */
+	private void writeQueuedTiles() {
+
+		List<PendingTile> batch = new ArrayList<>(BATCH_SIZE);
+
+		boolean finished = false;
+
+		while (!finished) {
+
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				failure = e;
+				continue; // keep consuming so that writing threads don't block forever
+			}
+
+			queue.drainTo(batch, BATCH_SIZE - 1);
+
+			if (batch.contains(END)) {
+				finished = true;
+			}
+
+			if (failure == null) {
+				try {
+					insertBatch(batch);
+				} catch (SQLException e) {
+					failure = e;
+				}
+			}
+
+			batch.clear();
+
+		}
+
+	}
+
+	private void insertBatch(List<PendingTile> batch) throws SQLException {
+
+		for (PendingTile t : batch) {
+
+			if (t == END) continue;
+
+			if (t.data != null) {
+				imageInsert.setBytes(1, t.data);
+				imageInsert.setString(2, t.tileId);
+				imageInsert.addBatch();
+			}
+
+			// MBTiles uses TMS tile coords, which have a flipped y axis
+			mapInsert.setInt(1, t.tile.zoom);
+			mapInsert.setInt(2, t.tile.x);
+			mapInsert.setInt(3, t.tile.flippedY());
+			mapInsert.setString(4, t.tileId);
+			mapInsert.addBatch();
+
+		}
+
+		imageInsert.executeBatch();
+		mapInsert.executeBatch();
+		connection.commit();
+
+	}
+
+	private void writeMetadata() throws SQLException {
+
+		Map<String, String> metadata = new HashMap<>();
+
+		metadata.put("name", file.getName());
+		metadata.put("format", format);
+		metadata.put("type", "baselayer");
+
+		if (gzip) {
+			metadata.put("compression", "gzip");
+		}
+
+		try (Statement s = connection.createStatement();
+				ResultSet r = s.executeQuery("SELECT MIN(zoom_level), MAX(zoom_level) FROM map")) {
+
+			if (r.next() && r.getObject(1) != null) {
+
+				int minZoom = r.getInt(1);
+				int maxZoom = r.getInt(2);
+
+				metadata.put("minzoom", Integer.toString(minZoom));
+				metadata.put("maxzoom", Integer.toString(maxZoom));
+
+				LatLonBounds bounds = tileBounds(minZoom);
+				if (bounds != null) {
+					metadata.put("bounds", bounds.minlon + "," + bounds.minlat + "," + bounds.maxlon + "," + bounds.maxlat);
+				}
+
+			}
+
+		}
+
+		try (PreparedStatement insert = connection.prepareStatement(
+				"INSERT OR REPLACE INTO metadata (name, value) VALUES (?, ?)")) {
+			for (Map.Entry<String, String> entry : metadata.entrySet()) {
+				insert.setString(1, entry.getKey());
+				insert.setString(2, entry.getValue());
+				insert.addBatch();
+			}
+			insert.executeBatch();
+		}
+
+	}
+
+	/** returns the area covered by the tiles of one zoom level, or null if there are none */
+	private @Nullable LatLonBounds tileBounds(int zoom) throws SQLException {
+
+		try (PreparedStatement s = connection.prepareStatement("SELECT MIN(tile_column), MAX(tile_column),"
+				+ " MIN(tile_row), MAX(tile_row) FROM map WHERE zoom_level = ?")) {
+
+			s.setInt(1, zoom);
+
+			try (ResultSet r = s.executeQuery()) {
+
+				if (!r.next() || r.getObject(1) == null) return null;
+
+				int maxY = (1 << zoom) - 1;
+
+				List<LatLonBounds> cornerTiles = new ArrayList<>(2);
+				cornerTiles.add(new TileNumber(zoom, r.getInt(1), maxY - r.getInt(3)).bounds());
+				cornerTiles.add(new TileNumber(zoom, r.getInt(2), maxY - r.getInt(4)).bounds());
+
+				return LatLonBounds.union(cornerTiles);
+
+			}
+
+		}
+
+	}
+
+	private static byte[] compress(byte[] data) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream(data.length / 2 + 16);
+		try (GZIPOutputStream gzipStream = new GZIPOutputStream(result)) {
+			gzipStream.write(data);
+		}
+		return result.toByteArray();
+	}
+
+	private static String hash(byte[] data) {
+
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new Error(e); // every Java implementation is required to support SHA-256
+		}
+
+		byte[] hash = digest.digest(data);
+
+		StringBuilder result = new StringBuilder(hash.length * 2);
+		for (byte b : hash) {
+			result.append(String.format("%02x", b & 0xff));
+		}
+		return result.toString();
+
+	}
+
+}
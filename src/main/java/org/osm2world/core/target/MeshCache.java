@@ -0,0 +1,309 @@
+package org.osm2world.core.target;
+
+import static java.lang.Math.*;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.newSetFromMap;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Comparator.comparingInt;
+import static java.util.stream.Collectors.toList;
+import static org.osm2world.core.math.AxisAlignedRectangleXZ.bbox;
+import static org.osm2world.core.util.FaultTolerantIterationUtil.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.MapElement;
+import org.osm2world.core.map_elevation.data.GroundState;
+import org.osm2world.core.math.AxisAlignedRectangleXZ;
+import org.osm2world.core.math.BoundedObject;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.math.datastructures.IndexGrid;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
+import org.osm2world.core.target.common.mesh.Mesh;
+import org.osm2world.core.target.common.model.ModelInstance;
+import org.osm2world.core.world.data.LegacyWorldObject;
+import org.osm2world.core.world.data.WorldObject;
+
+/**
+ * the meshes and sub-models of all {@link WorldObject}s in a {@link MapData}.
+ * They are built once and can then be sent to any number of targets, including several targets at the same time.
+ * Instances cannot be modified after they have been created.
+ *
+ * {@link LegacyWorldObject}s are still rendered separately for each target
+ * because they rely on the draw methods of the individual target.
+ */
+public final class MeshCache {
+
+	static final class CachedObject {
+
+		final WorldObject object;
+
+		/** the object's meshes, null for {@link LegacyWorldObject}s */
+		final @Nullable List<Mesh> meshes;
+		final List<ModelInstance> subModels;
+
+		CachedObject(WorldObject object, @Nullable List<Mesh> meshes, List<ModelInstance> subModels) {
+			this.object = object;
+			this.meshes = meshes;
+			this.subModels = subModels;
+		}
+
+	}
+
+	/**
+	 * distance by which the bounding boxes of objects are extended if the extent of their geometry is not known,
+	 * i.e. for {@link LegacyWorldObject}s and sub-models
+	 */
+	private static final double UNKNOWN_EXTENT_MARGIN = 50;
+
+	/** the objects in the order in which {@link TargetUtil#renderWorldObjects(Target, MapData, boolean)} renders them */
+	final List<CachedObject> objects;
+
+	/** spatial index of the objects, created by the first call to {@link #filter(AxisAlignedRectangleXZ)} */
+	private @Nullable IndexGrid<IndexedObject> objectIndex = null;
+	private @Nullable AxisAlignedRectangleXZ objectIndexBounds = null;
+
+	MeshCache(List<CachedObject> objects) {
+		this.objects = objects;
+	}
+
+	/**
+	 * builds the meshes for all top-level {@link WorldObject}s of a {@link MapData}.
+	 * Objects are included regardless of their {@link GroundState},
+	 * the decision whether to render underground objects is made when the meshes are sent to targets.
+	 *
+	 * @param parallel  whether to build meshes for several objects at the same time
+	 */
+	public static MeshCache build(MapData mapData, boolean parallel) {
+
+		List<WorldObject> worldObjects = topLevelObjects(mapData.getMapElements());
+
+		Function<WorldObject, CachedObject> buildAction = MeshCache::buildCachedObject;
+
+		MaterialConfiguration materialConfiguration = MaterialConfiguration.getCurrent();
+		if (parallel && materialConfiguration != null) {
+			buildAction = o -> {
+				try (MaterialConfiguration.Scope scope = materialConfiguration.activate()) {
+					return buildCachedObject(o);
+				}
+			};
+		}
+
+		Stream<WorldObject> stream = parallel ? worldObjects.parallelStream() : worldObjects.stream();
+
+		return new MeshCache(stream.map(buildAction).filter(Objects::nonNull).collect(toList()));
+
+	}
+
+	/**
+	 * returns a cache in which the objects of some map elements have been replaced,
+	 * e.g. because these elements have been converted again after a change to the data.
+	 * Only the meshes of the added elements' objects are built, all other meshes are reused.
+	 *
+	 * @param removedElements  elements whose objects are no longer included
+	 * @param addedElements    elements whose objects are added after the remaining objects
+	 */
+	public MeshCache replaceElements(Iterable<? extends MapElement> removedElements,
+			Iterable<? extends MapElement> addedElements) {
+
+		Set<WorldObject> removedObjects = newSetFromMap(new IdentityHashMap<>());
+		removedObjects.addAll(topLevelObjects(removedElements));
+
+		List<CachedObject> result = new ArrayList<>(objects.size());
+
+		for (CachedObject object : objects) {
+			if (!removedObjects.contains(object.object)) {
+				result.add(object);
+			}
+		}
+
+		for (WorldObject object : topLevelObjects(addedElements)) {
+			CachedObject cachedObject = buildCachedObject(object);
+			if (cachedObject != null) {
+				result.add(cachedObject);
+			}
+		}
+
+		return new MeshCache(result);
+
+	}
+
+	private static List<WorldObject> topLevelObjects(Iterable<? extends MapElement> mapElements) {
+
+		List<WorldObject> result = new ArrayList<>();
+
+		for (MapElement mapElement : mapElements) {
+			for (WorldObject object : mapElement.getRepresentations()) {
+				if (object.getParent() == null) {
+					result.add(object);
+				}
+			}
+		}
+
+		return result;
+
+	}
+
+	private static @Nullable CachedObject buildCachedObject(WorldObject object) {
+		try {
+			if (object instanceof LegacyWorldObject) {
+				return new CachedObject(object, null, emptyList());
+			} else {
+				return new CachedObject(object,
+						unmodifiableList(new ArrayList<>(object.buildMeshes())),
+						unmodifiableList(new ArrayList<>(object.getSubModels())));
+			}
+		} catch (Exception | AssertionError e) {
+			DEFAULT_EXCEPTION_HANDLER.accept(e, object.getPrimaryMapElement());
+			return null;
+		}
+	}
+
+	/**
+	 * returns a cache which contains only those objects that may have geometry within the bounds.
+	 * This is useful when the results of one conversion are cut into many tiles,
+	 * because each tile's target then only receives nearby meshes instead of all of them.
+	 * The remaining objects are kept in their original order.
+	 * Can be called from multiple threads at the same time.
+	 */
+	public MeshCache filter(AxisAlignedRectangleXZ bounds) {
+
+		if (objects.isEmpty()) return new MeshCache(emptyList());
+
+		IndexGrid<IndexedObject> index;
+		AxisAlignedRectangleXZ indexBounds;
+
+		synchronized (this) {
+			if (objectIndex == null) {
+				createObjectIndex();
+			}
+			index = objectIndex;
+			indexBounds = objectIndexBounds;
+		}
+
+		if (!indexBounds.overlaps(bounds)) return new MeshCache(emptyList());
+
+		AxisAlignedRectangleXZ probeBounds = new AxisAlignedRectangleXZ(
+				max(bounds.minX, indexBounds.minX), max(bounds.minZ, indexBounds.minZ),
+				min(bounds.maxX, indexBounds.maxX), min(bounds.maxZ, indexBounds.maxZ));
+
+		Set<IndexedObject> candidates = new HashSet<>();
+		index.probe(probeBounds).forEach(candidates::add);
+
+		return new MeshCache(candidates.stream()
+				.filter(o -> o.boundingBox.overlaps(bounds))
+				.sorted(comparingInt(o -> o.index))
+				.map(o -> objects.get(o.index))
+				.collect(toList()));
+
+	}
+
+	private void createObjectIndex() {
+
+		List<IndexedObject> indexedObjects = new ArrayList<>(objects.size());
+		for (int i = 0; i < objects.size(); i++) {
+			indexedObjects.add(new IndexedObject(i, objects.get(i)));
+		}
+
+		objectIndexBounds = AxisAlignedRectangleXZ.bboxUnion(indexedObjects);
+
+		objectIndex = new IndexGrid<>(objectIndexBounds, 100.0, 100.0);
+		indexedObjects.forEach(objectIndex::insert);
+
+	}
+
+	/** a cached object with its position in {@link #objects} and the bounding box of its geometry */
+	private static final class IndexedObject implements BoundedObject {
+
+		final int index;
+		final AxisAlignedRectangleXZ boundingBox;
+
+		IndexedObject(int index, CachedObject o) {
+
+			this.index = index;
+
+			AxisAlignedRectangleXZ box = o.object.getPrimaryMapElement().boundingBox();
+
+			if (o.meshes == null) {
+				box = box.pad(UNKNOWN_EXTENT_MARGIN);
+			} else {
+				for (Mesh mesh : o.meshes) {
+					List<VectorXYZ> vertices = mesh.geometry.asTriangles().vertices();
+					if (!vertices.isEmpty()) {
+						box = AxisAlignedRectangleXZ.union(box, bbox(vertices));
+					}
+				}
+			}
+
+			for (ModelInstance subModel : o.subModels) {
+				box = AxisAlignedRectangleXZ.union(box, new AxisAlignedRectangleXZ(subModel.params.position.xz(),
+						2 * UNKNOWN_EXTENT_MARGIN, 2 * UNKNOWN_EXTENT_MARGIN));
+			}
+
+			this.boundingBox = box;
+
+		}
+
+		@Override
+		public AxisAlignedRectangleXZ boundingBox() {
+			return boundingBox;
+		}
+
+	}
+
+	/**
+	 * returns the number of triangles in all cached meshes.
+	 * Does not include sub-models and {@link LegacyWorldObject}s, whose geometry is not cached.
+	 */
+	public long getTriangleCount() {
+		long result = 0;
+		for (CachedObject o : objects) {
+			if (o.meshes != null) {
+				for (Mesh mesh : o.meshes) {
+					result += mesh.geometry.asTriangles().triangles.size();
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * sends the cached meshes to a target.
+	 * Equivalent to {@link TargetUtil#renderWorldObjects(Target, MapData, boolean)}.
+	 * Can be called for multiple targets at the same time.
+	 */
+	public void renderTo(Target target, boolean renderUnderground) {
+
+		forEach(objects, (CachedObject o) -> {
+			if (renderUnderground || o.object.getGroundState() != GroundState.BELOW) {
+				renderObject(target, o);
+			}
+		}, (e, o) -> DEFAULT_EXCEPTION_HANDLER.accept(e, o.object.getPrimaryMapElement()));
+
+	}
+
+	/** sends the meshes of a single object to a target, see {@link TargetUtil#renderObject(Target, WorldObject)} */
+	static void renderObject(Target target, CachedObject o) {
+
+		target.beginObject(o.object);
+
+		if (o.meshes == null) {
+			((LegacyWorldObject)o.object).renderTo(target);
+		} else {
+			o.meshes.forEach(target::drawMesh);
+			o.subModels.forEach(it -> target.drawModel(it.model, it.params.position, it.params.direction,
+					it.params.height, it.params.width, it.params.length));
+		}
+
+	}
+
+}
@@ -8,6 +8,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
 
+import javax.annotation.Nullable;
+
 import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.map_data.data.MapElement;
 import org.osm2world.core.map_elevation.data.GroundState;
@@ -37,6 +39,21 @@ public final class TargetUtil {
 		}
 	}
 
+	/**
+	 * variant of {@link #renderWorldObjects(Target, MapData, boolean)}
+	 * which uses previously built meshes if they are available
+	 *
+	 * @param meshCache  meshes for the world objects in mapData; can be null
+	 */
+	public static void renderWorldObjects(Target target, MapData mapData, @Nullable MeshCache meshCache,
+			boolean renderUnderground) {
+		if (meshCache != null) {
+			meshCache.renderTo(target, renderUnderground);
+		} else {
+			renderWorldObjects(target, mapData, renderUnderground);
+		}
+	}
+
 	/**
 	 * render all world objects to a target instances
 	 * that are compatible with that target type.
@@ -72,6 +89,43 @@ public final class TargetUtil {
 
 	}
 
+	/**
+	 * variant of {@link #renderWorldObjects(Iterator, MapData, int)}
+	 * which uses previously built meshes if they are available
+	 *
+	 * @param meshCache  meshes for the world objects in mapData; can be null
+	 */
+	public static void renderWorldObjects(Iterator<? extends Target> targetIterator, MapData mapData,
+			@Nullable MeshCache meshCache, int primitiveThresholdPerTarget) {
+
+		if (meshCache == null) {
+			renderWorldObjects(targetIterator, mapData, primitiveThresholdPerTarget);
+			return;
+		}
+
+		final StatisticsTarget primitiveCounter = new StatisticsTarget();
+
+		forEach(meshCache.objects, new Consumer<MeshCache.CachedObject>() {
+
+			Target currentTarget = targetIterator.next();
+
+			@Override public void accept(MeshCache.CachedObject o) {
+
+				MeshCache.renderObject(primitiveCounter, o);
+
+				MeshCache.renderObject(currentTarget, o);
+
+				if (primitiveCounter.getGlobalCount(PRIMITIVE_COUNT) >= primitiveThresholdPerTarget) {
+					currentTarget = targetIterator.next();
+					primitiveCounter.clear();
+				}
+
+			}
+
+		});
+
+	}
+
 	/**
 	 * renders any object to a target instance.
 	 * Also sends {@link Target#beginObject(WorldObject)} calls.
@@ -2,8 +2,10 @@ package org.osm2world.core.target.common;
 
 import static java.awt.Color.WHITE;
 import static java.util.Arrays.*;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.nCopies;
 import static java.util.stream.Collectors.toList;
+import static org.osm2world.core.math.GeometryUtil.interpolateBetween;
 
 import java.awt.Color;
 import java.util.ArrayList;
@@ -16,6 +18,7 @@ import java.util.Set;
 
 import javax.annotation.Nullable;
 
+import org.osm2world.core.math.InvalidGeometryException;
 import org.osm2world.core.math.TriangleXYZ;
 import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
@@ -70,7 +73,7 @@ public class MeshTarget extends AbstractTarget {
 
 		MeshMetadata metadata = (currentWorldObject != null)
 				? new MeshMetadata(currentWorldObject.getPrimaryMapElement().getElementWithId(),
-						currentWorldObject.getClass())
+						currentWorldObject.getObjectClass())
 				: new MeshMetadata(null, null);
 
 		meshStore.addMesh(mesh, metadata);
@@ -465,13 +468,29 @@ public class MeshTarget extends AbstractTarget {
 
 	}
 
-	/** removes all geometry outside a bounding shape */
+	/**
+	 * removes all geometry outside a bounding shape.
+	 *
+	 * By default, triangles are kept or removed as a whole depending on whether their center is within the bounds.
+	 * With exact clipping, triangles crossing the boundary of a convex shape are cut at the boundary instead,
+	 * so no vertex is outside the bounds. This is necessary for tiles, which would otherwise overlap their neighbours.
+	 */
 	public static class ClipToBounds implements MeshProcessingStep {
 
 		private final SimpleClosedShapeXZ bounds;
+		private final boolean exact;
 
 		public ClipToBounds(SimpleClosedShapeXZ bounds) {
+			this(bounds, false);
+		}
+
+		/**
+		 * @param exact  whether triangles crossing the boundary should be cut at the boundary.
+		 *               Only possible for convex bounds, for other shapes this falls back to the default behavior.
+		 */
+		public ClipToBounds(SimpleClosedShapeXZ bounds, boolean exact) {
 			this.bounds = bounds;
+			this.exact = exact && isConvex(bounds);
 		}
 
 		@Override
@@ -484,61 +503,84 @@ public class MeshTarget extends AbstractTarget {
 				Mesh mesh = meshWithMetadata.mesh;
 				TriangleGeometry tg = mesh.geometry.asTriangles();
 
-				/* mark triangles outside the bounds for removal */
+				List<VectorXYZ> normals = tg.normalData.normals();
 
-				Set<TriangleXYZ> trianglesToRemove = new HashSet<>();
+				List<TriangleXYZ> newTriangles = new ArrayList<>();
+				List<Color> newColors = tg.colors == null ? null : new ArrayList<>();
+				List<VectorXYZ> newNormals = new ArrayList<>();
+				List<List<VectorXZ>> newTexCoords = new ArrayList<>(tg.texCoords.size());
 
-				for (TriangleXYZ t : tg.triangles) {
-					if (!bounds.contains(t.getCenter().xz())) {
-						trianglesToRemove.add(t);
-					}
+				for (int layer = 0; layer < tg.texCoords.size(); layer++) {
+					newTexCoords.add(new ArrayList<>());
 				}
 
-				/* build a new mesh without the triangles outside the bounds */
+				boolean modified = false;
 
-				if (trianglesToRemove.size() == tg.triangles.size()) {
-					// entire mesh has been removed
-				} else if (trianglesToRemove.isEmpty()) {
-					result.add(meshWithMetadata);
-				} else {
+				for (int i = 0; i < tg.triangles.size(); i++) {
 
-					List<VectorXYZ> normals = tg.normalData.normals();
+					TriangleXYZ t = tg.triangles.get(i);
 
-					List<TriangleXYZ> newTriangles = new ArrayList<>();
-					List<Color> newColors = tg.colors == null ? null : new ArrayList<>();
-					List<VectorXYZ> newNormals = new ArrayList<>();
-					List<List<VectorXZ>> newTexCoords = new ArrayList<>(tg.texCoords.size());
+					List<ClipVertex> vertices = new ArrayList<>(3);
 
-					for (int layer = 0; layer < tg.texCoords.size(); layer++) {
-						newTexCoords.add(new ArrayList<>());
+					for (int j = 0; j <= 2; j++) {
+						List<VectorXZ> texCoords = new ArrayList<>(tg.texCoords.size());
+						for (List<VectorXZ> layerTexCoords : tg.texCoords) {
+							texCoords.add(layerTexCoords.get(3 * i + j));
+						}
+						vertices.add(new ClipVertex(t.vertices().get(j), normals.get(3 * i + j), texCoords,
+								tg.colors == null ? null : tg.colors.get(3 * i + j)));
 					}
 
-					for (int i = 0; i < tg.triangles.size(); i++) {
-						if (!trianglesToRemove.contains(tg.triangles.get(i))) {
+					if (vertices.stream().allMatch(v -> bounds.contains(v.pos.xz()))) {
+						// the triangle is entirely within the bounds and is kept unchanged
+					} else if (exact) {
+						vertices = clip(vertices);
+						modified = true;
+					} else {
+						if (!bounds.contains(t.getCenter().xz())) {
+							vertices = emptyList();
+						}
+						modified = true;
+					}
 
-							newTriangles.add(tg.triangles.get(i));
+					/* add the remaining polygon as a triangle fan */
 
-							for (int j = 0; j <= 2; j++) {
+					for (int j = 1; j + 1 < vertices.size(); j++) {
 
-								if (newColors != null) {
-									newColors.add(tg.colors.get(3 * i + j));
-								}
+						List<ClipVertex> triangleVertices = asList(vertices.get(0), vertices.get(j), vertices.get(j + 1));
 
-								newNormals.add(normals.get(3 * i + j));
+						TriangleXYZ triangle;
+						try {
+							triangle = new TriangleXYZ(triangleVertices.get(0).pos,
+									triangleVertices.get(1).pos, triangleVertices.get(2).pos);
+						} catch (InvalidGeometryException e) {
+							continue; // a sliver which has been cut off at a vertex
+						}
 
-								for (int layer = 0; layer < tg.texCoords.size(); layer ++) {
-									newTexCoords.get(layer).add(tg.texCoords.get(layer).get(3 * i + j));
-								}
+						newTriangles.add(triangle);
 
+						for (ClipVertex v : triangleVertices) {
+							if (newColors != null) {
+								newColors.add(v.color);
+							}
+							newNormals.add(v.normal);
+							for (int layer = 0; layer < tg.texCoords.size(); layer ++) {
+								newTexCoords.get(layer).add(v.texCoords.get(layer));
 							}
-
 						}
+
 					}
 
+				}
+
+				/* build a new mesh if triangles have been removed or modified */
+
+				if (!modified) {
+					result.add(meshWithMetadata);
+				} else if (!newTriangles.isEmpty()) {
 					TriangleGeometry.Builder builder = new TriangleGeometry.Builder(newTexCoords.size(), null, null);
 					builder.addTriangles(newTriangles, newTexCoords, newColors, newNormals);
 					result.add(new MeshWithMetadata(new Mesh(builder.build(), mesh.material), meshWithMetadata.metadata));
-
 				}
 
 			}
@@ -547,6 +589,112 @@ public class MeshTarget extends AbstractTarget {
 
 		}
 
+		/**
+		 * clips a convex polygon to the bounds, one boundary edge at a time (Sutherland-Hodgman algorithm).
+		 * Only the horizontal positions are tested against the bounds, so vertical faces are clipped correctly as well.
+		 */
+		private List<ClipVertex> clip(List<ClipVertex> polygon) {
+
+			List<VectorXZ> boundsVertices = bounds.verticesNoDup();
+			VectorXZ center = bounds.getCentroid();
+
+			for (int i = 0; i < boundsVertices.size() && !polygon.isEmpty(); i++) {
+
+				VectorXZ a = boundsVertices.get(i);
+				VectorXZ b = boundsVertices.get((i + 1) % boundsVertices.size());
+
+				double insideSign = Math.signum(side(a, b, center));
+
+				List<ClipVertex> clippedPolygon = new ArrayList<>(polygon.size() + 1);
+
+				for (int j = 0; j < polygon.size(); j++) {
+
+					ClipVertex v1 = polygon.get(j);
+					ClipVertex v2 = polygon.get((j + 1) % polygon.size());
+
+					double d1 = insideSign * side(a, b, v1.pos.xz());
+					double d2 = insideSign * side(a, b, v2.pos.xz());
+
+					if (d1 >= 0) {
+						clippedPolygon.add(v1);
+					}
+
+					if ((d1 >= 0) != (d2 >= 0) && d1 != d2) {
+						clippedPolygon.add(ClipVertex.interpolate(v1, v2, d1 / (d1 - d2)));
+					}
+
+				}
+
+				polygon = clippedPolygon;
+
+			}
+
+			return polygon;
+
+		}
+
+		/** returns a value whose sign indicates which side of the line through a and b a point is on */
+		private static double side(VectorXZ a, VectorXZ b, VectorXZ point) {
+			VectorXZ ab = b.subtract(a);
+			VectorXZ ap = point.subtract(a);
+			return ab.x * ap.z - ab.z * ap.x;
+		}
+
+		private static boolean isConvex(SimpleClosedShapeXZ shape) {
+			List<VectorXZ> vertices = shape.verticesNoDup();
+			double sign = 0;
+			for (int i = 0; i < vertices.size(); i++) {
+				double s = Math.signum(side(vertices.get(i), vertices.get((i + 1) % vertices.size()),
+						vertices.get((i + 2) % vertices.size())));
+				if (s != 0) {
+					if (sign != 0 && s != sign) return false;
+					sign = s;
+				}
+			}
+			return true;
+		}
+
+		/** a vertex of a polygon being clipped, with all the attributes which need to be interpolated */
+		private static class ClipVertex {
+
+			final VectorXYZ pos;
+			final VectorXYZ normal;
+			final List<VectorXZ> texCoords;
+			final @Nullable Color color;
+
+			ClipVertex(VectorXYZ pos, VectorXYZ normal, List<VectorXZ> texCoords, @Nullable Color color) {
+				this.pos = pos;
+				this.normal = normal;
+				this.texCoords = texCoords;
+				this.color = color;
+			}
+
+			static ClipVertex interpolate(ClipVertex v1, ClipVertex v2, double ratio) {
+
+				VectorXYZ normal = interpolateBetween(v1.normal, v2.normal, ratio);
+				normal = normal.length() > 0 ? normal.normalize() : v1.normal;
+
+				List<VectorXZ> texCoords = new ArrayList<>(v1.texCoords.size());
+				for (int layer = 0; layer < v1.texCoords.size(); layer++) {
+					texCoords.add(interpolateBetween(v1.texCoords.get(layer), v2.texCoords.get(layer), ratio));
+				}
+
+				Color color = null;
+				if (v1.color != null && v2.color != null) {
+					color = new Color(
+							(int) Math.round(v1.color.getRed() * (1 - ratio) + v2.color.getRed() * ratio),
+							(int) Math.round(v1.color.getGreen() * (1 - ratio) + v2.color.getGreen() * ratio),
+							(int) Math.round(v1.color.getBlue() * (1 - ratio) + v2.color.getBlue() * ratio));
+				} else if (v1.color != null || v2.color != null) {
+					color = v1.color != null ? v1.color : v2.color;
+				}
+
+				return new ClipVertex(interpolateBetween(v1.pos, v2.pos, ratio), normal, texCoords, color);
+
+			}
+
+		}
+
 	}
 
 	// TODO: implement additional processing steps
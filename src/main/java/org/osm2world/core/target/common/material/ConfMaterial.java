@@ -6,6 +6,8 @@ import java.util.List;
 
 /**
  * a material whose attributes can be configured at runtime.
+ * The attributes set on the material itself are defaults which can be overridden by the
+ * currently active {@link MaterialConfiguration}.
  */
 public class ConfMaterial extends Material {
 
@@ -25,6 +27,56 @@ public class ConfMaterial extends Material {
 		super(interpolation, color);
 	}
 
+	/**
+	 * returns the values for this material from the current {@link MaterialConfiguration},
+	 * or this material itself if it isn't configured there
+	 */
+	private ConfMaterial values() {
+		MaterialConfiguration configuration = MaterialConfiguration.getCurrent();
+		if (configuration != null) {
+			ConfMaterial values = configuration.getConfiguredValues(this);
+			if (values != null) {
+				return values;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public Interpolation getInterpolation() {
+		return values().interpolation;
+	}
+
+	@Override
+	public Color getColor() {
+		return values().color;
+	}
+
+	@Override
+	public boolean isDoubleSided() {
+		return values().doubleSided;
+	}
+
+	@Override
+	public Transparency getTransparency() {
+		return values().transparency;
+	}
+
+	@Override
+	public Shadow getShadow() {
+		return values().shadow;
+	}
+
+	@Override
+	public AmbientOcclusion getAmbientOcclusion() {
+		return values().ambientOcclusion;
+	}
+
+	@Override
+	public List<TextureLayer> getTextureLayers() {
+		return values().textureLayers;
+	}
+
 	public void setInterpolation(Interpolation interpolation) {
 		this.interpolation = interpolation;
 	}
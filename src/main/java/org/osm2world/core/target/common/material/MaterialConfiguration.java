@@ -0,0 +1,118 @@
+package org.osm2world.core.target.common.material;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+/**
+ * the attributes of {@link ConfMaterial}s for one conversion run.
+ * Instances are created by {@link Materials#createConfiguration(org.apache.commons.configuration.Configuration)}
+ * and are not modified afterwards.
+ *
+ * A {@link ConfMaterial} reports the attributes from the configuration which is active for the current thread,
+ * or from the default configuration if no configuration is active.
+ * This allows multiple conversions with different configurations to run at the same time.
+ * Code which distributes work to other threads needs to activate the configuration there as well,
+ * e.g. by using {@link #wrap(Consumer)}.
+ */
+public final class MaterialConfiguration {
+
+	private static final ThreadLocal<MaterialConfiguration> currentConfiguration = new ThreadLocal<>();
+
+	private static volatile @Nullable MaterialConfiguration defaultConfiguration = null;
+
+	/** configured attributes for materials, stored as copies of the materials */
+	private final Map<ConfMaterial, ConfMaterial> configuredValues = new HashMap<>();
+
+	/** materials which are defined in the configuration, but not in {@link Materials} */
+	private final Map<String, ConfMaterial> externalMaterials = new HashMap<>();
+
+	MaterialConfiguration() {}
+
+	/**
+	 * returns the configuration which is active for the current thread.
+	 * If there is none, the default configuration is returned, which can also be null.
+	 */
+	public static @Nullable MaterialConfiguration getCurrent() {
+		MaterialConfiguration result = currentConfiguration.get();
+		return result != null ? result : defaultConfiguration;
+	}
+
+	/**
+	 * sets the configuration that is used by threads which have not activated a configuration.
+	 * This is useful for applications which only run one conversion at a time, such as the viewer.
+	 *
+	 * @param configuration  the new default configuration; null to use the attributes of the materials
+	 */
+	public static void setDefault(@Nullable MaterialConfiguration configuration) {
+		defaultConfiguration = configuration;
+	}
+
+	/**
+	 * makes this the active configuration for the current thread until the returned scope is closed.
+	 * Intended for try-with-resources blocks.
+	 */
+	public Scope activate() {
+		Scope scope = new Scope(currentConfiguration.get());
+		currentConfiguration.set(this);
+		return scope;
+	}
+
+	/** returns a variant of an action which runs with this configuration active */
+	public <T> Consumer<T> wrap(Consumer<T> action) {
+		return (T t) -> {
+			try (Scope scope = activate()) {
+				action.accept(t);
+			}
+		};
+	}
+
+	/**
+	 * a period during which a configuration is active.
+	 * Closing it restores the previously active configuration.
+	 */
+	public static final class Scope implements AutoCloseable {
+
+		private final @Nullable MaterialConfiguration previousConfiguration;
+
+		private Scope(@Nullable MaterialConfiguration previousConfiguration) {
+			this.previousConfiguration = previousConfiguration;
+		}
+
+		@Override
+		public void close() {
+			if (previousConfiguration == null) {
+				currentConfiguration.remove();
+			} else {
+				currentConfiguration.set(previousConfiguration);
+			}
+		}
+
+	}
+
+	/** returns the configured attributes for a material, or null if the material has not been configured */
+	@Nullable ConfMaterial getConfiguredValues(ConfMaterial material) {
+		return configuredValues.get(material);
+	}
+
+	/**
+	 * returns a modifiable copy of a material's default attributes which will be used by this configuration.
+	 * Must only be used while the configuration is being created.
+	 */
+	ConfMaterial getOrCreateConfiguredValues(ConfMaterial material) {
+		return configuredValues.computeIfAbsent(material, m -> new ConfMaterial(m.interpolation, m.color,
+				m.doubleSided, m.transparency, m.shadow, m.ambientOcclusion, m.textureLayers));
+	}
+
+	@Nullable ConfMaterial getExternalMaterial(String name) {
+		return externalMaterials.get(name);
+	}
+
+	/** must only be used while the configuration is being created */
+	void addExternalMaterial(String name, ConfMaterial material) {
+		externalMaterials.put(name, material);
+	}
+
+}
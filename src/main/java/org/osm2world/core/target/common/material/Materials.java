@@ -265,7 +265,6 @@ public final class Materials {
 
 	private static final Map<String, ConfMaterial> surfaceMaterialMap = new HashMap<>();
 	private static final Map<ConfMaterial, String> fieldNameMap = new HashMap<>();
-	private static final Map<String, ConfMaterial> externalMaterials = new HashMap<>();
 
 	static {
 
@@ -316,11 +315,16 @@ public final class Materials {
 	}
 
 	/**
-	 * returns a material defined here based on its name
+	 * returns a material defined here or in the current {@link MaterialConfiguration} based on its name
 	 *
 	 * @param name  case-insensitive name of the material
 	 */
 	public static final @Nullable ConfMaterial getMaterial(@Nullable String name) {
+		return getMaterial(name, MaterialConfiguration.getCurrent());
+	}
+
+	private static final @Nullable ConfMaterial getMaterial(@Nullable String name,
+			@Nullable MaterialConfiguration configuration) {
 
 		if (name == null) return null;
 
@@ -333,13 +337,11 @@ public final class Materials {
 		}
 
 		/*
-		 * If the material is not defined in Materials.java, loop
-		 * through externalMaterials map
+		 * If the material is not defined in Materials.java,
+		 * look for materials defined only in the configuration
 		 */
-		for (String key : externalMaterials.keySet()) {
-			if (name.equals(key)) {
-				return externalMaterials.get(name);
-			}
+		if (configuration != null) {
+			return configuration.getExternalMaterial(name);
 		}
 
 		return null;
@@ -380,9 +382,24 @@ public final class Materials {
 
 	/**
 	 * configures the attributes of the materials within this class
-	 * based on external configuration settings
+	 * based on external configuration settings.
+	 * The configuration becomes the default for all threads,
+	 * so this should not be used if multiple conversions may run at the same time.
+	 *
+	 * @see #createConfiguration(Configuration)
 	 */
 	public static final void configureMaterials(Configuration config) {
+		MaterialConfiguration.setDefault(createConfiguration(config));
+	}
+
+	/**
+	 * creates a {@link MaterialConfiguration} for the materials within this class
+	 * based on external configuration settings.
+	 * Unlike {@link #configureMaterials(Configuration)}, this does not modify any global state.
+	 */
+	public static final MaterialConfiguration createConfiguration(Configuration config) {
+
+		MaterialConfiguration configuration = new MaterialConfiguration();
 
 		Map<String, ConfMaterial> texturePrefixMap = new HashMap<>();
 
@@ -397,15 +414,17 @@ public final class Materials {
 			if (matcher.matches()) {
 
 				String materialName = matcher.group(1);
-				ConfMaterial material = getMaterial(materialName);
+				ConfMaterial baseMaterial = getMaterial(materialName, configuration);
 
 				/* If material is not defined in Materials.java, create new material
-				 * and add it to externalMaterials map */
-				if (material == null) {
-					material = new ConfMaterial(Interpolation.FLAT, Color.white);
-					externalMaterials.put(materialName, material);
+				 * and add it to the configuration's external materials */
+				if (baseMaterial == null) {
+					baseMaterial = new ConfMaterial(Interpolation.FLAT, Color.white);
+					configuration.addExternalMaterial(materialName, baseMaterial);
 				}
 
+				ConfMaterial material = configuration.getOrCreateConfiguredValues(baseMaterial);
+
 				String attribute = matcher.group(2);
 
 				if ("interpolation".equals(attribute)) {
@@ -494,6 +513,8 @@ public final class Materials {
 
 		}
 
+		return configuration;
+
 	}
 
 	private static @Nullable TextureLayer createTextureLayer(Configuration config, String keyPrefix) {
@@ -28,11 +28,7 @@ public class RasterImageFileTexture extends ImageFileTexture {
 	}
 
 	@Override
-	public String getDataUri() {
-		return imageToDataUri(getBufferedImage(), getRasterImageFileFormat());
-	}
-
-	private String getRasterImageFileFormat() {
+	public String getRasterImageFormat() {
 		return (getFile().getName().endsWith(".png")) ? "png" : "jpeg";
 	}
 
@@ -74,6 +74,11 @@ public abstract class TextureData {
 	/** calculation rule for texture coordinates */
 	public final @Nullable TexCoordFunction coordFunction;
 
+	/*
+	 * cached results. Textures are shared between threads, e.g. when tiles are written in parallel,
+	 * so all access to these fields is synchronized on the texture.
+	 */
+
 	/** cached result of {@link #getAverageColor()} */
 	private LColor averageColor = null;
 
@@ -112,15 +117,17 @@ public abstract class TextureData {
 	 *
 	 * @param resolution  parameter to request a specific resolution
 	 */
-	public final BufferedImage getBufferedImage(Resolution resolution) {
-		if (!bufferedImageByResolution.containsKey(resolution)) {
-			bufferedImageByResolution.put(resolution, createBufferedImage(resolution));
+	public final synchronized BufferedImage getBufferedImage(Resolution resolution) {
+		BufferedImage result = bufferedImageByResolution.get(resolution);
+		if (result == null) {
+			result = createBufferedImage(resolution);
+			bufferedImageByResolution.put(resolution, result);
 		}
-		return bufferedImageByResolution.get(resolution);
+		return result;
 	}
 
 	/** see {@link #getBufferedImage(Resolution)} */
-	public final BufferedImage getBufferedImage() {
+	public final synchronized BufferedImage getBufferedImage() {
 		if (bufferedImage == null) {
 			bufferedImage = createBufferedImage();
 			bufferedImageByResolution.put(Resolution.of(bufferedImage), bufferedImage);
@@ -138,11 +145,27 @@ public abstract class TextureData {
 	 * returns the texture as a data URI containing a raster image.
 	 */
 	public String getDataUri() {
-		return imageToDataUri(getBufferedImage(), "png");
+		return "data:image/" + getRasterImageFormat() + ";base64,"
+				+ DatatypeConverter.printBase64Binary(getRasterImageBytes());
+	}
+
+	/**
+	 * returns the texture encoded as a raster image in the format returned by {@link #getRasterImageFormat()}.
+	 */
+	public byte[] getRasterImageBytes() {
+		return imageToBytes(getBufferedImage(), getRasterImageFormat());
+	}
+
+	/**
+	 * returns the informal name of the raster image format used by {@link #getRasterImageBytes()},
+	 * such as "png" or "jpeg". The MIME type is "image/" followed by this name.
+	 */
+	public String getRasterImageFormat() {
+		return "png";
 	}
 
 	/** averages the color values (in linear color space) */
-	public LColor getAverageColor() {
+	public synchronized LColor getAverageColor() {
 
 		if (averageColor == null) {
 
@@ -183,12 +206,11 @@ public abstract class TextureData {
 
 	}
 
-	protected static final String imageToDataUri(BufferedImage image, String format) {
+	protected static final byte[] imageToBytes(BufferedImage image, String format) {
 		try {
 			ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
 		    ImageIO.write(image, format, byteArrayOutputStream);
-		    return "data:image/" + format + ";base64,"
-		    		+ DatatypeConverter.printBase64Binary(byteArrayOutputStream.toByteArray());
+		    return byteArrayOutputStream.toByteArray();
 		} catch (IOException e) {
 		    throw new Error(e);
 		}
@@ -16,6 +16,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -45,6 +46,7 @@ import org.osm2world.core.math.shapes.CircleXZ;
 import org.osm2world.core.math.shapes.PolygonShapeXZ;
 import org.osm2world.core.math.shapes.PolylineXZ;
 import org.osm2world.core.math.shapes.ShapeXZ;
+import org.osm2world.core.target.MeshCache;
 import org.osm2world.core.target.TargetUtil;
 import org.osm2world.core.target.common.MeshStore;
 import org.osm2world.core.target.common.MeshStore.MeshMetadata;
@@ -90,12 +92,17 @@ import org.osm2world.core.world.modules.StreetFurnitureModule.PostBox;
 import org.osm2world.core.world.modules.StreetFurnitureModule.VendingMachineVice;
 import org.osm2world.core.world.modules.StreetFurnitureModule.WasteBasket;
 
-import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
 public class FrontendPbfTarget extends MeshTarget {
 
+	/**
+	 * the parameters used to build a model's geometry, which is then placed by each instance.
+	 * Instances are assumed to use 1 as the unscaled height.
+	 */
+	public static final InstanceParameters MODEL_GEOMETRY_PARAMS = new InstanceParameters(NULL_VECTOR, 0.0, 1.0, null, null);
+
 	/**
 	 * whether gaps in the terrain should be concealed with a big rectangle slightly below other ground-level geometries
 	 */
@@ -139,11 +146,13 @@ public class FrontendPbfTarget extends MeshTarget {
 
 	/**
 	 * simple implementation of {@link Block}.
-	 * Works for any content type, but slow for large numbers of elements.
+	 * Works for any content type with consistent implementations of {@link Object#equals(Object)}
+	 * and {@link Object#hashCode()}.
 	 */
 	static class SimpleBlock<T> implements Block<T> {
 
 		List<T> elements = new ArrayList<T>();
+		Map<T, Integer> indexMap = new HashMap<>();
 
 		@Override
 		public List<T> getElements() {
@@ -154,11 +163,12 @@ public class FrontendPbfTarget extends MeshTarget {
 		@Override
 		public int toIndex(T element) {
 
-			int index = elements.indexOf(element);
+			Integer index = indexMap.get(element);
 
-			if (index < 0) {
+			if (index == null) {
 				elements.add(element);
 				index = elements.size() - 1;
+				indexMap.put(element, index);
 			}
 
 			return index;
@@ -169,33 +179,29 @@ public class FrontendPbfTarget extends MeshTarget {
 
 	/**
 	 * implementation of {@link Block} that's optimized for {@link Vector3D} instances.
+	 * Vectors are considered identical if their coordinates are identical after rounding them
+	 * with the precision factor that is also used when writing them to the file.
+	 * Uses an open addressing hash table of the rounded coordinates.
 	 */
 	static class VectorBlock<T extends Vector3D> implements Block<T> {
 
-		private static class Entry<T extends Vector3D> implements Comparable<Entry<T>> {
+		private final double precisionFactor;
 
-			private final T element;
-			private final int index;
+		List<T> elements = new ArrayList<T>();
 
-			public Entry(T element, int index) {
-				this.element = element;
-				this.index = index;
-			}
+		/** the rounded coordinates of the elements, 3 values per element */
+		private long[] coords = new long[3 * 16];
 
-			@Override
-			public int compareTo(Entry<T> o) {
-				return ComparisonChain.start()
-						.compare(this.element.getX(), o.element.getX())
-						.compare(this.element.getY(), o.element.getY())
-						.compare(this.element.getZ(), o.element.getZ())
-						.result();
-			}
+		/** hash table containing the index of an element + 1 at each occupied slot, and 0 at empty slots */
+		private int[] table = new int[32];
 
+		/**
+		 * @param precisionFactor  factor applied to coordinates before rounding them to integers
+		 */
+		public VectorBlock(double precisionFactor) {
+			this.precisionFactor = precisionFactor;
 		}
 
-		List<T> elements = new ArrayList<T>();
-		List<Entry<T>> sortedEntrys = new ArrayList<Entry<T>>();
-
 		@Override
 		public List<T> getElements() {
 			return elements;
@@ -205,21 +211,63 @@ public class FrontendPbfTarget extends MeshTarget {
 		@Override
 		public int toIndex(T element) {
 
-			int index = binarySearch(sortedEntrys, new Entry<T>(element, -1));
+			long x = round(element.getX() * precisionFactor);
+			long y = round(element.getY() * precisionFactor);
+			long z = round(element.getZ() * precisionFactor);
 
-			if (index >= 0) {
-				return sortedEntrys.get(index).index;
-			} else {
+			int mask = table.length - 1;
 
-				elements.add(element);
+			for (int slot = hash(x, y, z) & mask; ; slot = (slot + 1) & mask) {
 
-				Entry<T> entry = new Entry<T>(element, elements.size() - 1);
-				sortedEntrys.add(-(index + 1), entry);
+				int index = table[slot] - 1;
 
-				return entry.index;
+				if (index < 0) {
+					break;
+				} else if (coords[3 * index] == x && coords[3 * index + 1] == y && coords[3 * index + 2] == z) {
+					return index;
+				}
+
+			}
+
+			/* add the new element */
+
+			int index = elements.size();
+			elements.add(element);
 
+			if (coords.length < 3 * elements.size()) {
+				coords = Arrays.copyOf(coords, 2 * coords.length);
+			}
+
+			coords[3 * index] = x;
+			coords[3 * index + 1] = y;
+			coords[3 * index + 2] = z;
+
+			if (2 * elements.size() > table.length) {
+				table = new int[2 * table.length];
+				for (int i = 0; i < elements.size(); i++) {
+					insertIntoTable(i);
+				}
+			} else {
+				insertIntoTable(index);
 			}
 
+			return index;
+
+		}
+
+		private void insertIntoTable(int index) {
+			int mask = table.length - 1;
+			int slot = hash(coords[3 * index], coords[3 * index + 1], coords[3 * index + 2]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = index + 1;
+		}
+
+		private static int hash(long x, long y, long z) {
+			long h = (x * 31 + y) * 31 + z;
+			h *= 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
 		}
 
 	}
@@ -234,8 +282,8 @@ public class FrontendPbfTarget extends MeshTarget {
 	private final AxisAlignedRectangleXZ bbox;
 	private final MapProjection projection;
 
-	private final Block<VectorXYZ> vector3dBlock = new VectorBlock<>();
-	private final Block<VectorXZ> vector2dBlock = new VectorBlock<>();
+	private final Block<VectorXYZ> vector3dBlock = new VectorBlock<>(COORD_PRECISION_FACTOR);
+	private final Block<VectorXZ> vector2dBlock = new VectorBlock<>(COORD_PRECISION_FACTOR);
 	private final Block<String> stringBlock = new SimpleBlock<>();
 	private final Block<ShapeXZ> shapeBlock = new SimpleBlock<>();
 	private final Block<Material> materialBlock = new SimpleBlock<>();
@@ -274,7 +322,7 @@ public class FrontendPbfTarget extends MeshTarget {
 		if (!bbox.contains(position.xz())) return;
 
 		MeshMetadata worldObjectMetadata = new MeshMetadata(currentWorldObject.getPrimaryMapElement().getElementWithId(),
-				currentWorldObject.getClass());
+				currentWorldObject.getObjectClass());
 
 		if (!modelInstancesByWO.containsKey(worldObjectMetadata)) {
 			modelInstancesByWO.put(worldObjectMetadata, HashMultimap.create());
@@ -422,8 +470,7 @@ public class FrontendPbfTarget extends MeshTarget {
 	}
 
 	private FrontendPbf.WorldObject convertModel(Model m, TextureAtlasGroup textureAtlasGroup) {
-		InstanceParameters params = new InstanceParameters(NULL_VECTOR, 0.0, 1.0, null, null);
-		MeshStore tempMeshStore = new MeshStore(m.buildMeshes(params), null);
+		MeshStore tempMeshStore = new MeshStore(m.buildMeshes(MODEL_GEOMETRY_PARAMS), null);
 		tempMeshStore = tempMeshStore.process(asList(new ReplaceTexturesWithAtlas(textureAtlasGroup)));
 		return buildWorldObject(null, tempMeshStore.meshes(), HashMultimap.create());
 	}
@@ -800,6 +847,17 @@ public class FrontendPbfTarget extends MeshTarget {
 
 	public static void writePbfFile(File outputFile, MapData mapData,
 			AxisAlignedRectangleXZ bbox, MapProjection projection) throws IOException {
+		writePbfFile(outputFile, mapData, null, bbox, projection);
+	}
+
+	/**
+	 * variant of {@link #writePbfFile(File, MapData, AxisAlignedRectangleXZ, MapProjection)}
+	 * which uses previously built meshes
+	 *
+	 * @param meshCache  meshes for the world objects in mapData; can be null
+	 */
+	public static void writePbfFile(File outputFile, MapData mapData, @Nullable MeshCache meshCache,
+			AxisAlignedRectangleXZ bbox, MapProjection projection) throws IOException {
 
 		FileOutputStream output = null;
 
@@ -807,7 +865,7 @@ public class FrontendPbfTarget extends MeshTarget {
 
 			output = new FileOutputStream(outputFile);
 
-			writePbfStream(output, mapData, bbox, projection);
+			writePbfStream(output, mapData, meshCache, bbox, projection);
 
 		} finally {
 			if (output != null) {
@@ -819,6 +877,17 @@ public class FrontendPbfTarget extends MeshTarget {
 
 	public static void writePbfStream(OutputStream output, MapData mapData,
 			AxisAlignedRectangleXZ bbox, MapProjection projection) throws IOException {
+		writePbfStream(output, mapData, null, bbox, projection);
+	}
+
+	/**
+	 * variant of {@link #writePbfStream(OutputStream, MapData, AxisAlignedRectangleXZ, MapProjection)}
+	 * which uses previously built meshes
+	 *
+	 * @param meshCache  meshes for the world objects in mapData; can be null
+	 */
+	public static void writePbfStream(OutputStream output, MapData mapData, @Nullable MeshCache meshCache,
+			AxisAlignedRectangleXZ bbox, MapProjection projection) throws IOException {
 
 		if (bbox == null) {
 			bbox = mapData.getBoundary();
@@ -826,7 +895,7 @@ public class FrontendPbfTarget extends MeshTarget {
 
 		FrontendPbfTarget target = new FrontendPbfTarget(output, bbox, projection);
 
-		TargetUtil.renderWorldObjects(target, mapData, false);
+		TargetUtil.renderWorldObjects(target, mapData, meshCache, false);
 
 		target.finish();
 
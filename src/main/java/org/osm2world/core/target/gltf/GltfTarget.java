@@ -1,16 +1,26 @@
 package org.osm2world.core.target.gltf;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
 import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.toList;
 import static org.osm2world.core.math.algorithms.NormalCalculationUtil.calculateTriangleNormals;
+import static org.osm2world.core.math.algorithms.VertexCacheOptimizationUtil.*;
 import static org.osm2world.core.target.TargetUtil.flipTexCoordsVertically;
 import static org.osm2world.core.target.common.material.Material.Interpolation.SMOOTH;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -61,6 +71,7 @@ import org.osm2world.core.util.FaultTolerantIterationUtil;
 import org.osm2world.core.util.color.LColor;
 
 import com.google.common.collect.Multimap;
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonIOException;
 
@@ -68,23 +79,81 @@ import jakarta.xml.bind.DatatypeConverter;
 
 public class GltfTarget extends MeshTarget {
 
-	private final File outputFile;
+	/** the two file formats defined by the glTF specification */
+	public static enum GltfFlavor {
+
+		/** a JSON file (.gltf) with binary data embedded as a base64 data URI */
+		GLTF,
+
+		/**
+		 * a binary file (.glb) consisting of compact JSON and a binary chunk.
+		 * All binary data, including embedded textures, is stored in the binary chunk.
+		 */
+		GLB
+
+	}
+
+	private static final int GLB_MAGIC = 0x46546C67; // "glTF"
+	private static final int GLB_VERSION = 2;
+	private static final int GLB_CHUNK_TYPE_JSON = 0x4E4F534A;
+	private static final int GLB_CHUNK_TYPE_BIN = 0x004E4942;
+
+	private static final String KHR_MESH_QUANTIZATION = "KHR_mesh_quantization";
+
+	/** the file to write to, null if {@link #outputStream} is used instead */
+	private final @Nullable File outputFile;
+	private final @Nullable OutputStream outputStream;
+	private final GltfFlavor flavor;
 	private final @Nullable SimpleClosedShapeXZ bounds;
 
+	/** whether geometry is cut at the bounds regardless of the clipToBounds setting, see {@link #setClipToBounds} */
+	private boolean forceClipToBounds = false;
+
 	/** the gltf asset under construction */
 	private final Gltf gltf = new Gltf();
 
+	/** the content of the asset's only buffer, which is shared by all buffer views */
+	private final BinaryData binaryData = new BinaryData();
+
 	private final Map<Material, Integer> materialIndexMap = new HashMap<>();
 	private final Map<String, Integer> imageIndexMap = new HashMap<>();
+	private final Map<TextureData, Integer> embeddedImageIndexMap = new HashMap<>();
 
-	public GltfTarget(File outputFile, @Nullable SimpleClosedShapeXZ bounds) {
+	public GltfTarget(File outputFile, GltfFlavor flavor, @Nullable SimpleClosedShapeXZ bounds) {
 		this.outputFile = outputFile;
+		this.outputStream = null;
+		this.flavor = flavor;
+		this.bounds = bounds;
+	}
+
+	/**
+	 * creates a target which writes the asset to a stream instead of a file.
+	 * The stream is not closed by {@link #finish()}.
+	 */
+	public GltfTarget(OutputStream outputStream, GltfFlavor flavor, @Nullable SimpleClosedShapeXZ bounds) {
+		this.outputFile = null;
+		this.outputStream = outputStream;
+		this.flavor = flavor;
 		this.bounds = bounds;
 	}
 
+	public GltfTarget(File outputFile, @Nullable SimpleClosedShapeXZ bounds) {
+		this(outputFile, GltfFlavor.GLTF, bounds);
+	}
+
+	/**
+	 * makes this target cut all geometry exactly at its bounds, regardless of the clipToBounds setting.
+	 * This is used for tiles, which must not contain geometry belonging to their neighbours.
+	 *
+	 * @param clipToBounds  true to always clip; false to let the clipToBounds setting decide
+	 */
+	public void setClipToBounds(boolean clipToBounds) {
+		this.forceClipToBounds = clipToBounds;
+	}
+
 	@Override
 	public String toString() {
-		return "GltfTarget(" + outputFile + ")";
+		return "GltfTarget(" + (outputFile != null ? outputFile : outputStream) + ")";
 	}
 
 	@Override
@@ -113,7 +182,9 @@ public class GltfTarget extends MeshTarget {
 				new ReplaceTexturesWithAtlas(),
 				new MergeMeshes(mergeOptions)));
 
-		if (clipToBounds && bounds != null) {
+		if (forceClipToBounds && bounds != null) {
+			processingSteps.add(1, new ClipToBounds(bounds, true));
+		} else if (clipToBounds && bounds != null) {
 			processingSteps.add(1, new ClipToBounds(bounds));
 		}
 
@@ -153,8 +224,10 @@ public class GltfTarget extends MeshTarget {
 			List<Integer> meshNodeIndizes = new ArrayList<>(meshesByMetadata.size());
 
 			FaultTolerantIterationUtil.forEach(meshesByMetadata.get(objectMetadata), (Mesh mesh) -> {
-				int index = createNode(createMesh(mesh), null);
-				meshNodeIndizes.add(index);
+				GltfNode node = new GltfNode();
+				node.mesh = createMesh(mesh, node);
+				gltf.nodes.add(node);
+				meshNodeIndizes.add(gltf.nodes.size() - 1);
 			});
 
 			if (keepOsmElements) {
@@ -174,6 +247,24 @@ public class GltfTarget extends MeshTarget {
 
 		}
 
+		/* declare extensions */
+
+		if (config.getBoolean("gltfQuantization", false) && !gltf.meshes.isEmpty()) {
+			gltf.extensionsUsed = asList(KHR_MESH_QUANTIZATION);
+			gltf.extensionsRequired = asList(KHR_MESH_QUANTIZATION);
+		}
+
+		/* create the buffer containing all binary data */
+
+		if (binaryData.size() > 0) {
+			GltfBuffer buffer = new GltfBuffer(binaryData.size());
+			if (flavor == GltfFlavor.GLTF) {
+				buffer.uri = "data:application/gltf-buffer;base64,"
+						+ DatatypeConverter.printBase64Binary(binaryData.toByteArray());
+			}
+			gltf.buffers.add(buffer);
+		}
+
 		/* use null instead of [] when lists are empty */
 
 		if (gltf.accessors.isEmpty()) {
@@ -208,16 +299,94 @@ public class GltfTarget extends MeshTarget {
 			gltf.textures = null;
 		}
 
-		/* write the JSON file */
+		/* write the file */
 
-		try (FileWriter writer = new FileWriter(outputFile)) {
-			new GsonBuilder().setPrettyPrinting().create().toJson(gltf, writer);
+		try {
+			if (flavor == GltfFlavor.GLB) {
+				writeGlb(new Gson().toJson(gltf));
+			} else if (outputFile != null) {
+				try (FileWriter writer = new FileWriter(outputFile)) {
+					new GsonBuilder().setPrettyPrinting().create().toJson(gltf, writer);
+				}
+			} else {
+				Writer writer = new OutputStreamWriter(outputStream, UTF_8);
+				new GsonBuilder().setPrettyPrinting().create().toJson(gltf, writer);
+				writer.flush();
+			}
 		} catch (JsonIOException | IOException e) {
 			throw new RuntimeException(e);
 		}
 
 	}
 
+	/**
+	 * writes the .glb file: a header, a chunk with the JSON and a chunk with the binary data.
+	 * Chunks are padded to a multiple of 4 bytes as required by the specification.
+	 */
+	private void writeGlb(String json) throws IOException {
+
+		byte[] jsonBytes = json.getBytes(UTF_8);
+		int jsonChunkLength = paddedLength(jsonBytes.length);
+		int binChunkLength = paddedLength(binaryData.size());
+
+		int totalLength = 12 + 8 + jsonChunkLength;
+		if (binChunkLength > 0) {
+			totalLength += 8 + binChunkLength;
+		}
+
+		if (outputFile != null) {
+			try (FileChannel channel = FileChannel.open(outputFile.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+				writeGlb(channel, jsonBytes, jsonChunkLength, binChunkLength, totalLength);
+			}
+		} else {
+			// not closed because the stream belongs to the caller
+			writeGlb(Channels.newChannel(outputStream), jsonBytes, jsonChunkLength, binChunkLength, totalLength);
+			outputStream.flush();
+		}
+
+	}
+
+	private void writeGlb(WritableByteChannel channel, byte[] jsonBytes,
+			int jsonChunkLength, int binChunkLength, int totalLength) throws IOException {
+
+		ByteBuffer header = ByteBuffer.allocate(12 + 8 + jsonChunkLength).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(GLB_MAGIC);
+		header.putInt(GLB_VERSION);
+		header.putInt(totalLength);
+		header.putInt(jsonChunkLength);
+		header.putInt(GLB_CHUNK_TYPE_JSON);
+		header.put(jsonBytes);
+		while (header.hasRemaining()) {
+			header.put((byte) ' ');
+		}
+		header.flip();
+		writeFully(channel, header);
+
+		if (binChunkLength > 0) {
+
+			ByteBuffer chunkHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			chunkHeader.putInt(binChunkLength);
+			chunkHeader.putInt(GLB_CHUNK_TYPE_BIN);
+			chunkHeader.flip();
+			writeFully(channel, chunkHeader);
+
+			writeFully(channel, binaryData.asByteBuffer());
+			writeFully(channel, ByteBuffer.allocate(binChunkLength - binaryData.size()));
+
+		}
+
+	}
+
+	private static void writeFully(WritableByteChannel channel, ByteBuffer byteBuffer) throws IOException {
+		while (byteBuffer.hasRemaining()) {
+			channel.write(byteBuffer);
+		}
+	}
+
+	private static int paddedLength(int length) {
+		return (length + 3) & ~3;
+	}
+
 	/** creates a {@link GltfNode} and returns its index in {@link Gltf#nodes} */
 	private int createNode(@Nullable Integer meshIndex, @Nullable List<Integer> childNodeIndices) {
 
@@ -233,8 +402,16 @@ public class GltfTarget extends MeshTarget {
 
 	}
 
-	/** creates a {@link GltfMesh} and returns its index in {@link Gltf#meshes} */
-	private int createMesh(Mesh mesh) {
+	/**
+	 * creates a {@link GltfMesh} and returns its index in {@link Gltf#meshes}
+	 *
+	 * @param node  the node which will reference the mesh.
+	 * If vertex positions are quantized, this method sets the node's transformation.
+	 */
+	private int createMesh(Mesh mesh, GltfNode node) {
+
+		// whether to use KHR_mesh_quantization for more compact vertex attributes
+		boolean quantize = config.getBoolean("gltfQuantization", false);
 
 		GltfMesh gltfMesh = new GltfMesh();
 
@@ -265,25 +442,80 @@ public class GltfTarget extends MeshTarget {
 		}
 		primitive.material = materialIndex;
 
-		/* put geometry into buffers and set up accessors */
-		// TODO consider using indices
+		/* collect the vertex attributes for each triangle corner */
 
 		primitive.mode = GltfMesh.TRIANGLES;
 
 		List<VectorXYZ> positions = new ArrayList<>(3 * triangles.size());
 		triangles.forEach(t -> positions.addAll(t.verticesNoDup()));
-		primitive.attributes.put("POSITION", createAccessor(3, positions));
 
 		List<VectorXYZ> normals = calculateTriangleNormals(triangles, material.getInterpolation() == SMOOTH);
-		primitive.attributes.put("NORMAL", createAccessor(3, normals));
 
-		if (material.getNumTextureLayers() > 0) {
-			primitive.attributes.put("TEXCOORD_0", createAccessor(2, texCoordLists.get(0)));
+		List<VectorXZ> texCoords = material.getNumTextureLayers() > 0 ? texCoordLists.get(0) : null;
+
+		List<VectorXYZ> colorsAsVectors = colors == null ? null
+				: colors.stream().map(c -> new VectorXYZ(c.red, c.green, -c.blue)).collect(toList());
+
+		/* weld corners with identical attributes into shared vertices */
+
+		int[] indices = new int[positions.size()];
+		List<Integer> cornerForVertex = new ArrayList<>();
+		Map<VertexKey, Integer> vertexIndexMap = new HashMap<>();
+
+		for (int i = 0; i < positions.size(); i++) {
+			VertexKey vertex = new VertexKey(positions.get(i), normals.get(i),
+					texCoords == null ? null : texCoords.get(i),
+					colorsAsVectors == null ? null : colorsAsVectors.get(i));
+			Integer index = vertexIndexMap.get(vertex);
+			if (index == null) {
+				index = cornerForVertex.size();
+				cornerForVertex.add(i);
+				vertexIndexMap.put(vertex, index);
+			}
+			indices[i] = index;
+		}
+
+		int vertexCount = cornerForVertex.size();
+
+		/* reorder triangles and vertices for efficient rendering */
+
+		indices = optimizeTriangleOrder(indices, vertexCount);
+
+		int[] newVertexIndex = optimizeVertexOrder(indices, vertexCount);
+		int[] vertexCorners = new int[vertexCount];
+		for (int v = 0; v < vertexCount; v++) {
+			vertexCorners[newVertexIndex[v]] = cornerForVertex.get(v);
+		}
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = newVertexIndex[indices[i]];
 		}
 
-		if (colors != null) {
-			List<VectorXYZ> colorsAsVectors = colors.stream().map(c -> new VectorXYZ(c.red, c.green, -c.blue)).collect(toList());
-			primitive.attributes.put("COLOR_0", createAccessor(3, colorsAsVectors));
+		/* put geometry into buffers and set up accessors */
+
+		primitive.indices = createIndexAccessor(indices, vertexCount);
+
+		List<VectorXYZ> vertexPositions = selectVertices(positions, vertexCorners);
+		List<VectorXYZ> vertexNormals = selectVertices(normals, vertexCorners);
+
+		if (quantize) {
+			primitive.attributes.put("POSITION", createQuantizedPositionAccessor(vertexPositions, node));
+			primitive.attributes.put("NORMAL", createQuantizedNormalAccessor(vertexNormals));
+		} else {
+			primitive.attributes.put("POSITION", createAccessor(3, vertexPositions));
+			primitive.attributes.put("NORMAL", createAccessor(3, vertexNormals));
+		}
+
+		if (texCoords != null) {
+			List<VectorXZ> vertexTexCoords = selectVertices(texCoords, vertexCorners);
+			if (quantize && vertexTexCoords.stream().allMatch(t -> t.x >= 0 && t.x <= 1 && t.z >= 0 && t.z <= 1)) {
+				primitive.attributes.put("TEXCOORD_0", createQuantizedTexCoordAccessor(vertexTexCoords));
+			} else {
+				primitive.attributes.put("TEXCOORD_0", createAccessor(2, vertexTexCoords));
+			}
+		}
+
+		if (colorsAsVectors != null) {
+			primitive.attributes.put("COLOR_0", createAccessor(3, selectVertices(colorsAsVectors, vertexCorners)));
 		}
 
 		gltf.meshes.add(gltfMesh);
@@ -301,50 +533,209 @@ public class GltfTarget extends MeshTarget {
 		default: throw new UnsupportedOperationException("invalid numComponents: " + numComponents);
 		}
 
+		float[][] values = new float[vs.size()][];
+
+		for (int i = 0; i < vs.size(); i++) {
+			values[i] = components(numComponents, vs.get(i));
+		}
+
+		return createAccessor(type, GltfAccessor.TYPE_FLOAT, false, values);
+
+	}
+
+	/**
+	 * creates an accessor with quantized positions and sets the node's transformation to restore the original values.
+	 * The same scale factor is used for all axes to avoid distorting the normals.
+	 */
+	private int createQuantizedPositionAccessor(List<VectorXYZ> vs, GltfNode node) {
+
+		float[][] values = new float[vs.size()][];
+
+		float[] min = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+		float maxExtent = 0;
+
+		for (int i = 0; i < vs.size(); i++) {
+			values[i] = components(3, vs.get(i));
+			for (int c = 0; c < 3; c++) {
+				min[c] = Math.min(min[c], values[i][c]);
+			}
+		}
+
+		for (float[] value : values) {
+			for (int c = 0; c < 3; c++) {
+				maxExtent = Math.max(maxExtent, value[c] - min[c]);
+			}
+		}
+
+		float scale = maxExtent > 0 ? maxExtent / 65535 : 1;
+
+		for (float[] value : values) {
+			for (int c = 0; c < 3; c++) {
+				value[c] = Math.round((value[c] - min[c]) / scale);
+			}
+		}
+
+		node.translation = min;
+		node.scale = new float[] {scale, scale, scale};
+
+		return createAccessor("VEC3", GltfAccessor.TYPE_UNSIGNED_SHORT, false, values);
+
+	}
+
+	private int createQuantizedNormalAccessor(List<VectorXYZ> vs) {
+
+		float[][] values = new float[vs.size()][];
+
+		for (int i = 0; i < vs.size(); i++) {
+			values[i] = components(3, vs.get(i));
+			for (int c = 0; c < 3; c++) {
+				values[i][c] = Math.round(values[i][c] * 127);
+			}
+		}
+
+		return createAccessor("VEC3", GltfAccessor.TYPE_BYTE, true, values);
+
+	}
+
+	/** creates an accessor for texture coordinates, all of which need to be in the range [0, 1] */
+	private int createQuantizedTexCoordAccessor(List<VectorXZ> vs) {
+
+		float[][] values = new float[vs.size()][];
+
+		for (int i = 0; i < vs.size(); i++) {
+			values[i] = components(2, vs.get(i));
+			for (int c = 0; c < 2; c++) {
+				values[i][c] = Math.round(values[i][c] * 65535);
+			}
+		}
+
+		return createAccessor("VEC2", GltfAccessor.TYPE_UNSIGNED_SHORT, true, values);
+
+	}
+
+	/**
+	 * creates an accessor for vertex attributes.
+	 * Each element is padded to a multiple of 4 bytes as required for vertex attributes.
+	 *
+	 * @param values  the components for each element, already converted to the range of the component type
+	 */
+	private int createAccessor(String type, int componentType, boolean normalized, float[][] values) {
+
+		int numComponents = values[0].length;
+
 		float[] min = new float[numComponents];
 		float[] max = new float[numComponents];
 
 		Arrays.fill(min, Float.POSITIVE_INFINITY);
 		Arrays.fill(max, Float.NEGATIVE_INFINITY);
 
-		int byteLength = 4 /* FLOAT */ * numComponents * vs.size();
+		int elementLength = componentSize(componentType) * numComponents;
+		int byteStride = paddedLength(elementLength);
 
-		ByteBuffer byteBuffer = ByteBuffer.allocate(byteLength);
+		ByteBuffer byteBuffer = ByteBuffer.allocate(byteStride * values.length);
 		byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
 
-		for (Vector3D v : vs) {
+		for (int i = 0; i < values.length; i++) {
+
+			byteBuffer.position(i * byteStride);
+
+			for (int c = 0; c < numComponents; c++) {
 
-			float[] components = components(numComponents, v);
+				float value = values[i][c];
+
+				switch (componentType) {
+				case GltfAccessor.TYPE_BYTE:
+				case GltfAccessor.TYPE_UNSIGNED_BYTE:
+					byteBuffer.put((byte) (int) value);
+					break;
+				case GltfAccessor.TYPE_SHORT:
+				case GltfAccessor.TYPE_UNSIGNED_SHORT:
+					byteBuffer.putShort((short) (int) value);
+					break;
+				case GltfAccessor.TYPE_FLOAT:
+					byteBuffer.putFloat(value);
+					break;
+				default:
+					throw new UnsupportedOperationException("invalid componentType: " + componentType);
+				}
+
+				min[c] = Math.min(min[c], value);
+				max[c] = Math.max(max[c], value);
 
-			for (int i = 0; i < numComponents; i++) {
-				byteBuffer.putFloat(components[i]);
-				min[i] = Math.min(min[i], components[i]);
-				max[i] = Math.max(max[i], components[i]);
 			}
 
 		}
 
-	    String dataUri = "data:application/gltf-buffer;base64,"
-	    		+ DatatypeConverter.printBase64Binary(byteBuffer.array());
+		GltfAccessor accessor = new GltfAccessor(componentType, values.length, type);
+		accessor.bufferView = createBufferView(byteBuffer.array(), GltfBufferView.TARGET_ARRAY_BUFFER);
+		if (byteStride != elementLength) {
+			gltf.bufferViews.get(accessor.bufferView).byteStride = byteStride;
+		}
+		if (normalized) {
+			accessor.normalized = true;
+		} else {
+			accessor.min = min;
+			accessor.max = max;
+		}
+		gltf.accessors.add(accessor);
+
+		return gltf.accessors.size() - 1;
+
+	}
 
-		GltfBuffer buffer = new GltfBuffer(byteLength);
-		buffer.uri = dataUri;
-		gltf.buffers.add(buffer);
-		int bufferIndex = gltf.buffers.size() - 1;
+	/**
+	 * creates an accessor for the indices of a primitive.
+	 * Uses 16 bit indices if possible, and 32 bit indices otherwise.
+	 */
+	private int createIndexAccessor(int[] indices, int vertexCount) {
 
-		GltfBufferView view = new GltfBufferView(bufferIndex, byteLength);
-		gltf.bufferViews.add(view);
+		// the largest value of each type is reserved for primitive restart, and must not be used
+		boolean useShort = vertexCount < 0xFFFF;
 
-		GltfAccessor accessor = new GltfAccessor(GltfAccessor.TYPE_FLOAT, vs.size(), type);
-		accessor.bufferView = gltf.bufferViews.size() - 1;
-		accessor.min = min;
-		accessor.max = max;
+		ByteBuffer byteBuffer = ByteBuffer.allocate(indices.length * (useShort ? 2 : 4));
+		byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		for (int index : indices) {
+			if (useShort) {
+				byteBuffer.putShort((short) index);
+			} else {
+				byteBuffer.putInt(index);
+			}
+		}
+
+		GltfAccessor accessor = new GltfAccessor(
+				useShort ? GltfAccessor.TYPE_UNSIGNED_SHORT : GltfAccessor.TYPE_UNSIGNED_INT,
+				indices.length, "SCALAR");
+		accessor.bufferView = createBufferView(byteBuffer.array(), GltfBufferView.TARGET_ELEMENT_ARRAY_BUFFER);
 		gltf.accessors.add(accessor);
 
 		return gltf.accessors.size() - 1;
 
 	}
 
+	/**
+	 * appends data to the shared buffer and creates a {@link GltfBufferView} for it.
+	 * Each view starts at a multiple of 4 bytes, which satisfies the alignment requirements of all accessor types.
+	 *
+	 * @return  the view's index in {@link Gltf#bufferViews}
+	 */
+	private int createBufferView(byte[] data, @Nullable Integer target) {
+
+		while (binaryData.size() % 4 != 0) {
+			binaryData.write(0);
+		}
+
+		GltfBufferView view = new GltfBufferView(0, data.length);
+		view.byteOffset = binaryData.size();
+		view.target = target;
+
+		binaryData.write(data, 0, data.length);
+
+		gltf.bufferViews.add(view);
+		return gltf.bufferViews.size() - 1;
+
+	}
+
 	private int createMaterial(Material m, @Nullable TextureLayer textureLayer) {
 
 		GltfMaterial material = new GltfMaterial();
@@ -416,15 +807,21 @@ public class GltfTarget extends MeshTarget {
 		// whether images should be embedded in the glTF file instead of referenced using a path
 		boolean alwaysEmbedTextures = config.getBoolean("alwaysEmbedTextures", true);
 
-		String uri;
+		int imageIndex;
 		if (alwaysEmbedTextures || !(textureData instanceof RasterImageFileTexture)) {
-			uri = textureData.getDataUri();
+			if (flavor == GltfFlavor.GLB) {
+				imageIndex = embeddedImageIndexMap.containsKey(textureData)
+						? embeddedImageIndexMap.get(textureData)
+						: createEmbeddedImage(textureData);
+			} else {
+				String uri = textureData.getDataUri();
+				imageIndex = imageIndexMap.containsKey(uri) ? imageIndexMap.get(uri) : createImage(uri);
+			}
 		} else {
-			uri = ((ImageFileTexture)textureData).getFile().getPath();
+			String uri = ((ImageFileTexture)textureData).getFile().getPath();
+			imageIndex = imageIndexMap.containsKey(uri) ? imageIndexMap.get(uri) : createImage(uri);
 		}
 
-		int imageIndex = imageIndexMap.containsKey(uri) ? imageIndexMap.get(uri) : createImage(uri);
-
 		GltfSampler sampler = new GltfSampler();
 		switch (textureData.wrap) {
 		case CLAMP:
@@ -463,6 +860,43 @@ public class GltfTarget extends MeshTarget {
 
 	}
 
+	/** creates a {@link GltfImage} stored in a buffer view instead of a URI */
+	private int createEmbeddedImage(TextureData textureData) {
+
+		GltfImage image = new GltfImage();
+		image.bufferView = createBufferView(textureData.getRasterImageBytes(), null);
+		image.mimeType = "image/" + textureData.getRasterImageFormat();
+
+		gltf.images.add(image);
+		int index = gltf.images.size() - 1;
+
+		embeddedImageIndexMap.put(textureData, index);
+
+		return index;
+
+	}
+
+	private static <T> List<T> selectVertices(List<T> cornerValues, int[] vertexCorners) {
+		List<T> result = new ArrayList<>(vertexCorners.length);
+		for (int corner : vertexCorners) {
+			result.add(cornerValues.get(corner));
+		}
+		return result;
+	}
+
+	private static int componentSize(int componentType) {
+		switch (componentType) {
+		case GltfAccessor.TYPE_BYTE:
+		case GltfAccessor.TYPE_UNSIGNED_BYTE:
+			return 1;
+		case GltfAccessor.TYPE_SHORT:
+		case GltfAccessor.TYPE_UNSIGNED_SHORT:
+			return 2;
+		default:
+			return 4;
+		}
+	}
+
 	private static float[] components(int numComponents, Vector3D v) {
 		if (numComponents == 2) {
 			return new float[] {
@@ -479,6 +913,60 @@ public class GltfTarget extends MeshTarget {
 		}
 	}
 
+	/** the combination of vertex attributes which identifies a vertex for the purpose of welding */
+	private static final class VertexKey {
+
+		private final double[] values;
+
+		VertexKey(VectorXYZ position, VectorXYZ normal, @Nullable VectorXZ texCoord, @Nullable VectorXYZ color) {
+
+			values = new double[11];
+
+			values[0] = position.x;
+			values[1] = position.y;
+			values[2] = position.z;
+			values[3] = normal.x;
+			values[4] = normal.y;
+			values[5] = normal.z;
+
+			if (texCoord != null) {
+				values[6] = texCoord.x;
+				values[7] = texCoord.z;
+			}
+
+			if (color != null) {
+				values[8] = color.x;
+				values[9] = color.y;
+				values[10] = color.z;
+			}
+
+			for (int i = 0; i < values.length; i++) {
+				values[i] += 0.0; // turns -0.0 into 0.0
+			}
+
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof VertexKey && Arrays.equals(values, ((VertexKey) obj).values);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(values);
+		}
+
+	}
+
+	/** a growable byte array which provides access to its content without copying it */
+	private static class BinaryData extends ByteArrayOutputStream {
+
+		public ByteBuffer asByteBuffer() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+
+	}
+
 	private static void addMeshNameAndId(GltfNode node, MeshMetadata metadata) {
 
 		MapRelation.Element mapElement = metadata.mapElement;
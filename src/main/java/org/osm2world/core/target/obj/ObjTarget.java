@@ -93,8 +93,8 @@ public class ObjTarget extends FaceTarget {
 
 			/* maybe start a group depending on the object's class */
 
-			if (!object.getClass().equals(currentWOGroup)) {
-				currentWOGroup = object.getClass();
+			if (!object.getObjectClass().equals(currentWOGroup)) {
+				currentWOGroup = object.getObjectClass();
 				objStream.println("g " + currentWOGroup.getSimpleName());
 			}
 
@@ -104,11 +104,11 @@ public class ObjTarget extends FaceTarget {
 			TagSet tags = object.getPrimaryMapElement().getTags();
 
 			if (tags.containsKey("name")) {
-				objStream.println("o " + object.getClass().getSimpleName() + " " + tags.getValue("name"));
+				objStream.println("o " + object.getObjectClass().getSimpleName() + " " + tags.getValue("name"));
 			} else if (tags.containsKey("ref")) {
-				objStream.println("o " + object.getClass().getSimpleName() + " " + tags.getValue("ref"));
+				objStream.println("o " + object.getObjectClass().getSimpleName() + " " + tags.getValue("ref"));
 			} else {
-				objStream.println("o " + object.getClass().getSimpleName() + anonymousWOCounter ++);
+				objStream.println("o " + object.getObjectClass().getSimpleName() + anonymousWOCounter ++);
 			}
 
 		}
@@ -7,13 +7,18 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+
+import javax.annotation.Nullable;
 
 import org.osm2world.core.GlobalValues;
 import org.osm2world.core.map_data.creation.MapProjection;
 import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.target.MeshCache;
 import org.osm2world.core.target.TargetUtil;
 import org.osm2world.core.target.common.rendering.Camera;
 import org.osm2world.core.target.common.rendering.Projection;
@@ -31,6 +36,20 @@ public final class ObjWriter {
 			MapProjection mapProjection,
 			Camera camera, Projection projection, boolean underground)
 			throws IOException {
+		writeObjFile(objFile, mapData, null, mapProjection, camera, projection, underground);
+	}
+
+	/**
+	 * variant of {@link #writeObjFile(File, MapData, MapProjection, Camera, Projection, boolean)}
+	 * which uses previously built meshes
+	 *
+	 * @param meshCache  meshes for the world objects in mapData; can be null
+	 */
+	public static final void writeObjFile(
+			File objFile, MapData mapData, @Nullable MeshCache meshCache,
+			MapProjection mapProjection,
+			Camera camera, Projection projection, boolean underground)
+			throws IOException {
 
 		if (!objFile.exists()) {
 			objFile.createNewFile();
@@ -60,7 +79,7 @@ public final class ObjWriter {
 
 			ObjTarget target = new ObjTarget(objStream, mtlStream, objFile.getParentFile());
 
-			TargetUtil.renderWorldObjects(target, mapData, underground);
+			TargetUtil.renderWorldObjects(target, mapData, meshCache, underground);
 
 		}
 
@@ -72,6 +91,21 @@ public final class ObjWriter {
 			Camera camera, Projection projection,
 			int primitiveThresholdPerFile)
 			throws IOException {
+		writeObjFiles(objDirectory, mapData, null, mapProjection, camera, projection, primitiveThresholdPerFile);
+	}
+
+	/**
+	 * variant of {@link #writeObjFiles(File, MapData, MapProjection, Camera, Projection, int)}
+	 * which uses previously built meshes
+	 *
+	 * @param meshCache  meshes for the world objects in mapData; can be null
+	 */
+	public static final void writeObjFiles(
+			final File objDirectory, MapData mapData, @Nullable MeshCache meshCache,
+			final MapProjection mapProjection,
+			Camera camera, Projection projection,
+			int primitiveThresholdPerFile)
+			throws IOException {
 
 		if (!objDirectory.exists()) {
 			objDirectory.mkdir();
@@ -91,6 +125,8 @@ public final class ObjWriter {
 
 		/* create iterator which creates and wraps .obj files as needed */
 
+		List<PrintStream> objStreams = new ArrayList<>();
+
 		Iterator<ObjTarget> objIterator = new Iterator<ObjTarget>() {
 
 			private int fileCounter = 0;
@@ -119,6 +155,7 @@ public final class ObjWriter {
 					}
 
 					objStream = new PrintStream(objFile);
+					objStreams.add(objStream);
 
 					writeObjHeader(objStream, mapProjection);
 
@@ -143,8 +180,9 @@ public final class ObjWriter {
 
 		/* write file content */
 
-		TargetUtil.renderWorldObjects(objIterator, mapData, primitiveThresholdPerFile);
+		TargetUtil.renderWorldObjects(objIterator, mapData, meshCache, primitiveThresholdPerFile);
 
+		objStreams.forEach(PrintStream::close);
 		mtlStream.close();
 
 	}
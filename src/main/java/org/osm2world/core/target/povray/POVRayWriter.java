@@ -5,10 +5,13 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Locale;
 
+import javax.annotation.Nullable;
+
 import org.osm2world.core.GlobalValues;
 import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.map_data.data.MapElement;
 import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.target.MeshCache;
 import org.osm2world.core.target.TargetUtil;
 import org.osm2world.core.target.common.lighting.GlobalLightingParameters;
 import org.osm2world.core.target.common.rendering.Camera;
@@ -26,6 +29,18 @@ public final class POVRayWriter {
 	public static final void writePOVInstructionFile(File file, MapData mapData,
 			Camera camera, Projection projection)
 			throws IOException {
+		writePOVInstructionFile(file, mapData, null, camera, projection);
+	}
+
+	/**
+	 * variant of {@link #writePOVInstructionFile(File, MapData, Camera, Projection)}
+	 * which uses previously built meshes
+	 *
+	 * @param meshCache  meshes for the world objects in mapData; can be null
+	 */
+	public static final void writePOVInstructionFile(File file, MapData mapData, @Nullable MeshCache meshCache,
+			Camera camera, Projection projection)
+			throws IOException {
 
 		if (!file.exists()) {
 			file.createNewFile();
@@ -34,14 +49,14 @@ public final class POVRayWriter {
 		PrintStream printStream = new PrintStream(file);
 
 		writePOVInstructionStringToStream(printStream,
-				mapData, camera, projection);
+				mapData, meshCache, camera, projection);
 
 		printStream.close();
 
 	}
 
 	private static final void writePOVInstructionStringToStream(
-			PrintStream stream, MapData mapData,
+			PrintStream stream, MapData mapData, @Nullable MeshCache meshCache,
 			Camera camera, Projection projection) {
 
 		POVRayTarget target = new POVRayTarget(stream);
@@ -96,7 +111,7 @@ public final class POVRayWriter {
 
 		target.append("\n\n//\n//Map data\n//\n\n");
 
-		TargetUtil.renderWorldObjects(target, mapData, true);
+		TargetUtil.renderWorldObjects(target, mapData, meshCache, true);
 
 	}
 
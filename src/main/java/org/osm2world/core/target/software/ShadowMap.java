@@ -0,0 +1,142 @@
+package org.osm2world.core.target.software;
+
+import static java.lang.Math.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.osm2world.core.math.VectorXYZ;
+
+/**
+ * depth map of the scene as seen from a directional light source.
+ * Used by {@link SoftwareRasterizerTarget} to determine whether a point is lit.
+ */
+final class ShadowMap {
+
+	/** number of rows of the map which are rasterized together by one thread */
+	private static final int BAND_HEIGHT = 64;
+
+	private final int width;
+	private final int height;
+	private final float[] depths;
+
+	/** orthonormal basis of the light's view, forward points away from the light */
+	private final VectorXYZ right, up, forward;
+
+	private final double minX, minY;
+	private final double scaleX, scaleY;
+
+	/** depth offset preventing surfaces from shadowing themselves */
+	private final double bias;
+
+	/**
+	 * @param positions           vertex positions of shadow-casting triangles as x, y, z triples
+	 * @param lightFromDirection  direction towards the light source
+	 */
+	ShadowMap(double[] positions, VectorXYZ lightFromDirection, int width, int height) {
+
+		this.width = width;
+		this.height = height;
+
+		forward = lightFromDirection.normalize().invert();
+		VectorXYZ upCandidate = abs(forward.y) < 0.99 ? VectorXYZ.Y_UNIT : VectorXYZ.Z_UNIT;
+		right = upCandidate.crossNormalized(forward);
+		up = forward.crossNormalized(right);
+
+		/* transform vertices to the light's view and find the bounds */
+
+		int vertexCount = positions.length / 3;
+		double[] lightCoords = new double[positions.length];
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < vertexCount; i++) {
+			double x = positions[3 * i], y = positions[3 * i + 1], z = positions[3 * i + 2];
+			lightCoords[3 * i] = x * right.x + y * right.y + z * right.z;
+			lightCoords[3 * i + 1] = x * up.x + y * up.y + z * up.z;
+			lightCoords[3 * i + 2] = x * forward.x + y * forward.y + z * forward.z;
+			minX = min(minX, lightCoords[3 * i]);
+			minY = min(minY, lightCoords[3 * i + 1]);
+			maxX = max(maxX, lightCoords[3 * i]);
+			maxY = max(maxY, lightCoords[3 * i + 1]);
+		}
+
+		if (vertexCount == 0) {
+			minX = minY = 0;
+			maxX = maxY = 1;
+		}
+
+		this.minX = minX;
+		this.minY = minY;
+		this.scaleX = width / max(maxX - minX, 1e-3);
+		this.scaleY = height / max(maxY - minY, 1e-3);
+
+		bias = 0.05 + 2 / min(scaleX, scaleY);
+
+		/* rasterize the depths, each band of rows in parallel */
+
+		depths = new float[width * height];
+		Arrays.fill(depths, Float.POSITIVE_INFINITY);
+
+		for (int i = 0; i < vertexCount; i++) {
+			lightCoords[3 * i] = (lightCoords[3 * i] - minX) * scaleX;
+			lightCoords[3 * i + 1] = (lightCoords[3 * i + 1] - minY) * scaleY;
+		}
+
+		int bandCount = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+
+		List<List<Integer>> trianglesByBand = new ArrayList<>(bandCount);
+		for (int b = 0; b < bandCount; b++) {
+			trianglesByBand.add(new ArrayList<>());
+		}
+
+		for (int t = 0; t < vertexCount / 3; t++) {
+			int i = 9 * t;
+			double triangleMinY = min(lightCoords[i + 1], min(lightCoords[i + 4], lightCoords[i + 7]));
+			double triangleMaxY = max(lightCoords[i + 1], max(lightCoords[i + 4], lightCoords[i + 7]));
+			int firstBand = max(0, (int) floor(triangleMinY) / BAND_HEIGHT);
+			int lastBand = min(bandCount - 1, (int) ceil(triangleMaxY) / BAND_HEIGHT);
+			for (int b = firstBand; b <= lastBand; b++) {
+				trianglesByBand.get(b).add(t);
+			}
+		}
+
+		IntStream.range(0, bandCount).parallel().forEach(b -> {
+			for (int t : trianglesByBand.get(b)) {
+				int i = 9 * t;
+				double z0 = lightCoords[i + 2], z1 = lightCoords[i + 5], z2 = lightCoords[i + 8];
+				TriangleRasterizer.rasterize(
+						lightCoords[i], lightCoords[i + 1],
+						lightCoords[i + 3], lightCoords[i + 4],
+						lightCoords[i + 6], lightCoords[i + 7],
+						0, b * BAND_HEIGHT, width, min(height, (b + 1) * BAND_HEIGHT),
+						(x, y, b0, b1, b2) -> {
+							float depth = (float) (b0 * z0 + b1 * z1 + b2 * z2);
+							int index = y * width + x;
+							if (depth < depths[index]) {
+								depths[index] = depth;
+							}
+						});
+			}
+		});
+
+	}
+
+	/** returns true if the position is hidden from the light source by some other surface */
+	boolean isShadowed(double x, double y, double z) {
+
+		int mapX = (int) floor((x * right.x + y * right.y + z * right.z - minX) * scaleX);
+		int mapY = (int) floor((x * up.x + y * up.y + z * up.z - minY) * scaleY);
+
+		if (mapX < 0 || mapX >= width || mapY < 0 || mapY >= height) return false;
+
+		double depth = x * forward.x + y * forward.y + z * forward.z;
+
+		return depth - bias > depths[mapY * width + mapX];
+
+	}
+
+}
@@ -0,0 +1,788 @@
+package org.osm2world.core.target.software;
+
+import static java.lang.Math.*;
+import static java.util.Comparator.comparingDouble;
+import static java.util.stream.Collectors.toList;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.configuration.Configuration;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.math.VectorXZ;
+import org.osm2world.core.target.common.Primitive.Type;
+import org.osm2world.core.target.common.PrimitiveTarget;
+import org.osm2world.core.target.common.lighting.GlobalLightingParameters;
+import org.osm2world.core.target.common.material.Material;
+import org.osm2world.core.target.common.material.Material.Shadow;
+import org.osm2world.core.target.common.material.Material.Transparency;
+import org.osm2world.core.target.common.material.TextureData;
+import org.osm2world.core.target.common.material.TextureData.Wrap;
+import org.osm2world.core.target.common.material.TextureLayer;
+import org.osm2world.core.target.common.mesh.Mesh;
+import org.osm2world.core.target.common.mesh.TriangleGeometry;
+import org.osm2world.core.target.common.rendering.Camera;
+import org.osm2world.core.target.common.rendering.Projection;
+import org.osm2world.core.util.color.LColor;
+
+/**
+ * target which renders images on the CPU, without requiring OpenGL.
+ *
+ * The results are intended to resemble those of the fixed function JOGL target:
+ * Lighting is calculated per vertex with the same ambient factor,
+ * back faces of single-sided materials are culled,
+ * and transparent triangles are blended in back-to-front order after all opaque ones.
+ * Only the first texture layer of each material is used.
+ * Vertex colors of meshes are multiplied with the material's color.
+ *
+ * The image is divided into tiles which are rendered in parallel, each with its own depth buffer.
+ * Large images can be rendered in horizontal strips using {@link #renderRows(Camera, Projection, int, int, int, int, int[])}.
+ */
+public class SoftwareRasterizerTarget extends PrimitiveTarget {
+
+	private static final float AMBIENT_FACTOR = 0.5f;
+
+	/** width and height of the tiles which are rendered in parallel, in pixels */
+	private static final int TILE_SIZE = 64;
+
+	/* layout of the per-vertex attribute arrays used during projection */
+	private static final int VX = 0, VY = 1, VZ = 2, U = 3, V = 4, LAMBERT = 5, WX = 6, WY = 7, WZ = 8,
+			CR = 9, CG = 10, CB = 11;
+	private static final int ATTRIBUTE_COUNT = 12;
+
+	private final @Nullable GlobalLightingParameters lighting;
+
+	private final List<SceneTriangle> triangles = new ArrayList<>();
+
+	private final Map<Material, RasterMaterial> rasterMaterials = new HashMap<>();
+	private final Map<TextureData, RasterTexture> rasterTextures = new HashMap<>();
+
+	private boolean shadowsEnabled = false;
+	private int shadowMapWidth = 4096;
+	private int shadowMapHeight = 4096;
+
+	private boolean finished = false;
+	private @Nullable ShadowMap shadowMap = null;
+
+	/** triangles projected for the most recently rendered view */
+	private @Nullable ProjectedScene projectedScene = null;
+
+	/**
+	 * @param lighting  global lighting; null disables lighting
+	 */
+	public SoftwareRasterizerTarget(@Nullable GlobalLightingParameters lighting) {
+		this.lighting = lighting;
+	}
+
+	@Override
+	public void setConfiguration(Configuration config) {
+		super.setConfiguration(config);
+		shadowsEnabled = "shadowMap".equals(this.config.getString("shadowImplementation"))
+				|| "both".equals(this.config.getString("shadowImplementation"));
+		shadowMapWidth = this.config.getInt("shadowMapWidth", 4096);
+		shadowMapHeight = this.config.getInt("shadowMapHeight", 4096);
+	}
+
+	/** draws a mesh, keeping its vertex colors (which are lost when drawing it as primitives) */
+	@Override
+	public void drawMesh(Mesh mesh) {
+
+		TriangleGeometry tg = mesh.geometry.asTriangles();
+
+		if (tg.colors == null) {
+			super.drawMesh(mesh);
+			return;
+		}
+
+		List<VectorXYZ> vs = tg.vertices();
+		List<VectorXYZ> normals = tg.normalData.normals();
+
+		RasterMaterial rasterMaterial = rasterMaterialForPrimitive(mesh.material);
+		List<VectorXZ> texCoords = texCoordsForPrimitive(rasterMaterial, tg.texCoords);
+
+		for (int i = 0; i + 2 < vs.size(); i += 3) {
+			addTriangle(rasterMaterial, vs, normals, texCoords, tg.colors, i, i + 1, i + 2);
+		}
+
+	}
+
+	@Override
+	protected void drawPrimitive(Type type, Material material, List<VectorXYZ> vs, List<VectorXYZ> normals,
+			List<List<VectorXZ>> texCoordLists) {
+
+		RasterMaterial rasterMaterial = rasterMaterialForPrimitive(material);
+		List<VectorXZ> texCoords = texCoordsForPrimitive(rasterMaterial, texCoordLists);
+
+		switch (type) {
+
+		case TRIANGLES:
+			for (int i = 0; i + 2 < vs.size(); i += 3) {
+				addTriangle(rasterMaterial, vs, normals, texCoords, null, i, i + 1, i + 2);
+			}
+			break;
+
+		case TRIANGLE_STRIP:
+			for (int i = 0; i + 2 < vs.size(); i++) {
+				if (i % 2 == 0) {
+					addTriangle(rasterMaterial, vs, normals, texCoords, null, i, i + 1, i + 2);
+				} else {
+					addTriangle(rasterMaterial, vs, normals, texCoords, null, i + 1, i, i + 2);
+				}
+			}
+			break;
+
+		case TRIANGLE_FAN:
+		case CONVEX_POLYGON:
+			for (int i = 1; i + 1 < vs.size(); i++) {
+				addTriangle(rasterMaterial, vs, normals, texCoords, null, 0, i, i + 1);
+			}
+			break;
+
+		}
+
+	}
+
+	private RasterMaterial rasterMaterialForPrimitive(Material material) {
+
+		if (finished) {
+			throw new IllegalStateException("primitives cannot be added after finish has been called");
+		}
+
+		return rasterMaterials.computeIfAbsent(material, this::createRasterMaterial);
+
+	}
+
+	private static @Nullable List<VectorXZ> texCoordsForPrimitive(RasterMaterial rasterMaterial,
+			List<List<VectorXZ>> texCoordLists) {
+		return (rasterMaterial.texture != null && !texCoordLists.isEmpty()) ? texCoordLists.get(0) : null;
+	}
+
+	/**
+	 * @param colors  vertex colors, can be null. Individual entries can be null as well, these are treated as white.
+	 */
+	private void addTriangle(RasterMaterial material, List<VectorXYZ> vs, List<VectorXYZ> normals,
+			@Nullable List<VectorXZ> texCoords, @Nullable List<Color> colors, int... indices) {
+
+		double[] positions = new double[9];
+		double[] normalArray = new double[9];
+		double[] texCoordArray = texCoords == null ? null : new double[6];
+		double[] colorArray = colors == null ? null : new double[9];
+
+		for (int k = 0; k < 3; k++) {
+			VectorXYZ v = vs.get(indices[k]);
+			VectorXYZ n = normals.get(indices[k]);
+			positions[3 * k] = v.x;
+			positions[3 * k + 1] = v.y;
+			positions[3 * k + 2] = v.z;
+			normalArray[3 * k] = n.x;
+			normalArray[3 * k + 1] = n.y;
+			normalArray[3 * k + 2] = n.z;
+			if (texCoordArray != null) {
+				texCoordArray[2 * k] = texCoords.get(indices[k]).x;
+				texCoordArray[2 * k + 1] = texCoords.get(indices[k]).z;
+			}
+			if (colorArray != null) {
+				Color c = colors.get(indices[k]) == null ? Color.WHITE : colors.get(indices[k]);
+				colorArray[3 * k] = c.getRed() / 255.0;
+				colorArray[3 * k + 1] = c.getGreen() / 255.0;
+				colorArray[3 * k + 2] = c.getBlue() / 255.0;
+			}
+		}
+
+		triangles.add(new SceneTriangle(material, positions, normalArray, texCoordArray, colorArray));
+
+	}
+
+	/**
+	 * prepares the scene for rendering. No further primitives can be added afterwards.
+	 */
+	@Override
+	public void finish() {
+
+		if (finished) return;
+
+		if (shadowsEnabled && lighting != null && lighting.lightFromDirection != null) {
+			double[] casterPositions = triangles.stream()
+					.filter(t -> t.material.castsShadow)
+					.flatMapToDouble(t -> DoubleStream.of(t.positions))
+					.toArray();
+			shadowMap = new ShadowMap(casterPositions, lighting.lightFromDirection,
+					shadowMapWidth, shadowMapHeight);
+		}
+
+		finished = true;
+
+	}
+
+	/** renders an entire image, see {@link #renderRows(Camera, Projection, int, int, int, int, int[])} */
+	public void render(Camera camera, Projection projection, int width, int height, int[] pixels) {
+		renderRows(camera, projection, width, height, 0, height, pixels);
+	}
+
+	/**
+	 * renders a horizontal strip of an image.
+	 * The rendered pixels replace or (for transparent materials) are blended with the existing content
+	 * of the pixel array, which therefore acts as the background.
+	 *
+	 * @param width   width of the entire image in pixels
+	 * @param height  height of the entire image in pixels
+	 * @param yStart  first row of the strip (inclusive); row 0 is the top of the image
+	 * @param yEnd    last row of the strip (exclusive)
+	 * @param pixels  ARGB values of the strip's pixels, row by row; has width * (yEnd - yStart) entries
+	 */
+	public void renderRows(Camera camera, Projection projection, int width, int height,
+			int yStart, int yEnd, int[] pixels) {
+
+		if (!finished) {
+			throw new IllegalStateException("finish must be called first");
+		} else if (pixels.length < width * (yEnd - yStart)) {
+			throw new IllegalArgumentException("pixel array is too small");
+		}
+
+		if (projectedScene == null || !projectedScene.isFor(camera, projection, width, height)) {
+			projectedScene = new ProjectedScene(camera, projection, width, height);
+		}
+
+		/* assign the triangles to the tiles they overlap, preserving the rendering order */
+
+		int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+		int tilesY = (yEnd - yStart + TILE_SIZE - 1) / TILE_SIZE;
+
+		List<List<ScreenTriangle>> trianglesByTile = new ArrayList<>(tilesX * tilesY);
+		for (int i = 0; i < tilesX * tilesY; i++) {
+			trianglesByTile.add(new ArrayList<>());
+		}
+
+		for (ScreenTriangle t : projectedScene.triangles) {
+
+			if (t.maxY < yStart || t.minY >= yEnd) continue;
+
+			int firstTileX = t.minX / TILE_SIZE;
+			int lastTileX = min(tilesX - 1, t.maxX / TILE_SIZE);
+			int firstTileY = max(0, (t.minY - yStart) / TILE_SIZE);
+			int lastTileY = min(tilesY - 1, (t.maxY - yStart) / TILE_SIZE);
+
+			for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+				for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+					trianglesByTile.get(tileY * tilesX + tileX).add(t);
+				}
+			}
+
+		}
+
+		/* render the tiles in parallel */
+
+		IntStream.range(0, tilesX * tilesY).parallel().forEach(tile -> {
+			int x0 = (tile % tilesX) * TILE_SIZE;
+			int y0 = yStart + (tile / tilesX) * TILE_SIZE;
+			renderTile(trianglesByTile.get(tile), x0, y0, min(width, x0 + TILE_SIZE), min(yEnd, y0 + TILE_SIZE),
+					width, yStart, pixels);
+		});
+
+	}
+
+	private void renderTile(List<ScreenTriangle> tileTriangles, int x0, int y0, int x1, int y1,
+			int width, int yStart, int[] pixels) {
+
+		int tileWidth = x1 - x0;
+
+		float[] depthBuffer = new float[tileWidth * (y1 - y0)];
+		Arrays.fill(depthBuffer, Float.POSITIVE_INFINITY);
+
+		for (ScreenTriangle t : tileTriangles) {
+			TriangleRasterizer.rasterize(t.x[0], t.y[0], t.x[1], t.y[1], t.x[2], t.y[2], x0, y0, x1, y1,
+					(x, y, b0, b1, b2) -> {
+
+				float depth = (float) (b0 * t.depth[0] + b1 * t.depth[1] + b2 * t.depth[2]);
+				int depthIndex = (y - y0) * tileWidth + (x - x0);
+
+				if (!(depth < depthBuffer[depthIndex])) return;
+
+				if (shadeFragment(t, b0, b1, b2, pixels, (y - yStart) * width + x)) {
+					depthBuffer[depthIndex] = depth;
+				}
+
+			});
+		}
+
+	}
+
+	/**
+	 * calculates the color of a pixel covered by a triangle and writes it to the pixel array
+	 *
+	 * @param b0, b1, b2  screen-space barycentric coordinates of the pixel
+	 * @return  false if the fragment has been discarded by the alpha test
+	 */
+	private boolean shadeFragment(ScreenTriangle t, double b0, double b1, double b2,
+			int[] pixels, int pixelIndex) {
+
+		RasterMaterial m = t.material;
+
+		/* perspective-correct interpolation weights */
+
+		double w0 = b0 * t.invW[0], w1 = b1 * t.invW[1], w2 = b2 * t.invW[2];
+		double wSum = w0 + w1 + w2;
+		w0 /= wSum;
+		w1 /= wSum;
+		w2 /= wSum;
+
+		/* texture and transparency */
+
+		int texel = 0xFFFFFFFF;
+
+		if (m.texture != null) {
+			double u = w0 * t.attributes[0][U] + w1 * t.attributes[1][U] + w2 * t.attributes[2][U];
+			double v = w0 * t.attributes[0][V] + w1 * t.attributes[1][V] + w2 * t.attributes[2][V];
+			texel = m.texture.sample(u, v);
+		}
+
+		double alpha = 1;
+
+		if (m.transparency == Transparency.BINARY) {
+			if ((texel >>> 24) <= 127) return false;
+		} else if (m.transparency == Transparency.TRUE) {
+			alpha = (texel >>> 24) / 255.0;
+		}
+
+		/* vertex colors */
+
+		double colorR = 1, colorG = 1, colorB = 1;
+
+		if (t.hasColors) {
+			colorR = w0 * t.attributes[0][CR] + w1 * t.attributes[1][CR] + w2 * t.attributes[2][CR];
+			colorG = w0 * t.attributes[0][CG] + w1 * t.attributes[1][CG] + w2 * t.attributes[2][CG];
+			colorB = w0 * t.attributes[0][CB] + w1 * t.attributes[1][CB] + w2 * t.attributes[2][CB];
+		}
+
+		/* lighting */
+
+		double lightR = 1, lightG = 1, lightB = 1;
+
+		if (lighting != null) {
+
+			double lambert = w0 * t.attributes[0][LAMBERT] + w1 * t.attributes[1][LAMBERT]
+					+ w2 * t.attributes[2][LAMBERT];
+
+			if (lambert > 0 && shadowMap != null) {
+				double x = w0 * t.attributes[0][WX] + w1 * t.attributes[1][WX] + w2 * t.attributes[2][WX];
+				double y = w0 * t.attributes[0][WY] + w1 * t.attributes[1][WY] + w2 * t.attributes[2][WY];
+				double z = w0 * t.attributes[0][WZ] + w1 * t.attributes[1][WZ] + w2 * t.attributes[2][WZ];
+				if (shadowMap.isShadowed(x, y, z)) {
+					lambert = 0;
+				}
+			}
+
+			Color ambient = lighting.globalAmbientColor;
+			Color diffuse = lighting.lightColorDiffuse;
+
+			lightR = (ambient.getRed() * AMBIENT_FACTOR + diffuse.getRed() * (1 - AMBIENT_FACTOR) * lambert) / 255;
+			lightG = (ambient.getGreen() * AMBIENT_FACTOR + diffuse.getGreen() * (1 - AMBIENT_FACTOR) * lambert) / 255;
+			lightB = (ambient.getBlue() * AMBIENT_FACTOR + diffuse.getBlue() * (1 - AMBIENT_FACTOR) * lambert) / 255;
+
+		}
+
+		int r = clampColorComponent(m.r * colorR * ((texel >> 16) & 0xFF) * lightR);
+		int g = clampColorComponent(m.g * colorG * ((texel >> 8) & 0xFF) * lightG);
+		int b = clampColorComponent(m.b * colorB * (texel & 0xFF) * lightB);
+
+		if (alpha >= 1) {
+			pixels[pixelIndex] = 0xFF000000 | r << 16 | g << 8 | b;
+		} else {
+			int background = pixels[pixelIndex];
+			int a = clampColorComponent(255 * (alpha + ((background >>> 24) / 255.0) * (1 - alpha)));
+			r = clampColorComponent(r * alpha + ((background >> 16) & 0xFF) * (1 - alpha));
+			g = clampColorComponent(g * alpha + ((background >> 8) & 0xFF) * (1 - alpha));
+			b = clampColorComponent(b * alpha + (background & 0xFF) * (1 - alpha));
+			pixels[pixelIndex] = a << 24 | r << 16 | g << 8 | b;
+		}
+
+		return true;
+
+	}
+
+	private static int clampColorComponent(double value) {
+		return max(0, min(255, (int) round(value)));
+	}
+
+	private RasterMaterial createRasterMaterial(Material material) {
+
+		Color color = Color.WHITE;
+		RasterTexture texture = null;
+
+		if (material.getNumTextureLayers() == 0) {
+			color = material.getColor();
+		} else {
+			TextureLayer layer = material.getTextureLayers().get(0);
+			if (layer.colorable) {
+				color = layer.clampedBaseColorFactor(LColor.fromAWT(material.getColor())).toAWT();
+			}
+			texture = rasterTextures.computeIfAbsent(layer.baseColorTexture, RasterTexture::new);
+		}
+
+		return new RasterMaterial(color, texture, material.getTransparency(),
+				material.isDoubleSided(), material.getShadow() != Shadow.FALSE);
+
+	}
+
+	private static final class RasterMaterial {
+
+		final float r, g, b;
+		final @Nullable RasterTexture texture;
+		final Transparency transparency;
+		final boolean doubleSided;
+		final boolean castsShadow;
+
+		RasterMaterial(Color color, @Nullable RasterTexture texture, Transparency transparency,
+				boolean doubleSided, boolean castsShadow) {
+			this.r = color.getRed() / 255f;
+			this.g = color.getGreen() / 255f;
+			this.b = color.getBlue() / 255f;
+			this.texture = texture;
+			this.transparency = transparency;
+			this.doubleSided = doubleSided;
+			this.castsShadow = castsShadow;
+		}
+
+	}
+
+	/** a texture's pixels, prepared for fast lookups */
+	private static final class RasterTexture {
+
+		final int width;
+		final int height;
+		final int[] argb;
+		final Wrap wrap;
+
+		RasterTexture(TextureData textureData) {
+			BufferedImage image = textureData.getBufferedImage();
+			width = image.getWidth();
+			height = image.getHeight();
+			argb = image.getRGB(0, 0, width, height, null, 0, width);
+			wrap = textureData.wrap;
+		}
+
+		/** returns the ARGB value at texture coordinates with the origin at the bottom left */
+		int sample(double u, double v) {
+			int x = min((int) floor(wrap.apply(u) * width), width - 1);
+			int y = min((int) floor((1 - wrap.apply(v)) * height), height - 1);
+			return argb[max(0, y) * width + max(0, x)];
+		}
+
+	}
+
+	/** a triangle as it was drawn to this target */
+	private static final class SceneTriangle {
+
+		final RasterMaterial material;
+		final double[] positions;
+		final double[] normals;
+		final @Nullable double[] texCoords;
+		final @Nullable double[] colors;
+
+		SceneTriangle(RasterMaterial material, double[] positions, double[] normals, @Nullable double[] texCoords,
+				@Nullable double[] colors) {
+			this.material = material;
+			this.positions = positions;
+			this.normals = normals;
+			this.texCoords = texCoords;
+			this.colors = colors;
+		}
+
+	}
+
+	/** a triangle projected to screen space */
+	private static final class ScreenTriangle {
+
+		final RasterMaterial material;
+
+		/** whether the attributes contain vertex colors */
+		final boolean hasColors;
+
+		final double[] x = new double[3];
+		final double[] y = new double[3];
+
+		/** values for depth testing which can be interpolated linearly in screen space; lower values are closer */
+		final double[] depth = new double[3];
+
+		/** reciprocal of the homogeneous coordinate w, used for perspective-correct interpolation */
+		final double[] invW = new double[3];
+
+		/** attributes of each vertex, see {@link SoftwareRasterizerTarget#ATTRIBUTE_COUNT} */
+		final double[][] attributes;
+
+		/** average distance from the camera */
+		final double viewDepth;
+
+		/** pixel bounds of the triangle, clamped to the image */
+		final int minX, minY, maxX, maxY;
+
+		ScreenTriangle(RasterMaterial material, boolean hasColors, double[][] attributes, View view) {
+
+			this.material = material;
+			this.hasColors = hasColors;
+			this.attributes = attributes;
+
+			for (int k = 0; k < 3; k++) {
+				view.project(attributes[k], k, this);
+			}
+
+			viewDepth = (attributes[0][VZ] + attributes[1][VZ] + attributes[2][VZ]) / 3;
+
+			minX = max(0, (int) floor(min(x[0], min(x[1], x[2]))));
+			minY = max(0, (int) floor(min(y[0], min(y[1], y[2]))));
+			maxX = min(view.width - 1, (int) ceil(max(x[0], max(x[1], x[2]))));
+			maxY = min(view.height - 1, (int) ceil(max(y[0], max(y[1], y[2]))));
+
+		}
+
+		boolean isOnScreen() {
+			return minX <= maxX && minY <= maxY;
+		}
+
+	}
+
+	/** the camera, projection and image size used for rendering */
+	private static final class View {
+
+		final Camera camera;
+		final Projection projection;
+		final VectorXYZ cameraPos, cameraLookAt, cameraUp;
+		final int width, height;
+
+		final VectorXYZ right, up, forward;
+
+		/** factors converting view space coordinates to normalized device coordinates */
+		final double ndcScaleX, ndcScaleY;
+
+		View(Camera camera, Projection projection, int width, int height) {
+
+			this.camera = camera;
+			this.projection = projection;
+			this.cameraPos = camera.getPos();
+			this.cameraLookAt = camera.getLookAt();
+			this.cameraUp = camera.getUp();
+			this.width = width;
+			this.height = height;
+
+			forward = camera.getViewDirection();
+			up = camera.getUp();
+			right = up.crossNormalized(forward);
+
+			if (projection.isOrthographic()) {
+				ndcScaleY = 2 / projection.getVolumeHeight();
+				ndcScaleX = ndcScaleY / projection.getAspectRatio();
+			} else {
+				ndcScaleY = 1 / tan(toRadians(projection.getVertAngle()) / 2);
+				ndcScaleX = ndcScaleY / projection.getAspectRatio();
+			}
+
+		}
+
+		boolean isOrthographic() {
+			return projection.isOrthographic();
+		}
+
+		/** fills the screen space values for a vertex of a triangle */
+		void project(double[] vertex, int k, ScreenTriangle t) {
+
+			double ndcX, ndcY;
+
+			if (isOrthographic()) {
+				ndcX = vertex[VX] * ndcScaleX;
+				ndcY = vertex[VY] * ndcScaleY;
+				t.depth[k] = vertex[VZ];
+				t.invW[k] = 1;
+			} else {
+				ndcX = vertex[VX] * ndcScaleX / vertex[VZ];
+				ndcY = vertex[VY] * ndcScaleY / vertex[VZ];
+				t.depth[k] = -1 / vertex[VZ];
+				t.invW[k] = 1 / vertex[VZ];
+			}
+
+			t.x[k] = (ndcX + 1) / 2 * width;
+			t.y[k] = (1 - ndcY) / 2 * height;
+
+		}
+
+	}
+
+	/** the triangles of the scene, projected to screen space and sorted in rendering order */
+	private final class ProjectedScene {
+
+		final View view;
+		final List<ScreenTriangle> triangles;
+
+		ProjectedScene(Camera camera, Projection projection, int width, int height) {
+
+			view = new View(camera, projection, width, height);
+
+			List<ScreenTriangle> projectedTriangles = SoftwareRasterizerTarget.this.triangles.parallelStream()
+					.flatMap(t -> projectTriangle(t, view).stream())
+					.collect(toList());
+
+			/* opaque triangles in their original order, then transparent triangles from back to front */
+
+			triangles = new ArrayList<>(projectedTriangles.size());
+
+			projectedTriangles.stream()
+					.filter(t -> t.material.transparency != Transparency.TRUE)
+					.forEachOrdered(triangles::add);
+
+			projectedTriangles.stream()
+					.filter(t -> t.material.transparency == Transparency.TRUE)
+					.sorted(comparingDouble((ScreenTriangle t) -> t.viewDepth).reversed())
+					.forEachOrdered(triangles::add);
+
+		}
+
+		boolean isFor(Camera camera, Projection projection, int width, int height) {
+			return view.camera == camera && view.projection == projection
+					&& view.width == width && view.height == height
+					&& view.cameraPos.equals(camera.getPos())
+					&& view.cameraLookAt.equals(camera.getLookAt())
+					&& view.cameraUp.equals(camera.getUp());
+		}
+
+	}
+
+	/**
+	 * transforms a triangle to view space, calculates lighting, clips it against the near and far planes,
+	 * and projects the results to screen space.
+	 *
+	 * @return  the resulting screen space triangles; empty if the triangle is culled or not visible
+	 */
+	private List<ScreenTriangle> projectTriangle(SceneTriangle t, View view) {
+
+		double[] p = t.positions;
+
+		/* back-face culling, based on the same winding as TriangleXYZ.getNormal() */
+
+		VectorXYZ v1 = new VectorXYZ(p[0], p[1], p[2]);
+		VectorXYZ v2 = new VectorXYZ(p[3], p[4], p[5]);
+		VectorXYZ v3 = new VectorXYZ(p[6], p[7], p[8]);
+
+		VectorXYZ faceNormal = v2.subtract(v1).cross(v2.subtract(v3));
+		VectorXYZ toCamera = view.isOrthographic() ? view.forward.invert() : view.cameraPos.subtract(v1);
+
+		boolean backFacing = faceNormal.dot(toCamera) < 0;
+
+		if (backFacing && !t.material.doubleSided) {
+			return new ArrayList<>(0);
+		}
+
+		/* calculate view space vertices with their attributes */
+
+		VectorXYZ lightDirection = (lighting == null || lighting.lightFromDirection == null)
+				? null : lighting.lightFromDirection.normalize();
+
+		List<double[]> polygon = new ArrayList<>(5);
+
+		for (int k = 0; k < 3; k++) {
+
+			double x = p[3 * k], y = p[3 * k + 1], z = p[3 * k + 2];
+			double dx = x - view.cameraPos.x, dy = y - view.cameraPos.y, dz = z - view.cameraPos.z;
+
+			double[] vertex = new double[ATTRIBUTE_COUNT];
+
+			vertex[VX] = dx * view.right.x + dy * view.right.y + dz * view.right.z;
+			vertex[VY] = dx * view.up.x + dy * view.up.y + dz * view.up.z;
+			vertex[VZ] = dx * view.forward.x + dy * view.forward.y + dz * view.forward.z;
+
+			if (t.texCoords != null) {
+				vertex[U] = t.texCoords[2 * k];
+				vertex[V] = t.texCoords[2 * k + 1];
+			}
+
+			if (t.colors != null) {
+				vertex[CR] = t.colors[3 * k];
+				vertex[CG] = t.colors[3 * k + 1];
+				vertex[CB] = t.colors[3 * k + 2];
+			}
+
+			if (lightDirection != null) {
+				double nx = t.normals[3 * k], ny = t.normals[3 * k + 1], nz = t.normals[3 * k + 2];
+				double lambert = nx * lightDirection.x + ny * lightDirection.y + nz * lightDirection.z;
+				vertex[LAMBERT] = max(0, backFacing ? -lambert : lambert);
+			}
+
+			vertex[WX] = x;
+			vertex[WY] = y;
+			vertex[WZ] = z;
+
+			polygon.add(vertex);
+
+		}
+
+		/* clip against the near and far planes */
+
+		double near = view.projection.getNearClippingDistance();
+		double far = view.projection.getFarClippingDistance();
+
+		polygon = clipPolygon(polygon, near, +1);
+		polygon = clipPolygon(polygon, far, -1);
+
+		/* triangulate and project the result */
+
+		List<ScreenTriangle> result = new ArrayList<>(max(0, polygon.size() - 2));
+
+		for (int i = 1; i + 1 < polygon.size(); i++) {
+			ScreenTriangle screenTriangle = new ScreenTriangle(t.material, t.colors != null,
+					new double[][] {polygon.get(0), polygon.get(i), polygon.get(i + 1)}, view);
+			if (screenTriangle.isOnScreen()) {
+				result.add(screenTriangle);
+			}
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * clips a convex polygon in view space against a plane orthogonal to the view direction
+	 *
+	 * @param planeDistance  distance of the plane from the camera
+	 * @param side           +1 to keep the part behind the plane, -1 to keep the part in front of it
+	 */
+	private static List<double[]> clipPolygon(List<double[]> polygon, double planeDistance, int side) {
+
+		if (polygon.isEmpty()) return polygon;
+
+		List<double[]> result = new ArrayList<>(polygon.size() + 1);
+
+		for (int i = 0; i < polygon.size(); i++) {
+
+			double[] current = polygon.get(i);
+			double[] next = polygon.get((i + 1) % polygon.size());
+
+			double currentDistance = (current[VZ] - planeDistance) * side;
+			double nextDistance = (next[VZ] - planeDistance) * side;
+
+			if (currentDistance >= 0) {
+				result.add(current);
+			}
+
+			if ((currentDistance >= 0) != (nextDistance >= 0)) {
+				double ratio = currentDistance / (currentDistance - nextDistance);
+				double[] intersection = new double[ATTRIBUTE_COUNT];
+				for (int a = 0; a < ATTRIBUTE_COUNT; a++) {
+					intersection[a] = current[a] + ratio * (next[a] - current[a]);
+				}
+				result.add(intersection);
+			}
+
+		}
+
+		return result;
+
+	}
+
+}
@@ -0,0 +1,97 @@
+package org.osm2world.core.target.software;
+
+import static java.lang.Math.*;
+
+/**
+ * determines the pixels covered by a triangle in screen space.
+ * Pixel centers are at half-integer coordinates.
+ * Pixels on an edge shared by two triangles are only covered by one of them.
+ */
+final class TriangleRasterizer {
+
+	private TriangleRasterizer() {}
+
+	interface FragmentConsumer {
+
+		/**
+		 * called for each covered pixel
+		 *
+		 * @param b0, b1, b2  screen-space barycentric coordinates of the pixel center, sum up to 1
+		 */
+		void fragment(int x, int y, double b0, double b1, double b2);
+
+	}
+
+	/**
+	 * calls the consumer for each pixel covered by the triangle within a clip rectangle.
+	 * The vertices can be in either winding order.
+	 *
+	 * @param clipMinX, clipMinY  inclusive lower bounds of the clip rectangle
+	 * @param clipMaxX, clipMaxY  exclusive upper bounds of the clip rectangle
+	 */
+	static void rasterize(double x0, double y0, double x1, double y1, double x2, double y2,
+			int clipMinX, int clipMinY, int clipMaxX, int clipMaxY, FragmentConsumer consumer) {
+
+		double area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+
+		if (!(area != 0) || Double.isInfinite(area)) return; // degenerate or NaN
+
+		int minX = max(clipMinX, (int) floor(min(x0, min(x1, x2))));
+		int minY = max(clipMinY, (int) floor(min(y0, min(y1, y2))));
+		int maxX = min(clipMaxX - 1, (int) ceil(max(x0, max(x1, x2))));
+		int maxY = min(clipMaxY - 1, (int) ceil(max(y0, max(y1, y2))));
+
+		if (minX > maxX || minY > maxY) return;
+
+		/* set up edge functions which directly evaluate to the barycentric coordinates */
+
+		double invArea = 1 / area;
+		double sign = signum(area);
+
+		double a0 = -(y2 - y1) * invArea, c0 = (x2 - x1) * invArea, d0 = ((y2 - y1) * x1 - (x2 - x1) * y1) * invArea;
+		double a1 = -(y0 - y2) * invArea, c1 = (x0 - x2) * invArea, d1 = ((y0 - y2) * x2 - (x0 - x2) * y2) * invArea;
+		double a2 = -(y1 - y0) * invArea, c2 = (x1 - x0) * invArea, d2 = ((y1 - y0) * x0 - (x1 - x0) * y0) * invArea;
+
+		boolean owns0 = ownsEdge((x2 - x1) * sign, (y2 - y1) * sign);
+		boolean owns1 = ownsEdge((x0 - x2) * sign, (y0 - y2) * sign);
+		boolean owns2 = ownsEdge((x1 - x0) * sign, (y1 - y0) * sign);
+
+		for (int y = minY; y <= maxY; y++) {
+
+			double py = y + 0.5;
+
+			double rowB0 = c0 * py + d0;
+			double rowB1 = c1 * py + d1;
+			double rowB2 = c2 * py + d2;
+
+			for (int x = minX; x <= maxX; x++) {
+
+				double px = x + 0.5;
+
+				double b0 = a0 * px + rowB0;
+				double b1 = a1 * px + rowB1;
+				double b2 = a2 * px + rowB2;
+
+				if ((b0 > 0 || b0 == 0 && owns0)
+						&& (b1 > 0 || b1 == 0 && owns1)
+						&& (b2 > 0 || b2 == 0 && owns2)) {
+					consumer.fragment(x, y, b0, b1, b2);
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * decides whether pixel centers exactly on an edge belong to a triangle.
+	 * The neighbouring triangle traverses a shared edge in the opposite direction, so exactly one of them owns it.
+	 *
+	 * @param dx, dy  direction of the edge, normalized to a consistent winding order
+	 */
+	private static boolean ownsEdge(double dx, double dy) {
+		return dy > 0 || (dy == 0 && dx < 0);
+	}
+
+}
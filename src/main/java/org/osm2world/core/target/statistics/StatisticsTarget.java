@@ -133,7 +133,7 @@ public class StatisticsTarget extends PrimitiveTarget {
 
 		if (currentObject != null) {
 
-			Class<?> currentClass = currentObject.getClass();
+			Class<?> currentClass = currentObject.getObjectClass();
 
 			if (!countsPerClass.containsKey(currentClass)) {
 				countsPerClass.put(currentClass,
@@ -180,7 +180,7 @@ public class StatisticsTarget extends PrimitiveTarget {
 			}
 
 			if (currentObject != null) {
-				countsPerClass.get(currentObject.getClass())[stat.ordinal()] += count;
+				countsPerClass.get(currentObject.getObjectClass())[stat.ordinal()] += count;
 			}
 
 		}
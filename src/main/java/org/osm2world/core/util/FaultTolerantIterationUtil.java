@@ -1,5 +1,6 @@
 package org.osm2world.core.util;
 
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -11,6 +12,8 @@ final public class FaultTolerantIterationUtil {
 
 	private FaultTolerantIterationUtil() { }
 
+	private static final LongAdder ignoredExceptionCount = new LongAdder();
+
 	public static final <T> void forEach(Iterable<? extends T> iterable,
 			Consumer<? super T> action, BiConsumer<? super Throwable, ? super T> exceptionHandler) {
 
@@ -18,6 +21,7 @@ final public class FaultTolerantIterationUtil {
 			try {
 				action.accept(t);
 			} catch (Exception | AssertionError e) {
+				ignoredExceptionCount.increment();
 				exceptionHandler.accept(e, t);
 			}
 		}
@@ -31,6 +35,14 @@ final public class FaultTolerantIterationUtil {
 		forEach(iterable, action, DEFAULT_EXCEPTION_HANDLER);
 	}
 
+	/**
+	 * returns the number of exceptions which have been passed to exception handlers so far.
+	 * This counts exceptions from all threads, including any conversions running in parallel.
+	 */
+	public static final long getIgnoredExceptionCount() {
+		return ignoredExceptionCount.sum();
+	}
+
 	/** a default exception handler that prints to System.err */
 	public static final BiConsumer<Throwable, Object> DEFAULT_EXCEPTION_HANDLER = (Throwable e, Object o) -> {
 		System.err.println("ignored exception:");
@@ -9,6 +9,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
 
 import org.osm2world.core.math.AxisAlignedRectangleXZ;
 import org.osm2world.core.math.BoundedObject;
@@ -43,6 +46,9 @@ public class AttachmentSurface implements BoundedObject {
 
 	private final Collection<AttachmentConnector> attachedConnectors = new ArrayList<>();
 
+	/** index of the {@link #faces}, created when it is first needed */
+	private volatile FaceBVH faceIndex = null;
+
 	public AttachmentSurface(Collection<String> types, Collection<FaceXYZ> faces,
 			Function<VectorXZ, Double> baseEleFunction) {
 		if (types.isEmpty() || faces.isEmpty()) throw new IllegalArgumentException();
@@ -82,7 +88,36 @@ public class AttachmentSurface implements BoundedObject {
 	}
 
 	public double distanceTo(VectorXYZ v) {
-		return getFaces().stream().mapToDouble(f -> f.distanceTo(v)).min().getAsDouble();
+		return getClosestFace(v, false, f -> true).distanceTo(v);
+	}
+
+	/**
+	 * returns the face which is closest to a position among the faces matching a filter.
+	 * Only faces near the position are checked, so this is much faster than checking each face for large surfaces.
+	 * If several faces have the same distance, the first of them (in the order of {@link #getFaces()}) is returned.
+	 *
+	 * @param distanceXZ  whether to compare horizontal distances instead of distances in 3D space
+	 * @return  the closest matching face, null if no face matches the filter
+	 */
+	public @Nullable FaceXYZ getClosestFace(VectorXYZ pos, boolean distanceXZ, Predicate<? super FaceXYZ> filter) {
+
+		FaceBVH index = faceIndex;
+
+		if (index == null) {
+			// concurrent calls may create multiple equivalent indices, only one of them will be kept
+			index = new FaceBVH(faces);
+			faceIndex = index;
+		}
+
+		int closestFace = index.findClosestFace(pos, distanceXZ, filter);
+
+		return closestFace < 0 ? null : index.getFace(closestFace);
+
+	}
+
+	/** returns true if at least one of the faces has a normal vector matching the predicate */
+	public boolean hasFaceWithNormal(Predicate<? super VectorXYZ> isAcceptableNormal) {
+		return faces.stream().anyMatch(f -> isAcceptableNormal.test(f.getNormal()));
 	}
 
 	@Override
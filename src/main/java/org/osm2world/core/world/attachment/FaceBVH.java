@@ -0,0 +1,255 @@
+package org.osm2world.core.world.attachment;
+
+import static java.lang.Math.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.osm2world.core.math.FaceXYZ;
+import org.osm2world.core.math.VectorXYZ;
+
+/**
+ * a bounding volume hierarchy of the faces of an {@link AttachmentSurface}.
+ * Allows finding the closest face to a position without checking every face.
+ *
+ * The tree is stored in primitive arrays. Each node has an axis-aligned bounding box (in 3D)
+ * and either two children or a range of faces.
+ * Instances cannot be modified and can be used by multiple threads at the same time.
+ */
+final class FaceBVH {
+
+	/** nodes with at most this many faces are not split any further */
+	private static final int LEAF_SIZE = 4;
+
+	/**
+	 * margin for pruning with bounding boxes. Face distances are calculated in a rotated coordinate system
+	 * and can therefore be slightly smaller than the exact distance to the face's bounding box.
+	 */
+	private static final double PRUNING_TOLERANCE = 1e-6;
+
+	/** the faces in their original order */
+	private final List<FaceXYZ> faces;
+
+	/** indices into {@link #faces}, arranged so that each node's faces form a continuous range */
+	private final int[] faceOrder;
+
+	/** the bounding box of each face as minX, minY, minZ, maxX, maxY, maxZ */
+	private final double[] faceBounds;
+
+	/* the nodes, with the root at index 0 */
+
+	private int nodeCount;
+
+	/** the bounding box of each node as minX, minY, minZ, maxX, maxY, maxZ */
+	private final double[] nodeBounds;
+
+	/** for inner nodes: index of the first child, the second child follows right after it. -1 for leaves */
+	private final int[] nodeFirstChild;
+
+	/** for leaves: the range of {@link #faceOrder} containing the node's faces */
+	private final int[] nodeStart, nodeEnd;
+
+	public FaceBVH(Collection<FaceXYZ> faces) {
+
+		this.faces = new ArrayList<>(faces);
+
+		int faceCount = this.faces.size();
+
+		faceOrder = new int[faceCount];
+		faceBounds = new double[6 * faceCount];
+
+		for (int i = 0; i < faceCount; i++) {
+
+			faceOrder[i] = i;
+
+			double[] b = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+					Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+			for (VectorXYZ v : this.faces.get(i).verticesNoDup()) {
+				b[0] = min(b[0], v.x); b[1] = min(b[1], v.y); b[2] = min(b[2], v.z);
+				b[3] = max(b[3], v.x); b[4] = max(b[4], v.y); b[5] = max(b[5], v.z);
+			}
+
+			System.arraycopy(b, 0, faceBounds, 6 * i, 6);
+
+		}
+
+		int maxNodeCount = max(1, 2 * faceCount);
+		nodeBounds = new double[6 * maxNodeCount];
+		nodeFirstChild = new int[maxNodeCount];
+		nodeStart = new int[maxNodeCount];
+		nodeEnd = new int[maxNodeCount];
+
+		nodeCount = 1;
+		buildNode(0, 0, faceCount);
+
+	}
+
+	/**
+	 * returns the closest face to a position among those matching a filter.
+	 * If several faces have the same distance, the one which comes first in the original order is returned.
+	 *
+	 * @param distanceXZ  whether to use the horizontal distance ({@link FaceXYZ#distanceToXZ(org.osm2world.core.math.Vector3D)})
+	 *                    instead of the 3D distance ({@link FaceXYZ#distanceTo(VectorXYZ)})
+	 * @return  the index of the closest face in the original order, -1 if no face matches the filter
+	 */
+	public int findClosestFace(VectorXYZ pos, boolean distanceXZ, Predicate<? super FaceXYZ> filter) {
+
+		if (faces.isEmpty()) return -1;
+
+		double[] best = {Double.POSITIVE_INFINITY, -1};
+
+		searchNode(0, pos, distanceXZ, filter, best);
+
+		return (int)best[1];
+
+	}
+
+	public FaceXYZ getFace(int index) {
+		return faces.get(index);
+	}
+
+	/**
+	 * searches a node for faces closer than the best one so far
+	 *
+	 * @param best  the best distance and face index found so far, will be updated
+	 */
+	private void searchNode(int node, VectorXYZ pos, boolean distanceXZ,
+			Predicate<? super FaceXYZ> filter, double[] best) {
+
+		if (nodeFirstChild[node] < 0) {
+
+			for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+
+				int face = faceOrder[i];
+
+				if (boxDistance(faceBounds, face, pos, distanceXZ) - PRUNING_TOLERANCE > best[0]) continue;
+				if (!filter.test(faces.get(face))) continue;
+
+				double distance = distanceXZ ? faces.get(face).distanceToXZ(pos) : faces.get(face).distanceTo(pos);
+
+				if (distance < best[0] || (distance == best[0] && face < best[1])) {
+					best[0] = distance;
+					best[1] = face;
+				}
+
+			}
+
+		} else {
+
+			/* visit the closer child first, then the other one if it can still contain a closer face */
+
+			int childA = nodeFirstChild[node];
+			int childB = childA + 1;
+
+			double distanceA = boxDistance(nodeBounds, childA, pos, distanceXZ);
+			double distanceB = boxDistance(nodeBounds, childB, pos, distanceXZ);
+
+			if (distanceB < distanceA) {
+				int tempChild = childA;
+				childA = childB;
+				childB = tempChild;
+				double tempDistance = distanceA;
+				distanceA = distanceB;
+				distanceB = tempDistance;
+			}
+
+			// faces at exactly the best distance can still win if they come first in the original order
+			if (distanceA - PRUNING_TOLERANCE <= best[0]) {
+				searchNode(childA, pos, distanceXZ, filter, best);
+			}
+			if (distanceB - PRUNING_TOLERANCE <= best[0]) {
+				searchNode(childB, pos, distanceXZ, filter, best);
+			}
+
+		}
+
+	}
+
+	/**
+	 * builds a node (and its subtree) for a range of {@link #faceOrder}
+	 *
+	 * @param node  the index of the node, which must already have been allocated
+	 */
+	private void buildNode(int node, int start, int end) {
+
+		/* calculate the node's bounding box and the extent of the face centers */
+
+		double[] b = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+		double[] centerBounds = b.clone();
+
+		for (int i = start; i < end; i++) {
+			int face = faceOrder[i];
+			for (int axis = 0; axis < 3; axis++) {
+				b[axis] = min(b[axis], faceBounds[6 * face + axis]);
+				b[axis + 3] = max(b[axis + 3], faceBounds[6 * face + axis + 3]);
+				double center = center(face, axis);
+				centerBounds[axis] = min(centerBounds[axis], center);
+				centerBounds[axis + 3] = max(centerBounds[axis + 3], center);
+			}
+		}
+
+		System.arraycopy(b, 0, nodeBounds, 6 * node, 6);
+
+		if (end - start <= LEAF_SIZE) {
+			nodeFirstChild[node] = -1;
+			nodeStart[node] = start;
+			nodeEnd[node] = end;
+			return;
+		}
+
+		/* split along the axis with the largest extent of face centers, at the median */
+
+		int splitAxis = 0;
+		for (int axis = 1; axis < 3; axis++) {
+			if (centerBounds[axis + 3] - centerBounds[axis]
+					> centerBounds[splitAxis + 3] - centerBounds[splitAxis]) {
+				splitAxis = axis;
+			}
+		}
+
+		final int axis = splitAxis;
+
+		Integer[] range = new Integer[end - start];
+		for (int i = start; i < end; i++) {
+			range[i - start] = faceOrder[i];
+		}
+		Arrays.sort(range, (f1, f2) -> Double.compare(center(f1, axis), center(f2, axis)));
+		for (int i = start; i < end; i++) {
+			faceOrder[i] = range[i - start];
+		}
+
+		int mid = (start + end) >>> 1;
+
+		// both children are allocated before building their subtrees because they need to be adjacent
+		int firstChild = nodeCount;
+		nodeCount += 2;
+		nodeFirstChild[node] = firstChild;
+
+		buildNode(firstChild, start, mid);
+		buildNode(firstChild + 1, mid, end);
+
+	}
+
+	private double center(int face, int axis) {
+		return 0.5 * (faceBounds[6 * face + axis] + faceBounds[6 * face + axis + 3]);
+	}
+
+	/** returns the distance between a position and a bounding box, 0 if the position is inside the box */
+	private static double boxDistance(double[] bounds, int index, VectorXYZ pos, boolean distanceXZ) {
+
+		int o = 6 * index;
+
+		double dx = max(0, max(bounds[o] - pos.x, pos.x - bounds[o + 3]));
+		double dy = distanceXZ ? 0 : max(0, max(bounds[o + 1] - pos.y, pos.y - bounds[o + 4]));
+		double dz = max(0, max(bounds[o + 2] - pos.z, pos.z - bounds[o + 5]));
+
+		return sqrt(dx * dx + dy * dy + dz * dz);
+
+	}
+
+}
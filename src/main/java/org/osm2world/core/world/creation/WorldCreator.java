@@ -2,14 +2,20 @@ package org.osm2world.core.world.creation;
 
 import static java.util.Collections.emptyMap;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.MapConfiguration;
+import org.osm2world.core.ConversionMetrics;
 import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.MapElement;
+import org.osm2world.core.world.data.WorldObject;
 import org.osm2world.core.world.network.NetworkCalculator;
 
 public class WorldCreator {
@@ -22,7 +28,7 @@ public class WorldCreator {
 
 	public WorldCreator(@Nullable Configuration config, List<? extends WorldModule> modules) {
 
-		this.modules = modules;
+		this.modules = sortByDependencies(modules);
 
 		if (config == null) {
 			config = new MapConfiguration(emptyMap());
@@ -35,13 +41,88 @@ public class WorldCreator {
 	}
 
 	public void addRepresentationsTo(MapData mapData) {
+		addRepresentationsTo(mapData, null);
+	}
+
+	/**
+	 * variant of {@link #addRepresentationsTo(MapData)} which records the time taken by each module
+	 * and the number of {@link WorldObject}s it has created
+	 *
+	 * @param metrics  receives the measurements; can be null
+	 */
+	public void addRepresentationsTo(MapData mapData, @Nullable ConversionMetrics metrics) {
 
 		for (WorldModule module : modules) {
-			module.applyTo(mapData);
+
+			if (metrics == null) {
+				module.applyTo(mapData);
+			} else {
+
+				String moduleName = module.getClass().getSimpleName();
+				long objectCountBefore = countRepresentations(mapData);
+
+				try (ConversionMetrics.Timer timer = metrics.startTimer("module." + moduleName)) {
+					module.applyTo(mapData);
+				}
+
+				metrics.count("worldObjects." + moduleName, countRepresentations(mapData) - objectCountBefore);
+
+			}
+
 		}
 
 		NetworkCalculator.calculateNetworkInformationInMapData(mapData);
 
 	}
 
+	private static long countRepresentations(MapData mapData) {
+		long count = 0;
+		for (MapElement element : mapData.getMapElements()) {
+			count += element.getRepresentations().size();
+		}
+		return count;
+	}
+
+	/**
+	 * orders modules such that each module is applied after the modules listed in
+	 * {@link WorldModule#getDependencies()}. Apart from that, the original order is preserved.
+	 *
+	 * @throws IllegalArgumentException  if the dependencies are cyclic
+	 */
+	static List<WorldModule> sortByDependencies(List<? extends WorldModule> modules) {
+
+		List<WorldModule> result = new ArrayList<>(modules.size());
+		Set<WorldModule> visiting = new HashSet<>();
+
+		for (WorldModule module : modules) {
+			addWithDependencies(module, modules, result, visiting);
+		}
+
+		return result;
+
+	}
+
+	private static void addWithDependencies(WorldModule module, List<? extends WorldModule> modules,
+			List<WorldModule> result, Set<WorldModule> visiting) {
+
+		if (result.contains(module)) return;
+
+		if (!visiting.add(module)) {
+			throw new IllegalArgumentException("cyclic module dependencies involving "
+					+ module.getClass().getSimpleName());
+		}
+
+		for (Class<? extends WorldModule> dependency : module.getDependencies()) {
+			for (WorldModule otherModule : modules) {
+				if (otherModule != module && dependency.isInstance(otherModule)) {
+					addWithDependencies(otherModule, modules, result, visiting);
+				}
+			}
+		}
+
+		visiting.remove(module);
+		result.add(module);
+
+	}
+
 }
@@ -1,5 +1,9 @@
 package org.osm2world.core.world.creation;
 
+import static java.util.Collections.emptyList;
+
+import java.util.Collection;
+
 import org.apache.commons.configuration.Configuration;
 import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.map_data.data.MapElement;
@@ -22,4 +26,15 @@ public interface WorldModule {
 	 */
 	public void applyTo(MapData mapData);
 
+	/**
+	 * returns the types of modules which have to be applied before this module,
+	 * e.g. because it inspects the representations they create.
+	 * Dependencies which are not part of a conversion's module list are ignored.
+	 *
+	 * The default implementation returns an empty collection.
+	 */
+	public default Collection<Class<? extends WorldModule>> getDependencies() {
+		return emptyList();
+	}
+
 }
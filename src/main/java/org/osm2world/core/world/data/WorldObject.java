@@ -43,6 +43,15 @@ public interface WorldObject {
 	 */
 	public MapElement getPrimaryMapElement();
 
+	/**
+	 * returns the class which is used to group and name this object in the output.
+	 * This is the object's own class, except for objects which stand in for another object,
+	 * such as those restored from a {@link org.osm2world.core.target.ConversionResultCache}.
+	 */
+	public default Class<? extends WorldObject> getObjectClass() {
+		return getClass();
+	}
+
 	/**
 	 * returns another world object this is part of, if any (e.g. a room is part of a building).
 	 * Parents are responsible for rendering their children, so only root objects (those returning null here)
@@ -36,6 +36,7 @@ import org.osm2world.core.target.common.ExtrudeOption;
 import org.osm2world.core.target.common.material.Material;
 import org.osm2world.core.target.common.material.Materials;
 import org.osm2world.core.target.common.texcoord.NamedTexCoordFunction;
+import org.osm2world.core.world.creation.WorldModule;
 import org.osm2world.core.world.data.WaySegmentWorldObject;
 import org.osm2world.core.world.data.WorldObject;
 import org.osm2world.core.world.modules.SurfaceAreaModule.SurfaceArea;
@@ -53,6 +54,11 @@ import org.osm2world.core.world.network.AbstractNetworkWaySegmentWorldObject;
  */
 public class BridgeModule extends AbstractModule {
 
+	@Override
+	public Collection<Class<? extends WorldModule>> getDependencies() {
+		return asList(RoadModule.class, RailwayModule.class, AerowayModule.class, WaterModule.class);
+	}
+
 	public static final boolean isBridge(TagSet tags) {
 		return tags.containsKey("bridge")
 			&& !"no".equals(tags.getValue("bridge"));
@@ -17,11 +17,11 @@ import static org.osm2world.core.world.network.NetworkUtil.getConnectedNetworkSe
 
 import java.util.ArrayList;
 import java.util.EnumSet;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.map_data.data.MapNode;
@@ -127,7 +127,8 @@ public class RailwayModule extends ConfigurableWorldModule {
 		}
 	}
 
-	private final Map<Double, SleeperModel> sleeperModelByWidth = new HashMap<Double, SleeperModel>();
+	/** shared sleeper models, can be accessed by several threads if modules are applied in parallel */
+	private final Map<Double, SleeperModel> sleeperModelByWidth = new ConcurrentHashMap<>();
 
 	@Override
 	public void applyTo(MapData mapData) {
@@ -165,9 +166,7 @@ public class RailwayModule extends ConfigurableWorldModule {
 			sleeperWidth = gaugeMeters + 2 * RAIL_HEAD_WIDTH + 2 * SLEEPER_EXTRA_WIDTH;
 			groundWidth = sleeperWidth + 2 * GROUND_EXTRA_WIDTH;
 
-			if (!sleeperModelByWidth.containsKey(sleeperWidth)) {
-				sleeperModelByWidth.put(sleeperWidth, new SleeperModel(sleeperWidth));
-			}
+			sleeperModelByWidth.computeIfAbsent(sleeperWidth, SleeperModel::new);
 
 		}
 
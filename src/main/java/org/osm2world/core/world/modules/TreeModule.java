@@ -292,19 +292,23 @@ public class TreeModule extends ConfigurableWorldModule {
 
 		TreeModel model = null;
 
-		for (TreeModel existingModel : existingModels) {
-			if (existingModel.leafType == leafType
-					&& existingModel.leafCycle == leafCycle
-					&& existingModel.species == species
-					&& existingModel.mirrored == mirrored) {
-				model = existingModel;
-				break;
+		synchronized (existingModels) {
+
+			for (TreeModel existingModel : existingModels) {
+				if (existingModel.leafType == leafType
+						&& existingModel.leafCycle == leafCycle
+						&& existingModel.species == species
+						&& existingModel.mirrored == mirrored) {
+					model = existingModel;
+					break;
+				}
+			}
+
+			if (model == null) {
+				model = new TreeModel(leafType, leafCycle, species, mirrored);
+				existingModels.add(model);
 			}
-		}
 
-		if (model == null) {
-			model = new TreeModel(leafType, leafCycle, species, mirrored);
-			existingModels.add(model);
 		}
 
 		target.drawModel(model, base, 0, height, null, null);
@@ -350,6 +354,7 @@ public class TreeModule extends ConfigurableWorldModule {
 
 	}
 
+	/** models shared by trees with the same properties, can be accessed by several threads building meshes */
 	private final List<TreeModel> existingModels = new ArrayList<>();
 
 	public class Tree extends NoOutlineNodeWorldObject implements RenderableToPOVRay {
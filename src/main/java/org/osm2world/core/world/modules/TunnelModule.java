@@ -7,6 +7,7 @@ import static org.osm2world.core.map_elevation.data.GroundState.ON;
 import static org.osm2world.core.world.modules.common.WorldModuleGeometryUtil.createTriangleStripBetween;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.osm2world.core.map_data.data.MapAreaSegment;
@@ -23,6 +24,7 @@ import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.target.Target;
 import org.osm2world.core.target.common.material.Materials;
+import org.osm2world.core.world.creation.WorldModule;
 import org.osm2world.core.world.data.NodeWorldObject;
 import org.osm2world.core.world.data.TerrainBoundaryWorldObject;
 import org.osm2world.core.world.data.WaySegmentWorldObject;
@@ -40,6 +42,11 @@ import org.osm2world.core.world.network.VisibleConnectorNodeWorldObject;
  */
 public class TunnelModule extends AbstractModule {
 
+	@Override
+	public Collection<Class<? extends WorldModule>> getDependencies() {
+		return asList(RoadModule.class, RailwayModule.class, AerowayModule.class, WaterModule.class);
+	}
+
 	public static final boolean isTunnel(TagSet tags) {
 		return tags.containsKey("tunnel")
 				&& !"no".equals(tags.getValue("tunnel"))
@@ -89,7 +89,7 @@ public class BuildingPartInterior implements Renderable {
 	@Override
 	public void renderTo(Target target) {
 
-		IndoorWall.allRenderedWallSegments = new ArrayList<>(); //FIXME this is not thread-safe!
+		IndoorWall.allRenderedWallSegments.set(new ArrayList<>());
 
 		walls.forEach(w -> w.renderTo(target));
 
@@ -6,6 +6,7 @@ import static java.util.stream.Collectors.toList;
 import static org.osm2world.core.util.ValueParseUtil.parseLevels;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -26,7 +27,9 @@ import org.osm2world.core.math.algorithms.TriangulationUtil;
 import org.osm2world.core.target.Target;
 import org.osm2world.core.target.common.material.Materials;
 import org.osm2world.core.world.attachment.AttachmentConnector;
+import org.osm2world.core.world.creation.WorldModule;
 import org.osm2world.core.world.data.AbstractAreaWorldObject;
+import org.osm2world.core.world.modules.building.BuildingModule;
 import org.osm2world.core.world.modules.building.Door;
 import org.osm2world.core.world.modules.building.DoorParameters;
 import org.osm2world.core.world.modules.building.WallSurface;
@@ -34,6 +37,11 @@ import org.osm2world.core.world.modules.common.AbstractModule;
 
 public class IndoorModule extends AbstractModule {
 
+	@Override
+	public Collection<Class<? extends WorldModule>> getDependencies() {
+		return asList(BuildingModule.class);
+	}
+
 	@Override
 	protected void applyToArea(MapArea area) {
 		if (area.getTags().contains("highway", "elevator")) {
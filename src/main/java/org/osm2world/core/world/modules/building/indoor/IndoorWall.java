@@ -64,7 +64,11 @@ public class IndoorWall implements Renderable {
     private List<MapNode> nodes;
     private List<SegmentNodes> wallSegmentNodes = new ArrayList<>();
 
-    static List<SegmentLevelPair> allRenderedWallSegments = new ArrayList<>();
+    /**
+     * wall segments rendered so far for the current building part.
+     * Separate for each thread because meshes of different buildings can be built at the same time.
+     */
+    static final ThreadLocal<List<SegmentLevelPair>> allRenderedWallSegments = ThreadLocal.withInitial(ArrayList::new);
 
     private final IndoorObjectData data;
 
@@ -840,12 +844,12 @@ public class IndoorWall implements Renderable {
 
 				SegmentLevelPair pair = new SegmentLevelPair(wallSegData.getSegment(), level, wallSegData.getStartNode(), wallSegData.getEndNode());
 
-				if (!allRenderedWallSegments.contains(pair) || attachmentSurfaces) {
+				if (!allRenderedWallSegments.get().contains(pair) || attachmentSurfaces) {
 
 					if (floorHeight < ceilingHeight) {
 
 						if (!attachmentSurfaces) {
-							allRenderedWallSegments.add(pair);
+							allRenderedWallSegments.get().add(pair);
 						}
 
 						List<VectorXZ> endPoints = getNewEndPoints(wallSegData, level, baseEle
@@ -1,11 +1,15 @@
 package org.osm2world.core.world.modules.common;
 
+import java.util.Collection;
+import java.util.function.Consumer;
+
 import org.osm2world.core.map_data.data.MapArea;
 import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.map_data.data.MapElement;
 import org.osm2world.core.map_data.data.MapNode;
 import org.osm2world.core.map_data.data.MapWay;
 import org.osm2world.core.map_data.data.MapWaySegment;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
 import org.osm2world.core.world.creation.WorldModule;
 import org.osm2world.core.world.data.WorldObject;
 
@@ -15,28 +19,36 @@ import org.osm2world.core.world.data.WorldObject;
  * Subclasses need to be able to create {@link WorldObject}s
  * for each {@link MapElement} in isolation.
  * This can make parallel application of the module possible.
+ *
+ * If the configuration enables the "parallelModules" option,
+ * the elements of each type (nodes, ways, way segments, areas) are processed in parallel.
+ * All elements of one type are finished before the next type is started, so
+ * subclasses may still inspect the representations they have added to elements of a previous type.
  */
 public abstract class AbstractModule extends ConfigurableWorldModule {
 
 	@Override
 	public final void applyTo(MapData mapData) {
 
-		for (MapNode node : mapData.getMapNodes()) {
-			applyToNode(node);
-		}
+		boolean parallel = config != null && config.getBoolean("parallelModules", false);
 
-		for (MapWay way : mapData.getMapWays()) {
-			applyToWay(way);
-		}
+		applyToAll(mapData.getMapNodes(), this::applyToNode, parallel);
+		applyToAll(mapData.getMapWays(), this::applyToWay, parallel);
+		applyToAll(mapData.getMapWaySegments(), this::applyToWaySegment, parallel);
+		applyToAll(mapData.getMapAreas(), this::applyToArea, parallel);
 
-		for (MapWaySegment waySegment : mapData.getMapWaySegments()) {
-			applyToWaySegment(waySegment);
-		}
+	}
 
-		for (MapArea area : mapData.getMapAreas()) {
-			applyToArea(area);
+	private static <T> void applyToAll(Collection<T> elements, Consumer<T> action, boolean parallel) {
+		if (parallel) {
+			MaterialConfiguration materialConfiguration = MaterialConfiguration.getCurrent();
+			if (materialConfiguration != null) {
+				action = materialConfiguration.wrap(action);
+			}
+			elements.parallelStream().forEach(action);
+		} else {
+			elements.forEach(action);
 		}
-
 	}
 
 	/**
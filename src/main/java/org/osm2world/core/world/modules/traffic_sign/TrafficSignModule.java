@@ -11,6 +11,7 @@ import static org.osm2world.core.world.modules.common.WorldModuleParseUtil.parse
 import java.awt.Color;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -31,6 +32,7 @@ import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.target.common.material.Material;
 import org.osm2world.core.util.enums.ForwardBackward;
 import org.osm2world.core.util.enums.LeftRight;
+import org.osm2world.core.world.creation.WorldModule;
 import org.osm2world.core.world.modules.RoadModule;
 import org.osm2world.core.world.modules.RoadModule.Road;
 import org.osm2world.core.world.modules.common.AbstractModule;
@@ -40,6 +42,11 @@ import org.osm2world.core.world.modules.common.AbstractModule;
  */
 public class TrafficSignModule extends AbstractModule {
 
+	@Override
+	public Collection<Class<? extends WorldModule>> getDependencies() {
+		return asList(RoadModule.class);
+	}
+
 	/**
 	 * Checks if {@code node}'s way contains traffic sign tags to be rendered
 	 */
@@ -9,6 +9,7 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 
 import org.osm2world.core.target.TargetUtil;
 import org.osm2world.core.target.gltf.GltfTarget;
+import org.osm2world.core.target.gltf.GltfTarget.GltfFlavor;
 import org.osm2world.viewer.model.Data;
 import org.osm2world.viewer.model.MessageManager;
 import org.osm2world.viewer.model.RenderOptions;
@@ -22,14 +23,14 @@ public class ExportGltfAction extends AbstractExportAction {
 			MessageManager messageManager, RenderOptions renderOptions) {
 
 		super("Export glTF file", viewerFrame, data, messageManager, renderOptions);
-		putValue(SHORT_DESCRIPTION, "Writes a .gltf file");
+		putValue(SHORT_DESCRIPTION, "Writes a .gltf or .glb file");
 		putValue(MNEMONIC_KEY, KeyEvent.VK_G);
 
 	}
 
 	@Override
 	protected FileNameExtensionFilter getFileNameExtensionFilter() {
-		return new FileNameExtensionFilter("glTF files", "gltf");
+		return new FileNameExtensionFilter("glTF files", "gltf", "glb");
 	}
 
 	@Override
@@ -40,16 +41,18 @@ public class ExportGltfAction extends AbstractExportAction {
 			boolean underground = data.getConfig() == null || data.getConfig().getBoolean("renderUnderground", true);
 
 			/* write the file */
-			GltfTarget gltfTarget = new GltfTarget(file, null);
+			GltfFlavor flavor = file.getName().toLowerCase().endsWith(".glb") ? GltfFlavor.GLB : GltfFlavor.GLTF;
+			GltfTarget gltfTarget = new GltfTarget(file, flavor, null);
+			gltfTarget.setConfiguration(data.getConfig());
 			TargetUtil.renderWorldObjects(gltfTarget, data.getConversionResults().getMapData(), underground);
 			gltfTarget.finish();
 
-			messageManager.addMessage("exported .gltf file " + file);
+			messageManager.addMessage("exported glTF file " + file);
 
 		} catch (Exception e) {
 			JOptionPane.showMessageDialog(viewerFrame,
 					e.toString(),
-					"Could not export .gltf file",
+					"Could not export glTF file",
 					JOptionPane.ERROR_MESSAGE);
 			e.printStackTrace();
 		}
@@ -14,6 +14,7 @@ import org.osm2world.core.map_elevation.creation.EleConstraintEnforcer;
 import org.osm2world.core.map_elevation.creation.TerrainInterpolator;
 import org.osm2world.core.osm.creation.OSMDataReader;
 import org.osm2world.core.osm.creation.OSMFileReader;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
 import org.osm2world.core.util.functions.Factory;
 
 public class Data extends Observable {
@@ -62,6 +63,9 @@ public class Data extends Observable {
 			conversionResults = converter.createRepresentations(
 					reader.getData(), null, config, null);
 
+			// the viewer only shows one conversion at a time, so its material configuration can be global
+			MaterialConfiguration.setDefault(conversionResults.getMaterialConfiguration());
+
 		} catch (IOException e) {
 
 			osmFile = null;
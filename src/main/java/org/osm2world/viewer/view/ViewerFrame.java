@@ -21,6 +21,7 @@ import javax.swing.JRadioButtonMenuItem;
 
 import org.apache.commons.configuration.Configuration;
 import org.osm2world.core.map_elevation.creation.EleConstraintEnforcer;
+import org.osm2world.core.map_elevation.creation.GriddedInterpolator;
 import org.osm2world.core.map_elevation.creation.InverseDistanceWeightingInterpolator;
 import org.osm2world.core.map_elevation.creation.LeastSquaresInterpolator;
 import org.osm2world.core.map_elevation.creation.LinearInterpolator;
@@ -257,7 +258,8 @@ public class ViewerFrame extends JFrame {
 					LinearInterpolator.class,
 					InverseDistanceWeightingInterpolator.class,
 					LeastSquaresInterpolator.class,
-					NaturalNeighborInterpolator.class);
+					NaturalNeighborInterpolator.class,
+					GriddedInterpolator.class);
 
 			for (Class<? extends TerrainInterpolator> c : interpolatorClasses) {
 
@@ -5,8 +5,10 @@ import static org.junit.Assert.*;
 import static org.osm2world.core.test.TestUtil.assertAlmostEquals;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import org.junit.Test;
 import org.osm2world.core.map_elevation.creation.DelaunayTriangulation;
@@ -66,6 +68,54 @@ public class DelaunayTriangulationTest {
 
 	}
 
+	@Test
+	public void testInsertAll() {
+
+		for (int pointCount : asList(0, 1, 10, 100, 2000)) {
+
+			Random random = new Random(pointCount);
+
+			AxisAlignedRectangleXZ bounds = new AxisAlignedRectangleXZ(
+					-SIZE, -SIZE, +SIZE, +SIZE);
+
+			List<VectorXYZ> points = new ArrayList<VectorXYZ>();
+
+			for (int i = 0; i < pointCount; i++) {
+				double x = (random.nextDouble() * 2 * SIZE) - SIZE;
+				double z = (random.nextDouble() * 2 * SIZE) - SIZE;
+				points.add(new VectorXYZ(x, random.nextDouble(), z));
+			}
+
+			DelaunayTriangulation bulkTriangulation = new DelaunayTriangulation(bounds);
+			bulkTriangulation.insertAll(points);
+
+			assertTriangulationProperties(bulkTriangulation, points);
+
+			if (pointCount <= 100) {
+
+				DelaunayTriangulation triangulation = new DelaunayTriangulation(bounds);
+
+				for (VectorXYZ point : points) {
+					triangulation.insert(point);
+				}
+
+				// the triangles are the same, but their vertices may be in a different (cyclic) order
+				assertEquals(getTriangleVertexSets(triangulation), getTriangleVertexSets(bulkTriangulation));
+
+			}
+
+		}
+
+	}
+
+	private static Set<Set<VectorXYZ>> getTriangleVertexSets(DelaunayTriangulation triangulation) {
+		Set<Set<VectorXYZ>> result = new HashSet<>();
+		for (DelaunayTriangle t : triangulation.getTriangles()) {
+			result.add(new HashSet<>(asList(t.p0, t.p1, t.p2)));
+		}
+		return result;
+	}
+
 	/**
 	 * asserts that two triangulations are equal
 	 */
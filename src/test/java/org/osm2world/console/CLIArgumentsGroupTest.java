@@ -36,6 +36,26 @@ public class CLIArgumentsGroupTest {
 
 		assertTrue(CLIArgumentsGroup.isCompatible(cliArgsA1, cliArgsA2));
 
+		/* test tile pyramid commands */
+
+		CLIArguments cliArgsP = CliFactory.parseArguments(CLIArguments.class,
+				"-i", "testFile.osm", "-o", "tiles/{z}/{x}/{y}.glb", "--output_tile_zoom", "14", "15");
+
+		assertEquals(2, cliArgsP.getOutputTileZoom().size());
+		assertTrue(CLIArgumentsUtil.isValid(cliArgsP));
+		assertFalse(CLIArgumentsGroup.isCompatible(cliArgs1, cliArgsP));
+
+		CLIArguments cliArgsInvalidP = CliFactory.parseArguments(CLIArguments.class,
+				"-i", "testFile.osm", "-o", "tiles/{z}/{x}.glb", "--output_tile_zoom", "14");
+
+		assertFalse(CLIArgumentsUtil.isValid(cliArgsInvalidP));
+
+		CLIArguments cliArgsMbtiles = CliFactory.parseArguments(CLIArguments.class,
+				"-i", "testFile.osm", "-o", "tiles.glb.mbtiles", "--output_tile_zoom", "14");
+
+		assertTrue(CLIArgumentsUtil.isValid(cliArgsMbtiles));
+		assertEquals(CLIArgumentsUtil.OutputMode.GLB, CLIArgumentsUtil.getOutputMode(cliArgsMbtiles.getOutput().get(0)));
+
 	}
 
 }
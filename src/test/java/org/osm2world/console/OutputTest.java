@@ -0,0 +1,126 @@
+package org.osm2world.console;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osm2world.console.CLIArgumentsUtil.OutputMode;
+import org.osm2world.core.ConversionFacade;
+import org.osm2world.core.ConversionFacade.Results;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.creation.LatLonBounds;
+import org.osm2world.core.math.AxisAlignedRectangleXZ;
+import org.osm2world.core.target.MeshCache;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
+import org.osm2world.core.target.common.rendering.OrthoTilesUtil;
+import org.osm2world.core.target.common.rendering.TileNumber;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class OutputTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testTilesAreClipped() throws IOException {
+
+		TileNumber westTile = TileNumber.atLatLon(17, new LatLon(48.5741, 13.4654));
+		TileNumber eastTile = new TileNumber(17, westTile.x + 1, westTile.y);
+
+		LatLonBounds westBounds = westTile.bounds();
+		double borderLon = westBounds.maxlon;
+		double lat = westBounds.getCenter().lat;
+
+		/* write a building and a road crossing the border between the tiles */
+
+		File osmFile = folder.newFile("test.osm");
+
+		try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(osmFile.toPath()))) {
+			w.println("<?xml version='1.0' encoding='UTF-8'?>");
+			w.println("<osm version='0.6'>");
+			writeNode(w, 1, lat - 0.0002, borderLon - 0.0003);
+			writeNode(w, 2, lat - 0.0002, borderLon + 0.0003);
+			writeNode(w, 3, lat + 0.0002, borderLon + 0.0003);
+			writeNode(w, 4, lat + 0.0002, borderLon - 0.0003);
+			writeNode(w, 5, lat + 0.0004, borderLon - 0.0005);
+			writeNode(w, 6, lat + 0.0005, borderLon + 0.0005);
+			w.println("<way id='10'><nd ref='1'/><nd ref='2'/><nd ref='3'/><nd ref='4'/><nd ref='1'/>"
+					+ "<tag k='building' v='yes'/></way>");
+			w.println("<way id='11'><nd ref='5'/><nd ref='6'/><tag k='highway' v='residential'/></way>");
+			w.println("</osm>");
+		}
+
+		BaseConfiguration config = new BaseConfiguration();
+
+		Results results = new ConversionFacade().createRepresentations(osmFile, null, config, null);
+
+		MeshCache meshCache;
+		try (MaterialConfiguration.Scope scope = results.getMaterialConfiguration().activate()) {
+			meshCache = MeshCache.build(results.getMapData(), false);
+		}
+
+		/* write both tiles and check that their geometry is within their bounds */
+
+		for (TileNumber tile : new TileNumber[] {westTile, eastTile}) {
+
+			AxisAlignedRectangleXZ tileBounds = OrthoTilesUtil.boundsForTiles(
+					results.getMapProjection(), singletonList(tile));
+
+			ByteArrayOutputStream gltf = new ByteArrayOutputStream();
+
+			try (MaterialConfiguration.Scope scope = results.getMaterialConfiguration().activate()) {
+				Output.writeTile(gltf, OutputMode.GLTF, tileBounds, results, meshCache.filter(tileBounds), config);
+			}
+
+			JsonObject json = new JsonParser().parse(new String(gltf.toByteArray(), UTF_8)).getAsJsonObject();
+			JsonArray accessors = json.getAsJsonArray("accessors");
+
+			int positionAccessorCount = 0;
+
+			for (JsonElement mesh : json.getAsJsonArray("meshes")) {
+				for (JsonElement primitive : mesh.getAsJsonObject().getAsJsonArray("primitives")) {
+
+					int accessorIndex = primitive.getAsJsonObject().getAsJsonObject("attributes")
+							.get("POSITION").getAsInt();
+					JsonObject accessor = accessors.get(accessorIndex).getAsJsonObject();
+					JsonArray min = accessor.getAsJsonArray("min");
+					JsonArray max = accessor.getAsJsonArray("max");
+
+					// glTF's z axis points in the opposite direction
+					double epsilon = 1e-3;
+					assertTrue(min.get(0).getAsDouble() >= tileBounds.minX - epsilon);
+					assertTrue(max.get(0).getAsDouble() <= tileBounds.maxX + epsilon);
+					assertTrue(-max.get(2).getAsDouble() >= tileBounds.minZ - epsilon);
+					assertTrue(-min.get(2).getAsDouble() <= tileBounds.maxZ + epsilon);
+
+					positionAccessorCount += 1;
+
+				}
+			}
+
+			assertTrue(positionAccessorCount > 0);
+
+		}
+
+	}
+
+	private static void writeNode(PrintWriter w, long id, double lat, double lon) {
+		w.println(String.format(Locale.US, "<node id='%d' lat='%.7f' lon='%.7f'/>", id, lat, lon));
+	}
+
+}
@@ -0,0 +1,56 @@
+package org.osm2world.console;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParamFileDirModeTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRun() throws Exception {
+
+		File inputFile = new File("src/test/resources/validFile.osm");
+
+		File paramFileDir = folder.newFolder("params");
+		File outputDir = folder.newFolder("output");
+		File reportFile = new File(folder.getRoot(), "report.jsonl");
+
+		for (String name : new String[] {"1_first", "0_urgent", "broken"}) {
+			String line = name.equals("broken")
+					? "--input " + new File(folder.getRoot(), "missing.osm")
+							+ " --output " + new File(outputDir, name + ".o2w.pbf")
+					: "--input " + inputFile.getAbsolutePath()
+							+ " --output " + new File(outputDir, name + ".o2w.pbf");
+			Files.write(new File(paramFileDir, name).toPath(), line.getBytes(UTF_8));
+		}
+
+		ParamFileDirMode.run(paramFileDir, 64, reportFile);
+
+		assertEquals(0, paramFileDir.listFiles().length);
+		assertTrue(new File(outputDir, "0_urgent.o2w.pbf").isFile());
+		assertTrue(new File(outputDir, "1_first.o2w.pbf").isFile());
+
+		List<String> reportLines = Files.readAllLines(reportFile.toPath(), UTF_8);
+		assertEquals(3, reportLines.size());
+		assertEquals(1, reportLines.stream().filter(l -> l.contains("\"success\":false")).count());
+		assertTrue(reportLines.stream().anyMatch(l -> l.contains("\"job\":\"0_urgent\"") && l.contains("timers")));
+
+	}
+
+	@Test
+	public void testMaxConcurrentJobs() {
+		assertEquals(1, ParamFileDirMode.maxConcurrentJobs(Integer.MAX_VALUE));
+		assertTrue(ParamFileDirMode.maxConcurrentJobs(1) <= Runtime.getRuntime().availableProcessors());
+	}
+
+}
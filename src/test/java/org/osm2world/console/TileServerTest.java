@@ -0,0 +1,295 @@
+package org.osm2world.console;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osm2world.console.CLIArgumentsUtil.OutputMode;
+import org.osm2world.console.TileServer.LruCache;
+import org.osm2world.core.ConversionFacade;
+import org.osm2world.core.ConversionFacade.Results;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.math.AxisAlignedRectangleXZ;
+import org.osm2world.core.osm.data.OSMChange;
+import org.osm2world.core.target.MeshCache;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
+import org.osm2world.core.target.common.rendering.TileNumber;
+
+public class TileServerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testServeTiles() throws Exception {
+
+		TileServer server = new TileServer(new File("src/test/resources/validFile.osm"), new BaseConfiguration());
+		server.start(0);
+
+		try {
+
+			TileNumber tile = TileNumber.atLatLon(15, new LatLon(48.5741, 13.4654));
+			String tileUrl = "http://localhost:" + server.getPort() + "/" + tile.zoom + "/" + tile.x + "/" + tile.y;
+
+			HttpURLConnection firstRequest = request(tileUrl + ".glb");
+			assertEquals(200, firstRequest.getResponseCode());
+			assertEquals("MISS", firstRequest.getHeaderField("X-Cache"));
+			byte[] firstResult = readBody(firstRequest);
+			assertTrue(firstResult.length > 0);
+
+			HttpURLConnection secondRequest = request(tileUrl + ".glb");
+			assertEquals(200, secondRequest.getResponseCode());
+			assertEquals("HIT", secondRequest.getHeaderField("X-Cache"));
+			assertArrayEquals(firstResult, readBody(secondRequest));
+
+			// a different format for the same region does not need another conversion
+			HttpURLConnection pbfRequest = request(tileUrl + ".o2w.pbf");
+			assertEquals(200, pbfRequest.getResponseCode());
+			assertEquals("application/x-protobuf", pbfRequest.getHeaderField("Content-Type"));
+
+			assertEquals(400, request("http://localhost:" + server.getPort() + "/5/17/11.glb").getResponseCode());
+			assertEquals(404, request("http://localhost:" + server.getPort() + "/foo").getResponseCode());
+
+		} finally {
+			server.stop();
+		}
+
+	}
+
+	@Test
+	public void testConfigurationReachesTarget() throws Exception {
+
+		BaseConfiguration config = new BaseConfiguration();
+		config.addProperty("gltfQuantization", true);
+
+		TileServer server = new TileServer(new File("src/test/resources/validFile.osm"), config);
+
+		TileNumber tile = TileNumber.atLatLon(15, new LatLon(48.5741, 13.4654));
+		String json = new String(server.getTile(tile, OutputMode.GLTF), UTF_8);
+
+		assertTrue(json.contains("KHR_mesh_quantization"));
+
+	}
+
+	@Test
+	public void testApplyChange() throws Exception {
+
+		File osmFile = folder.newFile("test.osm");
+
+		try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(osmFile.toPath()))) {
+			w.println("<?xml version='1.0' encoding='UTF-8'?>");
+			w.println("<osm version='0.6'>");
+			w.println("<node id='1' lat='48.5741' lon='13.4654'/>");
+			w.println("<node id='2' lat='48.5745' lon='13.4660'/>");
+			w.println("<node id='3' lat='48.5741' lon='13.4854'><tag k='amenity' v='bench'/></node>");
+			w.println("<way id='10'><nd ref='1'/><nd ref='2'/><tag k='highway' v='residential'/></way>");
+			w.println("</osm>");
+		}
+
+		TileServer server = new TileServer(osmFile, new BaseConfiguration());
+		server.start(0);
+
+		try {
+
+			TileNumber changedTile = TileNumber.atLatLon(16, new LatLon(48.5743, 13.4657));
+			TileNumber otherTile = TileNumber.atLatLon(16, new LatLon(48.5741, 13.4854));
+
+			assertEquals(server.regionForTile(changedTile), server.regionForTile(otherTile));
+			assertNotEquals(changedTile, otherTile);
+
+			String changedTileUrl = tileUrl(server, changedTile);
+			String otherTileUrl = tileUrl(server, otherTile);
+
+			byte[] originalTile = readBody(request(changedTileUrl));
+			readBody(request(otherTileUrl));
+
+			/* post a change which adds a second road near the first one */
+
+			HttpURLConnection changeRequest = request("http://localhost:" + server.getPort() + "/changes");
+			changeRequest.setRequestMethod("POST");
+			changeRequest.setDoOutput(true);
+
+			try (OutputStream os = changeRequest.getOutputStream()) {
+				os.write(("<osmChange version='0.6'><create>"
+						+ "<node id='4' lat='48.5742' lon='13.4661'/>"
+						+ "<way id='11'><nd ref='2'/><nd ref='4'/><tag k='highway' v='service'/></way>"
+						+ "</create></osmChange>").getBytes(UTF_8));
+			}
+
+			assertEquals(200, changeRequest.getResponseCode());
+
+			/* only the tile near the change is written again */
+
+			HttpURLConnection changedTileRequest = request(changedTileUrl);
+			assertEquals("MISS", changedTileRequest.getHeaderField("X-Cache"));
+			assertFalse(Arrays.equals(originalTile, readBody(changedTileRequest)));
+
+			assertEquals("HIT", request(otherTileUrl).getHeaderField("X-Cache"));
+
+		} finally {
+			server.stop();
+		}
+
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testApplyChangeToMbtiles() throws Exception {
+		new TileServer(new File("test.mbtiles"), new BaseConfiguration()).applyChange(new OSMChange());
+	}
+
+	@Test
+	public void testRegionForTile() {
+
+		TileServer server = new TileServer(new File("test.mbtiles"), new BaseConfiguration());
+
+		assertEquals(new TileNumber(13, 4231, 2777), server.regionForTile(new TileNumber(13, 4231, 2777)));
+		assertEquals(new TileNumber(13, 4231, 2777), server.regionForTile(new TileNumber(15, 16925, 11111)));
+
+	}
+
+	@Test
+	public void testRegionSizeEstimate() throws Exception {
+
+		File osmFile = folder.newFile("railway.osm");
+
+		try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(osmFile.toPath()))) {
+			w.println("<?xml version='1.0' encoding='UTF-8'?>");
+			w.println("<osm version='0.6'>");
+			w.println("<node id='1' lat='48.5740' lon='13.4650'/>");
+			w.println("<node id='2' lat='48.5740' lon='13.4653'/>");
+			w.println("<node id='3' lat='48.5742' lon='13.4653'/>");
+			w.println("<node id='4' lat='48.5742' lon='13.4650'/>");
+			w.println("<way id='10'><nd ref='1'/><nd ref='2'/><nd ref='3'/><nd ref='4'/>"
+					+ "<tag k='railway' v='rail'/></way>");
+			w.println("</osm>");
+		}
+
+		Results results = new ConversionFacade().createRepresentations(osmFile, null, new BaseConfiguration(), null);
+
+		MeshCache meshCache;
+		try (MaterialConfiguration.Scope scope = results.getMaterialConfiguration().activate()) {
+			meshCache = MeshCache.build(results.getMapData(), false);
+		}
+
+		assertTrue(meshCache.getTriangleCount() > 0);
+
+		long estimate = TileServer.estimateBytes(results, meshCache);
+		long estimateWithoutMeshes = TileServer.estimateBytes(results, meshCache.filter(
+				new AxisAlignedRectangleXZ(1e6, 1e6, 1e6 + 1, 1e6 + 1)));
+
+		assertTrue(estimateWithoutMeshes > 0);
+		assertEquals(meshCache.getTriangleCount() * TileServer.BYTES_PER_TRIANGLE, estimate - estimateWithoutMeshes);
+
+	}
+
+	@Test
+	public void testCacheCoalescesLoads() throws Exception {
+
+		LruCache<String, String> cache = new LruCache<>(100, v -> v.length());
+		AtomicInteger loadCount = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+
+			List<Future<String>> results = new ArrayList<>();
+
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(() -> cache.get("key", () -> {
+					loadCount.incrementAndGet();
+					try {
+						Thread.sleep(200);
+					} catch (InterruptedException e) {
+						throw new IOException(e);
+					}
+					return "value";
+				})));
+			}
+
+			for (Future<String> result : results) {
+				assertEquals("value", result.get());
+			}
+
+			assertEquals(1, loadCount.get());
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+	}
+
+	@Test
+	public void testCacheEviction() throws Exception {
+
+		LruCache<String, String> cache = new LruCache<>(10, v -> v.length());
+
+		cache.get("a", () -> "aaaa");
+		cache.get("b", () -> "bbbb");
+		cache.get("a", () -> "aaaa"); // makes b the least recently used value
+		cache.get("c", () -> "cccc");
+
+		assertTrue(cache.contains("a"));
+		assertFalse(cache.contains("b"));
+		assertTrue(cache.contains("c"));
+
+	}
+
+	@Test
+	public void testCacheRemoveIf() throws Exception {
+
+		LruCache<String, String> cache = new LruCache<>(10, v -> v.length());
+
+		cache.get("a", () -> "aaaa");
+		cache.get("b", () -> "bbbb");
+
+		assertEquals(1, cache.removeIf("a"::equals));
+		assertFalse(cache.contains("a"));
+
+		cache.get("c", () -> "cccc"); // fits into the budget because the weight of a has been released
+
+		assertTrue(cache.contains("b"));
+		assertTrue(cache.contains("c"));
+
+	}
+
+	private static String tileUrl(TileServer server, TileNumber tile) {
+		return "http://localhost:" + server.getPort() + "/" + tile.zoom + "/" + tile.x + "/" + tile.y + ".glb";
+	}
+
+	private static HttpURLConnection request(String url) throws IOException {
+		return (HttpURLConnection) new URL(url).openConnection();
+	}
+
+	private static byte[] readBody(HttpURLConnection connection) throws IOException {
+		try (InputStream is = connection.getInputStream()) {
+			ByteArrayOutputStream result = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int length;
+			while ((length = is.read(buffer)) != -1) {
+				result.write(buffer, 0, length);
+			}
+			return result.toByteArray();
+		}
+	}
+
+}
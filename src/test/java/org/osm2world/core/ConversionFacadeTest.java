@@ -7,23 +7,35 @@ import static org.osm2world.core.math.GeometryUtil.closeLoop;
 import static org.osm2world.core.math.VectorXYZ.*;
 import static org.osm2world.core.test.TestUtil.assertAlmostEquals;
 
+import java.io.File;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+
 import org.junit.Test;
+import org.osm2world.core.ConversionMetrics.MetricsListener;
 import org.osm2world.core.map_data.creation.LatLon;
 import org.osm2world.core.map_data.creation.MapProjection;
 import org.osm2world.core.map_data.creation.MetricMapProjection;
 import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.map_data.data.MapNode;
 import org.osm2world.core.map_data.data.TagSet;
+import org.osm2world.core.map_elevation.creation.NoneEleConstraintEnforcer;
+import org.osm2world.core.map_elevation.creation.TerrainInterpolator;
+import org.osm2world.core.map_elevation.data.EleConnector;
 import org.osm2world.core.math.FaceXYZ;
 import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.target.Target;
 import org.osm2world.core.target.gltf.GltfTarget;
 import org.osm2world.core.test.TestMapDataGenerator;
 import org.osm2world.core.world.attachment.AttachmentConnector;
 import org.osm2world.core.world.attachment.AttachmentSurface;
+import org.osm2world.core.world.data.WorldObject;
 
 public class ConversionFacadeTest {
 
@@ -139,4 +151,123 @@ public class ConversionFacadeTest {
 
 	}
 
+	@Test
+	public void testMetrics() throws Exception {
+
+		TestMapDataGenerator generator = new TestMapDataGenerator();
+
+		generator.createWayArea(asList(
+				generator.createNode(0, 0),
+				generator.createNode(10, 0),
+				generator.createNode(10, 10),
+				generator.createNode(0, 10)), TagSet.of("building", "yes"));
+
+		MapData mapData = generator.createMapData();
+
+		Target testTarget = new GltfTarget(Files.createTempFile("o2w-test-", ".gltf").toFile(), null);
+		MapProjection mapProjection = new MetricMapProjection(new LatLon(0, 0));
+		ConversionFacade cf = new ConversionFacade();
+
+		List<String> events = new ArrayList<>();
+		cf.getMetrics().addListener(new MetricsListener() {
+			@Override public void timerRecorded(String name, long durationNanos) {
+				events.add(name);
+			}
+		});
+
+		cf.createRepresentations(mapProjection, mapData, null, null, asList(testTarget));
+
+		ConversionMetrics metrics = cf.getMetrics();
+
+		assertTrue(metrics.getCount("worldObjects.BuildingModule") > 0);
+		assertEquals(0, metrics.getCount("worldObjects.RoadModule"));
+		assertEquals(0, metrics.getCount("ignoredExceptions.REPRESENTATION"));
+
+		assertTrue(metrics.getTimesMillis().containsKey("module.BuildingModule"));
+		assertTrue(metrics.getTimesMillis().containsKey("target.GltfTarget"));
+		assertNotNull(metrics.getMax("peakHeap.TERRAIN"));
+
+		assertTrue(events.contains("phase.REPRESENTATION"));
+		assertTrue(events.contains("phase.FINISHED"));
+
+		assertTrue(metrics.toJson().contains("\"module.BuildingModule\""));
+
+	}
+
+	@Test
+	public void testBatchElevationInterpolation() throws Exception {
+
+		for (boolean failBatch : asList(false, true)) {
+
+			TestMapDataGenerator generator = new TestMapDataGenerator();
+
+			generator.createWayArea(asList(
+					generator.createNode(0, 0),
+					generator.createNode(10, 0),
+					generator.createNode(10, 10),
+					generator.createNode(0, 10)), TagSet.of("building", "yes"));
+
+			MapData mapData = generator.createMapData();
+
+			/* provide a (flat) SRTM tile so that the interpolator is used */
+
+			File srtmDir = Files.createTempDirectory("o2w-test-srtm").toFile();
+			File tileFile = new File(srtmDir, "N00E000.hgt");
+			Files.write(tileFile.toPath(), new byte[2 * 1201 * 1201]);
+
+			try {
+
+				Configuration config = new BaseConfiguration();
+				config.addProperty("srtmDir", srtmDir.getAbsolutePath());
+
+				List<Integer> batchSizes = new ArrayList<>();
+
+				ConversionFacade cf = new ConversionFacade();
+				cf.setEleConstraintEnforcerFactory(NoneEleConstraintEnforcer::new);
+				cf.setTerrainEleInterpolatorFactory(() -> new TerrainInterpolator() {
+
+					@Override
+					public void setKnownSites(Collection<VectorXYZ> sites) {}
+
+					@Override
+					public VectorXYZ interpolateEle(VectorXZ pos) {
+						return pos.xyz(42);
+					}
+
+					@Override
+					public double[] interpolateEle(double[] xs, double[] zs) {
+						batchSizes.add(xs.length);
+						if (failBatch) throw new IllegalStateException("test exception");
+						return TerrainInterpolator.super.interpolateEle(xs, zs);
+					}
+
+				});
+
+				MapProjection mapProjection = new MetricMapProjection(new LatLon(0.5, 0.5));
+				cf.createRepresentations(mapProjection, mapData, null, config, null);
+
+				assertEquals(1, batchSizes.size());
+
+				int connectorCount = 0;
+
+				for (WorldObject worldObject : mapData.getWorldObjects()) {
+					for (EleConnector connector : worldObject.getEleConnectors()) {
+						assertEquals(42, connector.getPosXYZ().y, 0);
+						connectorCount++;
+					}
+				}
+
+				assertTrue(connectorCount > 0);
+				assertEquals(connectorCount, (int)batchSizes.get(0));
+				assertEquals(connectorCount, cf.getMetrics().getCount("elevation.connectors"));
+
+			} finally {
+				tileFile.delete();
+				srtmDir.delete();
+			}
+
+		}
+
+	}
+
 }
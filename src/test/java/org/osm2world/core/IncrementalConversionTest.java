@@ -0,0 +1,281 @@
+package org.osm2world.core;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osm2world.core.ConversionFacade.Results;
+import org.osm2world.core.map_data.creation.EmptyTerrainBuilder;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.creation.LatLonBounds;
+import org.osm2world.core.map_data.creation.MapProjection;
+import org.osm2world.core.map_data.creation.MetricMapProjection;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.MapNode;
+import org.osm2world.core.map_elevation.creation.LeastSquaresInterpolator;
+import org.osm2world.core.map_elevation.creation.SimpleEleConstraintEnforcer;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.osm.data.OSMChange;
+import org.osm2world.core.osm.data.OSMData;
+import org.osm2world.core.target.common.MeshTarget;
+import org.osm2world.core.target.common.mesh.Mesh;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
+import org.osm2world.core.target.common.rendering.TileNumber;
+import org.osm2world.core.target.statistics.StatisticsTarget;
+import org.osm2world.core.target.statistics.StatisticsTarget.Stat;
+import org.osm2world.core.world.data.WorldObject;
+
+import com.slimjars.dist.gnu.trove.list.array.TLongArrayList;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.impl.Bounds;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
+import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
+
+public class IncrementalConversionTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final LatLon BENCH_POS = new LatLon(0.02, 0.02);
+
+	private static final MapProjection PROJECTION = new MetricMapProjection(new LatLon(0, 0));
+
+	private static OSMData createTestData() {
+		return new OSMData(emptyList(),
+				asList(new Node(1, 0.0, 0.0), new Node(2, 0.001, 0.0), new Node(3, 0.001, 0.001),
+						new Node(7, BENCH_POS.lon, BENCH_POS.lat, singletonList(new Tag("amenity", "bench")))),
+				asList(new Way(10, new TLongArrayList(new long[] {1, 2}),
+								singletonList(new Tag("highway", "residential"))),
+						new Way(11, new TLongArrayList(new long[] {2, 3}),
+								singletonList(new Tag("highway", "service")))),
+				emptyList());
+	}
+
+	@Test
+	public void testApplyChange() throws IOException, EntityNotFoundException {
+
+		OSMData osmData = createTestData();
+		IncrementalConversion conversion = new IncrementalConversion(osmData, PROJECTION, null,
+				new ConversionFacade());
+
+		assertEquals(2, conversion.getMapData().getMapWaySegments().size());
+
+		WorldObject benchBefore = node(conversion.getMapData(), 7).getPrimaryRepresentation();
+		assertNotNull(benchBefore);
+
+		/* move a node of the first road */
+
+		OSMChange change = new OSMChange();
+		change.put(new Node(1, -0.0005, 0.0));
+
+		List<LatLonBounds> regions = conversion.applyChange(change);
+
+		assertFalse(regions.isEmpty());
+		assertEquals(-0.0005, osmData.getData().getNodes().get(1).getLongitude(), 0);
+
+		LatLonBounds union = LatLonBounds.union(regions);
+		assertTrue(union.contains(0, -0.0005));
+		assertTrue(union.contains(0, 0.0005));
+		assertTrue(union.contains(0.0005, 0.001)); // connected road
+		assertFalse(union.contains(BENCH_POS.lat, BENCH_POS.lon));
+
+		/* only tiles near the change are dirty */
+
+		Set<TileNumber> dirtyTiles = IncrementalConversion.tilesForRegions(16, regions);
+
+		assertTrue(dirtyTiles.contains(TileNumber.atLatLon(16, new LatLon(0, 0))));
+		assertFalse(dirtyTiles.contains(TileNumber.atLatLon(16, BENCH_POS)));
+
+		/* the affected elements have been converted again, the others have been kept */
+
+		MapData mapData = conversion.getMapData();
+
+		assertEquals(2, mapData.getMapWaySegments().size());
+		assertEquals(PROJECTION.toXZ(0, -0.0005), node(mapData, 1).getPos());
+		assertTrue(mapData.getMapWaySegments().stream().allMatch(s -> s.getPrimaryRepresentation() != null));
+
+		assertSame(benchBefore, node(mapData, 7).getPrimaryRepresentation());
+
+		assertEqualResults(new IncrementalConversion(osmData, PROJECTION, null, new ConversionFacade()).getResults(),
+				conversion.getResults());
+
+	}
+
+	@Test
+	public void testDeletion() throws IOException, EntityNotFoundException {
+
+		IncrementalConversion conversion = new IncrementalConversion(createTestData(), PROJECTION, null,
+				new ConversionFacade());
+
+		OSMChange change = new OSMChange();
+		change.delete(EntityType.Node, 7);
+
+		List<LatLonBounds> regions = conversion.applyChange(change);
+
+		assertTrue(LatLonBounds.union(regions).contains(BENCH_POS.lat, BENCH_POS.lon));
+		assertEquals(0, conversion.getMapData().getMapNodes().stream().filter(n -> n.getId() == 7).count());
+
+		assertTrue(conversion.applyChange(new OSMChange()).isEmpty());
+
+	}
+
+	@Test
+	public void testTerrain() throws IOException, EntityNotFoundException {
+
+		OSMData osmData = new OSMData(singletonList(new Bounds(0, 0.02, 0.02, 0)),
+				asList(new Node(1, 0.001, 0.001), new Node(2, 0.002, 0.001), new Node(3, 0.002, 0.002),
+						new Node(4, 0.001, 0.002), new Node(5, 0.015, 0.015, singletonList(new Tag("natural", "tree")))),
+				emptyList(), emptyList());
+
+		IncrementalConversion conversion = new IncrementalConversion(osmData, PROJECTION, null,
+				new ConversionFacade());
+
+		long terrainAreaCount = terrainAreaCount(conversion.getMapData());
+		assertTrue(terrainAreaCount > 1);
+
+		/* add a building */
+
+		OSMChange change = new OSMChange();
+		change.put(new Way(10, new TLongArrayList(new long[] {1, 2, 3, 4, 1}),
+				singletonList(new Tag("building", "yes"))));
+
+		List<LatLonBounds> regions = conversion.applyChange(change);
+
+		assertFalse(LatLonBounds.union(regions).contains(0.015, 0.015));
+
+		MapData mapData = conversion.getMapData();
+
+		assertEquals(terrainAreaCount, terrainAreaCount(mapData));
+		assertEquals(1, mapData.getMapAreas().stream().filter(a -> a.getId() == 10).count());
+
+		assertEqualResults(new IncrementalConversion(osmData, PROJECTION, null, new ConversionFacade()).getResults(),
+				conversion.getResults());
+
+	}
+
+	@Test
+	public void testElevation() throws IOException, EntityNotFoundException {
+
+		/* provide an uneven SRTM tile */
+
+		File srtmDir = folder.newFolder();
+
+		ByteBuffer tileData = ByteBuffer.allocate(2 * 1201 * 1201);
+		for (int row = 0; row < 1201; row++) {
+			for (int column = 0; column < 1201; column++) {
+				tileData.putShort((short) (10 + (column * 7 + row * 13) % 23));
+			}
+		}
+		Files.write(new File(srtmDir, "N00E000.hgt").toPath(), tileData.array());
+
+		Configuration config = new BaseConfiguration();
+		config.addProperty("srtmDir", srtmDir.getAbsolutePath());
+
+		OSMData osmData = new OSMData(singletonList(new Bounds(0, 0.02, 0.02, 0)),
+				asList(new Node(1, 0.001, 0.001), new Node(2, 0.002, 0.001), new Node(3, 0.002, 0.002),
+						new Node(4, 0.001, 0.002), new Node(5, 0.015, 0.015), new Node(6, 0.018, 0.016)),
+				singletonList(new Way(11, new TLongArrayList(new long[] {5, 6}),
+						singletonList(new Tag("highway", "residential")))),
+				emptyList());
+
+		IncrementalConversion conversion = new IncrementalConversion(osmData, PROJECTION, config,
+				createWithElevation());
+
+		OSMChange change = new OSMChange();
+		change.put(new Way(10, new TLongArrayList(new long[] {1, 2, 3, 4, 1}),
+				singletonList(new Tag("building", "yes"))));
+
+		conversion.applyChange(change);
+
+		assertEqualResults(new IncrementalConversion(osmData, PROJECTION, config, createWithElevation()).getResults(),
+				conversion.getResults());
+
+		assertTrue(vertices(conversion.getResults()).stream().anyMatch(v -> v.y > 5));
+
+	}
+
+	private static ConversionFacade createWithElevation() {
+		ConversionFacade cf = new ConversionFacade();
+		cf.setTerrainEleInterpolatorFactory(LeastSquaresInterpolator::new);
+		cf.setEleConstraintEnforcerFactory(SimpleEleConstraintEnforcer::new);
+		return cf;
+	}
+
+	/** checks that incrementally updated results produce the same output as a new conversion */
+	private static void assertEqualResults(Results expected, Results actual) {
+
+		StatisticsTarget expectedStats = new StatisticsTarget();
+		expected.getMeshCache().renderTo(expectedStats, true);
+
+		StatisticsTarget actualStats = new StatisticsTarget();
+		actual.getMeshCache().renderTo(actualStats, true);
+
+		for (Stat stat : asList(Stat.OBJECT_COUNT, Stat.TOTAL_TRIANGLE_COUNT)) {
+			assertEquals(stat.toString(), expectedStats.getGlobalCount(stat), actualStats.getGlobalCount(stat));
+		}
+
+		assertEquals(expected.getMapData().getMapNodes().size(), actual.getMapData().getMapNodes().size());
+		assertEquals(expected.getMapData().getMapWaySegments().size(),
+				actual.getMapData().getMapWaySegments().size());
+		assertEquals(expected.getMapData().getMapAreas().size(), actual.getMapData().getMapAreas().size());
+
+		List<VectorXYZ> expectedVertices = vertices(expected);
+		List<VectorXYZ> actualVertices = vertices(actual);
+
+		assertEquals(expectedVertices.size(), actualVertices.size());
+
+		for (int i = 0; i < expectedVertices.size(); i++) {
+			assertEquals(expectedVertices.get(i).x, actualVertices.get(i).x, 1e-6);
+			assertEquals(expectedVertices.get(i).y, actualVertices.get(i).y, 1e-6);
+			assertEquals(expectedVertices.get(i).z, actualVertices.get(i).z, 1e-6);
+		}
+
+	}
+
+	/** returns the positions of all vertices in the results' meshes, sorted by their coordinates */
+	private static List<VectorXYZ> vertices(Results results) {
+
+		MeshTarget target = new MeshTarget();
+
+		try (MaterialConfiguration.Scope scope = results.getMaterialConfiguration().activate()) {
+			results.getMeshCache().renderTo(target, true);
+		}
+
+		List<VectorXYZ> result = new ArrayList<>();
+		for (Mesh mesh : target.getMeshes()) {
+			result.addAll(mesh.geometry.asTriangles().vertices());
+		}
+
+		result.sort(Comparator.<VectorXYZ>comparingDouble(v -> v.x)
+				.thenComparingDouble(v -> v.y).thenComparingDouble(v -> v.z));
+
+		return result;
+
+	}
+
+	private static MapNode node(MapData mapData, long id) {
+		return mapData.getMapNodes().stream().filter(n -> n.getId() == id).findAny().get();
+	}
+
+	private static long terrainAreaCount(MapData mapData) {
+		return mapData.getMapAreas().stream().filter(EmptyTerrainBuilder::isEmptyTerrain).count();
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.osm2world.core.map_data.creation;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static org.junit.Assert.*;
 
 import java.io.File;
@@ -14,10 +15,19 @@ import org.junit.Test;
 import org.osm2world.core.map_data.data.MapArea;
 import org.osm2world.core.map_data.data.MapData;
 import org.osm2world.core.map_data.data.MapNode;
+import org.osm2world.core.map_data.data.MapWaySegment;
+import org.osm2world.core.map_data.data.overlaps.MapOverlapType;
+import org.osm2world.core.map_data.data.overlaps.MapOverlapWA;
 import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.osm.creation.OSMFileReader;
 import org.osm2world.core.osm.data.OSMData;
 
+import com.google.common.collect.Iterables;
+import com.slimjars.dist.gnu.trove.list.array.TLongArrayList;
+
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
 import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
 
 public class OSMToMapDataConverterTest {
@@ -214,4 +224,54 @@ public class OSMToMapDataConverterTest {
 
 	}
 
+	/**
+	 * checks overlaps between elements spanning many cells of the index grid,
+	 * which must be found exactly once and in a reproducible order
+	 */
+	@Test
+	public void testOverlaps() throws IOException, EntityNotFoundException {
+
+		List<Node> nodes = asList(
+				new Node(1, 0, 0), new Node(2, 0.01, 0), new Node(3, 0.01, 0.01), new Node(4, 0, 0.01),
+				new Node(5, -0.005, 0.005), new Node(6, 0.015, 0.005),
+				new Node(7, 0.005, -0.005), new Node(8, 0.005, 0.015),
+				new Node(9, 0.002, 0.002));
+		nodes.get(8).setTags(asList(new Tag("amenity", "bench")));
+
+		List<Way> ways = asList(
+				new Way(10, new TLongArrayList(new long[] {1, 2, 3, 4, 1})),
+				new Way(11, new TLongArrayList(new long[] {5, 6})),
+				new Way(12, new TLongArrayList(new long[] {7, 8})));
+		ways.get(0).setTags(asList(new Tag("landuse", "grass")));
+		ways.get(1).setTags(asList(new Tag("highway", "residential")));
+		ways.get(2).setTags(asList(new Tag("highway", "residential")));
+
+		OSMData osmData = new OSMData(emptyList(), nodes, ways, emptyList());
+		MapProjection mapProjection = new MetricMapProjection(osmData.getCenter());
+
+		MapData mapData = new OSMToMapDataConverter(mapProjection, new BaseConfiguration()).createMapData(osmData);
+
+		MapArea area = mapData.getMapAreas().iterator().next();
+		MapNode bench = mapData.getMapNodes().stream().filter(n -> n.getId() == 9).findAny().get();
+
+		for (MapWaySegment segment : mapData.getMapWaySegments()) {
+			assertEquals(2, segment.getOverlaps().size());
+			assertEquals(1, Iterables.size(segment.getIntersectionsWW()));
+			assertTrue(segment.getOverlaps().stream().anyMatch(o -> o instanceof MapOverlapWA
+					&& o.getOther(segment) == area && o.type == MapOverlapType.INTERSECT));
+		}
+
+		assertEquals(1, area.getOverlaps().stream().filter(o -> o.getOther(area) == bench).count());
+		assertEquals(2, area.getOverlaps().stream().filter(o -> o instanceof MapOverlapWA).count());
+
+		/* check that the result is reproducible */
+
+		MapData mapData2 = new OSMToMapDataConverter(mapProjection, new BaseConfiguration()).createMapData(osmData);
+
+		assertEquals(
+				area.getOverlaps().toString(),
+				mapData2.getMapAreas().iterator().next().getOverlaps().toString());
+
+	}
+
 }
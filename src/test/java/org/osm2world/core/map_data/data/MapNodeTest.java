@@ -0,0 +1,71 @@
+package org.osm2world.core.map_data.data;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.osm2world.core.math.VectorXZ;
+
+public class MapNodeTest {
+
+	@Test
+	public void testConnectedSegments() {
+
+		MapNode center = new MapNode(0, TagSet.of(), new VectorXZ(0, 0));
+		MapNode north = new MapNode(1, TagSet.of(), new VectorXZ(0, 1));
+		MapNode east = new MapNode(2, TagSet.of(), new VectorXZ(1, 0));
+		MapNode south = new MapNode(3, TagSet.of(), new VectorXZ(0, -1));
+		MapNode west = new MapNode(4, TagSet.of(), new VectorXZ(-1, 0));
+
+		MapWay wayA = new MapWay(10, TagSet.of("highway", "service"), asList(south, center, north));
+		MapWay wayB = new MapWay(11, TagSet.of("highway", "service"), asList(west, center));
+		MapWay wayC = new MapWay(12, TagSet.of("highway", "service"), asList(center, east));
+
+		MapWaySegment segmentToSouth = wayA.getWaySegments().get(0);
+		MapWaySegment segmentToNorth = wayA.getWaySegments().get(1);
+		MapWaySegment segmentToWest = wayB.getWaySegments().get(0);
+		MapWaySegment segmentToEast = wayC.getWaySegments().get(0);
+
+		/* way segments are sorted by the angle of the direction towards the other node */
+
+		assertEquals(asList(segmentToNorth, segmentToEast, segmentToSouth, segmentToWest),
+				center.getConnectedWaySegments());
+		assertEquals(asList(segmentToSouth, segmentToWest), center.getInboundLines());
+		assertEquals(asList(segmentToNorth, segmentToEast), center.getOutboundLines());
+		assertEquals(3, center.getConnectedWays().size());
+		assertTrue(center.getAdjacentAreas().isEmpty());
+
+		/* adding an area updates the lists */
+
+		MapArea area = new MapArea(20, false, TagSet.of("landuse", "grass"), asList(center, east, north, center));
+
+		assertEquals(asList(area), center.getAdjacentAreas());
+		assertEquals(6, center.getConnectedSegments().size());
+		assertEquals(4, center.getConnectedWaySegments().size());
+
+		List<MapSegment> connectedSegments = center.getConnectedSegments();
+
+		for (int i = 0; i + 1 < connectedSegments.size(); i++) {
+			assertTrue(angle(center, connectedSegments.get(i)) <= angle(center, connectedSegments.get(i + 1)));
+		}
+
+		/* a node at the end of a way */
+
+		assertTrue(west.getInboundLines().isEmpty());
+		assertEquals(asList(segmentToWest), west.getOutboundLines());
+		assertEquals(asList(segmentToWest), west.getConnectedSegments());
+
+	}
+
+	/** the angle used for sorting: the direction of the segment, inverted for way segments ending at the node */
+	private static double angle(MapNode node, MapSegment segment) {
+		VectorXZ d = segment.getDirection();
+		if (segment instanceof MapWaySegment && segment.getEndNode() == node) {
+			d = d.invert();
+		}
+		return d.angle();
+	}
+
+}
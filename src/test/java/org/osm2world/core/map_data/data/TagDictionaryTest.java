@@ -0,0 +1,79 @@
+package org.osm2world.core.map_data.data;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TagDictionaryTest {
+
+	@Test
+	public void testGetTag() {
+
+		TagDictionary dictionary = new TagDictionary();
+
+		Tag tag1 = dictionary.getTag(new String("building"), new String("yes"));
+		Tag tag2 = dictionary.getTag(new String("building"), new String("yes"));
+		Tag tag3 = dictionary.getTag(new String("building"), new String("house"));
+
+		assertSame(tag1, tag2);
+		assertNotSame(tag1, tag3);
+		assertSame(tag1.key, tag3.key);
+		assertEquals(new Tag("building", "house"), tag3);
+
+		assertEquals(2, dictionary.size());
+
+		/* a separate dictionary does not share tags, but uses the same key ids */
+
+		TagDictionary otherDictionary = new TagDictionary();
+
+		Tag tag4 = otherDictionary.getTag("building", "yes");
+		assertNotSame(tag1, tag4);
+		assertEquals(tag1, tag4);
+		assertSame(tag1.key, tag4.key);
+
+	}
+
+	@Test
+	public void testKeyIds() {
+
+		String key = "testKeyIds:" + System.nanoTime();
+
+		assertEquals(-1, TagDictionary.getKeyId(key));
+
+		int id = TagDictionary.getOrCreateKeyId(key);
+
+		assertTrue(id >= 0);
+		assertEquals(id, TagDictionary.getKeyId(key));
+		assertEquals(id, TagDictionary.getOrCreateKeyId(new String(key)));
+		assertNotEquals(id, TagDictionary.getOrCreateKeyId(key + "x"));
+
+	}
+
+	@Test
+	public void testKeyIdLimit() {
+
+		String key = "testKeyIdLimit:" + System.nanoTime();
+
+		TagDictionary.maxKeyIds = 0;
+
+		try {
+
+			assertEquals(-1, TagDictionary.getOrCreateKeyId(key));
+			assertEquals(-1, TagDictionary.getKeyId(key));
+
+			/* tag sets still find keys without an id */
+
+			TagSet tags = TagSet.of(key, "a", "building", "yes", "zzz", "b");
+
+			assertEquals("a", tags.getValue(key));
+			assertEquals("yes", tags.getValue("building"));
+			assertEquals("b", tags.getValue("zzz"));
+			assertNull(tags.getValue(key + "x"));
+
+		} finally {
+			TagDictionary.maxKeyIds = TagDictionary.MAX_KEY_IDS;
+		}
+
+	}
+
+}
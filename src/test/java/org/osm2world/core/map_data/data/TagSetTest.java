@@ -62,6 +62,40 @@ public class TagSetTest {
 		assertNotEquals(TagSet.of("keyA", "valueA", "keyB", "valueB"),
 				TagSet.of("keyA", "valueB", "keyB", "valueA"));
 
+		assertEquals(TagSet.of("keyA", "valueA", "keyB", "valueB").hashCode(),
+				TagSet.of("keyB", "valueB", "keyA", "valueA").hashCode());
+
+	}
+
+	@Test
+	public void testLookups() {
+
+		// a key which is only used here, so it gets a higher id than the others
+		String newKey = "testLookups:" + System.nanoTime();
+
+		TagSet set = TagSet.of(
+				newKey, "x",
+				"building", "yes",
+				"amenity", "bench",
+				"name", "Test",
+				"height", "10");
+
+		assertEquals("yes", set.getValue("building"));
+		assertEquals("x", set.getValue(newKey));
+		assertEquals("10", set.getValue(new String("height"))); // not the same String instance
+		assertNull(set.getValue("highway"));
+		assertNull(set.getValue("testLookups:unknownKey"));
+
+		assertTrue(set.containsKey("name"));
+		assertFalse(set.containsKey("roof:shape"));
+
+		assertTrue(set.contains("amenity", "bench"));
+		assertTrue(set.contains(new Tag("amenity", "bench")));
+		assertFalse(set.contains("amenity", "parking"));
+		assertFalse(set.contains("highway", "bench"));
+
+		assertEquals("amenity", set.iterator().next().key); // iteration is still alphabetical
+
 	}
 
 	@Test(expected = IllegalArgumentException.class)
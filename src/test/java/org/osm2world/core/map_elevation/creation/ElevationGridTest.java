@@ -0,0 +1,95 @@
+package org.osm2world.core.map_elevation.creation;
+
+import static java.lang.Float.NaN;
+import static org.junit.Assert.*;
+import static org.osm2world.core.map_elevation.creation.ElevationGrid.Interpolation.*;
+
+import org.junit.Test;
+import org.osm2world.core.map_elevation.creation.ElevationGrid.Interpolation;
+
+public class ElevationGridTest {
+
+	/** creates a 4x4 grid with a cell size of 0.5 degrees where ele = 10 * lon + 3 * lat */
+	private static ElevationGrid createLinearGrid() {
+
+		float[] values = new float[16];
+
+		for (int row = 0; row < 4; row++) {
+			for (int column = 0; column < 4; column++) {
+				values[row * 4 + column] = 10 * (1 + 0.5f * column) + 3 * (2 + 0.5f * row);
+			}
+		}
+
+		return new ElevationGrid(1, 2, 0.5, 4, 4, values);
+
+	}
+
+	@Test
+	public void testLinearSurface() {
+
+		ElevationGrid grid = createLinearGrid();
+
+		for (Interpolation interpolation : Interpolation.values()) {
+
+			assertEquals(10 * 1 + 3 * 2, grid.getEle(2, 1, interpolation), 1e-6);
+			assertEquals(10 * 2.5 + 3 * 3.5, grid.getEle(3.5, 2.5, interpolation), 1e-6);
+			assertEquals(10 * 1.7 + 3 * 2.2, grid.getEle(2.2, 1.7, interpolation), 1e-6);
+			assertEquals(10 * 2.3 + 3 * 3.1, grid.getEle(3.1, 2.3, interpolation), 1e-6);
+
+			/* locations outside the grid are clamped */
+
+			assertEquals(10 * 1 + 3 * 2, grid.getEle(0, 0, interpolation), 1e-6);
+			assertEquals(10 * 2.5 + 3 * 3.5, grid.getEle(10, 10, interpolation), 1e-6);
+
+		}
+
+	}
+
+	@Test
+	public void testBicubicIsSmooth() {
+
+		float[] values = {
+				0, 0, 0, 0,
+				0, 0, 0, 0,
+				0, 0, 100, 0,
+				0, 0, 0, 0 };
+
+		ElevationGrid grid = new ElevationGrid(0, 0, 1, 4, 4, values);
+
+		assertEquals(100, grid.getEle(2, 2, BICUBIC), 1e-6);
+		assertEquals(50, grid.getEle(2, 1.5, BILINEAR), 1e-6);
+
+		// the cubic curve stays closer to the peak than the linear one
+		assertTrue(grid.getEle(2, 1.5, BICUBIC) > 50);
+
+	}
+
+	@Test
+	public void testMissingValues() {
+
+		float[] values = {
+				10, 20,
+				NaN, 40 };
+
+		ElevationGrid grid = new ElevationGrid(0, 0, 1, 2, 2, values);
+
+		assertEquals(10, grid.getEle(0, 0, BILINEAR), 1e-6);
+		assertEquals(15, grid.getEle(0, 0.5, BILINEAR), 1e-6);
+		assertEquals(40, grid.getEle(1, 1, BILINEAR), 1e-6);
+
+		// the bicubic interpolation falls back to bilinear interpolation
+		assertEquals(15, grid.getEle(0, 0.5, BICUBIC), 1e-6);
+
+		ElevationGrid emptyGrid = new ElevationGrid(0, 0, 1, 1, 1, new float[] {NaN});
+
+		assertTrue(Double.isNaN(emptyGrid.getEle(0, 0, BILINEAR)));
+		assertTrue(Double.isNaN(emptyGrid.getEle(0, 0, BICUBIC)));
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSize() {
+		new ElevationGrid(0, 0, 1, 2, 2, new float[3]);
+	}
+
+}
@@ -0,0 +1,129 @@
+package org.osm2world.core.map_elevation.creation;
+
+import static org.junit.Assert.*;
+import static org.osm2world.core.map_elevation.creation.SRTMTileCacheTest.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.creation.MapProjection;
+import org.osm2world.core.map_data.creation.MetricMapProjection;
+import org.osm2world.core.map_elevation.creation.ElevationGrid.Interpolation;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.math.VectorXZ;
+
+public class GriddedInterpolatorTest {
+
+	@Test
+	public void testSRTMGrid() throws IOException {
+
+		File directory = Files.createTempDirectory("o2w-test-srtm").toFile();
+
+		try {
+
+			writeTile(directory, 0, 0, 1201);
+			writeTile(directory, 1, 0, 3601);
+
+			MapProjection projection = new MetricMapProjection(new LatLon(0.01, 0.5));
+			SRTMData srtmData = new SRTMData(directory, projection,
+					new SRTMTileCache(SRTMTileCache.DEFAULT_MAX_BYTES));
+
+			ElevationGrid grid = srtmData.getGrid(0.005, 0.005, 1.005, 0.02);
+
+			// the 1-arcsecond tile determines the resolution
+			assertEquals(1.0 / 3600, grid.getCellSize(), 1e-12);
+
+			for (Interpolation interpolation : Interpolation.values()) {
+
+				GriddedInterpolator interpolator = new GriddedInterpolator(interpolation);
+				interpolator.setGrid(grid, projection);
+
+				/* the test data is linear near the south-west corner of each tile */
+
+				double lat = 0.0105, lon = 0.0123;
+				double expectedEle = 7 * lon * 1200 + 13 * lat * 1200;
+				assertEquals(expectedEle, interpolator.interpolateEle(projection.toXZ(lat, lon)).y, 1e-3);
+
+				lat = 0.0117; lon = 1.0031;
+				expectedEle = 7 * (lon - 1) * 3600 + 13 * lat * 3600;
+				assertEquals(expectedEle, interpolator.interpolateEle(projection.toXZ(lat, lon)).y, 1e-3);
+
+				/* pixels are sampled exactly */
+
+				VectorXZ pixelPos = projection.toXZ(10 / 1200.0, 17 / 1200.0);
+				assertEquals(valueAt(17, 10), interpolator.interpolateEle(pixelPos).y, 1e-3);
+
+			}
+
+		} finally {
+			deleteDirectory(directory);
+		}
+
+	}
+
+	@Test
+	public void testSiteFallback() {
+
+		List<VectorXYZ> sites = new ArrayList<>();
+		for (int x = 0; x <= 100; x += 10) {
+			for (int z = 0; z <= 100; z += 10) {
+				sites.add(new VectorXYZ(x, 5, z));
+			}
+		}
+
+		GriddedInterpolator interpolator = new GriddedInterpolator();
+		interpolator.setKnownSites(sites);
+
+		assertEquals(5, interpolator.interpolateEle(new VectorXZ(42, 57)).y, 1e-3);
+		assertEquals(5, interpolator.interpolateEle(new double[] {42}, new double[] {57})[0], 1e-3);
+
+	}
+
+	@Test
+	public void testBatchInterpolation() {
+
+		float[] values = {
+				0, 10, 20,
+				30, 40, 50,
+				60, 70, 80 };
+
+		MapProjection projection = new MetricMapProjection(new LatLon(0, 0));
+
+		GriddedInterpolator interpolator = new GriddedInterpolator(Interpolation.BILINEAR);
+		interpolator.setGrid(new ElevationGrid(0, 0, 0.001, 3, 3, values), projection);
+
+		double[] xs = new double[20];
+		double[] zs = new double[20];
+
+		for (int i = 0; i < xs.length; i++) {
+			xs[i] = 11.3 * i;
+			zs[i] = 7.9 * i;
+		}
+
+		double[] result = interpolator.interpolateEle(xs, zs);
+
+		assertEquals(xs.length, result.length);
+
+		for (int i = 0; i < xs.length; i++) {
+			assertEquals(interpolator.interpolateEle(new VectorXZ(xs[i], zs[i])).y, result[i], 1e-9);
+		}
+
+	}
+
+	@Test
+	public void testMissingData() {
+
+		GriddedInterpolator interpolator = new GriddedInterpolator();
+		interpolator.setGrid(new ElevationGrid(0, 0, 1, 1, 1, new float[] {Float.NaN}),
+				new MetricMapProjection(new LatLon(0, 0)));
+
+		assertEquals(0, interpolator.interpolateEle(new VectorXZ(5, 5)).y, 0);
+
+	}
+
+}
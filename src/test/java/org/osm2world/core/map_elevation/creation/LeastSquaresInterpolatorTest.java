@@ -0,0 +1,118 @@
+package org.osm2world.core.map_elevation.creation;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.QRDecomposition;
+import org.apache.commons.math3.linear.RealVector;
+import org.junit.Test;
+import org.osm2world.core.map_elevation.creation.LeastSquaresInterpolator.SiteWithPolynomial;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.math.VectorXZ;
+
+public class LeastSquaresInterpolatorTest {
+
+	/** a quadratic surface, which the polynomials can reproduce exactly */
+	private static double surface(double x, double z) {
+		return 100 + 0.1 * x - 0.05 * z + 0.0002 * x * x - 0.0001 * x * z;
+	}
+
+	private static List<VectorXYZ> createSites(Random random, int count) {
+		List<VectorXYZ> sites = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			double x = random.nextDouble() * 500;
+			double z = random.nextDouble() * 500;
+			sites.add(new VectorXYZ(x, surface(x, z), z));
+		}
+		return sites;
+	}
+
+	@Test
+	public void testQuadraticSurface() {
+
+		Random random = new Random(1);
+
+		LeastSquaresInterpolator interpolator = new LeastSquaresInterpolator();
+		interpolator.setKnownSites(createSites(random, 2000));
+
+		for (int i = 0; i < 100; i++) {
+			VectorXZ pos = new VectorXZ(50 + random.nextDouble() * 400, 50 + random.nextDouble() * 400);
+			assertEquals(surface(pos.x, pos.z), interpolator.interpolateEle(pos).y, 1e-4);
+		}
+
+		assertEquals(2000, interpolator.getSitesWithPolynomials().size());
+
+		for (SiteWithPolynomial site : interpolator.getSitesWithPolynomials()) {
+			if (site.getPolynomial() != null) {
+				assertEquals(site.pos.y, site.getPolynomial().evaluateAt(site.pos.x, site.pos.z), 1e-4);
+			}
+		}
+
+	}
+
+	@Test
+	public void testBatchInterpolation() {
+
+		Random random = new Random(2);
+
+		LeastSquaresInterpolator interpolator = new LeastSquaresInterpolator();
+		interpolator.setKnownSites(createSites(random, 500));
+
+		double[] xs = new double[1000];
+		double[] zs = new double[1000];
+
+		for (int i = 0; i < xs.length; i++) {
+			xs[i] = random.nextDouble() * 500;
+			zs[i] = random.nextDouble() * 500;
+		}
+
+		double[] result = interpolator.interpolateEle(xs, zs);
+
+		for (int i = 0; i < xs.length; i++) {
+			assertEquals(interpolator.interpolateEle(new VectorXZ(xs[i], zs[i])).y, result[i], 0);
+		}
+
+	}
+
+	@Test
+	public void testSolveLeastSquares() {
+
+		Random random = new Random(3);
+
+		double[][] matrix = new double[9][6];
+		double[] vector = new double[9];
+
+		for (int row = 0; row < 9; row++) {
+			for (int column = 0; column < 6; column++) {
+				matrix[row][column] = random.nextDouble() * 10 - 5;
+			}
+			vector[row] = random.nextDouble() * 10 - 5;
+		}
+
+		/* compare with the result of commons-math */
+
+		RealVector expected = new QRDecomposition(new Array2DRowRealMatrix(matrix))
+				.getSolver().solve(new ArrayRealVector(vector));
+
+		double[] result = new double[8];
+
+		assertTrue(LeastSquaresInterpolator.solveLeastSquares(matrix, vector, new double[6], result, 2));
+
+		for (int i = 0; i < 6; i++) {
+			assertEquals(expected.getEntry(i), result[2 + i], 1e-9);
+		}
+
+		/* a matrix without full rank */
+
+		double[][] singularMatrix = new double[9][6];
+		assertFalse(LeastSquaresInterpolator.solveLeastSquares(singularMatrix, new double[9], new double[6],
+				new double[6], 0));
+
+	}
+
+}
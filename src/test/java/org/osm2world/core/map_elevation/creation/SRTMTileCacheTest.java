@@ -0,0 +1,166 @@
+package org.osm2world.core.map_elevation.creation;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.creation.MetricMapProjection;
+import org.osm2world.core.math.VectorXYZ;
+
+public class SRTMTileCacheTest {
+
+	@Test
+	public void testTileSizes() throws IOException {
+
+		File directory = Files.createTempDirectory("o2w-test-srtm").toFile();
+
+		try {
+
+			writeTile(directory, 8, 50, 1201);
+			writeTile(directory, 9, 50, 3601);
+
+			SRTMTileCache cache = new SRTMTileCache(SRTMTileCache.DEFAULT_MAX_BYTES);
+
+			SRTMTile tile1 = cache.getTile(directory, 8, 50);
+			SRTMTile tile2 = cache.getTile(directory, 9, 50);
+
+			assertEquals(1201, tile1.pixels);
+			assertEquals(3601, tile2.pixels);
+
+			assertEquals(valueAt(0, 0), tile1.getData(0, 0));
+			assertEquals(valueAt(1200, 1200), tile1.getData(1200, 1200));
+			assertEquals(valueAt(17, 1000), tile1.getData(17, 1000));
+			assertEquals(valueAt(3600, 5), tile2.getData(3600, 5));
+
+			assertNull(cache.getTile(directory, 10, 50));
+
+			assertSame(tile1, cache.getTile(directory, 8, 50));
+
+		} finally {
+			deleteDirectory(directory);
+		}
+
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidTileSize() throws IOException {
+
+		File directory = Files.createTempDirectory("o2w-test-srtm").toFile();
+
+		try {
+			Files.write(new File(directory, "N00E000.hgt").toPath(), new byte[1000]);
+			new SRTMTileCache(SRTMTileCache.DEFAULT_MAX_BYTES).getTile(directory, 0, 0);
+		} finally {
+			deleteDirectory(directory);
+		}
+
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+
+		File directory = Files.createTempDirectory("o2w-test-srtm").toFile();
+
+		try {
+
+			for (int lon = 0; lon < 3; lon++) {
+				writeTile(directory, lon, 0, 1201);
+			}
+
+			long tileBytes = 2L * 1201 * 1201;
+
+			SRTMTileCache cache = new SRTMTileCache(2 * tileBytes);
+
+			SRTMTile tile0 = cache.getTile(directory, 0, 0);
+			SRTMTile tile1 = cache.getTile(directory, 1, 0);
+			assertSame(tile0, cache.getTile(directory, 0, 0));
+
+			// loading a third tile evicts tile 1, which has been used least recently
+			cache.getTile(directory, 2, 0);
+
+			assertEquals(2 * tileBytes, cache.getCurrentBytes());
+			assertSame(tile0, cache.getTile(directory, 0, 0));
+			assertNotSame(tile1, cache.getTile(directory, 1, 0));
+
+			cache.setMaxBytes(tileBytes);
+			assertEquals(tileBytes, cache.getCurrentBytes());
+
+		} finally {
+			deleteDirectory(directory);
+		}
+
+	}
+
+	@Test
+	public void testRequestMaxBytes() {
+
+		SRTMTileCache cache = new SRTMTileCache(SRTMTileCache.DEFAULT_MAX_BYTES);
+
+		// the first request replaces the initial budget, later requests can only raise it
+		cache.requestMaxBytes(100);
+		assertEquals(100, cache.getMaxBytes());
+		cache.requestMaxBytes(300);
+		cache.requestMaxBytes(200);
+		assertEquals(300, cache.getMaxBytes());
+
+	}
+
+	@Test
+	public void testSRTMData() throws IOException {
+
+		File directory = Files.createTempDirectory("o2w-test-srtm").toFile();
+
+		try {
+
+			writeTile(directory, 0, 0, 3601);
+
+			SRTMData data = new SRTMData(directory, new MetricMapProjection(new LatLon(0.5, 0.5)),
+					new SRTMTileCache(SRTMTileCache.DEFAULT_MAX_BYTES));
+
+			Collection<VectorXYZ> sites = data.getSites(0.5, 0.5, 0.51, 0.51);
+
+			assertFalse(sites.isEmpty());
+
+			// 1-arcsecond tiles have about 36 sites per 0.01 degrees in each direction
+			assertTrue(sites.size() > 30 * 30);
+
+		} finally {
+			deleteDirectory(directory);
+		}
+
+	}
+
+	/** the value which {@link #writeTile(File, int, int, int)} writes for a pixel */
+	static short valueAt(int x, int y) {
+		return (short) ((x * 7 + y * 13) % 3000);
+	}
+
+	static void writeTile(File directory, int lon, int lat, int pixels) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(2 * pixels * pixels); // big endian by default
+
+		for (int row = 0; row < pixels; row++) {
+			int y = pixels - 1 - row; // rows are stored from north to south
+			for (int x = 0; x < pixels; x++) {
+				buffer.putShort(valueAt(x, y));
+			}
+		}
+
+		Files.write(new File(directory, SRTMTileCache.getTileFileName(lon, lat)).toPath(), buffer.array());
+
+	}
+
+	static void deleteDirectory(File directory) {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+}
@@ -0,0 +1,110 @@
+package org.osm2world.core.math.algorithms;
+
+import static org.junit.Assert.*;
+import static org.osm2world.core.math.algorithms.VertexCacheOptimizationUtil.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class VertexCacheOptimizationUtilTest {
+
+	@Test
+	public void testOptimizeTriangleOrder() {
+
+		int gridSize = 30;
+		int[] indices = createShuffledGrid(gridSize);
+		int vertexCount = (gridSize + 1) * (gridSize + 1);
+
+		int[] result = optimizeTriangleOrder(indices, vertexCount);
+
+		assertEquals(triangleSet(indices), triangleSet(result));
+		assertTrue(cacheMisses(result, 16) < cacheMisses(indices, 16));
+
+	}
+
+	@Test
+	public void testOptimizeTriangleOrderDisconnected() {
+
+		int[] indices = {0, 1, 2, 3, 4, 5, 6, 7, 8, 2, 1, 9};
+
+		int[] result = optimizeTriangleOrder(indices, 10);
+
+		assertEquals(triangleSet(indices), triangleSet(result));
+
+	}
+
+	@Test
+	public void testOptimizeVertexOrder() {
+
+		int[] indices = {4, 2, 0, 2, 4, 3};
+
+		int[] newIndex = optimizeVertexOrder(indices, 6);
+
+		assertEquals(0, newIndex[4]);
+		assertEquals(1, newIndex[2]);
+		assertEquals(2, newIndex[0]);
+		assertEquals(3, newIndex[3]);
+		assertEquals(4, newIndex[1]);
+		assertEquals(5, newIndex[5]);
+
+	}
+
+	/** creates a grid of triangles in random order */
+	private static int[] createShuffledGrid(int gridSize) {
+
+		List<int[]> triangles = new ArrayList<>();
+
+		for (int x = 0; x < gridSize; x++) {
+			for (int y = 0; y < gridSize; y++) {
+				int v = x * (gridSize + 1) + y;
+				triangles.add(new int[] {v, v + gridSize + 1, v + 1});
+				triangles.add(new int[] {v + 1, v + gridSize + 1, v + gridSize + 2});
+			}
+		}
+
+		Collections.shuffle(triangles, new Random(42));
+
+		int[] result = new int[3 * triangles.size()];
+		for (int t = 0; t < triangles.size(); t++) {
+			System.arraycopy(triangles.get(t), 0, result, 3 * t, 3);
+		}
+		return result;
+
+	}
+
+	/** returns the triangles as a set of strings, with each triangle's vertices rotated to a canonical order */
+	private static Set<String> triangleSet(int[] indices) {
+		Set<String> result = new HashSet<>();
+		for (int t = 0; t < indices.length / 3; t++) {
+			int a = indices[3 * t], b = indices[3 * t + 1], c = indices[3 * t + 2];
+			while (a > b || a > c) {
+				int tmp = a; a = b; b = c; c = tmp;
+			}
+			result.add(a + " " + b + " " + c);
+		}
+		return result;
+	}
+
+	/** simulates a FIFO vertex cache */
+	private static int cacheMisses(int[] indices, int cacheSize) {
+		List<Integer> cache = new ArrayList<>();
+		int misses = 0;
+		for (int index : indices) {
+			if (!cache.contains(index)) {
+				misses++;
+				cache.add(index);
+				if (cache.size() > cacheSize) {
+					cache.remove(0);
+				}
+			}
+		}
+		return misses;
+	}
+
+}
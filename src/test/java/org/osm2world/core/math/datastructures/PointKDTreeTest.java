@@ -0,0 +1,72 @@
+package org.osm2world.core.math.datastructures;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PointKDTreeTest {
+
+	@Test
+	public void testFindNearest() {
+
+		Random random = new Random(42);
+
+		for (int pointCount : new int[] {0, 1, 5, 100, 5000}) {
+
+			double[] xs = new double[pointCount];
+			double[] zs = new double[pointCount];
+
+			for (int i = 0; i < pointCount; i++) {
+				xs[i] = random.nextDouble() * 1000;
+				// some points share a coordinate to test ties during construction
+				zs[i] = (i % 7 == 0) ? 500 : random.nextDouble() * 1000;
+			}
+
+			PointKDTree tree = new PointKDTree(xs, zs);
+
+			assertEquals(pointCount, tree.size());
+
+			for (int query = 0; query < 50; query++) {
+
+				double x = random.nextDouble() * 1200 - 100;
+				double z = random.nextDouble() * 1200 - 100;
+
+				int k = 1 + random.nextInt(30);
+
+				int[] resultIndices = new int[k];
+				double[] resultDistancesSquared = new double[k];
+
+				int count = tree.findNearest(x, z, k, resultIndices, resultDistancesSquared);
+
+				/* compare with the result of a brute force search */
+
+				Integer[] expected = new Integer[pointCount];
+				for (int i = 0; i < pointCount; i++) {
+					expected[i] = i;
+				}
+				Arrays.sort(expected, Comparator.comparingDouble(i -> distanceSquared(xs[i], zs[i], x, z)));
+
+				assertEquals(Math.min(k, pointCount), count);
+
+				for (int i = 0; i < count; i++) {
+					double expectedDistance = distanceSquared(xs[expected[i]], zs[expected[i]], x, z);
+					assertEquals(expectedDistance, resultDistancesSquared[i], 1e-9);
+					int index = resultIndices[i];
+					assertEquals(expectedDistance, distanceSquared(xs[index], zs[index], x, z), 1e-9);
+				}
+
+			}
+
+		}
+
+	}
+
+	private static double distanceSquared(double x1, double z1, double x2, double z2) {
+		return (x1 - x2) * (x1 - x2) + (z1 - z2) * (z1 - z2);
+	}
+
+}
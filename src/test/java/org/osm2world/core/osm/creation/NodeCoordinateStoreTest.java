@@ -0,0 +1,51 @@
+package org.osm2world.core.osm.creation;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class NodeCoordinateStoreTest {
+
+	@Test
+	public void testSortedInput() {
+
+		NodeCoordinateStore store = new NodeCoordinateStore(2);
+
+		for (int i = 0; i < 100; i++) {
+			store.put(10 * i, i * 0.5, -i * 0.25);
+		}
+
+		store.finish();
+
+		assertEquals(100, store.size());
+		assertEquals(-1, store.indexOf(15));
+
+		int index = store.indexOf(420);
+		assertEquals(21, store.getLat(index), 1e-7);
+		assertEquals(-10.5, store.getLon(index), 1e-7);
+
+	}
+
+	@Test
+	public void testUnsortedInput() {
+
+		NodeCoordinateStore store = new NodeCoordinateStore();
+
+		store.put(5, 1, 1);
+		store.put(-3, 2, 2);
+		store.put(7, 3, 3);
+		store.put(5, 4, 4);
+
+		store.finish();
+
+		assertEquals(3, store.size());
+		assertTrue(store.contains(-3));
+		assertFalse(store.contains(6));
+
+		assertEquals(2, store.getLat(store.indexOf(-3)), 1e-7);
+		assertEquals(4, store.getLat(store.indexOf(5)), 1e-7); // the later duplicate is kept
+		assertEquals(3, store.getLon(store.indexOf(7)), 1e-7);
+
+	}
+
+}
@@ -0,0 +1,110 @@
+package org.osm2world.core.osm.creation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+
+import org.junit.Test;
+import org.osm2world.core.osm.data.OSMChange;
+import org.osm2world.core.osm.data.OSMData;
+
+import com.slimjars.dist.gnu.trove.list.array.TLongArrayList;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Way;
+
+public class OSMChangeReaderTest {
+
+	private static final String TEST_CHANGE =
+			"<?xml version='1.0' encoding='UTF-8'?>\n"
+			+ "<osmChange version='0.6'>\n"
+			+ "<create>\n"
+			+ "  <node id='3' lat='0.5' lon='1.5'><tag k='amenity' v='bench'/></node>\n"
+			+ "  <relation id='20'><member type='way' ref='10' role='outer'/><tag k='type' v='multipolygon'/></relation>\n"
+			+ "</create>\n"
+			+ "<modify>\n"
+			+ "  <way id='10'><nd ref='1'/><nd ref='3'/><tag k='highway' v='path'/></way>\n"
+			+ "</modify>\n"
+			+ "<delete>\n"
+			+ "  <node id='2'/>\n"
+			+ "</delete>\n"
+			+ "</osmChange>\n";
+
+	@Test
+	public void testReadChange() throws IOException {
+
+		OSMChange change = OSMChangeReader.readChange(new ByteArrayInputStream(TEST_CHANGE.getBytes(UTF_8)));
+
+		assertEquals(1, change.getNodes().size());
+		OsmNode node = change.getNodes().iterator().next();
+		assertEquals(3, node.getId());
+		assertEquals(0.5, node.getLatitude(), 0);
+		assertEquals(1.5, node.getLongitude(), 0);
+		assertEquals("bench", node.getTag(0).getValue());
+
+		assertEquals(1, change.getWays().size());
+		OsmWay way = change.getWays().iterator().next();
+		assertEquals(2, way.getNumberOfNodes());
+		assertEquals(3, way.getNodeId(1));
+
+		assertEquals(1, change.getRelations().size());
+		OsmRelation relation = change.getRelations().iterator().next();
+		assertEquals(EntityType.Way, relation.getMember(0).getType());
+		assertEquals("outer", relation.getMember(0).getRole());
+
+		assertEquals(new HashSet<>(asList(2L, 3L)), change.getChangedIds(EntityType.Node));
+		assertEquals(singleton(10L), change.getChangedIds(EntityType.Way));
+
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidChange() throws IOException {
+		OSMChangeReader.readChange(new ByteArrayInputStream("<osmChange><create>".getBytes(UTF_8)));
+	}
+
+	@Test
+	public void testApplyChange() throws IOException {
+
+		OSMData data = new OSMData(emptyList(),
+				asList(new Node(1, 1.0, 0.5), new Node(2, 2.0, 0.5)),
+				singletonList(new Way(10, new TLongArrayList(new long[] {1, 2}))),
+				emptyList());
+
+		OSMChange change = OSMChangeReader.readChange(new ByteArrayInputStream(TEST_CHANGE.getBytes(UTF_8)));
+		change.applyTo(data);
+
+		assertEquals(2, data.getNodes().size());
+		assertFalse(data.getData().getNodes().containsKey(2));
+		assertTrue(data.getData().getNodes().containsKey(3));
+		assertEquals(3, data.getData().getWays().get(10).getNodeId(1));
+		assertEquals(1, data.getRelations().size());
+
+	}
+
+	@Test
+	public void testLastChangeWins() {
+
+		OSMChange change = new OSMChange();
+		change.put(new Node(1, 0, 0));
+		change.delete(EntityType.Node, 1);
+
+		assertTrue(change.getNodes().isEmpty());
+		assertEquals(singleton(1L), change.getChangedIds(EntityType.Node));
+
+		change.put(new Node(1, 0, 0));
+
+		assertEquals(1, change.getNodes().size());
+		assertFalse(change.isEmpty());
+
+	}
+
+}
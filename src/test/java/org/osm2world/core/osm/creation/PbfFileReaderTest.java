@@ -0,0 +1,329 @@
+package org.osm2world.core.osm.creation;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+import org.osm2world.core.map_data.creation.LatLonBounds;
+import org.osm2world.core.osm.data.OSMData;
+import org.osm2world.core.osm.ruleset.HardcodedRuleset;
+
+import com.google.protobuf.CodedOutputStream;
+
+import de.topobyte.osm4j.core.model.iface.OsmEntity;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
+
+public class PbfFileReaderTest {
+
+	@Test
+	public void testReadAll() throws IOException, EntityNotFoundException {
+
+		File file = writeTestFile();
+
+		try {
+
+			OSMData data = new PbfFileReader(file).getData();
+
+			assertEquals(set(100L, 101L, 103L, 105L), ids(data.getWays()));
+			assertEquals(set(200L), ids(data.getRelations()));
+			assertEquals(set(1L, 2L, 3L, 4L, 5L, 6L, 7L, 9L, 10L, 11L, 12L), ids(data.getNodes()));
+
+			/* check tags, with irrelevant tags removed */
+
+			OsmWay building = data.getWay(100);
+			assertEquals(1, building.getNumberOfTags());
+			assertEquals("building", building.getTag(0).getKey());
+			assertEquals("yes", building.getTag(0).getValue());
+
+			assertEquals(0, data.getWay(103).getNumberOfTags());
+			assertEquals(2, data.getRelation(200).getNumberOfTags());
+			assertEquals(1, data.getNode(7).getNumberOfTags());
+			assertEquals(0, data.getNode(1).getNumberOfTags());
+
+			/* check geometry */
+
+			assertEquals(5, building.getNumberOfNodes());
+			assertEquals(3, building.getNodeId(2));
+
+			OsmNode node = data.getNode(3);
+			assertEquals(1.0, node.getLatitude(), 1e-7);
+			assertEquals(1.0, node.getLongitude(), 1e-7);
+
+			OsmNode bench = data.getNode(9);
+			assertEquals(5.5, bench.getLatitude(), 1e-7);
+			assertEquals(-5.25, bench.getLongitude(), 1e-7);
+
+			assertEquals(2, data.getRelation(200).getNumberOfMembers());
+			assertEquals("inner", data.getRelation(200).getMember(1).getRole());
+
+			/* bounds from the header */
+
+			LatLonBounds bounds = data.getUnionOfExplicitBounds();
+			assertNotNull(bounds);
+			assertEquals(-10, bounds.minlat, 1e-7);
+			assertEquals(10, bounds.maxlon, 1e-7);
+
+		} finally {
+			file.delete();
+		}
+
+	}
+
+	@Test
+	public void testReadBounds() throws IOException {
+
+		File file = writeTestFile();
+
+		try {
+
+			LatLonBounds bounds = new LatLonBounds(-0.1, -0.1, 1.1, 1.1);
+
+			OSMData data = new PbfFileReader(file, bounds, new HardcodedRuleset()).getData();
+
+			// way 103 is outside the bounds, but kept as a member of relation 200
+			assertEquals(set(100L, 103L, 105L), ids(data.getWays()));
+			assertEquals(set(200L), ids(data.getRelations()));
+			assertEquals(set(1L, 2L, 3L, 4L, 7L, 10L, 11L, 12L), ids(data.getNodes()));
+
+			assertEquals(1.1, data.getUnionOfExplicitBounds().maxlat, 1e-7);
+
+		} finally {
+			file.delete();
+		}
+
+	}
+
+	private static Set<Long> set(Long... ids) {
+		return new HashSet<>(asList(ids));
+	}
+
+	private static Set<Long> ids(Iterable<? extends OsmEntity> entities) {
+		Set<Long> result = new HashSet<>();
+		entities.forEach(e -> result.add(e.getId()));
+		return result;
+	}
+
+	/**
+	 * writes a small .osm.pbf file. Nodes are written to two blocks, the first one using dense nodes.
+	 */
+	private static File writeTestFile() throws IOException {
+
+		File file = File.createTempFile("osm2world-test", ".osm.pbf");
+
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+
+			/* header with bounding box */
+
+			byte[] bbox = encode(o -> {
+				o.writeSInt64(1, -10_000_000_000L);
+				o.writeSInt64(2, 10_000_000_000L);
+				o.writeSInt64(3, 10_000_000_000L);
+				o.writeSInt64(4, -10_000_000_000L);
+			});
+
+			writeBlob(out, "OSMHeader", encode(o -> {
+				o.writeByteArray(1, bbox);
+				o.writeString(4, "OsmSchema-V0.6");
+				o.writeString(4, "DenseNodes");
+			}));
+
+			/* block with dense nodes */
+
+			String[] strings1 = {"", "amenity", "bench", "created_by", "JOSM"};
+
+			long[] ids = {1, 2, 3, 4, 5, 6, 7, 8};
+			double[] lats = {0, 0, 1, 1, 5, 6, 0.5, 0.5};
+			double[] lons = {0, 1, 1, 0, 5, 5, 0.5, 0.6};
+			int[] keysVals = {0, 0, 0, 0, 0, 0, 1, 2, 0, 3, 4, 0};
+
+			byte[] dense = encode(o -> {
+				o.writeByteArray(1, packedSInt64(deltas(ids)));
+				o.writeByteArray(8, packedSInt64(deltas(fixedPoint(lats))));
+				o.writeByteArray(9, packedSInt64(deltas(fixedPoint(lons))));
+				o.writeByteArray(10, packedUInt32(keysVals));
+			});
+
+			writeBlob(out, "OSMData", primitiveBlock(strings1, encode(o -> o.writeByteArray(2, dense))));
+
+			/* block with non-dense nodes, ways and relations */
+
+			String[] strings2 = {"", "amenity", "bench", "building", "yes", "source", "survey",
+					"highway", "residential", "type", "multipolygon", "natural", "water", "outer", "inner",
+					"route", "bus"};
+
+			List<byte[]> nodes = new ArrayList<>();
+			nodes.add(node(9, 5.5, -5.25, 1, 2));
+			nodes.add(node(10, 5, 6));
+			nodes.add(node(11, 6, 6));
+			nodes.add(node(12, 6, 7));
+
+			List<byte[]> ways = new ArrayList<>();
+			ways.add(way(100, new long[] {1, 2, 3, 4, 1}, 3, 4, 5, 6));
+			ways.add(way(101, new long[] {5, 6}, 7, 8));
+			ways.add(way(102, new long[] {1, 3}, 5, 6)); // only irrelevant tags
+			ways.add(way(103, new long[] {10, 11, 12, 10}));
+			ways.add(way(104, new long[] {5, 6})); // neither tags nor part of a relation
+			ways.add(way(105, new long[] {1, 2}));
+
+			List<byte[]> relations = new ArrayList<>();
+			relations.add(relation(200, new long[] {103, 105}, new int[] {13, 14}, 9, 10, 11, 12));
+			relations.add(relation(201, new long[] {101}, new int[] {0}, 9, 15, 15, 16)); // type not relevant
+
+			byte[] group = encode(o -> {
+				for (byte[] node : nodes) o.writeByteArray(1, node);
+				for (byte[] way : ways) o.writeByteArray(3, way);
+				for (byte[] relation : relations) o.writeByteArray(4, relation);
+			});
+
+			writeBlob(out, "OSMData", primitiveBlock(strings2, group));
+
+		}
+
+		return file;
+
+	}
+
+	private static byte[] primitiveBlock(String[] strings, byte[] group) throws IOException {
+
+		byte[] stringTable = encode(o -> {
+			for (String s : strings) {
+				o.writeByteArray(1, s.getBytes(StandardCharsets.UTF_8));
+			}
+		});
+
+		return encode(o -> {
+			o.writeByteArray(1, stringTable);
+			o.writeByteArray(2, group);
+		});
+
+	}
+
+	private static byte[] node(long id, double lat, double lon, int... keysAndValues) throws IOException {
+		return encode(o -> {
+			o.writeSInt64(1, id);
+			o.writeByteArray(2, packedUInt32(everyOther(keysAndValues, 0)));
+			o.writeByteArray(3, packedUInt32(everyOther(keysAndValues, 1)));
+			o.writeSInt64(8, Math.round(lat * 1e7));
+			o.writeSInt64(9, Math.round(lon * 1e7));
+		});
+	}
+
+	private static byte[] way(long id, long[] refs, int... keysAndValues) throws IOException {
+		return encode(o -> {
+			o.writeInt64(1, id);
+			o.writeByteArray(2, packedUInt32(everyOther(keysAndValues, 0)));
+			o.writeByteArray(3, packedUInt32(everyOther(keysAndValues, 1)));
+			o.writeByteArray(8, packedSInt64(deltas(refs)));
+		});
+	}
+
+	/** creates a relation with way members */
+	private static byte[] relation(long id, long[] wayIds, int[] roles, int... keysAndValues) throws IOException {
+		return encode(o -> {
+			o.writeInt64(1, id);
+			o.writeByteArray(2, packedUInt32(everyOther(keysAndValues, 0)));
+			o.writeByteArray(3, packedUInt32(everyOther(keysAndValues, 1)));
+			o.writeByteArray(8, packedUInt32(roles));
+			o.writeByteArray(9, packedSInt64(deltas(wayIds)));
+			o.writeByteArray(10, packedUInt32(filled(wayIds.length, 1))); // 1 is the type for ways
+		});
+	}
+
+	private static void writeBlob(DataOutputStream out, String type, byte[] content) throws IOException {
+
+		Deflater deflater = new Deflater();
+		deflater.setInput(content);
+		deflater.finish();
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		while (!deflater.finished()) {
+			compressed.write(buffer, 0, deflater.deflate(buffer));
+		}
+		deflater.end();
+
+		byte[] blob = encode(o -> {
+			o.writeInt32(2, content.length);
+			o.writeByteArray(3, compressed.toByteArray());
+		});
+
+		byte[] header = encode(o -> {
+			o.writeString(1, type);
+			o.writeInt32(3, blob.length);
+		});
+
+		out.writeInt(header.length);
+		out.write(header);
+		out.write(blob);
+
+	}
+
+	private interface Encoder {
+		void encode(CodedOutputStream out) throws IOException;
+	}
+
+	private static byte[] encode(Encoder encoder) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+		encoder.encode(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static byte[] packedSInt64(long[] values) throws IOException {
+		return encode(o -> {
+			for (long v : values) o.writeSInt64NoTag(v);
+		});
+	}
+
+	private static byte[] packedUInt32(int[] values) throws IOException {
+		return encode(o -> {
+			for (int v : values) o.writeUInt32NoTag(v);
+		});
+	}
+
+	private static long[] deltas(long[] values) {
+		long[] result = new long[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = values[i] - (i > 0 ? values[i - 1] : 0);
+		}
+		return result;
+	}
+
+	private static long[] fixedPoint(double[] values) {
+		long[] result = new long[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = Math.round(values[i] * 1e7);
+		}
+		return result;
+	}
+
+	private static int[] everyOther(int[] values, int offset) {
+		int[] result = new int[values.length / 2];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = values[2 * i + offset];
+		}
+		return result;
+	}
+
+	private static int[] filled(int length, int value) {
+		int[] result = new int[length];
+		Arrays.fill(result, value);
+		return result;
+	}
+
+}
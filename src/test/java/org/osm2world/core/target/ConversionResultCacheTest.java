@@ -0,0 +1,246 @@
+package org.osm2world.core.target;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osm2world.core.ConversionFacade;
+import org.osm2world.core.ConversionFacade.Results;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.osm.creation.OSMDataReader;
+import org.osm2world.core.osm.creation.OSMFileReader;
+import org.osm2world.core.target.common.MeshTarget;
+import org.osm2world.core.target.common.material.MaterialConfiguration;
+import org.osm2world.core.target.common.model.Model;
+import org.osm2world.core.target.obj.ObjWriter;
+import org.osm2world.core.target.statistics.StatisticsTarget;
+import org.osm2world.core.target.statistics.StatisticsTarget.Stat;
+import org.osm2world.core.world.modules.RoadModule;
+
+public class ConversionResultCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testCacheHit() throws IOException {
+
+		File osmFile = writeTestFile();
+		File cacheDir = folder.newFolder();
+
+		ConversionResultCache cache = new ConversionResultCache(cacheDir);
+		String inputId = ConversionResultCache.hashFile(osmFile);
+
+		/* the first conversion fills the cache */
+
+		StatisticsTarget missTarget = new StatisticsTarget();
+		ModelCountingTarget missModelTarget = new ModelCountingTarget();
+
+		Results missResults = new ConversionFacade().createRepresentations(new OSMFileReader(osmFile), inputId,
+				cache, null, null, asList(missTarget, missModelTarget));
+
+		assertNotNull(missResults.getMeshCache());
+		assertEquals(1, cacheDir.list().length);
+
+		/* the second conversion is restored from the cache without reading the data */
+
+		OSMDataReader failingReader = () -> {
+			throw new AssertionError("data should not be read on a cache hit");
+		};
+
+		StatisticsTarget hitTarget = new StatisticsTarget();
+		ModelCountingTarget hitModelTarget = new ModelCountingTarget();
+
+		Results hitResults = new ConversionFacade().createRepresentations(failingReader, inputId,
+				cache, null, null, asList(hitTarget, hitModelTarget));
+
+		assertNotNull(hitResults.getMeshCache());
+		assertEquals(missResults.getMapData().getBoundary().minX, hitResults.getMapData().getBoundary().minX, 0);
+		assertEquals(missResults.getMapData().getBoundary().maxZ, hitResults.getMapData().getBoundary().maxZ, 0);
+		assertEquals(missResults.getMapProjection().getOrigin().lat, hitResults.getMapProjection().getOrigin().lat, 0);
+
+		assertTrue(missTarget.getGlobalCount(Stat.TOTAL_TRIANGLE_COUNT) > 0);
+
+		assertEquals(missTarget.getGlobalCount(Stat.OBJECT_COUNT), hitTarget.getGlobalCount(Stat.OBJECT_COUNT));
+		assertEquals(missTarget.getGlobalCount(Stat.TOTAL_TRIANGLE_COUNT),
+				hitTarget.getGlobalCount(Stat.TOTAL_TRIANGLE_COUNT));
+		assertEquals(missTarget.getKnownRenderableClasses(), hitTarget.getKnownRenderableClasses());
+
+		/* model instances (railway sleepers and trees) are restored as instances */
+
+		assertTrue(missModelTarget.instanceCount > 0);
+		assertEquals(missModelTarget.instanceCount, hitModelTarget.instanceCount);
+		assertEquals(missModelTarget.modelCount(), hitModelTarget.modelCount());
+		assertEquals(missModelTarget.getMeshes().size(), hitModelTarget.getMeshes().size());
+
+		/* the restored results can be rendered again */
+
+		StatisticsTarget secondHitTarget = new StatisticsTarget();
+		hitResults.getMeshCache().renderTo(secondHitTarget, true);
+		assertEquals(hitTarget.getGlobalCount(Stat.TOTAL_TRIANGLE_COUNT),
+				secondHitTarget.getGlobalCount(Stat.TOTAL_TRIANGLE_COUNT));
+
+	}
+
+	@Test
+	public void testInvalidEntry() throws IOException {
+
+		File osmFile = writeTestFile();
+		File cacheDir = folder.newFolder();
+
+		ConversionResultCache cache = new ConversionResultCache(cacheDir);
+		String inputId = ConversionResultCache.hashFile(osmFile);
+
+		new ConversionFacade().createRepresentations(new OSMFileReader(osmFile), inputId, cache, null, null, null);
+
+		/* truncate the entry */
+
+		File entryFile = cacheDir.listFiles()[0];
+		byte[] content = Files.readAllBytes(entryFile.toPath());
+		Files.write(entryFile.toPath(), Arrays.copyOf(content, content.length / 2));
+
+		String key = entryFile.getName().substring(0, entryFile.getName().indexOf('.'));
+
+		assertNull(cache.read(key));
+		assertFalse(entryFile.exists());
+
+		/* the next conversion replaces the entry */
+
+		Results results = new ConversionFacade().createRepresentations(new OSMFileReader(osmFile), inputId,
+				cache, null, null, null);
+
+		assertNotNull(results.getMeshCache());
+		assertTrue(entryFile.exists());
+
+	}
+
+	@Test
+	public void testSplitObjOutput() throws IOException {
+
+		File osmFile = writeTestFile();
+		File cacheDir = folder.newFolder();
+
+		ConversionResultCache cache = new ConversionResultCache(cacheDir);
+		String inputId = ConversionResultCache.hashFile(osmFile);
+
+		Results missResults = new ConversionFacade().createRepresentations(new OSMFileReader(osmFile), inputId,
+				cache, null, null, null);
+		Results hitResults = new ConversionFacade().createRepresentations(new OSMFileReader(osmFile), inputId,
+				cache, null, null, null);
+
+		File missDir = new File(folder.getRoot(), "miss");
+		File hitDir = new File(folder.getRoot(), "hit");
+
+		try (MaterialConfiguration.Scope scope = missResults.getMaterialConfiguration().activate()) {
+			ObjWriter.writeObjFiles(missDir, missResults.getMapData(), missResults.getMeshCache(),
+					missResults.getMapProjection(), null, null, 100);
+		}
+
+		try (MaterialConfiguration.Scope scope = hitResults.getMaterialConfiguration().activate()) {
+			ObjWriter.writeObjFiles(hitDir, hitResults.getMapData(), hitResults.getMeshCache(),
+					hitResults.getMapProjection(), null, null, 100);
+		}
+
+		long missFaceCount = countObjFaces(missDir);
+
+		assertTrue(missDir.list().length > 2); // the output has been split into several files
+		assertTrue(missFaceCount > 0);
+		assertEquals(missFaceCount, countObjFaces(hitDir));
+
+	}
+
+	@Test
+	public void testCreateKey() {
+
+		Configuration config = new BaseConfiguration();
+		config.addProperty("treesPerSquareMeter", 0.01);
+		config.addProperty("renderUnderground", false);
+
+		Configuration sameConfig = new BaseConfiguration();
+		sameConfig.addProperty("renderUnderground", false);
+		sameConfig.addProperty("treesPerSquareMeter", 0.01);
+
+		Configuration otherConfig = new BaseConfiguration();
+		otherConfig.addProperty("treesPerSquareMeter", 0.02);
+		otherConfig.addProperty("renderUnderground", false);
+
+		String key = ConversionResultCache.createKey("abc", config, singletonList(new RoadModule()));
+
+		assertEquals(key, ConversionResultCache.createKey("abc", sameConfig, singletonList(new RoadModule())));
+		assertNotEquals(key, ConversionResultCache.createKey("abd", config, singletonList(new RoadModule())));
+		assertNotEquals(key, ConversionResultCache.createKey("abc", otherConfig, singletonList(new RoadModule())));
+		assertNotEquals(key, ConversionResultCache.createKey("abc", config, emptyList()));
+
+	}
+
+	/** counts model instances instead of drawing them */
+	private static class ModelCountingTarget extends MeshTarget {
+
+		int instanceCount = 0;
+		final Set<Model> models = newSetFromMap(new IdentityHashMap<>());
+
+		@Override
+		public void drawModel(Model model, VectorXYZ position,
+				double direction, Double height, Double width, Double length) {
+			instanceCount += 1;
+			models.add(model);
+		}
+
+		int modelCount() {
+			return models.size();
+		}
+
+	}
+
+	/** counts the faces in all .obj files in a directory */
+	private static long countObjFaces(File directory) throws IOException {
+		long result = 0;
+		for (File file : directory.listFiles((dir, name) -> name.endsWith(".obj"))) {
+			result += Files.readAllLines(file.toPath()).stream().filter(l -> l.startsWith("f ")).count();
+		}
+		return result;
+	}
+
+	private File writeTestFile() throws IOException {
+
+		File file = folder.newFile("test.osm");
+
+		try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(file.toPath()))) {
+			w.println("<?xml version='1.0' encoding='UTF-8'?>");
+			w.println("<osm version='0.6'>");
+			w.println("<bounds minlat='0' minlon='0' maxlat='0.001' maxlon='0.001'/>");
+			w.println("<node id='1' lat='0.0001' lon='0.0001'/>");
+			w.println("<node id='2' lat='0.0001' lon='0.0002'/>");
+			w.println("<node id='3' lat='0.0002' lon='0.0002'/>");
+			w.println("<node id='4' lat='0.0002' lon='0.0001'/>");
+			w.println("<node id='5' lat='0.0005' lon='0'/>");
+			w.println("<node id='6' lat='0.0005' lon='0.001'/>");
+			w.println("<node id='7' lat='0.0008' lon='0.0008'><tag k='amenity' v='bench'/></node>");
+			w.println("<node id='8' lat='0.0009' lon='0.0001'><tag k='natural' v='tree'/></node>");
+			w.println("<node id='9' lat='0.0003' lon='0.0005'/>");
+			w.println("<node id='12' lat='0.0003' lon='0.0009'/>");
+			w.println("<way id='10'><nd ref='1'/><nd ref='2'/><nd ref='3'/><nd ref='4'/><nd ref='1'/>"
+					+ "<tag k='building' v='yes'/><tag k='name' v='Test'/></way>");
+			w.println("<way id='11'><nd ref='5'/><nd ref='6'/><tag k='highway' v='residential'/></way>");
+			w.println("<way id='13'><nd ref='9'/><nd ref='12'/><tag k='railway' v='rail'/></way>");
+			w.println("</osm>");
+		}
+
+		return file;
+
+	}
+
+}
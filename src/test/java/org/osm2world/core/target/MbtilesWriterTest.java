@@ -0,0 +1,115 @@
+package org.osm2world.core.target;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.zip.GZIPInputStream;
+
+import org.imintel.mbtiles4j.MBTilesReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osm2world.core.target.common.rendering.TileNumber;
+
+public class MbtilesWriterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testWriteAndRead() throws Exception {
+
+		File file = new File(folder.getRoot(), "tiles.glb.mbtiles");
+
+		try (MbtilesWriter writer = MbtilesWriter.open(file, "glb", false)) {
+			writer.writeTile(new TileNumber(13, 4231, 2777), "a".getBytes(UTF_8));
+			writer.writeTile(new TileNumber(13, 4232, 2777), "empty".getBytes(UTF_8));
+			writer.writeTile(new TileNumber(13, 4233, 2777), "empty".getBytes(UTF_8));
+		}
+
+		MBTilesReader reader = new MBTilesReader(file);
+		try {
+			assertEquals("a", readTile(reader, new TileNumber(13, 4231, 2777), false));
+			assertEquals("empty", readTile(reader, new TileNumber(13, 4232, 2777), false));
+			assertEquals("empty", readTile(reader, new TileNumber(13, 4233, 2777), false));
+		} finally {
+			reader.close();
+		}
+
+		/* identical tiles are only stored once */
+
+		assertEquals(2, countRows(file, "images"));
+		assertEquals(3, countRows(file, "map"));
+
+		assertEquals("glb", queryString(file, "SELECT value FROM metadata WHERE name = 'format'"));
+		assertEquals("13", queryString(file, "SELECT value FROM metadata WHERE name = 'maxzoom'"));
+
+	}
+
+	@Test
+	public void testGzipAndMultipleUsers() throws Exception {
+
+		File file = new File(folder.getRoot(), "tiles.o2w.pbf.mbtiles");
+
+		MbtilesWriter writer1 = MbtilesWriter.open(file, "o2w.pbf", true);
+		MbtilesWriter writer2 = MbtilesWriter.open(file, "o2w.pbf", true);
+
+		assertSame(writer1, writer2);
+
+		writer1.writeTile(new TileNumber(2, 1, 1), "first".getBytes(UTF_8));
+		writer1.close();
+
+		// the file is still open for the second user
+		writer2.writeTile(new TileNumber(2, 1, 1), "second".getBytes(UTF_8));
+		writer2.close();
+
+		MBTilesReader reader = new MBTilesReader(file);
+		try {
+			assertEquals("second", readTile(reader, new TileNumber(2, 1, 1), true));
+		} finally {
+			reader.close();
+		}
+
+		assertEquals(1, countRows(file, "map"));
+
+	}
+
+	private static String readTile(MBTilesReader reader, TileNumber tile, boolean gzip) throws Exception {
+
+		try (InputStream is = gzip
+				? new GZIPInputStream(reader.getTile(tile.zoom, tile.x, tile.flippedY()).getData())
+				: reader.getTile(tile.zoom, tile.x, tile.flippedY()).getData()) {
+
+			ByteArrayOutputStream result = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int length;
+			while ((length = is.read(buffer)) != -1) {
+				result.write(buffer, 0, length);
+			}
+			return new String(result.toByteArray(), UTF_8);
+
+		}
+
+	}
+
+	private static int countRows(File file, String table) throws SQLException {
+		return Integer.parseInt(queryString(file, "SELECT COUNT(*) FROM " + table));
+	}
+
+	private static String queryString(File file, String query) throws SQLException {
+		try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+				Statement s = connection.createStatement();
+				ResultSet r = s.executeQuery(query)) {
+			return r.getString(1);
+		}
+	}
+
+}
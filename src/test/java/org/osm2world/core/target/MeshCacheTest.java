@@ -0,0 +1,107 @@
+package org.osm2world.core.target;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.osm2world.core.ConversionFacade;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.creation.MetricMapProjection;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.TagSet;
+import org.osm2world.core.math.AxisAlignedRectangleXZ;
+import org.osm2world.core.target.statistics.StatisticsTarget;
+import org.osm2world.core.target.statistics.StatisticsTarget.Stat;
+import org.osm2world.core.test.TestMapDataGenerator;
+
+public class MeshCacheTest {
+
+	@Test
+	public void testSameResultAsDirectRendering() throws Exception {
+
+		TestMapDataGenerator generator = new TestMapDataGenerator();
+
+		generator.createWayArea(asList(
+				generator.createNode(0, 0),
+				generator.createNode(10, 0),
+				generator.createNode(10, 10),
+				generator.createNode(0, 10)), TagSet.of("building", "yes"));
+
+		generator.createWay(asList(
+				generator.createNode(-20, -5),
+				generator.createNode(30, -5)), TagSet.of("highway", "residential"));
+
+		generator.createNode(20, 20, TagSet.of("amenity", "bench"));
+
+		MapData mapData = generator.createMapData();
+
+		new ConversionFacade().createRepresentations(new MetricMapProjection(new LatLon(0, 0)),
+				mapData, null, null, null);
+
+		for (boolean parallel : asList(false, true)) {
+
+			MeshCache meshCache = MeshCache.build(mapData, parallel);
+
+			StatisticsTarget directTarget = new StatisticsTarget();
+			TargetUtil.renderWorldObjects(directTarget, mapData, true);
+
+			StatisticsTarget cachedTarget = new StatisticsTarget();
+			meshCache.renderTo(cachedTarget, true);
+
+			assertTrue(directTarget.getGlobalCount(Stat.TOTAL_TRIANGLE_COUNT) > 0);
+
+			for (Stat stat : Stat.values()) {
+				assertEquals(stat.toString(), directTarget.getGlobalCount(stat), cachedTarget.getGlobalCount(stat));
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testFilter() throws Exception {
+
+		TestMapDataGenerator generator = new TestMapDataGenerator();
+
+		generator.createWayArea(asList(
+				generator.createNode(0, 0),
+				generator.createNode(10, 0),
+				generator.createNode(10, 10),
+				generator.createNode(0, 10)), TagSet.of("building", "yes"));
+
+		generator.createWayArea(asList(
+				generator.createNode(1000, 0),
+				generator.createNode(1010, 0),
+				generator.createNode(1010, 10),
+				generator.createNode(1000, 10)), TagSet.of("building", "yes"));
+
+		generator.createWay(asList(
+				generator.createNode(-20, 500),
+				generator.createNode(1030, 500)), TagSet.of("highway", "residential"));
+
+		MapData mapData = generator.createMapData();
+
+		new ConversionFacade().createRepresentations(new MetricMapProjection(new LatLon(0, 0)),
+				mapData, null, null, null);
+
+		MeshCache meshCache = MeshCache.build(mapData, false);
+		assertEquals(3, meshCache.objects.size());
+
+		MeshCache nearFirstBuilding = meshCache.filter(new AxisAlignedRectangleXZ(-5, -5, 5, 5));
+		assertEquals(1, nearFirstBuilding.objects.size());
+		assertEquals(10, nearFirstBuilding.objects.get(0).object.getPrimaryMapElement().boundingBox().maxX, 1e-3);
+
+		MeshCache nearRoad = meshCache.filter(new AxisAlignedRectangleXZ(400, 490, 600, 510));
+		assertEquals(1, nearRoad.objects.size());
+
+		MeshCache everything = meshCache.filter(new AxisAlignedRectangleXZ(-100, -100, 2000, 2000));
+		assertEquals(3, everything.objects.size());
+		for (int i = 0; i < 3; i++) {
+			assertSame(meshCache.objects.get(i), everything.objects.get(i));
+		}
+
+		assertTrue(meshCache.filter(new AxisAlignedRectangleXZ(5000, 5000, 5100, 5100)).objects.isEmpty());
+
+	}
+
+}
@@ -0,0 +1,81 @@
+package org.osm2world.core.target.common.material;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Test;
+import org.osm2world.core.target.common.material.Material.Interpolation;
+
+public class MaterialsTest {
+
+	@Test
+	public void testCreateConfiguration() {
+
+		Color defaultColor = Materials.ASPHALT.getColor();
+
+		Configuration config = new BaseConfiguration();
+		config.addProperty("material_ASPHALT_color", "#ff0000");
+		config.addProperty("material_ASPHALT_interpolation", "smooth");
+		config.addProperty("material_CUSTOM_TEST_MATERIAL_color", "#00ff00");
+
+		MaterialConfiguration configuration = Materials.createConfiguration(config);
+
+		assertEquals(defaultColor, Materials.ASPHALT.getColor());
+		assertNull(Materials.getMaterial("CUSTOM_TEST_MATERIAL"));
+
+		try (MaterialConfiguration.Scope scope = configuration.activate()) {
+			assertEquals(new Color(255, 0, 0), Materials.ASPHALT.getColor());
+			assertEquals(Interpolation.SMOOTH, Materials.ASPHALT.getInterpolation());
+			assertEquals(new Color(0, 255, 0), Materials.getMaterial("CUSTOM_TEST_MATERIAL").getColor());
+		}
+
+		assertEquals(defaultColor, Materials.ASPHALT.getColor());
+		assertNull(Materials.getMaterial("CUSTOM_TEST_MATERIAL"));
+
+	}
+
+	@Test
+	public void testConcurrentConfigurations() throws Exception {
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+
+			Future<?>[] futures = new Future<?>[2];
+
+			for (int i = 0; i < futures.length; i++) {
+
+				Color color = new Color(i * 100, 0, 0);
+
+				Configuration config = new BaseConfiguration();
+				config.addProperty("material_CONCRETE_color", String.format("#%06x", color.getRGB() & 0xffffff));
+				MaterialConfiguration configuration = Materials.createConfiguration(config);
+
+				futures[i] = executor.submit(() -> {
+					try (MaterialConfiguration.Scope scope = configuration.activate()) {
+						for (int j = 0; j < 1000; j++) {
+							assertEquals(color, Materials.CONCRETE.getColor());
+							Thread.yield();
+						}
+					}
+				});
+
+			}
+
+			for (Future<?> future : futures) {
+				future.get();
+			}
+
+		} finally {
+			executor.shutdown();
+		}
+
+	}
+
+}
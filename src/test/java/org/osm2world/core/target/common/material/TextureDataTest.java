@@ -4,11 +4,19 @@ import static java.awt.Color.*;
 import static java.util.Arrays.asList;
 import static org.osm2world.core.target.common.material.TextureData.Wrap.*;
 import static org.osm2world.core.target.common.material.TextureTestUtil.*;
+import static org.junit.Assert.*;
 import static org.osm2world.core.test.TestUtil.assertAlmostEquals;
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
+import org.osm2world.core.util.Resolution;
 import org.osm2world.core.util.color.LColor;
 
 public class TextureDataTest {
@@ -64,4 +72,40 @@ public class TextureDataTest {
 
 	}
 
+	@Test
+	public void testConcurrentImageAccess() throws Exception {
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		try {
+
+			for (int run = 0; run < 20; run++) {
+
+				TextureData testTexture = drawSingleColorTexture(GREEN);
+
+				List<Future<BufferedImage>> results = new ArrayList<>();
+
+				for (int i = 0; i < 16; i++) {
+					Resolution resolution = new Resolution(1 + i % 4, 1 + i % 4);
+					results.add(executor.submit(() -> {
+						testTexture.getAverageColor();
+						testTexture.getBufferedImage();
+						return testTexture.getBufferedImage(resolution);
+					}));
+				}
+
+				for (int i = 0; i < results.size(); i++) {
+					BufferedImage image = results.get(i).get();
+					assertNotNull(image);
+					assertSame(image, testTexture.getBufferedImage(new Resolution(1 + i % 4, 1 + i % 4)));
+				}
+
+			}
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+	}
+
 }
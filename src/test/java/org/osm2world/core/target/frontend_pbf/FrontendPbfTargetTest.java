@@ -17,6 +17,7 @@ import org.osm2world.core.ConversionFacade;
 import org.osm2world.core.ConversionFacade.BoundingBoxSizeException;
 import org.osm2world.core.ConversionFacade.Results;
 import org.osm2world.core.math.AxisAlignedRectangleXZ;
+import org.osm2world.core.math.VectorXYZ;
 import org.osm2world.core.math.VectorXZ;
 import org.osm2world.core.osm.data.OSMData;
 import org.osm2world.core.target.frontend_pbf.FrontendPbf.Tile;
@@ -58,7 +59,38 @@ public class FrontendPbfTargetTest {
 
 	@Test
 	public void testVectorBlock() {
-		testBlock(new VectorBlock<VectorXZ>());
+		testBlock(new VectorBlock<VectorXZ>(1000));
+	}
+
+	@Test
+	public void testVectorBlockRounding() {
+
+		VectorBlock<VectorXYZ> block = new VectorBlock<>(1000);
+
+		assertEquals(0, block.toIndex(new VectorXYZ(1, 2, 3)));
+		assertEquals(0, block.toIndex(new VectorXYZ(1.0001, 2, 2.9999)));
+		assertEquals(1, block.toIndex(new VectorXYZ(1.001, 2, 3)));
+
+		assertEquals(asList(new VectorXYZ(1, 2, 3), new VectorXYZ(1.001, 2, 3)), block.getElements());
+
+	}
+
+	@Test
+	public void testVectorBlockManyElements() {
+
+		VectorBlock<VectorXYZ> block = new VectorBlock<>(1000);
+
+		for (int pass = 0; pass < 2; pass++) {
+			int expectedIndex = 0;
+			for (int x = -20; x < 20; x++) {
+				for (int z = -20; z < 20; z++) {
+					assertEquals(expectedIndex++, block.toIndex(new VectorXYZ(x * 0.5, x * z, z * 0.001)));
+				}
+			}
+		}
+
+		assertEquals(40 * 40, block.getElements().size());
+
 	}
 
 	@Test
@@ -0,0 +1,171 @@
+package org.osm2world.core.target.gltf;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Test;
+import org.osm2world.core.ConversionFacade;
+import org.osm2world.core.map_data.creation.LatLon;
+import org.osm2world.core.map_data.creation.MetricMapProjection;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.TagSet;
+import org.osm2world.core.target.TargetUtil;
+import org.osm2world.core.target.gltf.GltfTarget.GltfFlavor;
+import org.osm2world.core.target.gltf.data.GltfAccessor;
+import org.osm2world.core.test.TestMapDataGenerator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class GltfTargetTest {
+
+	@Test
+	public void testGlb() throws IOException {
+
+		MapData mapData = createTestMapData();
+
+		File gltfFile = Files.createTempFile("o2w-test-", ".gltf").toFile();
+		File glbFile = Files.createTempFile("o2w-test-", ".glb").toFile();
+		gltfFile.deleteOnExit();
+		glbFile.deleteOnExit();
+
+		writeFile(mapData, gltfFile, GltfFlavor.GLTF);
+		writeFile(mapData, glbFile, GltfFlavor.GLB);
+
+		/* check the header and chunks of the .glb file */
+
+		ByteBuffer glb = ByteBuffer.wrap(Files.readAllBytes(glbFile.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+
+		assertEquals(0x46546C67, glb.getInt());
+		assertEquals(2, glb.getInt());
+		assertEquals(glb.capacity(), glb.getInt());
+
+		int jsonLength = glb.getInt();
+		assertEquals(0, jsonLength % 4);
+		assertEquals(0x4E4F534A, glb.getInt());
+		byte[] jsonBytes = new byte[jsonLength];
+		glb.get(jsonBytes);
+		String json = new String(jsonBytes, UTF_8);
+		assertFalse("JSON should be compact", json.contains("\n"));
+
+		int binLength = glb.getInt();
+		assertEquals(0, binLength % 4);
+		assertEquals(0x004E4942, glb.getInt());
+		assertEquals(binLength, glb.remaining());
+
+		/* check that all buffer views use the binary chunk */
+
+		JsonObject glbJson = JsonParser.parseString(json).getAsJsonObject();
+
+		JsonArray buffers = glbJson.getAsJsonArray("buffers");
+		assertEquals(1, buffers.size());
+		assertFalse(buffers.get(0).getAsJsonObject().has("uri"));
+		int bufferLength = buffers.get(0).getAsJsonObject().get("byteLength").getAsInt();
+		assertTrue(bufferLength <= binLength);
+
+		for (JsonElement view : glbJson.getAsJsonArray("bufferViews")) {
+			int byteOffset = view.getAsJsonObject().get("byteOffset").getAsInt();
+			int byteLength = view.getAsJsonObject().get("byteLength").getAsInt();
+			assertEquals(0, byteOffset % 4);
+			assertTrue(byteOffset + byteLength <= bufferLength);
+		}
+
+		/* compare with the .gltf file */
+
+		JsonObject gltfJson = JsonParser.parseString(
+				new String(Files.readAllBytes(gltfFile.toPath()), UTF_8)).getAsJsonObject();
+
+		assertEquals(1, gltfJson.getAsJsonArray("buffers").size());
+		assertEquals(bufferLength, gltfJson.getAsJsonArray("buffers").get(0).getAsJsonObject()
+				.get("byteLength").getAsInt());
+		assertEquals(gltfJson.getAsJsonArray("accessors").size(), glbJson.getAsJsonArray("accessors").size());
+
+	}
+
+	@Test
+	public void testIndexedGeometry() throws IOException {
+
+		MapData mapData = createTestMapData();
+
+		for (boolean quantize : asList(false, true)) {
+
+			File file = Files.createTempFile("o2w-test-", ".gltf").toFile();
+			file.deleteOnExit();
+
+			Configuration config = new BaseConfiguration();
+			config.addProperty("gltfQuantization", quantize);
+
+			GltfTarget target = new GltfTarget(file, GltfFlavor.GLTF, null);
+			target.setConfiguration(config);
+			TargetUtil.renderWorldObjects(target, mapData, true);
+			target.finish();
+
+			JsonObject json = JsonParser.parseString(
+					new String(Files.readAllBytes(file.toPath()), UTF_8)).getAsJsonObject();
+			JsonArray accessors = json.getAsJsonArray("accessors");
+
+			for (JsonElement mesh : json.getAsJsonArray("meshes")) {
+				for (JsonElement primitive : mesh.getAsJsonObject().getAsJsonArray("primitives")) {
+
+					JsonObject indexAccessor = accessors.get(
+							primitive.getAsJsonObject().get("indices").getAsInt()).getAsJsonObject();
+					JsonObject positionAccessor = accessors.get(primitive.getAsJsonObject()
+							.getAsJsonObject("attributes").get("POSITION").getAsInt()).getAsJsonObject();
+
+					assertEquals("SCALAR", indexAccessor.get("type").getAsString());
+					assertEquals(GltfAccessor.TYPE_UNSIGNED_SHORT, indexAccessor.get("componentType").getAsInt());
+					assertTrue(positionAccessor.get("count").getAsInt() < indexAccessor.get("count").getAsInt());
+
+					assertEquals(quantize ? GltfAccessor.TYPE_UNSIGNED_SHORT : GltfAccessor.TYPE_FLOAT,
+							positionAccessor.get("componentType").getAsInt());
+
+				}
+			}
+
+			assertEquals(quantize, json.has("extensionsRequired"));
+
+		}
+
+	}
+
+	private static MapData createTestMapData() throws IOException {
+
+		TestMapDataGenerator generator = new TestMapDataGenerator();
+
+		generator.createWayArea(asList(
+				generator.createNode(0, 0),
+				generator.createNode(10, 0),
+				generator.createNode(10, 10),
+				generator.createNode(0, 10)), TagSet.of("building", "yes"));
+
+		generator.createWay(asList(
+				generator.createNode(-20, -5),
+				generator.createNode(30, -5)), TagSet.of("highway", "residential"));
+
+		MapData mapData = generator.createMapData();
+
+		new ConversionFacade().createRepresentations(new MetricMapProjection(new LatLon(0, 0)),
+				mapData, null, null, null);
+
+		return mapData;
+
+	}
+
+	private static void writeFile(MapData mapData, File file, GltfFlavor flavor) {
+		GltfTarget target = new GltfTarget(file, flavor, null);
+		TargetUtil.renderWorldObjects(target, mapData, true);
+		target.finish();
+	}
+
+}
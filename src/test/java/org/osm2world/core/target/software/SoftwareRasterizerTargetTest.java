@@ -0,0 +1,232 @@
+package org.osm2world.core.target.software;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Test;
+import org.osm2world.core.math.TriangleXYZ;
+import org.osm2world.core.math.VectorXYZ;
+import org.osm2world.core.target.common.lighting.GlobalLightingParameters;
+import org.osm2world.core.target.common.material.ImmutableMaterial;
+import org.osm2world.core.target.common.material.Material;
+import org.osm2world.core.target.common.material.Material.AmbientOcclusion;
+import org.osm2world.core.target.common.material.Material.Interpolation;
+import org.osm2world.core.target.common.material.Material.Shadow;
+import org.osm2world.core.target.common.material.Material.Transparency;
+import org.osm2world.core.target.common.mesh.Mesh;
+import org.osm2world.core.target.common.mesh.TriangleGeometry;
+import org.osm2world.core.target.common.rendering.Camera;
+import org.osm2world.core.target.common.rendering.Projection;
+
+public class SoftwareRasterizerTargetTest {
+
+	private static final int SIZE = 64;
+
+	private static final Material RED = new ImmutableMaterial(Interpolation.FLAT, Color.RED);
+	private static final Material BLUE = new ImmutableMaterial(Interpolation.FLAT, Color.BLUE);
+	private static final Material WHITE = new ImmutableMaterial(Interpolation.FLAT, Color.WHITE);
+	private static final Material RED_DOUBLE_SIDED = new ImmutableMaterial(Interpolation.FLAT, Color.RED, true,
+			Transparency.FALSE, Shadow.TRUE, AmbientOcclusion.TRUE, emptyList());
+
+	/** camera looking down from above, with north at the top of the image */
+	private static Camera cameraFromAbove() {
+		Camera camera = new Camera();
+		camera.setCamera(0, 100, 0, 0, 0, 0, 0, 0, 1);
+		return camera;
+	}
+
+	/** orthographic projection showing a 20 m x 20 m area */
+	private static final Projection PROJECTION = new Projection(true, 1, Double.NaN, 20, 1, 200);
+
+	/** draws a horizontal, upwards-facing rectangle */
+	private static void drawRectangle(SoftwareRasterizerTarget target, Material material,
+			double minX, double minZ, double maxX, double maxZ, double y) {
+		List<VectorXYZ> vs = asList(
+				new VectorXYZ(minX, y, minZ), new VectorXYZ(maxX, y, minZ),
+				new VectorXYZ(maxX, y, maxZ), new VectorXYZ(minX, y, maxZ));
+		target.drawConvexPolygon(material, vs, emptyList());
+	}
+
+	private static int[] render(SoftwareRasterizerTarget target, Camera camera) {
+		target.finish();
+		int[] pixels = new int[SIZE * SIZE];
+		target.render(camera, PROJECTION, SIZE, SIZE, pixels);
+		return pixels;
+	}
+
+	private static int pixel(int[] pixels, int x, int y) {
+		return pixels[y * SIZE + x];
+	}
+
+	private static int red(int argb) { return (argb >> 16) & 0xFF; }
+	private static int green(int argb) { return (argb >> 8) & 0xFF; }
+	private static int blue(int argb) { return argb & 0xFF; }
+
+	@Test
+	public void testRectangle() {
+
+		SoftwareRasterizerTarget target = new SoftwareRasterizerTarget(GlobalLightingParameters.DEFAULT);
+		drawRectangle(target, RED, -5, -5, 5, 5, 0);
+
+		int[] pixels = render(target, cameraFromAbove());
+
+		int center = pixel(pixels, SIZE / 2, SIZE / 2);
+		assertEquals(0xFF, center >>> 24);
+		assertTrue(red(center) > 128);
+		assertEquals(0, blue(center));
+
+		assertEquals(0, pixel(pixels, 2, 2));
+		assertEquals(0, pixel(pixels, SIZE - 3, SIZE - 3));
+
+		/* the rectangle covers the central half of the image */
+
+		int coveredPixels = 0;
+		for (int p : pixels) {
+			if (p != 0) coveredPixels++;
+		}
+		assertEquals(SIZE * SIZE / 4, coveredPixels);
+
+	}
+
+	@Test
+	public void testOrientation() {
+
+		SoftwareRasterizerTarget target = new SoftwareRasterizerTarget(null);
+		drawRectangle(target, RED, 2, 2, 8, 8, 0); // north-east of the center
+
+		int[] pixels = render(target, cameraFromAbove());
+
+		assertEquals(0xFFFF0000, pixel(pixels, 50, 13));
+		assertEquals(0, pixel(pixels, 13, 13));
+		assertEquals(0, pixel(pixels, 50, 50));
+		assertEquals(0, pixel(pixels, 13, 50));
+
+	}
+
+	@Test
+	public void testBackFaceCulling() {
+
+		Camera cameraFromBelow = new Camera();
+		cameraFromBelow.setCamera(0, -100, 0, 0, 0, 0, 0, 0, 1);
+
+		SoftwareRasterizerTarget target = new SoftwareRasterizerTarget(null);
+		drawRectangle(target, RED, -5, -5, 5, 5, 0);
+		assertEquals(0, pixel(render(target, cameraFromBelow), SIZE / 2, SIZE / 2));
+
+		target = new SoftwareRasterizerTarget(null);
+		drawRectangle(target, RED_DOUBLE_SIDED, -5, -5, 5, 5, 0);
+		assertEquals(0xFFFF0000, pixel(render(target, cameraFromBelow), SIZE / 2, SIZE / 2));
+
+	}
+
+	@Test
+	public void testDepth() {
+
+		SoftwareRasterizerTarget target = new SoftwareRasterizerTarget(null);
+		drawRectangle(target, BLUE, -5, -5, 5, 5, 1);
+		drawRectangle(target, RED, -8, -8, 8, 8, 0);
+
+		int[] pixels = render(target, cameraFromAbove());
+
+		assertEquals(0xFF0000FF, pixel(pixels, SIZE / 2, SIZE / 2));
+		assertEquals(0xFFFF0000, pixel(pixels, 8, 8));
+
+	}
+
+	@Test
+	public void testVertexColors() {
+
+		/* a rectangle with red vertices in the west and blue vertices in the east */
+
+		VectorXYZ sw = new VectorXYZ(-5, 0, -5);
+		VectorXYZ se = new VectorXYZ(5, 0, -5);
+		VectorXYZ ne = new VectorXYZ(5, 0, 5);
+		VectorXYZ nw = new VectorXYZ(-5, 0, 5);
+
+		TriangleGeometry geometry = new TriangleGeometry(
+				asList(new TriangleXYZ(sw, se, ne), new TriangleXYZ(sw, ne, nw)),
+				Interpolation.FLAT, emptyList(),
+				asList(Color.RED, Color.BLUE, Color.BLUE, Color.RED, Color.BLUE, Color.RED));
+
+		SoftwareRasterizerTarget target = new SoftwareRasterizerTarget(null);
+		target.drawMesh(new Mesh(geometry, WHITE));
+
+		int[] pixels = render(target, cameraFromAbove());
+
+		int west = pixel(pixels, 17, 32);
+		int east = pixel(pixels, 46, 32);
+		int center = pixel(pixels, SIZE / 2, 32);
+
+		assertTrue(red(west) > 200 && blue(west) < 60);
+		assertTrue(blue(east) > 200 && red(east) < 60);
+		assertTrue(red(center) > 60 && blue(center) > 60);
+		assertEquals(0, green(west));
+
+		/* vertex colors are multiplied with the material color */
+
+		target = new SoftwareRasterizerTarget(null);
+		target.drawMesh(new Mesh(geometry, BLUE));
+
+		pixels = render(target, cameraFromAbove());
+
+		assertEquals(0, red(pixel(pixels, 17, 32)));
+		assertTrue(blue(pixel(pixels, 17, 32)) < 60);
+		assertTrue(blue(pixel(pixels, 46, 32)) > 200);
+
+	}
+
+	@Test
+	public void testRenderRows() {
+
+		SoftwareRasterizerTarget target = new SoftwareRasterizerTarget(GlobalLightingParameters.DEFAULT);
+		drawRectangle(target, BLUE, -3, -7, 5, 2, 1);
+		drawRectangle(target, RED, -8, -8, 8, 8, 0);
+
+		int[] fullImage = render(target, cameraFromAbove());
+
+		int[] strip = new int[SIZE * 10];
+
+		for (int yStart = 0; yStart < SIZE; yStart += 10) {
+			int yEnd = Math.min(SIZE, yStart + 10);
+			Arrays.fill(strip, 0);
+			target.renderRows(cameraFromAbove(), PROJECTION, SIZE, SIZE, yStart, yEnd, strip);
+			for (int i = 0; i < SIZE * (yEnd - yStart); i++) {
+				assertEquals(fullImage[yStart * SIZE + i], strip[i]);
+			}
+		}
+
+	}
+
+	@Test
+	public void testShadow() {
+
+		Configuration config = new BaseConfiguration();
+		config.addProperty("shadowImplementation", "shadowMap");
+		config.addProperty("shadowMapWidth", 512);
+		config.addProperty("shadowMapHeight", 512);
+
+		SoftwareRasterizerTarget target = new SoftwareRasterizerTarget(GlobalLightingParameters.DEFAULT);
+		target.setConfiguration(config);
+		drawRectangle(target, BLUE, -1, -1, 1, 1, 5);
+		drawRectangle(target, RED, -10, -10, 10, 10, 0);
+
+		int[] pixels = render(target, cameraFromAbove());
+
+		/* the light comes from the south-east, so the shadow is north-west of the blue rectangle */
+
+		int shadowed = pixel(pixels, 21, 21);
+		int lit = pixel(pixels, 43, 43);
+
+		assertTrue(red(shadowed) < red(lit));
+		assertEquals(127, red(shadowed), 1);
+
+	}
+
+}
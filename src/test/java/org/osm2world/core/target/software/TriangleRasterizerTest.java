@@ -0,0 +1,50 @@
+package org.osm2world.core.target.software;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TriangleRasterizerTest {
+
+	@Test
+	public void testSharedEdges() {
+
+		int[] coverage = new int[8 * 8];
+
+		/* two triangles forming a square, with the shared diagonal passing through pixel centers */
+
+		TriangleRasterizer.rasterize(0, 0, 8, 0, 8, 8, 0, 0, 8, 8, (x, y, b0, b1, b2) -> coverage[y * 8 + x]++);
+		TriangleRasterizer.rasterize(0, 0, 8, 8, 0, 8, 0, 0, 8, 8, (x, y, b0, b1, b2) -> coverage[y * 8 + x]++);
+
+		for (int c : coverage) {
+			assertEquals(1, c);
+		}
+
+	}
+
+	@Test
+	public void testBarycentricCoordinates() {
+
+		TriangleRasterizer.rasterize(0, 0, 0, 10, 10, 0, 0, 0, 100, 100, (x, y, b0, b1, b2) -> {
+			assertEquals(1.0, b0 + b1 + b2, 1e-9);
+			assertEquals((y + 0.5) / 10, b1, 1e-9);
+			assertEquals((x + 0.5) / 10, b2, 1e-9);
+		});
+
+	}
+
+	@Test
+	public void testClipping() {
+
+		int[] count = {0};
+
+		TriangleRasterizer.rasterize(-100, -100, 100, -100, 0, 100, 2, 3, 6, 5, (x, y, b0, b1, b2) -> {
+			assertTrue(x >= 2 && x < 6 && y >= 3 && y < 5);
+			count[0]++;
+		});
+
+		assertEquals(8, count[0]);
+
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.osm2world.core.world.attachment;
+
+import static java.util.Arrays.asList;
+import static java.util.Comparator.comparingDouble;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+import org.osm2world.core.math.FaceXYZ;
+import org.osm2world.core.math.VectorXYZ;
+
+public class AttachmentSurfaceTest {
+
+	@Test
+	public void testGetClosestFace() {
+
+		Random random = new Random(7);
+
+		/* create a grid of horizontal squares at different heights, each made of two triangles */
+
+		List<FaceXYZ> faces = new ArrayList<>();
+
+		for (int x = 0; x < 20; x++) {
+			for (int z = 0; z < 20; z++) {
+				double y = random.nextInt(3) * 3.0;
+				VectorXYZ v0 = new VectorXYZ(x, y, z);
+				VectorXYZ v1 = new VectorXYZ(x + 1, y, z);
+				VectorXYZ v2 = new VectorXYZ(x + 1, y, z + 1);
+				VectorXYZ v3 = new VectorXYZ(x, y, z + 1);
+				faces.add(new FaceXYZ(asList(v0, v2, v1, v0)));
+				faces.add(new FaceXYZ(asList(v0, v3, v2, v0)));
+			}
+		}
+
+		AttachmentSurface surface = new AttachmentSurface(asList("test"), faces);
+
+		List<Predicate<FaceXYZ>> filters = asList(
+				f -> true,
+				f -> f.getCenter().y > 1,
+				f -> false);
+
+		for (int i = 0; i < 200; i++) {
+
+			VectorXYZ pos = new VectorXYZ(
+					random.nextInt(44) * 0.5 - 1,
+					random.nextDouble() * 8 - 1,
+					random.nextInt(44) * 0.5 - 1);
+
+			for (Predicate<FaceXYZ> filter : filters) {
+				for (boolean distanceXZ : asList(false, true)) {
+
+					/* compare with checking all faces, which returns the first face in case of a tie */
+
+					FaceXYZ expected = faces.stream()
+							.filter(filter)
+							.min(comparingDouble(f -> distanceXZ ? f.distanceToXZ(pos) : f.distanceTo(pos)))
+							.orElse(null);
+
+					assertSame(expected, surface.getClosestFace(pos, distanceXZ, filter));
+
+				}
+			}
+
+			double expectedDistance = faces.stream().mapToDouble(f -> f.distanceTo(pos)).min().getAsDouble();
+			assertEquals(expectedDistance, surface.distanceTo(pos), 1e-9);
+
+		}
+
+	}
+
+	@Test
+	public void testHasFaceWithNormal() {
+
+		AttachmentSurface surface = new AttachmentSurface(asList("test"), asList(new FaceXYZ(asList(
+				new VectorXYZ(0, 0, 0), new VectorXYZ(1, 0, 0), new VectorXYZ(0, 0, 1), new VectorXYZ(0, 0, 0)))));
+
+		assertTrue(surface.hasFaceWithNormal(n -> n.y > 0.9));
+		assertFalse(surface.hasFaceWithNormal(n -> n.y < -0.9));
+
+	}
+
+}
@@ -0,0 +1,74 @@
+package org.osm2world.core.world.creation;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Test;
+import org.osm2world.core.map_data.data.MapData;
+import org.osm2world.core.map_data.data.MapNode;
+import org.osm2world.core.test.TestMapDataGenerator;
+import org.osm2world.core.test.TestWorldModule;
+import org.osm2world.core.world.modules.BridgeModule;
+import org.osm2world.core.world.modules.RailwayModule;
+import org.osm2world.core.world.modules.RoadModule;
+import org.osm2world.core.world.modules.TreeModule;
+import org.osm2world.core.world.modules.building.BuildingModule;
+import org.osm2world.core.world.modules.building.indoor.IndoorModule;
+
+public class WorldCreatorTest {
+
+	@Test
+	public void testSortByDependencies() {
+
+		WorldModule road = new RoadModule();
+		WorldModule railway = new RailwayModule();
+		WorldModule tree = new TreeModule();
+		WorldModule bridge = new BridgeModule();
+		WorldModule building = new BuildingModule();
+		WorldModule indoor = new IndoorModule();
+
+		/* an order which already satisfies all dependencies is not changed */
+
+		assertEquals(asList(road, railway, tree, bridge, building, indoor),
+				WorldCreator.sortByDependencies(asList(road, railway, tree, bridge, building, indoor)));
+
+		/* modules are moved before the modules depending on them */
+
+		List<WorldModule> result = WorldCreator.sortByDependencies(
+				asList(bridge, tree, indoor, road, building, railway));
+
+		assertEquals(6, result.size());
+		assertTrue(result.indexOf(road) < result.indexOf(bridge));
+		assertTrue(result.indexOf(railway) < result.indexOf(bridge));
+		assertTrue(result.indexOf(building) < result.indexOf(indoor));
+
+		/* missing dependencies are ignored */
+
+		assertEquals(asList(bridge, indoor), WorldCreator.sortByDependencies(asList(bridge, indoor)));
+
+	}
+
+	@Test
+	public void testParallelModules() {
+
+		TestMapDataGenerator generator = new TestMapDataGenerator();
+		for (int i = 0; i < 1000; i++) {
+			generator.createNode(i, -i);
+		}
+		MapData mapData = generator.createMapData();
+
+		BaseConfiguration config = new BaseConfiguration();
+		config.addProperty("parallelModules", true);
+
+		new WorldCreator(config, new TestWorldModule(), new TestWorldModule()).addRepresentationsTo(mapData);
+
+		for (MapNode node : mapData.getMapNodes()) {
+			assertEquals(2, node.getRepresentations().size());
+		}
+
+	}
+
+}